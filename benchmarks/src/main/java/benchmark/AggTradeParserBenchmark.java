@@ -0,0 +1,73 @@
+package benchmark;
+
+import com.alibaba.fastjson2.JSONObject;
+import com.ll.news.trades.AggTrade;
+import com.ll.news.trades.AggTradeParser;
+import io.vertx.core.buffer.Buffer;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * aggTrade解析耗时
+ * fastjson2为原来的JSONObject解析取值, parser为流式解析到复用的AggTrade,
+ * 加 -prof gc 对比每条消息的分配
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AggTradeParserBenchmark {
+
+    private static final String SPOT = "{\"stream\":\"btcusdt@aggTrade\",\"data\":{\"e\":\"aggTrade\",\"E\":1718000000123,\"s\":\"BTCUSDT\"," +
+            "\"a\":3012345678,\"p\":\"67123.45000000\",\"q\":\"0.01230000\",\"f\":3456789012,\"l\":3456789015,\"T\":1718000000122,\"m\":true,\"M\":true}}";
+
+    private static final String UM = "{\"stream\":\"ethusdt@aggTrade\",\"data\":{\"e\":\"aggTrade\",\"E\":1718000000456,\"a\":2012345678," +
+            "\"s\":\"ETHUSDT\",\"p\":\"3512.37\",\"q\":\"12.345\",\"f\":4456789012,\"l\":4456789020,\"T\":1718000000455,\"m\":false}}";
+
+    @Param({"spot", "um"})
+    public String stream;
+
+    private String text;
+
+    private Buffer buffer;
+
+    private final AggTradeParser parser = new AggTradeParser();
+
+    private final AggTrade trade = new AggTrade();
+
+    @Setup
+    public void setup() {
+        text = "spot".equals(stream) ? SPOT : UM;
+        buffer = Buffer.buffer(text);
+    }
+
+    @Benchmark
+    public void fastjson2(Blackhole bh) {
+        JSONObject data = JSONObject.parseObject(text).getJSONObject("data");
+        bh.consume(data.getString("s"));
+        bh.consume(data.getDouble("p"));
+        bh.consume(data.getDouble("q"));
+        bh.consume(data.getBoolean("m"));
+        bh.consume(data.getLong("E"));
+    }
+
+    @Benchmark
+    public AggTrade parser() {
+        parser.parse(text, trade);
+        return trade;
+    }
+
+    @Benchmark
+    public AggTrade parserBuffer() {
+        parser.parse(buffer, trade);
+        return trade;
+    }
+
+    public static void main(String[] args) throws Exception {
+        BenchmarkRunner.main(AggTradeParserBenchmark.class.getSimpleName());
+    }
+}
@@ -0,0 +1,38 @@
+package benchmark;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * 基准测试入口
+ * 参数和JMH命令行相同, 如 {@code java -jar benchmarks.jar LocatorBenchmark -prof gc}, 不带参数时运行全部。
+ * 未指定 -rf/-rff 时结果按JSON写到 jmh-results/jmh-时间.json, 目录可用 -Dbenchmark.results 修改, 用于比较不同版本的结果
+ */
+public class BenchmarkRunner {
+
+    private static final DateTimeFormatter FILE_TIME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    public static void main(String... args) throws Exception {
+        CommandLineOptions cmd = new CommandLineOptions(args);
+        ChainedOptionsBuilder builder = new OptionsBuilder().parent(cmd);
+        if (!cmd.getResultFormat().hasValue()) {
+            builder.resultFormat(ResultFormatType.JSON);
+        }
+        if (!cmd.getResult().hasValue()) {
+            Path dir = Path.of(System.getProperty("benchmark.results", "jmh-results"));
+            Files.createDirectories(dir);
+            Path file = dir.resolve("jmh-" + FILE_TIME.format(LocalDateTime.now()) + ".json");
+            builder.result(file.toString());
+            System.out.println("results: " + file.toAbsolutePath());
+        }
+        new Runner(builder.build()).run();
+    }
+}
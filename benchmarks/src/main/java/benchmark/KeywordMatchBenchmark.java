@@ -0,0 +1,103 @@
+package benchmark;
+
+import com.ll.news.entity.UserPreference;
+import com.ll.news.service.SubscriptionIndex;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 个性化推送的关键词匹配耗时
+ * index为PersonalizedNewsListener使用的订阅索引, 一次扫描得到命中的用户;
+ * scan为原来的做法, 逐个用户取关键词列表, 在小写的标题加内容里查找。
+ * 用户关键词从币种、项目和中文主题词中随机选1到8个, rebuild为全部用户重建索引的耗时
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class KeywordMatchBenchmark {
+
+    private static final String[] COINS = {"BTC", "ETH", "BNB", "SOL", "XRP", "DOGE", "TON", "ADA", "AVAX", "LINK", "DOT", "TRX",
+            "ARB", "OP", "PEPE", "WIF", "SUI", "APT", "NEAR", "FET", "Bitcoin", "Ethereum", "Solana", "Binance", "OKX", "Coinbase"};
+
+    private static final String[] TOPICS = {"美联储", "降息", "加息", "非农", "CPI", "ETF", "减半", "上币", "下架", "空投", "解锁", "质押",
+            "主网", "升级", "监管", "SEC", "稳定币", "USDT", "USDC", "黑客", "清算", "巨鲸", "期权", "合约", "现货", "链上"};
+
+    @Param({"10000"})
+    public int users;
+
+    private List<UserPreference> preferences;
+
+    private SubscriptionIndex index;
+
+    private String text;
+
+    @Setup
+    public void setup() {
+        SplittableRandom random = new SplittableRandom(7);
+        // 币种、主题和组合词, 约2000个不同关键词
+        List<String> pool = new ArrayList<>(Arrays.asList(COINS));
+        pool.addAll(Arrays.asList(TOPICS));
+        for (String coin : COINS) {
+            for (String topic : TOPICS) {
+                pool.add(coin + topic);
+            }
+        }
+        for (int i = 0; i < 1_300; i++) {
+            pool.add("token" + i);
+        }
+        preferences = new ArrayList<>(users);
+        for (int i = 0; i < users; i++) {
+            int count = 1 + random.nextInt(8);
+            Set<String> keywords = new LinkedHashSet<>();
+            while (keywords.size() < count) {
+                // 热门词更常被订阅
+                keywords.add(random.nextInt(3) == 0 ? pool.get(random.nextInt(pool.size())) : pool.get(random.nextInt(52)));
+            }
+            UserPreference user = UserPreference.builder().userId(1_000_000L + i).build();
+            user.setKeywordList(new ArrayList<>(keywords));
+            preferences.add(user);
+        }
+        index = new SubscriptionIndex();
+        index.rebuild(preferences);
+
+        String html = SessionElementBenchmark.fixture("jin10-detail.html");
+        text = "美联储维持利率不变，BTC短线拉升突破68000美元 " + html.replaceAll("<[^>]+>", " ").replaceAll("\\s+", " ");
+    }
+
+    @Benchmark
+    public Map<Long, Set<String>> index() {
+        return index.match(text);
+    }
+
+    @Benchmark
+    public int scan() {
+        int matched = 0;
+        for (UserPreference user : preferences) {
+            List<String> keywords = user.getKeywordList();
+            if (keywords.isEmpty()) {
+                continue;
+            }
+            String content = text.toLowerCase();
+            if (keywords.stream().anyMatch(keyword -> content.contains(keyword.toLowerCase()))) {
+                matched++;
+            }
+        }
+        return matched;
+    }
+
+    @Benchmark
+    public SubscriptionIndex rebuild() {
+        SubscriptionIndex rebuilt = new SubscriptionIndex();
+        rebuilt.rebuild(preferences);
+        return rebuilt;
+    }
+
+    public static void main(String[] args) throws Exception {
+        BenchmarkRunner.main(KeywordMatchBenchmark.class.getSimpleName());
+    }
+}
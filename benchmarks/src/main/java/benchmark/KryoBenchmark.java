@@ -0,0 +1,67 @@
+package benchmark;
+
+import com.ll.news.common.NewsConst;
+import com.ll.news.model.News;
+import com.ll.news.utils.KryoUtil;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * KryoUtil序列化加反序列化耗时
+ * 对象为单条News或一次抓取的一批News, classAndObject带类型信息, object不带类型, string为Base64字符串
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class KryoBenchmark {
+
+    @Param({"1", "50"})
+    public int batch;
+
+    private Object value;
+
+    private Class<?> type;
+
+    @Setup
+    public void setup() {
+        ArrayList<News> list = new ArrayList<>();
+        for (int i = 0; i < batch; i++) {
+            list.add(News.builder()
+                    .id(100_000L + i)
+                    .siteSource(NewsConst.Source.jin10_global.source())
+                    .publishTime(1_718_000_000_000L + i * 60_000L)
+                    .status(NewsConst.Status.NEW)
+                    .title("美联储维持利率不变，点阵图显示年内降息一次 " + i)
+                    .link("https://xnews.jin10.com/details/" + (150_000 + i))
+                    .tags("[]")
+                    .content("美联储宣布将联邦基金利率目标区间维持在5.25%-5.50%不变，符合市场预期。".repeat(6))
+                    .build());
+        }
+        value = batch == 1 ? list.get(0) : list;
+        type = value.getClass();
+    }
+
+    @Benchmark
+    public Object classAndObject() {
+        return KryoUtil.readFromByteArray(KryoUtil.writeToByteArray(value));
+    }
+
+    @Benchmark
+    public Object object() {
+        return KryoUtil.readObjectFromByteArray(KryoUtil.writeObjectToByteArray(value), type);
+    }
+
+    @Benchmark
+    public Object string() {
+        return KryoUtil.readFromString(KryoUtil.writeToString(value));
+    }
+
+    public static void main(String[] args) throws Exception {
+        BenchmarkRunner.main(KryoBenchmark.class.getSimpleName());
+    }
+}
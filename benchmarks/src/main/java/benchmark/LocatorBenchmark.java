@@ -0,0 +1,56 @@
+package benchmark;
+
+import com.ll.cssselectortoxpath.CssToXpath;
+import com.ll.drissonPage.base.By;
+import com.ll.drissonPage.functions.Locator;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 定位语法解析耗时
+ * parse为每次重新解析（缓存前的开销），cached为走Locator缓存后的开销
+ *
+ * @author 陆
+ * @address <a href="https://t.me/blanksig"/>click
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LocatorBenchmark {
+    /**
+     * 来源中实际使用的定位语句
+     */
+    @Param({"@class=FeedList", ".:FeedList", "tag:a", "tag:div@class:item", "x://div[@id='main']", "c:div.item > a"})
+    public String loc;
+
+    @Param({"div.item > a[href]"})
+    public String css;
+
+    @Benchmark
+    public By parse() {
+        return Locator.strToXPathLoc(loc);
+    }
+
+    @Benchmark
+    public By cached() {
+        return Locator.getLoc(loc);
+    }
+
+    @Benchmark
+    public By cachedTranslateCss() {
+        return Locator.getLoc(loc, true, false);
+    }
+
+    @Benchmark
+    public String cssToXpath() {
+        return CssToXpath.convertCssSelectorToXpath(css);
+    }
+
+    public static void main(String[] args) throws Exception {
+        BenchmarkRunner.main(LocatorBenchmark.class.getSimpleName());
+    }
+}
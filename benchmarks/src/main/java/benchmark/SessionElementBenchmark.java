@@ -0,0 +1,113 @@
+package benchmark;
+
+import com.ll.drissonPage.element.SessionElement;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SessionElement查找耗时
+ * 页面为fixtures下保存的币安广场和金十列表、详情页, 查找语句和来源中的相同。
+ * parse为解析html, lookup为在解析好的页面上按来源的方式取出每条新闻, parseAndLookup为一次完整抓取的解析开销
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SessionElementBenchmark {
+
+    @Param({"binance-square", "jin10-list", "jin10-detail"})
+    public String page;
+
+    private String html;
+
+    private SessionElement root;
+
+    @Setup
+    public void setup() {
+        html = fixture(page + ".html");
+        root = parse(html);
+    }
+
+    @Benchmark
+    public SessionElement parse() {
+        return parse(html);
+    }
+
+    @Benchmark
+    public void lookup(Blackhole bh) {
+        lookup(root, bh);
+    }
+
+    @Benchmark
+    public void parseAndLookup(Blackhole bh) {
+        lookup(parse(html), bh);
+    }
+
+    private void lookup(SessionElement root, Blackhole bh) {
+        switch (page) {
+            case "binance-square" -> binance(root, bh);
+            case "jin10-list" -> jin10List(root, bh);
+            default -> jin10Detail(root, bh);
+        }
+    }
+
+    /**
+     * 同BinanceNewsSource
+     */
+    private static void binance(SessionElement root, Blackhole bh) {
+        List<SessionElement> eles = root.ele(".:FeedList").eles(".feed-buzz-card-base-view");
+        for (SessionElement ele : eles) {
+            bh.consume(ele.ele(".create-time").rawText().strip());
+            bh.consume(ele.ele(".:card__title").rawText().strip());
+            bh.consume(ele.ele(".:card__description").rawText().strip());
+            bh.consume(ele.ele(".:feed-content-text").ele("tag:a").attr("href"));
+        }
+    }
+
+    /**
+     * 同Jin10GlobalSource的列表页
+     */
+    private static void jin10List(SessionElement root, Blackhole bh) {
+        List<SessionElement> eles = root.ele("@class=jin10-news-list").eles("@class=jin10-news-list-item-info");
+        for (SessionElement ele : eles) {
+            bh.consume(ele.ele("tag:a").link());
+        }
+    }
+
+    /**
+     * 同Jin10GlobalSource的详情页
+     */
+    private static void jin10Detail(SessionElement root, Blackhole bh) {
+        SessionElement details = root.ele("@class=jin10-news-cdetails");
+        bh.consume(details.child("tag:div").rawText());
+        bh.consume(details.ele("@class=news-app_title").rawText());
+    }
+
+    private static SessionElement parse(String html) {
+        return SessionElement.makeSessionEle(html, (String) null, 1).get(0);
+    }
+
+    static String fixture(String name) {
+        try (InputStream in = SessionElementBenchmark.class.getResourceAsStream("/fixtures/" + name)) {
+            if (in == null) {
+                throw new IllegalArgumentException("fixture not found " + name);
+            }
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        BenchmarkRunner.main(SessionElementBenchmark.class.getSimpleName());
+    }
+}
@@ -0,0 +1,51 @@
+package benchmark;
+
+import com.ll.news.entity.UserPreference;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * UserPreference关键词列表的耗时
+ * 关键词以逗号分隔的字符串保存, getKeywordList每次拆分, addAndRemove为命令处理里加一个再删掉的开销
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserPreferenceBenchmark {
+
+    @Param({"1", "8", "50"})
+    public int keywords;
+
+    private UserPreference user;
+
+    @Setup
+    public void setup() {
+        List<String> list = new ArrayList<>();
+        for (int i = 0; i < keywords; i++) {
+            list.add(i % 2 == 0 ? "BTC" + i : "美联储" + i);
+        }
+        user = UserPreference.builder().userId(1_000_000L).build();
+        user.setKeywordList(list);
+    }
+
+    @Benchmark
+    public List<String> getKeywordList() {
+        return user.getKeywordList();
+    }
+
+    @Benchmark
+    public boolean addAndRemove() {
+        user.addKeyword("ETF");
+        return user.removeKeyword("ETF");
+    }
+
+    public static void main(String[] args) throws Exception {
+        BenchmarkRunner.main(UserPreferenceBenchmark.class.getSimpleName());
+    }
+}
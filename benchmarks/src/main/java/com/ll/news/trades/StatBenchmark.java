@@ -0,0 +1,88 @@
+package com.ll.news.trades;
+
+import benchmark.BenchmarkRunner;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 单笔成交的处理耗时
+ * update为Stat写入滑动窗口和单笔阈值判断, parseAndUpdate为从收到的消息开始。
+ * 成交为预先生成的随机价格和数量, 约1%超过大额阈值, 时间每笔前进1毫秒, 窗口会持续滑动和过期。
+ * 预先生成的成交循环使用, 成交时间在写入前改为当前时间, 否则成交时间循环而当前时间递增, 窗口很快全部过期。
+ * Stat为包内可见, 放在同名包下
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StatBenchmark {
+
+    private static final int SIZE = 4096;
+
+    private static final String FRAME = "{\"stream\":\"btcusdt@aggTrade\",\"data\":{\"e\":\"aggTrade\",\"E\":%d,\"s\":\"BTCUSDT\"," +
+            "\"a\":%d,\"p\":\"%.2f\",\"q\":\"%.5f\",\"f\":%d,\"l\":%d,\"T\":%d,\"m\":%b,\"M\":true}}";
+
+    private final AggTrade[] trades = new AggTrade[SIZE];
+
+    private final String[] frames = new String[SIZE];
+
+    private final AggTradeParser parser = new AggTradeParser();
+
+    private final AggTrade parsed = new AggTrade();
+
+    private final Long amtLimit = 10L;
+
+    private AggTradePipeline.Stat stat;
+
+    private int next;
+
+    private long now;
+
+    @Setup
+    public void setup() {
+        SplittableRandom random = new SplittableRandom(42);
+        long time = 1_718_000_000_000L;
+        for (int i = 0; i < SIZE; i++) {
+            AggTrade trade = new AggTrade();
+            trade.setSymbol("BTCUSDT");
+            trade.setPrice(67_000 + random.nextDouble(-500, 500));
+            // 1%的大额成交, 其余为小额
+            trade.setQty(random.nextInt(100) == 0 ? random.nextDouble(15, 40) : random.nextDouble(0.0001, 0.5));
+            trade.setMaker(random.nextBoolean());
+            trade.setEventTime(time + i);
+            trade.setId(3_000_000_000L + i);
+            trade.setFirstId(4_000_000_000L + i * 3L);
+            trade.setLastId(4_000_000_000L + i * 3L + 2);
+            trades[i] = trade;
+            frames[i] = String.format(Locale.ROOT, FRAME, trade.getEventTime(), trade.getId(), trade.getPrice(), trade.getQty(),
+                    trade.getFirstId(), trade.getLastId(), trade.getEventTime() - 1, trade.isMaker());
+        }
+        stat = new AggTradePipeline.Stat("BTCUSDT", "BTC", "现货", new TradeWindow(1_000_000, TimeUnit.SECONDS.toMillis(60)));
+        now = time;
+    }
+
+    @Benchmark
+    public boolean update() {
+        AggTrade trade = trades[next++ & (SIZE - 1)];
+        trade.setEventTime(now);
+        return stat.update(trade, amtLimit, now++);
+    }
+
+    @Benchmark
+    public boolean parseAndUpdate() {
+        if (!parser.parse(frames[next++ & (SIZE - 1)], parsed)) {
+            return false;
+        }
+        parsed.setEventTime(now);
+        return stat.update(parsed, amtLimit, now++);
+    }
+
+    public static void main(String[] args) throws Exception {
+        BenchmarkRunner.main(StatBenchmark.class.getSimpleName());
+    }
+}
@@ -326,6 +326,9 @@ public class DatabaseMigrationService {
         // 新闻表
         createNewsTable();
 
+        // Telegram发件箱
+        createTelegramOutboxTable();
+
         // 比特币分析表
         createBitcoinAnalysisTables();
 
@@ -381,6 +384,29 @@ public class DatabaseMigrationService {
         log.info("✅ 创建新闻表索引完成");
     }
 
+    /**
+     * 创建Telegram发件箱表
+     * 消息发送前写入, 发送完成后删除, 重启后重新投递, 不需要迁移数据
+     */
+    private void createTelegramOutboxTable() {
+        String sql = """
+                CREATE TABLE IF NOT EXISTS news.telegram_outbox (
+                    id BIGSERIAL PRIMARY KEY,
+                    channel VARCHAR(64) NOT NULL,
+                    chat_id VARCHAR(64) NOT NULL,
+                    text TEXT NOT NULL,
+                    parse_mode VARCHAR(16),
+                    priority VARCHAR(16) NOT NULL DEFAULT 'NORMAL',
+                    flags INTEGER NOT NULL DEFAULT 0,
+                    created_at BIGINT NOT NULL
+                )
+                """;
+
+        targetJdbcTemplate.execute(sql);
+        targetJdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_telegram_outbox_channel ON news.telegram_outbox(channel, id)");
+        log.info("✅ 创建表: news.telegram_outbox");
+    }
+
     /**
      * 创建比特币分析表
      */
@@ -879,11 +905,29 @@ public class DatabaseMigrationService {
 
         // 外键约束（如果有的话）
         // 唯一约束
+        createNewsUniqueIndex();
         // 检查约束
 
         log.info("✅ 索引和约束创建完成");
     }
 
+    /**
+     * 新闻 (site_source, link) 唯一
+     * 批量入库的 on conflict (site_source, link) do nothing 依赖该索引, 创建前清理重复数据, 保留最早的一条
+     */
+    private void createNewsUniqueIndex() {
+        int deleted = targetJdbcTemplate.update("""
+                DELETE FROM news.news n1
+                USING news.news n2
+                WHERE n1.site_source = n2.site_source AND n1.link = n2.link AND n1.id > n2.id
+                """);
+        if (deleted > 0) {
+            log.info("🗑️  清理重复新闻: {} 条", deleted);
+        }
+        targetJdbcTemplate.execute("CREATE UNIQUE INDEX IF NOT EXISTS uk_news_source_link ON news.news(site_source, link)");
+        log.info("✅ 创建新闻唯一索引: uk_news_source_link");
+    }
+
     /**
      * 最终验证
      */
@@ -21,9 +21,24 @@ CREATE TABLE IF NOT EXISTS `news` (
   PRIMARY KEY (`id`),
   KEY `idx_publish_time` (`publish_time`),
   KEY `idx_status` (`status`),
-  KEY `idx_site_source` (`site_source`)
+  KEY `idx_site_source` (`site_source`),
+  UNIQUE KEY `uk_source_link` (`site_source`, `link`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='新闻表';
 
+-- 创建Telegram发件箱表
+CREATE TABLE IF NOT EXISTS `telegram_outbox` (
+  `id` bigint NOT NULL AUTO_INCREMENT,
+  `channel` varchar(64) NOT NULL COMMENT '发送通道',
+  `chat_id` varchar(64) NOT NULL COMMENT '聊天id',
+  `text` text NOT NULL COMMENT '消息内容',
+  `parse_mode` varchar(16) DEFAULT NULL COMMENT '格式',
+  `priority` varchar(16) NOT NULL DEFAULT 'NORMAL' COMMENT '优先级',
+  `flags` int NOT NULL DEFAULT '0' COMMENT '发送选项',
+  `created_at` bigint NOT NULL COMMENT '创建时间',
+  PRIMARY KEY (`id`),
+  KEY `idx_channel` (`channel`, `id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='Telegram发件箱';
+
 -- 使用 financial_analytics 数据库
 USE `financial_analytics`;
 
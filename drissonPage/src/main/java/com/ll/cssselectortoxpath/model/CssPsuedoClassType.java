@@ -5,6 +5,8 @@ import com.ll.cssselectortoxpath.utilities.CssSelectorToXPathConverterException;
 import com.ll.cssselectortoxpath.utilities.CssSelectorToXPathConverterInvalidFirstLastOnlyOfType;
 import com.ll.cssselectortoxpath.utilities.CssSelectorToXpathConverterInvalidNthOfType;
 
+import java.util.regex.Pattern;
+
 public enum CssPsuedoClassType {
 
     EMPTY(":empty", (e, p) -> "[not(*) and .=\"\"]"),
@@ -20,6 +22,10 @@ public enum CssPsuedoClassType {
     ONLY_CHILD(":only-child", (e, p) -> FIRST_CHILD.getXpath("", null) + LAST_CHILD.getXpath("", null));
 
 
+    private static final String POSITIVE_N = "^[+]?([0]*[1-9][0-9]*)?n([+-][0-9]+)?$";
+    private static final String NEGATIVE_N = "^[-][0-9]*n[+]([0]*[1-9][0-9]*)$";
+    private static final String NO_N = "^[+]?([1-9][0-9]*)$";
+    private static final Pattern NTH_OF_TYPE_EXPRESSION = Pattern.compile("odd|even|" + POSITIVE_N + "|" + NEGATIVE_N + "|" + NO_N);
     private final String typeString;
     private final CssPseudoClassToXpath toXpath;
 
@@ -72,12 +78,7 @@ public enum CssPsuedoClassType {
         if (element == null || element.equals("*")) {
             throw new CssSelectorToXPathConverterInvalidFirstLastOnlyOfType();
         } else {
-            String positiveN = "^[+]?([0]*[1-9][0-9]*)?n([+-][0-9]+)?$";
-            String negativeN = "^[-][0-9]*n[+]([0]*[1-9][0-9]*)$";
-            String noN = "^[+]?([1-9][0-9]*)$";
-
-            String nthOfTypeRe = "odd|even|" + positiveN + "|" + negativeN + "|" + noN;
-            if (parenthesisExpression.matches(nthOfTypeRe)) {
+            if (NTH_OF_TYPE_EXPRESSION.matcher(parenthesisExpression).matches()) {
                 return ofType;
             } else {
                 throw new CssSelectorToXpathConverterInvalidNthOfType(parenthesisExpression);
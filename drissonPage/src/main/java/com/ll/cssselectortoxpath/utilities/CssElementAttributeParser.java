@@ -22,6 +22,10 @@ public class CssElementAttributeParser {
     private static final String ELEMENT_ATTRIBUTE_NAME_RE = "(-?[_a-zA-Z]+[_a-zA-Z0-9-]*)";
     private static final String STARTING_ELEMENT_RE = "^(" + ELEMENT_ATTRIBUTE_NAME_RE + "|([*]))?";
     private static final String ATTRIBUTE_RE = String.format("(%s|(\\[\\s*%s\\s*%s\\s*((%s%s%s)|(%s))?\\s*\\]))", PSUEDO_RE, ELEMENT_ATTRIBUTE_NAME_RE, ATTRIBUTE_TYPE_RE, QUOTES_RE, ATTRIBUTE_VALUE_RE, QUOTES_RE, ATTRIBUTE_VALUE_RE_NO_SPACES);
+    private static final Pattern ELEMENT_WITH_ATTRIBUTES = Pattern.compile(STARTING_ELEMENT_RE + ATTRIBUTE_RE + "*$");
+    private static final Pattern STARTING_ELEMENT = Pattern.compile(STARTING_ELEMENT_RE);
+    private static final Pattern ATTRIBUTE = Pattern.compile(ATTRIBUTE_RE);
+    private static final Pattern PSUEDO_CLASS_WITH_PARENTHESIS = Pattern.compile("(:[a-z][a-z\\-]*)(\\()([^)]+)(\\))");
 
 
     private static String createElementAttributeNameRegularExpression() {
@@ -45,8 +49,7 @@ public class CssElementAttributeParser {
         int reIndexStartingQuote = reIndexAttributeValue + 2;
         int reIndexEndingQuote = reIndexStartingQuote + 2;
         //System.out.println("checkValid: "+elementWithAttributesString+" ,re="+STARTING_ELEMENT_RE+ATTRIBUTE_RE+"*$");
-        Pattern cssElementAtributePattern = Pattern.compile(STARTING_ELEMENT_RE + ATTRIBUTE_RE + "*$");
-        Matcher match = cssElementAtributePattern.matcher(elementWithAttributesString);
+        Matcher match = ELEMENT_WITH_ATTRIBUTES.matcher(elementWithAttributesString);
         if (!match.find()) {
             throw new CssSelectorToXPathConverterException(ERROR_INVALID_ELEMENT_AND_OR_ATTRIBUTES);
         }
@@ -77,8 +80,7 @@ public class CssElementAttributeParser {
         int reIndexAttributeValueWithoutQuotes = reIndexAttributeValueWithinQuotes + 2;
 
         checkValid(elementWithAttributesString);
-        Pattern startingCssElementAtributePattern = Pattern.compile(STARTING_ELEMENT_RE);
-        Matcher match = startingCssElementAtributePattern.matcher(elementWithAttributesString);
+        Matcher match = STARTING_ELEMENT.matcher(elementWithAttributesString);
         List<CssAttribute> attributeList = new ArrayList<CssAttribute>();
 
         String element = null;
@@ -89,9 +91,8 @@ public class CssElementAttributeParser {
                 //System.out.println(possibleElement);
             }
         }
-        Pattern restOfCssElementAtributePattern = Pattern.compile(ATTRIBUTE_RE);
         //System.out.println(ATTRIBUTE_RE);
-        match = restOfCssElementAtributePattern.matcher(elementWithAttributesString);
+        match = ATTRIBUTE.matcher(elementWithAttributesString);
 
 
         while (match.find()) {
@@ -100,10 +101,9 @@ public class CssElementAttributeParser {
                 CssPsuedoClassType psuedoClassType;
                 String parenthesisExpression = null;
                 try {
-                    Pattern psuedoClassWithParenethesisExpression = Pattern.compile("(:[a-z][a-z\\-]*)(\\()([^)]+)(\\))");
-                    Matcher psuedoClassWithParenethesisExpressionMatch = psuedoClassWithParenethesisExpression.matcher(psuedoClass);
+                    Matcher psuedoClassWithParenethesisExpressionMatch = PSUEDO_CLASS_WITH_PARENTHESIS.matcher(psuedoClass);
                     if (psuedoClassWithParenethesisExpressionMatch.find()) {
-                        parenthesisExpression = psuedoClassWithParenethesisExpressionMatch.group(3).replaceAll(CssSelectorStringSplitter.NTH_OF_TYPE_PLACEHOLDER, "+");
+                        parenthesisExpression = psuedoClassWithParenethesisExpressionMatch.group(3).replace(CssSelectorStringSplitter.NTH_OF_TYPE_PLACEHOLDER, "+");
                         psuedoClass = psuedoClassWithParenethesisExpressionMatch.group(1);
 //						System.out.println("psuedoClass="+psuedoClass + ", parenthesisExpression="+parenthesisExpression);
                     }
@@ -23,6 +23,19 @@ public class CssSelectorStringSplitter {
     private static final String ELEMENT_AND_ATTRIBUTE = "([^" + COMBINATORS + "\\[]*((\\[[^]]+])|" + CssElementAttributeParser.PSUEDO_RE + ")*)";
     private static final String ELEMENT_AND_ATTRIBUTE_FOLLOWED_BY_COMBINATOR_AND_REST_OF_LINE = "^" + ELEMENT_AND_ATTRIBUTE + "($|(\\s*(" + COMBINATOR_RE + ")\\s*" + "([^" + COMBINATORS + "].*)$))";
     private static final String PLACE_HOLDER = "~@_placeHolder_@";
+    private static final Pattern SPACE_OR_TAB = Pattern.compile("[ \\t]+");
+    private static final Pattern WHITE_SPACE = Pattern.compile("\\s+");
+    private static final Pattern PLACE_HOLDERS = Pattern.compile("(" + PLACE_HOLDER + ")+");
+    private static final Pattern NTH_OF_TYPE = Pattern.compile(":nth(-last)?-((of-type)|child)[(][^)]+[)]");
+    private static final Pattern PLUS = Pattern.compile("\\+");
+    private static final Pattern INVALID_ID = Pattern.compile("#[.#\\[]");
+    private static final Pattern INVALID_CLASS = Pattern.compile("[.][.#\\[]");
+    private static final Pattern NOT_OPEN_BRACKET = Pattern.compile("[^\\[]");
+    private static final Pattern NOT_CLOSE_BRACKET = Pattern.compile("[^]]");
+    private static final Pattern ATTRIBUTE_GENERAL = Pattern.compile("([^\\[]*)((\\[[^]]*])*)");
+    private static final Pattern CSS_COMBINATOR = Pattern.compile(ELEMENT_AND_ATTRIBUTE_FOLLOWED_BY_COMBINATOR_AND_REST_OF_LINE);
+    private static final Pattern CLASS_COMBINATOR = Pattern.compile("[.]" + classIdCombinatorRE());
+    private static final Pattern ID_COMBINATOR = Pattern.compile("[#]" + classIdCombinatorRE());
 
     protected String removeNonCssSelectorWhiteSpaces(String selectorString) throws CssSelectorToXPathConverterException {
 //	This method should perform the following
@@ -47,9 +60,9 @@ public class CssSelectorStringSplitter {
             throw new CssSelectorToXPathConverterException(ERROR_EMPTY_CSS_SELECTOR);
         } else {
             selectorString = selectorString.trim();
-            selectorString = selectorString.replaceAll("[ \\t]+", PLACE_HOLDER);
-            selectorString = selectorString.replaceAll("\\s+", "");
-            selectorString = selectorString.replaceAll("(" + PLACE_HOLDER + ")+", " ");
+            selectorString = SPACE_OR_TAB.matcher(selectorString).replaceAll(PLACE_HOLDER);
+            selectorString = WHITE_SPACE.matcher(selectorString).replaceAll("");
+            selectorString = PLACE_HOLDERS.matcher(selectorString).replaceAll(" ");
             selectorString = classIdAttributeIssueHandler(selectorString, "#", "id=");
             selectorString = classIdAttributeIssueHandler(selectorString, ".", "class~=");
             selectorString = nthOfTypeHandler(selectorString);
@@ -59,8 +72,7 @@ public class CssSelectorStringSplitter {
 
     private String nthOfTypeHandler(String selectorString) {
 //		Pattern nthOfTypeRe = Pattern.compile("(.*)(:nth-of-type[(][^)]+[)])(.*)");
-        Pattern nthOfTypeRe = Pattern.compile(":nth(-last)?-((of-type)|child)[(][^)]+[)]");
-        Matcher match = nthOfTypeRe.matcher(selectorString);
+        Matcher match = NTH_OF_TYPE.matcher(selectorString);
         int start = 0;
         while (match.find(start)) {
             String nthOfType = match.group(0);
@@ -68,21 +80,21 @@ public class CssSelectorStringSplitter {
             int i = selectorString.indexOf(nthOfType, start);
             start = i + length;
             nthOfType = nthOfType.toLowerCase();
-            nthOfType = nthOfType.replaceAll(" ", "");
-            nthOfType = nthOfType.replaceAll("\\+", NTH_OF_TYPE_PLACEHOLDER);
+            nthOfType = nthOfType.replace(" ", "");
+            nthOfType = PLUS.matcher(nthOfType).replaceAll(NTH_OF_TYPE_PLACEHOLDER);
             selectorString = selectorString.substring(0, i) + nthOfType + selectorString.substring(start);
             length = nthOfType.length();
             start = i + length;
             if (start == selectorString.length()) {
                 break;
             }
-            match = nthOfTypeRe.matcher(selectorString);
+            match = NTH_OF_TYPE.matcher(selectorString);
         }
         return selectorString;
 
     }
 
-    private String classIdCombinatorRE() {
+    private static String classIdCombinatorRE() {
         StringBuilder builder = new StringBuilder("([^.#\\[,:");
         for (CssCombinatorType combinatorType : CssCombinatorType.values()) {
             builder.append(combinatorType.getCombinatorChar());
@@ -93,16 +105,13 @@ public class CssSelectorStringSplitter {
     }
 
     protected void invalidClassIdPairCheck(String selectorString, boolean testId) throws CssSelectorToXPathConverterException {
-        String nextSelectorIdentifier = "[.#\\[]";
         if (testId) {
-            Pattern pattern = Pattern.compile("#" + nextSelectorIdentifier);
-            Matcher match = pattern.matcher(selectorString);
+            Matcher match = INVALID_ID.matcher(selectorString);
             if (match.find()) {
                 throw new CssSelectorToXPathConverterException(ERROR_INVALID_ID_CSS_SELECTOR);
             }
         } else {
-            Pattern pattern = Pattern.compile("[.]" + nextSelectorIdentifier);
-            Matcher match = pattern.matcher(selectorString);
+            Matcher match = INVALID_CLASS.matcher(selectorString);
             if (match.find()) {
                 throw new CssSelectorToXPathConverterException(ERROR_INVALID_CLASS_CSS_SELECTOR);
             }
@@ -110,28 +119,26 @@ public class CssSelectorStringSplitter {
     }
 
     private String classIdAttributeIssueHandler(String selectorString, String classOrIdChar, String classOrIdPartialAttributeNameAndRelationship) throws CssSelectorToXPathConverterException {
-        if (selectorString.replaceAll("[^\\[]", "").length() != selectorString.replaceAll("[^]]", "").length()) {
+        if (NOT_OPEN_BRACKET.matcher(selectorString).replaceAll("").length() != NOT_CLOSE_BRACKET.matcher(selectorString).replaceAll("").length()) {
             throw new CssSelectorToXPathConverterException(ERROR_INVALID_CSS_SELECTOR_INCONSISTENT_BRACKETS);
         }
-        String classOrIdCharacterRE = "[" + classOrIdChar + "]";
-        String attributeGeneralRE = "([^\\[]*)((\\[[^]]*])*)";
-        Pattern pattern = Pattern.compile(attributeGeneralRE);
-        Matcher match = pattern.matcher(selectorString);
+        boolean isId = "#".equals(classOrIdChar);
+        Matcher match = ATTRIBUTE_GENERAL.matcher(selectorString);
         boolean found = false;
         StringBuilder stringBuffer = new StringBuilder();
         while (match.find()) {
             stringBuffer.append(match.group(1));
-            stringBuffer.append(match.group(2).replaceAll(classOrIdCharacterRE, PLACE_HOLDER));
+            stringBuffer.append(match.group(2).replace(classOrIdChar, PLACE_HOLDER));
 
             found = true;
         }
         selectorString = stringBuffer.toString();
 
-        selectorString = selectorString.replaceAll(classOrIdCharacterRE + classIdCombinatorRE(), "[" + classOrIdPartialAttributeNameAndRelationship + "\"$1\"]");
-        invalidClassIdPairCheck(selectorString, "#".equals(classOrIdChar));
+        selectorString = (isId ? ID_COMBINATOR : CLASS_COMBINATOR).matcher(selectorString).replaceAll("[" + classOrIdPartialAttributeNameAndRelationship + "\"$1\"]");
+        invalidClassIdPairCheck(selectorString, isId);
 
         if (found) {
-            selectorString = selectorString.replaceAll(PLACE_HOLDER, classOrIdChar);
+            selectorString = selectorString.replace(PLACE_HOLDER, classOrIdChar);
         }
 
         return selectorString;
@@ -170,8 +177,7 @@ public class CssSelectorStringSplitter {
 
     protected void recursiveSelectorSplit(CssCombinatorType previousCombinatorType, String cssSelector, List<CssElementCombinatorPair> selectorList) throws CssSelectorToXPathConverterException {
 //		System.out.println("Original String:"+cssSelector);
-        Pattern cssCombinator = Pattern.compile(ELEMENT_AND_ATTRIBUTE_FOLLOWED_BY_COMBINATOR_AND_REST_OF_LINE);
-        Matcher match = cssCombinator.matcher(cssSelector);
+        Matcher match = CSS_COMBINATOR.matcher(cssSelector);
         //System.out.println(XY);
         if (match.find()) {
             CssCombinatorType type = CssCombinatorType.combinatorTypeChar(match.group(8));
@@ -179,7 +185,7 @@ public class CssSelectorStringSplitter {
             if (type != null) {
                 String firstCssSelector = match.group(1);
 //				System.out.println("firstCssSelector:"+firstCssSelector);
-                firstCssSelector = firstCssSelector.replaceAll(NTH_OF_TYPE_PLACEHOLDER, "+");
+                firstCssSelector = firstCssSelector.replace(NTH_OF_TYPE_PLACEHOLDER, "+");
                 if (firstCssSelector.isEmpty()) {
                     throw new CssSelectorToXPathConverterException(ERROR_EMPTY_CSS_SELECTOR);
                 }
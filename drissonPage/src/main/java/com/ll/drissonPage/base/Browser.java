@@ -20,6 +20,7 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
@@ -204,6 +205,36 @@ public class Browser implements Occupant {
         return result;
     }
 
+    /**
+     * 异步执行Chrome DevTools Protocol语句，不阻塞调用线程
+     *
+     * @param cmd     协议项目
+     * @param cmdArgs 参数
+     * @return 执行的结果，与ChromiumBase.runCdpAsync一致：忽略错误时为null，否则出错时以对应异常结束
+     */
+    public CompletableFuture<JSONObject> runCdpAsync(String cmd, Map<String, Object> cmdArgs) {
+        cmdArgs = new HashMap<>(cmdArgs == null ? new HashMap<>() : cmdArgs);
+        Object ignore = cmdArgs.remove("_ignore");
+        return driver.runAsync(cmd, cmdArgs).thenApply(result -> {
+            if (result != null && result.containsKey(__ERROR__)) {
+                Tools.raiseError(result, ignore);
+                return null;
+            }
+            return result;
+        });
+    }
+
+    /**
+     * 批量执行同一个Chrome DevTools Protocol语句，所有命令先连续发出再一起等待
+     *
+     * @param cmd        协议项目
+     * @param paramsList 每条命令的参数
+     * @return 与参数顺序一致的执行结果
+     */
+    public List<JSONObject> runCdpBatch(String cmd, List<Map<String, Object>> paramsList) {
+        return Tools.joinAll(paramsList.stream().map(params -> runCdpAsync(cmd, params)).collect(Collectors.toList()));
+    }
+
     /**
      * 返回标签页数量
      */
@@ -70,6 +70,15 @@ public class By {
         return new By(BySelect.PARTIAL_TEXT, Objects.requireNonNullElse(value, "Cannot find elements when the partial text is null."));
     }
 
+    /**
+     * 复制一份，By是可变的，缓存中的对象不能直接交给调用方
+     *
+     * @return 新的By对象
+     */
+    public By copy() {
+        return new By(name, value);
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -13,14 +13,14 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.TreeMap;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * 驱动
+ * 浏览器返回的数据直接在OkHttp的WebSocket回调里解析和分发，
+ * 命令结果按id交给等待中的CompletableFuture，空闲时不占用CPU
  *
  * @author 陆
  * @address <a href="https://t.me/blanksig"/>click
@@ -49,32 +49,38 @@ public class Driver {
     public boolean warningDebug;
     private final String websocketUrl;
     private final AtomicInteger curId;
-
     /**
-     * 会话返回值
+     * 未收到回复时重发命令的间隔（毫秒）
+     */
+    private static final long RESEND_INTERVAL = 4000L;
+    /**
+     * 最多重发次数
      */
-    private final LinkedBlockingQueue<String> webSocketMsg = new LinkedBlockingQueue<>();
-    private final Thread recvThread;
+    private static final int RESEND_TIMES = 5;
+
     private final Thread handleEventThread;
     @Getter
     private AtomicBoolean stopped;
     private final BlockingQueue<TreeMap<String, Object>> eventQueue;
     private final BlockingQueue<TreeMap<String, Object>> immediateEventQueue;
-    private final TreeMap<String, MyRunnable> eventHandlers;
-    private final TreeMap<String, MyRunnable> immediateEventHandlers;
-    private final TreeMap<Integer, BlockingQueue<TreeMap<String, Object>>> methodResults;
+    private final Map<String, MyRunnable> eventHandlers;
+    private final Map<String, MyRunnable> immediateEventHandlers;
+    /**
+     * 等待结果的命令 id -> 结果
+     */
+    private final Map<Integer, CompletableFuture<JSONObject>> methodResults;
     /**
      * 创建这个驱动的对象
      */
     @Getter
     @Setter
     private Occupant occupant;
-    private boolean alertFlag;
+    private volatile boolean alertFlag;
     private static final OkHttpClient okHttpClient = new OkHttpClient().newBuilder().connectTimeout(5, TimeUnit.SECONDS).callTimeout(5, TimeUnit.SECONDS).readTimeout(5, TimeUnit.SECONDS).pingInterval(5, TimeUnit.SECONDS).build();
     /**
      * 会话驱动
      */
-    private WebSocket ws;
+    private volatile WebSocket ws;
     private Thread handleImmediateEventThread;
 
     public Driver(String tabId, String tabType, String address) {
@@ -99,18 +105,15 @@ public class Driver {
         this.curId = new AtomicInteger(0);
         this.ws = null;
 
-
-        this.recvThread = new Thread(this::recvLoop);
         this.handleEventThread = new Thread(this::handleEventLoop);
-        this.recvThread.setDaemon(true);
         this.handleEventThread.setDaemon(true);
         this.handleImmediateEventThread = null;
 
         this.stopped = new AtomicBoolean();
 
-        this.eventHandlers = new TreeMap<>();
-        this.immediateEventHandlers = new TreeMap<>();
-        this.methodResults = new TreeMap<>();
+        this.eventHandlers = new ConcurrentHashMap<>();
+        this.immediateEventHandlers = new ConcurrentHashMap<>();
+        this.methodResults = new ConcurrentHashMap<>();
         this.eventQueue = new LinkedBlockingQueue<>();
         this.immediateEventQueue = new LinkedBlockingQueue<>();
         start();
@@ -132,8 +135,8 @@ public class Driver {
         if (this.debug) System.out.println("发->" + messageJson);
         //计算等待时间
         long endTime = (long) (System.currentTimeMillis() + timeout * 1000L);
-        LinkedBlockingQueue<TreeMap<String, Object>> value = new LinkedBlockingQueue<>();
-        methodResults.put(wsId, value);
+        CompletableFuture<JSONObject> future = new CompletableFuture<>();
+        methodResults.put(wsId, future);
         try {
             ws.send(messageJson);
             if (timeout <= 0) {
@@ -143,82 +146,85 @@ public class Driver {
         } catch (Exception e) {
             e.printStackTrace();
             methodResults.remove(wsId);
-            return new JSONObject(Map.of("error", Map.of("message", "connection disconnected"), "type", "connection_error"));
+            return connectionError();
         }
-        int i = 5;
-        long endTimes = System.currentTimeMillis() + 1000L;
-        while (!stopped.get()) {
-            try {
-                Map<String, Object> result = methodResults.get(wsId).poll(4, TimeUnit.SECONDS);
-                if (result == null && System.currentTimeMillis() < endTimes) continue;
-                if (result == null && i > 0 && System.currentTimeMillis() > endTimes) {
-                    i--;
-                    endTimes = System.currentTimeMillis() + 1000L;
-                    if (warningDebug) System.out.println("超时或者丢包，重新发送:->" + messageJson);
-                    ws.send(messageJson);
-                    continue;
-                }
-                methodResults.remove(wsId);
-                if (result == null) throw new NullPointerException();
-                return new JSONObject(result);
-            } catch (InterruptedException | NullPointerException | IllegalArgumentException e) {
-//                e.printStackTrace();
-                String string = message.get("method").toString();
-                if (alertFlag && string.startsWith("Input.") || string.startsWith("Runtime.")) {
-                    return new JSONObject(Map.of("error", Map.of("message", "alert exists."), "type", "alert_exists"));
-                }
-                if (timeout > 0 && System.currentTimeMillis() > endTime) {
-                    methodResults.remove(wsId);
-                    return alertFlag ? new JSONObject(Map.of("error", Map.of("message", "alert exists."), "type", "alert_exists")) : new JSONObject(Map.of("error", Map.of("message", "timeout"), "type", "timeout"));
+        String method = message.get("method").toString();
+        int i = RESEND_TIMES;
+        try {
+            while (!stopped.get()) {
+                long remain = endTime - System.currentTimeMillis();
+                if (remain <= 0) break;
+                try {
+                    return future.get(Math.min(remain, RESEND_INTERVAL), TimeUnit.MILLISECONDS);
+                } catch (TimeoutException e) {
+                    if (alertFlag && (method.startsWith("Input.") || method.startsWith("Runtime."))) {
+                        return alertExists();
+                    }
+                    if (i > 0 && !stopped.get()) {
+                        i--;
+                        if (warningDebug) System.out.println("超时或者丢包，重新发送:->" + messageJson);
+                        WebSocket socket = ws;
+                        if (socket != null) socket.send(messageJson);
+                    }
                 }
             }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            return connectionError();
+        } finally {
+            methodResults.remove(wsId);
         }
+        if (stopped.get()) return connectionError();
+        return alertFlag ? alertExists() : timeoutError();
+    }
 
+    private static JSONObject connectionError() {
         return new JSONObject(Map.of("error", Map.of("message", "connection disconnected"), "type", "connection_error"));
     }
 
+    private static JSONObject alertExists() {
+        return new JSONObject(Map.of("error", Map.of("message", "alert exists."), "type", "alert_exists"));
+    }
+
+    private static JSONObject timeoutError() {
+        return new JSONObject(Map.of("error", Map.of("message", "timeout"), "type", "timeout"));
+    }
+
     /**
-     * 接收浏览器信息的守护线程方法
+     * 分发浏览器返回的信息，在WebSocket回调线程中执行
+     * 命令结果直接完成对应的Future，事件放入事件队列
+     *
+     * @param text 浏览器返回的数据
      */
-    private void recvLoop() {
-        while (!stopped.get()) {
-            JSONObject msg;
-            try {
-                String andSet = webSocketMsg.poll();
-                if (andSet != null) {
-                    msg = JSONObject.parseObject(andSet);
-                } else continue;
-            } catch (Exception e) {
-                if (stop()) return;
-                return;
+    private void dispatch(String text) {
+        if (stopped.get()) return;
+        JSONObject msg;
+        try {
+            msg = JSONObject.parseObject(text);
+        } catch (Exception e) {
+            if (this.debug) System.out.println("解析失败->" + text);
+            return;
+        }
+        if (this.debug) System.out.println("<-收" + msg);
 
+        if (msg.containsKey("method")) {
+            if (msg.getString("method").startsWith("Page.javascriptDialog")) {
+                alertFlag = msg.getString("method").endsWith("Opening");
             }
-            if (this.debug) System.out.println("<-收" + msg);
-
-            if (msg.containsKey("method")) {
-                if (msg.getString("method").startsWith("Page.javascriptDialog")) {
-                    alertFlag = msg.getString("method").endsWith("Opening");
-                }
-                MyRunnable function = immediateEventHandlers.get(msg.getString("method"));
-                if (function != null) {
-                    this.handleImmediateEvent(function, msg.getOrDefault("params", new HashMap<>()));
-                } else {
-                    try {
-                        eventQueue.put(new TreeMap<>(msg));
-                    } catch (InterruptedException e) {
-                        throw new RuntimeException(e);
-                    }
-                }
-            } else if (methodResults.containsKey(msg.getInteger("id"))) {
-                try {
-                    this.methodResults.get(msg.getInteger("id")).put(new TreeMap<>(msg));
-                } catch (InterruptedException e) {
-                    throw new RuntimeException(e);
-                }
+            MyRunnable function = immediateEventHandlers.get(msg.getString("method"));
+            if (function != null) {
+                this.handleImmediateEvent(function, msg.getOrDefault("params", new HashMap<>()));
+            } else {
+                eventQueue.add(new TreeMap<>(msg));
+            }
+        } else {
+            CompletableFuture<JSONObject> future = msg.containsKey("id") ? methodResults.get(msg.getInteger("id")) : null;
+            if (future != null) {
+                future.complete(msg);
             } else if (this.debug) {
                 System.out.println("未知错误->" + msg);
             }
-
         }
     }
 
@@ -309,16 +315,101 @@ public class Driver {
         double timeout = timeout1 != null ? Float.parseFloat(timeout1.toString()) : Settings.cdpTimeout;
 
         JSONObject result = this.send(Map.of("method", method, "params", params), timeout);
+        return JSON.toJSONString(toResult(result, method, params, timeout));
+    }
+
+    /**
+     * 异步执行cdp方法，发送后立即返回，不阻塞调用线程
+     * 多个命令可以连续发送，在同一个连接上流水线执行，再一起等待结果，超时重发与{@link #run(String, Map)}相同
+     *
+     * @param method 方法
+     * @param params 参数，_timeout为超时时间（秒），_resend为false时不重发，用于本身就要等待很久的命令
+     * @return 执行结果，格式与{@link #run(String, Map)}相同
+     */
+    public CompletableFuture<JSONObject> runAsync(String method, Map<String, Object> params) {
+        params = params == null ? new HashMap<>() : new HashMap<>(params);
+        Object timeout1 = params.remove("_timeout");
+        double timeout = timeout1 != null ? Float.parseFloat(timeout1.toString()) : Settings.cdpTimeout;
+        boolean resend = !Boolean.FALSE.equals(params.remove("_resend"));
+        Map<String, Object> args = params;
+        return this.sendAsync(Map.of("method", method, "params", params), timeout, resend).thenApply(result -> toResult(result, method, args, timeout));
+    }
+
+    /**
+     * 发送信息到浏览器，不等待返回
+     *
+     * @param message 发送给浏览器的数据
+     * @param timeout 超时时间（秒），小于等于0表示不需要返回
+     * @param resend  未返回时是否重发
+     * @return 浏览器返回的数据
+     */
+    private CompletableFuture<JSONObject> sendAsync(Map<String, Object> message, double timeout, boolean resend) {
+        WebSocket socket = ws;
+        if (stopped.get() || socket == null) return CompletableFuture.completedFuture(connectionError());
+        message = new HashMap<>(message);
+        int wsId = curId.incrementAndGet();
+        message.put("id", wsId);
+        String messageJson = JSON.toJSONString(message);
+
+        if (this.debug) System.out.println("发->" + messageJson);
+        if (timeout <= 0) {
+            return CompletableFuture.completedFuture(socket.send(messageJson) ? new JSONObject(Map.of("id", wsId, "result", Map.of())) : connectionError());
+        }
+        CompletableFuture<JSONObject> future = new CompletableFuture<>();
+        methodResults.put(wsId, future);
+        if (!socket.send(messageJson)) {
+            methodResults.remove(wsId);
+            return CompletableFuture.completedFuture(connectionError());
+        }
+        scheduleResend(future, message.get("method").toString(), messageJson, (long) (System.currentTimeMillis() + timeout * 1000L), resend ? RESEND_TIMES : 0);
+        return future.whenComplete((result, e) -> methodResults.remove(wsId));
+    }
+
+    /**
+     * 与同步发送相同：每隔RESEND_INTERVAL检查一次，有弹窗时Input和Runtime命令直接返回，
+     * 否则视为丢包重新发送，最多RESEND_TIMES次，到期仍未返回时以超时结束
+     */
+    private void scheduleResend(CompletableFuture<JSONObject> future, String method, String messageJson, long endTime, int resends) {
+        long remain = endTime - System.currentTimeMillis();
+        if (remain <= 0) {
+            future.complete(alertFlag ? alertExists() : timeoutError());
+            return;
+        }
+        CompletableFuture.delayedExecutor(Math.min(remain, RESEND_INTERVAL), TimeUnit.MILLISECONDS).execute(() -> {
+            if (future.isDone()) return;
+            if (stopped.get()) {
+                future.complete(connectionError());
+                return;
+            }
+            if (alertFlag && (method.startsWith("Input.") || method.startsWith("Runtime."))) {
+                future.complete(alertExists());
+                return;
+            }
+            int left = resends;
+            if (left > 0) {
+                left--;
+                if (warningDebug) System.out.println("超时或者丢包，重新发送:->" + messageJson);
+                WebSocket socket = ws;
+                if (socket != null) socket.send(messageJson);
+            }
+            scheduleResend(future, method, messageJson, endTime, left);
+        });
+    }
+
+    /**
+     * 将浏览器返回的数据转换为执行结果
+     */
+    private static JSONObject toResult(JSONObject result, String method, Map<String, Object> params, double timeout) {
         if (!result.containsKey("result") && result.containsKey("error")) {
-            HashMap<String, Object> map = new HashMap<>();
+            JSONObject map = new JSONObject();
             map.put("error", result.getJSONObject("error").get("message"));
             map.put("type", result.getOrDefault("type", "call_method_error"));
             map.put("method", method);
             map.put("args", params);
             map.put("timeout", timeout);
-            return JSON.toJSONString(map);
+            return map;
         } else {
-            return JSON.toJSONString(result.get("result"));
+            return result.getJSONObject("result");
         }
     }
 
@@ -345,12 +436,14 @@ public class Driver {
 
                 @Override
                 public void onFailure(@NotNull WebSocket webSocket, @NotNull Throwable t, Response response) {
+                    // 连接已断开，唤醒所有等待中的命令
+                    stop();
                     super.onFailure(webSocket, t, response);
                 }
 
                 @Override
                 public void onMessage(@NotNull WebSocket webSocket, @NotNull String text) {
-                    webSocketMsg.add(text);
+                    dispatch(text);
                     super.onMessage(webSocket, text);
                 }
 
@@ -365,7 +458,6 @@ public class Driver {
                 }
 
             });
-            recvThread.start();
             handleEventThread.start();
         } catch (Exception e) {
             e.printStackTrace();
@@ -378,11 +470,12 @@ public class Driver {
      */
     public boolean stop() {
         stop1();
-        while (this.recvThread.isAlive() || this.handleEventThread.isAlive()) {
+        // 事件回调里调用stop时不能等待自己
+        if (Thread.currentThread() != this.handleEventThread && this.handleEventThread.isAlive()) {
             try {
-                TimeUnit.MILLISECONDS.sleep(100);
+                this.handleEventThread.join();
             } catch (InterruptedException e) {
-                throw new RuntimeException(e);
+                Thread.currentThread().interrupt();
             }
         }
         return true;
@@ -394,12 +487,13 @@ public class Driver {
     private void stop1() {
 
         if (debug) System.out.println("关闭");
-        if (stopped.get()) return;
-        stopped.set(!stopped.get());
-        if (ws != null) {
-            ws.close(1000, "");
+        if (!stopped.compareAndSet(false, true)) return;
+        WebSocket socket = ws;
+        if (socket != null) {
+            socket.close(1000, "");
             ws = null;
         }
+        methodResults.values().forEach(future -> future.complete(connectionError()));
         try {
             while (!eventQueue.isEmpty()) {
                 Map<String, Object> event = eventQueue.poll();
@@ -430,7 +524,7 @@ public class Driver {
      * @param immediate 是否要立即处理的动作
      */
     public void setCallback(String event, MyRunnable callback, boolean immediate) {
-        TreeMap<String, MyRunnable> handler = immediate ? immediateEventHandlers : eventHandlers;
+        Map<String, MyRunnable> handler = immediate ? immediateEventHandlers : eventHandlers;
         if (callback != null) handler.put(event, callback);
         else handler.remove(event);
     }
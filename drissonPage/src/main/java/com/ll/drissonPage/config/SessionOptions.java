@@ -342,9 +342,20 @@ public class SessionOptions {
     }
 
     public HttpClient makeSession() {
+        return makeSession(new OkHttpClient().newBuilder());
+    }
+
+    /**
+     * 在指定的builder上构建Session对象
+     * builder由共享客户端派生时，会复用其连接池和dispatcher
+     *
+     * @param builder OkHttpClient.Builder对象
+     * @return HttpClient对象
+     */
+    public HttpClient makeSession(OkHttpClient.Builder builder) {
         List<Header> headers = new ArrayList<>();
         this.headers.forEach((a, b) -> headers.add(new Header(a, b)));
-        OkHttpClient.Builder builder = new OkHttpClient().newBuilder().readTimeout(120, TimeUnit.SECONDS);
+        builder.readTimeout(120, TimeUnit.SECONDS);
 
         builder.addInterceptor(new Interceptor() {
             @NotNull
@@ -390,12 +401,30 @@ public class SessionOptions {
         if (this.verify != null) {
             builder.setHostnameVerifier$okhttp((s, sslSession) -> this.verify);
         }
+        //重定向次数由拦截器控制，连接池保持共享
         if (this.maxRedirects != null) {
-            builder.setConnectionPool$okhttp(new ConnectionPool(this.maxRedirects, 5, TimeUnit.MINUTES));
+            builder.followRedirects(false).followSslRedirects(false);
+            if (this.maxRedirects > 0) builder.addInterceptor(new RedirectInterceptor(this.maxRedirects));
         }
         return new HttpClient(builder.build(), headers);
     }
 
+    /**
+     * 返回影响Session构建的配置指纹，指纹相同的配置可共用同一个OkHttpClient
+     *
+     * @return 指纹字符串
+     */
+    public String fingerprint() {
+        return new StringJoiner("|")
+                .add(String.valueOf(this.headers == null ? null : new TreeMap<>(this.headers)))
+                .add(String.valueOf(this.proxies == null ? null : new TreeMap<>(this.proxies)))
+                .add(String.valueOf(this.cookies))
+                .add(String.valueOf(this.timeout))
+                .add(String.valueOf(this.verify))
+                .add(String.valueOf(this.maxRedirects))
+                .toString();
+    }
+
     /**
      * 从Session对象中读取配置
      *
@@ -438,11 +467,45 @@ public class SessionOptions {
             this.proxies = new HashMap<>();
             this.proxies.put(proxy$okhttp.type().toString(), proxy$okhttp.address().toString());
         }
-        this.maxRedirects = builder.getConnectionPool$okhttp().connectionCount();
+        if (!session.followRedirects()) this.maxRedirects = 0;
 
         return this;
     }
 
+    /**
+     * 按最大次数跟随重定向，超过后直接返回最后一个重定向响应
+     * 303及POST等请求的301/302改为GET，跨域名时去掉Authorization
+     */
+    private static class RedirectInterceptor implements Interceptor {
+        private final int maxRedirects;
+
+        RedirectInterceptor(int maxRedirects) {
+            this.maxRedirects = maxRedirects;
+        }
+
+        @NotNull
+        @Override
+        public Response intercept(@NotNull Interceptor.Chain chain) throws IOException {
+            Response response = chain.proceed(chain.request());
+            for (int i = 0; i < maxRedirects && response.isRedirect(); i++) {
+                Request request = response.request();
+                String location = response.header("Location");
+                HttpUrl url = location == null ? null : request.url().resolve(location);
+                if (url == null) break;
+                Request.Builder next = request.newBuilder().url(url);
+                int code = response.code();
+                String method = request.method();
+                if (code == 303 || (code == 301 || code == 302) && !"GET".equals(method) && !"HEAD".equals(method)) {
+                    next.method("GET", null).removeHeader("Content-Type").removeHeader("Content-Length");
+                }
+                if (!url.host().equals(request.url().host())) next.removeHeader("Authorization");
+                response.close();
+                response = chain.proceed(next.build());
+            }
+            return response;
+        }
+    }
+
     public SessionOptions copy() {
         return JSON.parseObject(JSON.toJSONString(this), SessionOptions.class);
     }
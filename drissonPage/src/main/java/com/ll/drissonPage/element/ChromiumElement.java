@@ -169,6 +169,79 @@ public class ChromiumElement extends DrissionElement<ChromiumBase, ChromiumEleme
     public String rawText() {
         return this.property("innerText");
     }
+
+    /**
+     * @return 一次获取元素tag、文本、属性和outerHTML
+     */
+    public ElementSnapshot snapshot() {
+        return snapshot(List.of(this)).get(0);
+    }
+
+    /**
+     * 一次获取多个元素的全部信息
+     *
+     * @param eles 元素列表
+     * @return 与元素顺序一致的快照
+     */
+    public static List<ElementSnapshot> snapshot(List<ChromiumElement> eles) {
+        return snapshot(eles, ElementSnapshot.Field.values());
+    }
+
+    /**
+     * 一次获取多个元素的指定信息
+     * 同一文档内的元素合并为一次Runtime.callFunctionOn调用，避免逐个元素、逐个属性请求
+     *
+     * @param eles   元素列表
+     * @param fields 要获取的字段
+     * @return 与元素顺序一致的快照
+     */
+    public static List<ElementSnapshot> snapshot(List<ChromiumElement> eles, ElementSnapshot.Field... fields) {
+        if (eles == null || eles.isEmpty()) return new ArrayList<>();
+        Set<ElementSnapshot.Field> set = fields == null || fields.length == 0 ? EnumSet.allOf(ElementSnapshot.Field.class) : EnumSet.copyOf(Arrays.asList(fields));
+        boolean needTag = set.contains(ElementSnapshot.Field.TAG);
+        boolean needAttrs = set.contains(ElementSnapshot.Field.ATTRS);
+        boolean needText = set.contains(ElementSnapshot.Field.TEXT);
+        boolean needHtml = set.contains(ElementSnapshot.Field.HTML);
+        String js = "function(){return Array.prototype.map.call(arguments,function(e){var r={};" +
+                (needTag ? "r.tag=e.localName||e.nodeName;" : "") +
+                (needAttrs ? "r.attrs=[];if(e.attributes)for(var i=0;i<e.attributes.length;i++)r.attrs.push(e.attributes[i].name,e.attributes[i].value);" : "") +
+                (needText || needHtml ? "r.html=e.outerHTML;" : "") +
+                "return r;});}";
+
+        //不同页面或框架的元素不在同一个js运行环境，分组调用
+        Map<String, List<Integer>> groups = new LinkedHashMap<>();
+        for (int i = 0; i < eles.size(); i++) {
+            ChromiumElement ele = eles.get(i);
+            groups.computeIfAbsent(System.identityHashCode(ele.getOwner()) + ":" + ele.getDocId(), k -> new ArrayList<>()).add(i);
+        }
+
+        ElementSnapshot[] snapshots = new ElementSnapshot[eles.size()];
+        for (List<Integer> indexes : groups.values()) {
+            ChromiumElement first = eles.get(indexes.get(0));
+            List<Object> arguments = new ArrayList<>();
+            for (Integer index : indexes) arguments.add(convertArgument(eles.get(index)));
+            Object res = first.getOwner().runCdp("Runtime.callFunctionOn", Map.of("functionDeclaration", js,
+                    "objectId", first.getObjId(), "arguments", arguments, "returnByValue", true, "awaitPromise", false));
+            JSONObject result = JSON.parseObject(res.toString());
+            if (result.containsKey("exceptionDetails"))
+                throw new JavaScriptError("\njavascript运行错误：\n" + js + "\n错误信息：\n" + result.get("exceptionDetails"));
+            JSONArray values = result.getJSONObject("result").getJSONArray("value");
+            for (int i = 0; i < indexes.size(); i++) {
+                JSONObject value = values.getJSONObject(i);
+                Map<String, String> attrs = null;
+                if (needAttrs) {
+                    attrs = new LinkedHashMap<>();
+                    JSONArray array = value.getJSONArray("attrs");
+                    for (int j = 0; j + 1 < array.size(); j += 2) attrs.put(array.getString(j), array.getString(j + 1));
+                }
+                String html = value.getString("html");
+                String text = needText && html != null ? SessionElement.makeSessionEle(html, By.NULL(), null).stream().map(SessionElement::text).collect(Collectors.joining()) : null;
+                String tag = needTag && value.getString("tag") != null ? value.getString("tag").toLowerCase() : null;
+                snapshots[indexes.get(i)] = new ElementSnapshot(tag, text, attrs, needHtml ? html : null);
+            }
+        }
+        return new ArrayList<>(Arrays.asList(snapshots));
+    }
     // -----------------d模式独有属性-------------------
 
     /**
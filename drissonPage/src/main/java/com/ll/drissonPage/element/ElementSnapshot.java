@@ -0,0 +1,39 @@
+package com.ll.drissonPage.element;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 元素快照，一次性获取的元素信息，不可变
+ * 未请求的字段为null
+ *
+ * @param tag   元素tag
+ * @param text  格式化后的元素文本，与{@link ChromiumElement#text()}一致
+ * @param attrs 元素所有attribute属性
+ * @param html  元素outerHTML文本
+ * @author 陆
+ * @address <a href="https://t.me/blanksig"/>click
+ */
+public record ElementSnapshot(String tag, String text, Map<String, String> attrs, String html) {
+    public ElementSnapshot {
+        if (attrs != null) attrs = Collections.unmodifiableMap(new LinkedHashMap<>(attrs));
+    }
+
+    /**
+     * 获取属性
+     *
+     * @param name 属性名
+     * @return 属性值，未请求属性或不存在时为null
+     */
+    public String attr(String name) {
+        return attrs == null ? null : attrs.get(name);
+    }
+
+    /**
+     * 快照字段
+     */
+    public enum Field {
+        TAG, TEXT, ATTRS, HTML
+    }
+}
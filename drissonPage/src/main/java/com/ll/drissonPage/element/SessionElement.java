@@ -4,6 +4,7 @@ import com.alibaba.fastjson.JSON;
 import com.ll.drissonPage.base.*;
 import com.ll.drissonPage.functions.Locator;
 import com.ll.drissonPage.functions.Web;
+import com.ll.drissonPage.page.SessionPage;
 import org.jsoup.Jsoup;
 import org.jsoup.nodes.Attribute;
 import org.jsoup.nodes.Attributes;
@@ -93,7 +94,7 @@ public class SessionElement extends DrissionElement<BasePage<?>, SessionElement>
             } else if (locs.getName().equals(BySelect.CSS_SELECTOR) && str.stripLeading().startsWith(">")) {
                 str = ((SessionElement) htmlOrEle).cssPath() + str;
                 if (((SessionElement) htmlOrEle).getOwner() != null) {
-                    htmlOrEle = Jsoup.parse(((SessionElement) htmlOrEle).getOwner().html());
+                    htmlOrEle = parsePage(((SessionElement) htmlOrEle).getOwner());
                 } else { //接收html文本，无page的情况
                     htmlOrEle = Jsoup.parse(((SessionElement) htmlOrEle).ele("xpath:/ancestor::*").html());
                 }
@@ -123,11 +124,7 @@ public class SessionElement extends DrissionElement<BasePage<?>, SessionElement>
             htmlOrEle = ((Document) htmlOrEle).selectXpath(xpath).get(0);
         } else if (htmlOrEle instanceof BasePage) { //各种页面对象
             page = (BasePage<?>) htmlOrEle;
-            String html = ((BasePage<?>) htmlOrEle).html();
-            if (html.startsWith("<?xml ")) {
-                html = html.replaceAll("<\\?xml.*?>", "");
-            }
-            htmlOrEle = Jsoup.parse(html);
+            htmlOrEle = parsePage(page);
         } else if (htmlOrEle instanceof BaseElement) {
 //            page = ((BaseElement<?, ?>) htmlOrEle).getOwner();
 //            htmlOrEle = Jsoup.parse(((BaseElement<?, ?>) htmlOrEle).html());
@@ -163,6 +160,21 @@ public class SessionElement extends DrissionElement<BasePage<?>, SessionElement>
         return sessionElements;
     }
 
+    /**
+     * 解析页面html，SessionPage复用其缓存的文档，避免同一响应重复解析
+     *
+     * @param page 页面对象
+     * @return 文档对象
+     */
+    private static Document parsePage(BasePage<?> page) {
+        if (page instanceof SessionPage) return ((SessionPage) page).document();
+        String html = page.html();
+        if (html.startsWith("<?xml ")) {
+            html = html.replaceAll("<\\?xml.*?>", "");
+        }
+        return Jsoup.parse(html);
+    }
+
     public Element innerEle() {
         return innerEle;
     }
@@ -9,6 +9,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -19,6 +20,16 @@ import java.util.regex.Pattern;
  * @address <a href="https://t.me/blanksig"/>click
  */
 public class Locator {
+    /**
+     * 字符串定位语法的解析结果缓存上限，超过后整体清空
+     */
+    private static final int CACHE_SIZE = 1024;
+    /**
+     * 字符串定位语法 -> 解析后的By，同一个定位语句在轮询和翻页中会被反复解析
+     */
+    private static final Map<String, By> CACHE = new ConcurrentHashMap<>();
+    private static final Pattern SINGLE_ATTR = Pattern.compile("(.*?)([:=$^])(.*)");
+
     public static boolean isLoc(String text) {
         return startsWithAny(text, ".", "#", "@", "t:", "t=", "tag:", "tag=", "tx:", "tx=", "tx^", "tx$", "text:", "text=", "text^", "text$", "xpath:", "xpath=", "x:", "x=", "css:", "css=", "c:", "c=");
     }
@@ -99,8 +110,30 @@ public class Locator {
      * @return {@link  By}定位元素
      */
     private static By _getLoc(Object str, boolean translateCss, boolean cssMode) {
-        By byLoc;
         if (str == null || str.toString().trim().isEmpty()) str = "";
+        // By会被解析过程修改，只缓存字符串语法
+        if (str instanceof String) {
+            String key = (translateCss ? '1' : '0') + (cssMode ? "1" : "0") + str;
+            By cached = CACHE.get(key);
+            if (cached == null) {
+                cached = parseLoc(str, translateCss, cssMode);
+                if (CACHE.size() >= CACHE_SIZE) CACHE.clear();
+                CACHE.put(key, cached);
+            }
+            return cached.copy();
+        }
+        return parseLoc(str, translateCss, cssMode);
+    }
+
+    /**
+     * 清空定位语法缓存
+     */
+    public static void clearCache() {
+        CACHE.clear();
+    }
+
+    private static By parseLoc(Object str, boolean translateCss, boolean cssMode) {
+        By byLoc;
         if (str instanceof By) {
             byLoc = cssMode ? translateCssLoc((By) str) : translateLoc((By) str);
         } else if (str instanceof String) {
@@ -291,8 +324,7 @@ public class Locator {
             argStr = "not(@*)";
         } else {
 //            String[] r = text.split("([:=$^])", 2);
-            Pattern pattern = Pattern.compile("(.*?)([:=$^])(.*)");
-            Matcher matcher = pattern.matcher(text);
+            Matcher matcher = SINGLE_ATTR.matcher(text);
             String[] r = new String[0];
             if (matcher.find()) {
                 int i = matcher.groupCount();
@@ -489,8 +521,7 @@ public class Locator {
         }
         String argStr;
 //        String[] r = text.split("([:=$^])", 2);
-        Pattern pattern = Pattern.compile("(.*?)([:=$^])(.*)");
-        Matcher matcher = pattern.matcher(text);
+        Matcher matcher = SINGLE_ATTR.matcher(text);
         String[] r = new String[0];
         if (matcher.find()) {
             int i = matcher.groupCount();
@@ -21,6 +21,8 @@ import java.util.ArrayList;
 import java.util.EnumSet;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.stream.Stream;
 
 /**
@@ -209,6 +211,25 @@ public class Tools {
         return false;
     }
 
+    /**
+     * 等待全部异步结果，按顺序返回，出错时抛出原始异常
+     *
+     * @param futures 异步结果
+     * @return 结果列表
+     */
+    public static <T> List<T> joinAll(List<CompletableFuture<T>> futures) {
+        List<T> results = new ArrayList<>(futures.size());
+        for (CompletableFuture<T> future : futures) {
+            try {
+                results.add(future.join());
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+                throw e;
+            }
+        }
+        return results;
+    }
+
     public static void raiseError(Map<String, Object> result, Object ignore) {
         Object o = result.get("error");
         if (o == null) return;
@@ -36,6 +36,7 @@ import java.net.ConnectException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.regex.Matcher;
@@ -60,7 +61,11 @@ public abstract class ChromiumBase extends BasePage<ChromiumElement> implements
     @Getter
     protected Timeout timeouts;
     @Getter
-    protected Boolean isLoading;
+    protected volatile Boolean isLoading;
+    /**
+     * 加载状态变化时唤醒等待者
+     */
+    private final Object loadingMonitor = new Object();
     protected Scroller scroll;
     @Getter
     protected String rootId;
@@ -131,7 +136,7 @@ public abstract class ChromiumBase extends BasePage<ChromiumElement> implements
      * @param timeout 超时时间 秒
      */
     protected void init(String address, String tabId, Double timeout) {
-        this.isLoading = null;
+        this.setLoading(null);
         this.rootId = null;
         this.set = null;
         this.screencast = null;
@@ -221,7 +226,7 @@ public abstract class ChromiumBase extends BasePage<ChromiumElement> implements
      * @param tabId 要跳转到的标签页id
      */
     protected void driverInit(String tabId) {
-        this.isLoading = true;
+        this.setLoading(true);
         this.driver = this.browser.getDriver(tabId, this);
         this.alert = new Alert();
         this.driver.setCallback("Page.javascriptDialogOpening", new MyRunnable() {
@@ -339,7 +344,7 @@ public abstract class ChromiumBase extends BasePage<ChromiumElement> implements
             Matcher matcher = Pattern.compile("'id': '(.*?)'").matcher(this.runCdp("Page.getFrameTree").toString());
             while (matcher.find()) this.browser.getFrames().put(matcher.group(1), this.tabId());
         }
-        this.isLoading = false;
+        this.setLoading(false);
         this.isReading = false;
         return result;
     }
@@ -361,7 +366,7 @@ public abstract class ChromiumBase extends BasePage<ChromiumElement> implements
         if (Objects.equals(this.frameId, id)) {
             this.docGot = false;
             this.readyState = "connecting";
-            this.isLoading = true;
+            this.setLoading(true);
             this.loadEndTime = System.currentTimeMillis() + (long) (this.timeouts.getPageLoad() * 1000);
             if (Objects.equals(this.loadMode, "eager")) {
                 Thread thread = new Thread(this::waitToStop);
@@ -378,7 +383,7 @@ public abstract class ChromiumBase extends BasePage<ChromiumElement> implements
         if (Objects.equals(this.frameId, JSON.parseObject(message.toString()).getJSONObject("frame").getString("id"))) {
             this.docGot = false;
             this.readyState = "loading";
-            this.isLoading = true;
+            this.setLoading(true);
         }
     }
 
@@ -449,6 +454,38 @@ public abstract class ChromiumBase extends BasePage<ChromiumElement> implements
         }
     }
 
+    /**
+     * 设置加载状态并唤醒等待加载状态的线程
+     *
+     * @param loading 是否正在加载
+     */
+    protected void setLoading(Boolean loading) {
+        synchronized (this.loadingMonitor) {
+            this.isLoading = loading;
+            this.loadingMonitor.notifyAll();
+        }
+    }
+
+    /**
+     * 等待加载状态变为指定值
+     *
+     * @param loading 期望的加载状态
+     * @param timeout 超时时间（毫秒）
+     * @param gap     没有收到通知时的复查间隔（毫秒）
+     * @return 是否等待成功
+     */
+    public boolean awaitLoading(boolean loading, long timeout, long gap) throws InterruptedException {
+        long endTime = System.currentTimeMillis() + timeout;
+        synchronized (this.loadingMonitor) {
+            while (!Objects.equals(this.isLoading, loading)) {
+                long remain = endTime - System.currentTimeMillis();
+                if (remain <= 0) return false;
+                this.loadingMonitor.wait(Math.min(remain, gap));
+            }
+            return true;
+        }
+    }
+
     /**
      * @return 返回用于等待的对象
      */
@@ -672,6 +709,37 @@ public abstract class ChromiumBase extends BasePage<ChromiumElement> implements
         return run;
     }
 
+    /**
+     * 异步执行Chrome DevTools Protocol语句，不阻塞调用线程
+     *
+     * @param cmd    协议项目
+     * @param params 参数
+     * @return 执行的结果，忽略错误时为null，否则出错时以对应异常结束
+     */
+    public CompletableFuture<JSONObject> runCdpAsync(String cmd, Map<String, Object> params) {
+        params = params == null ? new HashMap<>() : new HashMap<>(params);
+        Object ignore = params.remove("_ignore");
+        return this.driver.runAsync(cmd, params).thenApply(result -> {
+            if (result != null && result.containsKey(Browser.__ERROR__)) {
+                Tools.raiseError(result, ignore);
+                return null;
+            }
+            return result;
+        });
+    }
+
+    /**
+     * 批量执行同一个Chrome DevTools Protocol语句，所有命令先连续发出再一起等待，
+     * 如对200个节点执行DOM.getAttributes只需要一次往返的等待
+     *
+     * @param cmd        协议项目
+     * @param paramsList 每条命令的参数
+     * @return 与参数顺序一致的执行结果
+     */
+    public List<JSONObject> runCdpBatch(String cmd, List<Map<String, Object>> paramsList) {
+        return Tools.joinAll(paramsList.stream().map(params -> runCdpAsync(cmd, params)).collect(Collectors.toList()));
+    }
+
     /**
      * 执行Chrome DevTools Protocol语句，执行前等待页面加载完毕
      *
@@ -1311,7 +1379,7 @@ public abstract class ChromiumBase extends BasePage<ChromiumElement> implements
      * @param ignoreCache 是否忽略缓存
      */
     public boolean refresh(boolean ignoreCache) {
-        this.isLoading = true;
+        this.setLoading(true);
         this.runCdp("Page.reload", Map.of("ignoreCache", ignoreCache));
         return this.waits().loadStart();
     }
@@ -1373,7 +1441,7 @@ public abstract class ChromiumBase extends BasePage<ChromiumElement> implements
             }
         }
         if (nid != null) {
-            this.isLoading = true;
+            this.setLoading(true);
             this.runCdp("Page.navigateToHistoryEntry", Map.of("entryId", nid));
         }
 
@@ -2117,7 +2185,7 @@ public abstract class ChromiumBase extends BasePage<ChromiumElement> implements
      */
     private Boolean dConnect(String toUrl, int times, double interval, boolean showErrMsg, Double timeout) {
         Exception err = null;
-        this.isLoading = true;
+        this.setLoading(true);
         timeout = timeout != null ? timeout : this.timeouts.getPageLoad();
         for (int i = 0; i < times + 1; i++) {
             err = null;
@@ -153,7 +153,7 @@ public class ChromiumFrame extends ChromiumBase {
      * 重新获取document
      */
     private void reload() {
-        this.isLoading = true;
+        this.setLoading(true);
         this.reloading = true;
         this.docGot = false;
         this.driver().stop();
@@ -191,7 +191,7 @@ public class ChromiumFrame extends ChromiumBase {
             if (timeout <= 0) timeout = 500;
             this.waitLoaded(timeout / 1000.0);
         }
-        this.isLoading = false;
+        this.setLoading(false);
         this.reloading = false;
 
     }
@@ -230,7 +230,7 @@ public class ChromiumFrame extends ChromiumBase {
             e.printStackTrace();
             return false;
         } finally {
-            if (!this.reloading) this.isLoading = false;
+            if (!this.reloading) this.setLoading(false);
             this.isReading = false;
         }
         return false;
@@ -8,6 +8,7 @@ import com.ll.drissonPage.base.By;
 import com.ll.drissonPage.config.SessionOptions;
 import com.ll.drissonPage.element.SessionElement;
 import com.ll.drissonPage.units.HttpClient;
+import com.ll.drissonPage.units.HttpClientPool;
 import com.ll.drissonPage.units.setter.SessionPageSetter;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
@@ -16,11 +17,14 @@ import okhttp3.*;
 import okhttp3.internal.http.RealResponseBody;
 import org.apache.commons.collections4.map.CaseInsensitiveMap;
 import org.jetbrains.annotations.NotNull;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
 
 import java.io.*;
 import java.net.ConnectException;
 import java.net.URI;
 import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
@@ -44,6 +48,18 @@ public class SessionPage extends BasePage<SessionElement> {
     protected OkHttpClient session;
     protected SessionOptions sessionOptions;
     protected Response response;
+    /**
+     * 缓存的响应体，响应体只读取一次
+     */
+    private byte[] content;
+    /**
+     * 缓存的解码文本
+     */
+    private String text;
+    /**
+     * 缓存的解析结果，下次get/post前复用
+     */
+    private Document document;
     private double timeout;
     private int retryTimes;
     private float retryInterval;
@@ -85,6 +101,15 @@ public class SessionPage extends BasePage<SessionElement> {
         this(option, timeout, false);
     }
 
+    /**
+     * 使用默认配置的轻量SessionPage，默认配置只从ini读取一次，客户端从共享连接池借用
+     *
+     * @return SessionPage
+     */
+    public static SessionPage pooled() {
+        return new SessionPage(DefaultOptions.OPTIONS);
+    }
+
     private SessionPage(Object requestOrOption, Double timeout, boolean ignoredFlag) {
         this.setType("SessionPage");
         this.sSetStartOptions(requestOrOption);
@@ -124,7 +149,7 @@ public class SessionPage extends BasePage<SessionElement> {
      */
     protected void createSession() {
         if (this.session == null) {
-            HttpClient httpClient = this.sessionOptions.makeSession();
+            HttpClient httpClient = HttpClientPool.borrow(this.sessionOptions);
             this.session = httpClient.getClient();
             this.headers = new CaseInsensitiveMap<>(this.sessionOptions.getHeaders());
         }
@@ -150,29 +175,48 @@ public class SessionPage extends BasePage<SessionElement> {
      * @return 返回页面原始数据
      */
     public byte[] rawData() {
-        ResponseBody body = this.response.body();
-        if (body != null) {
-            try {
-                return body.bytes();
-            } catch (IOException e) {
-                return new byte[0];
+        if (this.content == null) {
+            this.content = new byte[0];
+            ResponseBody body = this.response == null ? null : this.response.body();
+            if (body != null) {
+                try {
+                    this.content = body.bytes();
+                } catch (IOException ignored) {
+                }
             }
         }
-        return new byte[0];
+        return this.content;
     }
 
     @Override
     public String html() {
         if (this.response == null) return "";
-        ResponseBody body = this.response.body();
-        if (body != null) {
-            try {
-                return body.string();
-            } catch (IOException e) {
-                return "";
+        if (this.text == null) {
+            Charset charset = this.encoding;
+            ResponseBody body = this.response.body();
+            if (charset == null) {
+                MediaType mediaType = body == null ? null : body.contentType();
+                charset = mediaType == null ? StandardCharsets.UTF_8 : mediaType.charset(StandardCharsets.UTF_8);
+            }
+            this.text = new String(rawData(), charset);
+        }
+        return this.text;
+    }
+
+    /**
+     * 返回解析后的文档，每次响应只解析一次
+     *
+     * @return Document对象
+     */
+    public Document document() {
+        if (this.document == null) {
+            String html = this.html();
+            if (html.startsWith("<?xml ")) {
+                html = html.replaceAll("<\\?xml.*?>", "");
             }
+            this.document = Jsoup.parse(html);
         }
-        return "";
+        return this.document;
     }
 
     /**
@@ -181,16 +225,8 @@ public class SessionPage extends BasePage<SessionElement> {
 
     @Override
     public JSONObject json() {
-        if (this.response == null) return null;
-        ResponseBody body = this.response.body();
-        if (body != null) {
-            try {
-                return JSON.parseObject(body.string());
-            } catch (IOException e) {
-                return null;
-            }
-        }
-        return null;
+        if (this.response == null || this.response.body() == null) return null;
+        return JSON.parseObject(this.html());
     }
 
     /**
@@ -323,7 +359,7 @@ public class SessionPage extends BasePage<SessionElement> {
                     builder.setProtocol$okhttp(Protocol.HTTP_2);
                     ResponseBody responseBody1 = RealResponseBody.create(string, MediaType.parse("text/html"));
                     builder.setBody$okhttp(responseBody1);
-                    this.response = builder.build();
+                    this.setResponse(builder.build());
                     return true;
                 } catch (IOException e) {
                     throw new RuntimeException(e);
@@ -404,7 +440,7 @@ public class SessionPage extends BasePage<SessionElement> {
     @Override
     public SessionElement sEle(By by, Integer index) {
         if (by == null) {
-            List<SessionElement> sessionElements = SessionElement.makeSessionEle(this.html(), By.NULL(), null);
+            List<SessionElement> sessionElements = SessionElement.makeSessionEle(this, By.NULL(), null);
             if (!sessionElements.isEmpty()) return sessionElements.get(0);
             return null;
         }
@@ -416,7 +452,7 @@ public class SessionPage extends BasePage<SessionElement> {
     @Override
     public SessionElement sEle(String loc, Integer index) {
         if (loc == null) {
-            List<SessionElement> sessionElements = SessionElement.makeSessionEle(this.html(), By.NULL(), null);
+            List<SessionElement> sessionElements = SessionElement.makeSessionEle(this, By.NULL(), null);
             if (!sessionElements.isEmpty()) return sessionElements.get(0);
             return null;
         }
@@ -485,11 +521,22 @@ public class SessionPage extends BasePage<SessionElement> {
         }
     }
 
+    /**
+     * 替换当前响应，关闭旧响应并清空缓存的内容和文档
+     */
+    private void setResponse(Response response) {
+        if (this.response != null && this.response != response) this.close();
+        this.response = response;
+        this.content = null;
+        this.text = null;
+        this.document = null;
+    }
+
     private boolean sConnect(String url, String mode, boolean showErrMsg, Integer retry, Double interval, Map<String, Object> params) {
         BeforeConnect beforeConnect = this.beforeConnect(url, retry, interval);
         ResponseWrapper responseReturn = this.makResponse(this.url(), mode, beforeConnect.getRetry(), beforeConnect.getInterval(), showErrMsg, params);
         boolean urlAvailable;
-        this.response = responseReturn.getResponse();
+        this.setResponse(responseReturn.getResponse());
         if (responseReturn.getResponse() == null) urlAvailable = false;
         else if (this.response.code() == 200) urlAvailable = true;
         else {
@@ -691,6 +738,13 @@ public class SessionPage extends BasePage<SessionElement> {
         return "<SessionPage url=" + this.url() + '>';
     }
 
+    /**
+     * 延迟加载的默认配置
+     */
+    private static class DefaultOptions {
+        private static final SessionOptions OPTIONS = new SessionOptions(true, null);
+    }
+
     @Getter
     @AllArgsConstructor
     public static class ResponseWrapper {
@@ -0,0 +1,191 @@
+package com.ll.drissonPage.units;
+
+import com.ll.drissonPage.config.SessionOptions;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+import okhttp3.*;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 共享的OkHttpClient注册表
+ * 按SessionOptions指纹（代理、headers、超时等）复用客户端，
+ * 所有客户端由同一个根客户端派生，共用连接池和dispatcher，支持HTTP/2和keep-alive
+ *
+ * @author 陆
+ * @address <a href="https://t.me/blanksig"/>click
+ */
+public final class HttpClientPool {
+    private static final LongAdder HITS = new LongAdder();
+    private static final LongAdder MISSES = new LongAdder();
+    private static final LongAdder CONNECTS = new LongAdder();
+    private static final LongAdder HANDSHAKES = new LongAdder();
+    private static final LongAdder CALLS = new LongAdder();
+
+    /**
+     * 统计新建连接与TLS握手次数，连接复用时不会触发
+     */
+    private static final EventListener LISTENER = new CountingListener();
+
+    /**
+     * 请求结束时的回调，为空时不计时
+     */
+    private static volatile CallObserver observer;
+
+    private static final ConnectionPool CONNECTION_POOL = new ConnectionPool(32, 5, TimeUnit.MINUTES);
+
+    private static final OkHttpClient ROOT = new OkHttpClient.Builder()
+            .connectionPool(CONNECTION_POOL)
+            .protocols(List.of(Protocol.HTTP_2, Protocol.HTTP_1_1))
+            .eventListenerFactory(call -> observer == null ? LISTENER : new TimedListener(observer))
+            .build();
+
+    private static final Map<String, HttpClient> CLIENTS = new ConcurrentHashMap<>();
+
+    private HttpClientPool() {
+    }
+
+    /**
+     * 获取与配置对应的共享客户端，不存在时创建
+     *
+     * @param options Session配置
+     * @return 共享的HttpClient
+     */
+    public static HttpClient borrow(SessionOptions options) {
+        String key = options.fingerprint();
+        HttpClient client = CLIENTS.get(key);
+        if (client != null) {
+            HITS.increment();
+            return client;
+        }
+        return CLIENTS.computeIfAbsent(key, k -> {
+            MISSES.increment();
+            return options.makeSession(ROOT.newBuilder());
+        });
+    }
+
+    /**
+     * 设置请求结束时的回调，用于记录请求耗时，传入null取消
+     * 只对设置之后发起的请求生效
+     */
+    public static void observe(CallObserver callObserver) {
+        observer = callObserver;
+    }
+
+    /**
+     * 清空注册表并关闭空闲连接
+     */
+    public static void clear() {
+        CLIENTS.clear();
+        CONNECTION_POOL.evictAll();
+    }
+
+    /**
+     * @return 当前统计信息
+     */
+    public static Stats stats() {
+        return new Stats(HITS.sum(), MISSES.sum(), CLIENTS.size(), CALLS.sum(), CONNECTS.sum(), HANDSHAKES.sum(),
+                CONNECTION_POOL.connectionCount(), CONNECTION_POOL.idleConnectionCount());
+    }
+
+    /**
+     * 请求结束回调
+     * 同步请求在调用线程上回调，耗时从发起请求到响应体读完或失败
+     */
+    @FunctionalInterface
+    public interface CallObserver {
+        void onCall(String host, long nanos, boolean success);
+    }
+
+    private static class CountingListener extends EventListener {
+        @Override
+        public void callStart(@NotNull Call call) {
+            CALLS.increment();
+        }
+
+        @Override
+        public void connectEnd(@NotNull Call call, @NotNull InetSocketAddress inetSocketAddress, @NotNull Proxy proxy, Protocol protocol) {
+            CONNECTS.increment();
+        }
+
+        @Override
+        public void secureConnectEnd(@NotNull Call call, Handshake handshake) {
+            HANDSHAKES.increment();
+        }
+    }
+
+    /**
+     * 每个请求一个实例，记录开始时间
+     */
+    private static class TimedListener extends CountingListener {
+        private final CallObserver observer;
+        private long start;
+
+        TimedListener(CallObserver observer) {
+            this.observer = observer;
+        }
+
+        @Override
+        public void callStart(@NotNull Call call) {
+            super.callStart(call);
+            start = System.nanoTime();
+        }
+
+        @Override
+        public void callEnd(@NotNull Call call) {
+            observer.onCall(call.request().url().host(), System.nanoTime() - start, true);
+        }
+
+        @Override
+        public void callFailed(@NotNull Call call, @NotNull IOException ioe) {
+            observer.onCall(call.request().url().host(), System.nanoTime() - start, false);
+        }
+    }
+
+    @Getter
+    @ToString
+    @AllArgsConstructor
+    public static class Stats {
+        /**
+         * 命中已有客户端次数
+         */
+        private final long hits;
+        /**
+         * 新建客户端次数
+         */
+        private final long misses;
+        /**
+         * 注册的客户端数量
+         */
+        private final int clients;
+        /**
+         * 发起的请求数
+         */
+        private final long calls;
+        /**
+         * 新建连接数
+         */
+        private final long connects;
+        /**
+         * TLS握手次数
+         */
+        private final long handshakes;
+        /**
+         * 连接池中的连接数
+         */
+        private final int pooledConnections;
+        /**
+         * 连接池中的空闲连接数
+         */
+        private final int idleConnections;
+    }
+}
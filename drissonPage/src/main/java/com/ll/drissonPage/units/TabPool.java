@@ -0,0 +1,434 @@
+package com.ll.drissonPage.units;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONArray;
+import com.ll.drissonPage.config.ChromiumOptions;
+import com.ll.drissonPage.error.extend.WaitTimeoutError;
+import com.ll.drissonPage.page.ChromiumPage;
+import com.ll.drissonPage.page.ChromiumTab;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 标签页池
+ * 在同一个浏览器上保持若干预热好的标签页，以租约方式借出，归还时重置为about:blank，
+ * 浏览器累计导航次数达到上限后，等所有租约归还再重启浏览器，控制内存增长
+ *
+ * @author 陆
+ * @address <a href="https://t.me/blanksig"/>click
+ */
+public class TabPool implements AutoCloseable {
+    private static final Duration DEFAULT_TIMEOUT = Duration.ofSeconds(30);
+
+    private final ChromiumOptions options;
+    /**
+     * 预热的标签页数量
+     */
+    private final int size;
+    /**
+     * 每个浏览器最多的标签页数量
+     */
+    private final int maxTabs;
+    /**
+     * 浏览器累计导航多少次后重启，0表示不重启
+     */
+    private final int recycleAfter;
+    /**
+     * 归还时是否清除cookies，标签页共用浏览器上下文，会影响其它标签页
+     */
+    private final boolean clearCookies;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition available = lock.newCondition();
+    private final Deque<ChromiumTab> idle = new ArrayDeque<>();
+    private ChromiumPage page;
+    private int tabs;
+    private int leased;
+    private long navigations;
+    private boolean recycling;
+    /**
+     * 有线程正在锁外启动浏览器
+     */
+    private boolean starting;
+    private boolean closed;
+
+    private final LongAdder acquires = new LongAdder();
+    private final LongAdder waited = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder recycles = new LongAdder();
+    private final LongAdder warmUpFailures = new LongAdder();
+    private final LongAdder totalWaitNanos = new LongAdder();
+    private volatile long maxWaitNanos;
+
+    public TabPool(ChromiumOptions options, int size) {
+        this(options, size, size, 0, false);
+    }
+
+    /**
+     * @param options      浏览器配置
+     * @param size         预热的标签页数量
+     * @param maxTabs      每个浏览器最多的标签页数量
+     * @param recycleAfter 浏览器累计导航多少次后重启，0表示不重启
+     * @param clearCookies 归还时是否清除cookies
+     */
+    public TabPool(ChromiumOptions options, int size, int maxTabs, int recycleAfter, boolean clearCookies) {
+        if (size < 0 || maxTabs < 1 || size > maxTabs) throw new IllegalArgumentException("size必须在0和maxTabs之间。");
+        this.options = options;
+        this.size = size;
+        this.maxTabs = maxTabs;
+        this.recycleAfter = Math.max(0, recycleAfter);
+        this.clearCookies = clearCookies;
+    }
+
+    /**
+     * 借出一个标签页，默认最多等待30秒
+     *
+     * @return 租约，使用完毕后close归还
+     */
+    public Lease acquire() {
+        return acquire(DEFAULT_TIMEOUT);
+    }
+
+    /**
+     * 借出一个标签页
+     *
+     * @param timeout 等待空闲标签页的超时时间
+     * @return 租约，使用完毕后close归还
+     */
+    public Lease acquire(Duration timeout) {
+        long start = System.nanoTime();
+        long deadline = start + timeout.toNanos();
+        ChromiumTab tab = null;
+        while (tab == null) {
+            boolean launch = false;
+            ChromiumPage browser = null;
+            lock.lock();
+            try {
+                while (true) {
+                    if (closed) throw new IllegalStateException("标签页池已关闭。");
+                    if (!recycling && !starting) {
+                        if (page == null) {
+                            //由当前线程在锁外启动浏览器，其它线程等待
+                            starting = true;
+                            launch = true;
+                            break;
+                        }
+                        if (!idle.isEmpty()) {
+                            tab = idle.poll();
+                            leased++;
+                            break;
+                        }
+                        if (tabs < maxTabs) {
+                            //先占位，在锁外创建
+                            tabs++;
+                            leased++;
+                            browser = page;
+                            break;
+                        }
+                    }
+                    long remain = deadline - System.nanoTime();
+                    if (remain <= 0) {
+                        timeouts.increment();
+                        throw new WaitTimeoutError("等待空闲标签页失败（等待" + timeout.toMillis() / 1000.0 + "秒）。");
+                    }
+                    available.awaitNanos(remain);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            } finally {
+                lock.unlock();
+            }
+            if (launch) {
+                startBrowser();
+            } else if (browser != null) {
+                try {
+                    tab = newTab(browser);
+                } catch (RuntimeException e) {
+                    lock.lock();
+                    try {
+                        tabs--;
+                        leased--;
+                        available.signalAll();
+                    } finally {
+                        lock.unlock();
+                    }
+                    throw e;
+                }
+            }
+        }
+        long wait = System.nanoTime() - start;
+        acquires.increment();
+        totalWaitNanos.add(wait);
+        if (wait > maxWaitNanos) maxWaitNanos = wait;
+        if (wait > TimeUnit.MILLISECONDS.toNanos(1)) waited.increment();
+        return new Lease(tab);
+    }
+
+    /**
+     * 归还标签页，重置后放回池中，重置失败则关闭该标签页
+     */
+    private void release(ChromiumTab tab) {
+        int navs = reset(tab);
+        ChromiumPage quit = null;
+        lock.lock();
+        try {
+            leased--;
+            if (navs < 0 || closed) {
+                tabs--;
+                closeQuietly(tab);
+            } else {
+                navigations += navs;
+                if (recycleAfter > 0 && navigations >= recycleAfter) recycling = true;
+                idle.push(tab);
+            }
+            if (recycling && leased == 0) {
+                quit = page;
+                page = null;
+                idle.clear();
+                tabs = 0;
+                navigations = 0;
+                recycling = false;
+                recycles.increment();
+            }
+            available.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        if (quit != null) quit.quit();
+    }
+
+    /**
+     * 重置标签页：停止监听，可选清除cookies，跳转about:blank并清空历史
+     *
+     * @return 租约期间的导航次数，重置失败返回-1
+     */
+    private int reset(ChromiumTab tab) {
+        try {
+            JSONArray entries = JSON.parseObject(tab.runCdp("Page.getNavigationHistory").toString()).getJSONArray("entries");
+            int navs = entries == null ? 0 : Math.max(entries.size() - 1, 0);
+            tab.listen().stop();
+            if (clearCookies) tab.runCdp("Network.clearBrowserCookies");
+            tab.get("about:blank");
+            tab.runCdp("Page.resetNavigationHistory");
+            return navs;
+        } catch (Exception e) {
+            return -1;
+        }
+    }
+
+    /**
+     * 在锁外启动浏览器并预热标签页，期间其它线程等待starting结束
+     */
+    private void startBrowser() {
+        ChromiumPage browser;
+        try {
+            browser = ChromiumPage.getInstance(options);
+        } catch (RuntimeException e) {
+            lock.lock();
+            try {
+                starting = false;
+                available.signalAll();
+            } finally {
+                lock.unlock();
+            }
+            throw e;
+        }
+        boolean quit;
+        lock.lock();
+        try {
+            starting = false;
+            quit = closed;
+            if (!quit) page = browser;
+            available.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        if (quit) {
+            browser.quit();
+            throw new IllegalStateException("标签页池已关闭。");
+        }
+        warmUp(browser);
+    }
+
+    /**
+     * 逐个创建预热标签页，每个先占位再在锁外创建，浏览器被关闭或重启后停止，创建失败时放弃剩余的预热
+     */
+    private void warmUp(ChromiumPage browser) {
+        while (true) {
+            lock.lock();
+            try {
+                if (page != browser || tabs >= size) return;
+                tabs++;
+            } finally {
+                lock.unlock();
+            }
+            ChromiumTab tab;
+            try {
+                tab = newTab(browser);
+            } catch (RuntimeException e) {
+                //预热失败不影响借出，释放占位，需要时由acquire重新创建
+                warmUpFailures.increment();
+                System.err.println("预热标签页失败：" + e.getMessage());
+                lock.lock();
+                try {
+                    if (page == browser) tabs--;
+                    available.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+                return;
+            }
+            lock.lock();
+            try {
+                if (page == browser) {
+                    idle.add(tab);
+                    available.signalAll();
+                    tab = null;
+                }
+            } finally {
+                lock.unlock();
+            }
+            if (tab != null) closeQuietly(tab);
+        }
+    }
+
+    private static ChromiumTab newTab(ChromiumPage browser) {
+        return browser.newTab(null, false, true);
+    }
+
+    private static void closeQuietly(ChromiumTab tab) {
+        try {
+            tab.close();
+        } catch (Exception ignored) {
+        }
+    }
+
+    /**
+     * @return 当前统计信息
+     */
+    public Stats stats() {
+        lock.lock();
+        try {
+            long count = acquires.sum();
+            return new Stats(size, maxTabs, tabs, idle.size(), leased, (double) leased / maxTabs, count, waited.sum(), timeouts.sum(),
+                    count == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(totalWaitNanos.sum() / count), TimeUnit.NANOSECONDS.toMillis(maxWaitNanos),
+                    navigations, recycles.sum(), warmUpFailures.sum());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 关闭池和浏览器，已借出的标签页归还时直接关闭
+     */
+    @Override
+    public void close() {
+        ChromiumPage quit;
+        lock.lock();
+        try {
+            closed = true;
+            quit = page;
+            page = null;
+            idle.clear();
+            available.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        if (quit != null) quit.quit();
+    }
+
+    /**
+     * 标签页租约，close时归还，重复close无效
+     */
+    public class Lease implements AutoCloseable {
+        private final ChromiumTab tab;
+        private final AtomicBoolean returned = new AtomicBoolean();
+
+        private Lease(ChromiumTab tab) {
+            this.tab = tab;
+        }
+
+        public ChromiumTab tab() {
+            if (returned.get()) throw new IllegalStateException("租约已归还。");
+            return tab;
+        }
+
+        @Override
+        public void close() {
+            if (returned.compareAndSet(false, true)) release(tab);
+        }
+    }
+
+    @Getter
+    @ToString
+    @AllArgsConstructor
+    public static class Stats {
+        /**
+         * 预热的标签页数量
+         */
+        private final int size;
+        /**
+         * 每个浏览器最多的标签页数量
+         */
+        private final int maxTabs;
+        /**
+         * 当前标签页数量
+         */
+        private final int tabs;
+        /**
+         * 空闲标签页数量
+         */
+        private final int idle;
+        /**
+         * 已借出的标签页数量
+         */
+        private final int leased;
+        /**
+         * 使用率，已借出数量/最多标签页数量
+         */
+        private final double utilisation;
+        /**
+         * 借出次数
+         */
+        private final long acquires;
+        /**
+         * 需要等待的借出次数
+         */
+        private final long waited;
+        /**
+         * 等待超时次数
+         */
+        private final long timeouts;
+        /**
+         * 平均等待时间（毫秒）
+         */
+        private final long avgWaitMillis;
+        /**
+         * 最长等待时间（毫秒）
+         */
+        private final long maxWaitMillis;
+        /**
+         * 当前浏览器累计导航次数
+         */
+        private final long navigations;
+        /**
+         * 浏览器重启次数
+         */
+        private final long recycles;
+        /**
+         * 预热标签页失败次数
+         */
+        private final long warmUpFailures;
+    }
+}
@@ -603,26 +603,28 @@ public class BaseWaiter {
      */
     public boolean elesLoaded(List<By> byList, Double timeout, boolean anyOne, Boolean raiseErr) {
         timeout = timeout != null ? timeout : this.driver.timeout();
-        long endTime = (long) (System.currentTimeMillis() + timeout);
-        int i = 0;
+        long endTime = (long) (System.currentTimeMillis() + timeout * 1000);
         if (byList != null && !byList.isEmpty()) {
-            int size = byList.size();
-            while (System.currentTimeMillis() < endTime) {
-                for (By by : byList) {
-                    if (find(by.getValue(), this.driver.driver())) {
-                        i++;
-                        byList.remove(by);
+            //优先在页面内监听DOM变化，无法监听时退回轮询
+            Boolean observed = DomObserver.awaitLoaded(this.driver, byList, anyOne, endTime - System.currentTimeMillis());
+            if (observed != null) {
+                if (observed) return true;
+            } else {
+                List<By> waiting = new ArrayList<>(byList);
+                while (System.currentTimeMillis() < endTime) {
+                    Iterator<By> iterator = waiting.iterator();
+                    while (iterator.hasNext()) {
+                        if (find(iterator.next().getValue(), this.driver.driver())) {
+                            iterator.remove();
+                            if (anyOne || waiting.isEmpty()) return true;
+                        }
                     }
-                    if ((i == size || anyOne) && i > 0) {
-                        return true;
+                    try {
+                        TimeUnit.MILLISECONDS.sleep(10);
+                    } catch (InterruptedException e) {
+                        throw new RuntimeException(e);
                     }
                 }
-                try {
-                    TimeUnit.MILLISECONDS.sleep(10);
-                } catch (InterruptedException e) {
-                    throw new RuntimeException(e);
-                }
-
             }
         }
 
@@ -692,7 +694,7 @@ public class BaseWaiter {
      * @return 是否等待成功
      */
     public boolean loadStart(Double timeout, Boolean raiseErr) {
-        return false;
+        return this.loading(timeout, true, 0.002, raiseErr);
     }
 
     /**
@@ -922,18 +924,15 @@ public class BaseWaiter {
         return false;
     }
 
+    /**
+     * 等待加载状态，由页面的Page事件回调唤醒，gap为兜底复查间隔
+     */
     protected boolean loading(Double timeout, boolean start, double gap, Boolean raiseErr) {
-        timeout = timeout == null || timeout != 0 ? this.driver.timeout() : timeout;
-        long endTime = (long) (System.currentTimeMillis() + timeout * 1000);
-        while (System.currentTimeMillis() < endTime) {
-            if (this.driver.getIsLoading() == start) {
-                return true;
-            }
-            try {
-                TimeUnit.MILLISECONDS.sleep((long) (gap * 1000));
-            } catch (InterruptedException e) {
-                throw new RuntimeException(e);
-            }
+        timeout = timeout == null ? this.driver.timeout() : timeout;
+        try {
+            if (this.driver.awaitLoading(start, (long) (timeout * 1000), (long) Math.max(1, gap * 1000))) return true;
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
         }
         if (raiseErr != null && raiseErr || Settings.raiseWhenWaitFailed) {
             throw new WaitTimeoutError("等待页面加载失败（等待" + timeout + "秒）。");
@@ -0,0 +1,108 @@
+package com.ll.drissonPage.units.waiter;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONObject;
+import com.ll.drissonPage.base.By;
+import com.ll.drissonPage.base.BySelect;
+import com.ll.drissonPage.element.ChromiumElement;
+import com.ll.drissonPage.functions.Locator;
+import com.ll.drissonPage.page.ChromiumBase;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 页面内等待
+ * 在页面中用MutationObserver监听DOM变化，条件满足时resolve，整个等待只占用一次cdp调用，
+ * 浏览器端另有低频检查兜底样式表等不触发DOM变化的情况。
+ * 无法在页面内等待时（如页面刷新、元素失效）返回null，由调用方退回轮询
+ *
+ * @author 陆
+ * @address <a href="https://t.me/blanksig"/>click
+ */
+class DomObserver {
+    /**
+     * 浏览器端兜底检查间隔（毫秒）
+     */
+    private static final int CHECK_INTERVAL = 100;
+    /**
+     * cdp调用比页面内等待多留出的时间（秒）
+     */
+    private static final double EXTRA_TIMEOUT = 2;
+
+    private static final String OBSERVER_JS = "function(t){var e=this;return new Promise(function(resolve){" +
+            "function check(){try{return !!(%s);}catch(x){return false;}}" +
+            "if(check()){resolve(true);return;}" +
+            "var done=false;function finish(r){if(done)return;done=true;o.disconnect();clearInterval(i);clearTimeout(h);resolve(r);}" +
+            "var o=new MutationObserver(function(){if(check())finish(true);});" +
+            "o.observe(e.ownerDocument||e,{childList:true,subtree:true,attributes:true});" +
+            "var i=setInterval(function(){if(check())finish(true);}," + CHECK_INTERVAL + ");" +
+            "var h=setTimeout(function(){finish(check());},t);});}";
+
+    /**
+     * 元素状态对应的js判断，this为元素
+     */
+    private static final Map<String, String> STATES = Map.of(
+            "isAlive", "e.isConnected",
+            "isDisplayed", "(function(){var s=window.getComputedStyle(e);return !(s.visibility==='hidden'||e.offsetParent===null||s.display==='none'||e.hidden);})()",
+            "isEnabled", "!e.disabled");
+
+    private DomObserver() {
+    }
+
+    /**
+     * 在页面内等待元素状态
+     *
+     * @param ele     元素
+     * @param attr    状态名称，对应ElementStates中的方法
+     * @param mode    期望的状态
+     * @param timeout 超时时间（毫秒）
+     * @return 成功返回true，超时返回false，无法在页面内等待返回null
+     */
+    static Boolean awaitState(ChromiumElement ele, String attr, boolean mode, long timeout) {
+        String expr = STATES.get(attr);
+        if (expr == null) return null;
+        return await(ele.getOwner(), ele.getObjId(), mode ? expr : "!(" + expr + ")", timeout);
+    }
+
+    /**
+     * 在页面内等待元素出现
+     *
+     * @param page    页面
+     * @param byList  定位符
+     * @param anyOne  是否出现一个即可
+     * @param timeout 超时时间（毫秒）
+     * @return 成功返回true，超时返回false，无法在页面内等待返回null
+     */
+    static Boolean awaitLoaded(ChromiumBase page, List<By> byList, boolean anyOne, long timeout) {
+        if (byList == null || byList.isEmpty()) return null;
+        List<String> conditions = new ArrayList<>();
+        for (By by : byList) {
+            By loc = Locator.getLoc(by.copy());
+            String value = JSON.toJSONString(loc.getValue());
+            if (loc.getName() == BySelect.XPATH) {
+                conditions.add("(function(){var n=document.evaluate(" + value + ",document,null,9,null).singleNodeValue;return !!n&&n.nodeType===1;})()");
+            } else if (loc.getName() == BySelect.CSS_SELECTOR) {
+                conditions.add("document.querySelector(" + value + ")");
+            } else {
+                return null;
+            }
+        }
+        return await(page, page.getRootId(), String.join(anyOne ? "||" : "&&", conditions), timeout);
+    }
+
+    private static Boolean await(ChromiumBase page, String objId, String condition, long timeout) {
+        if (objId == null || timeout <= 0) return null;
+        try {
+            JSONObject result = page.runCdpAsync("Runtime.callFunctionOn", Map.of("functionDeclaration", String.format(OBSERVER_JS, condition),
+                    "objectId", objId, "arguments", List.of(Map.of("value", timeout)), "returnByValue", true, "awaitPromise", true,
+                    "_timeout", timeout / 1000.0 + EXTRA_TIMEOUT, "_resend", false)).join();
+            if (result == null || result.containsKey("exceptionDetails")) return null;
+            JSONObject value = result.getJSONObject("result");
+            return value != null && Boolean.TRUE.equals(value.getBoolean("value"));
+        } catch (Exception e) {
+            return null;
+        }
+    }
+}
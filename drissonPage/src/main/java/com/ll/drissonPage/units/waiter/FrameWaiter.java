@@ -380,14 +380,20 @@ public class FrameWaiter extends BaseWaiter {
         errText = errText == null ? "等待元素状态改变失败（等待%s秒）。" : errText;
         timeout = timeout == null ? super.driver.timeout() : timeout;
         long endTime = (long) (System.currentTimeMillis() + timeout * 1000);
-        while (System.currentTimeMillis() < endTime) {
-            ElementStates states = this.ele.states();
-            try {
-                if (Objects.equals(states.getClass().getMethod(attr).invoke(states), mode)) return true;
-                TimeUnit.MILLISECONDS.sleep(50);
-            } catch (NoSuchMethodException | InvocationTargetException | IllegalAccessException |
-                     InterruptedException e) {
-                throw new RuntimeException(e);
+        //优先在页面内监听DOM变化，无法监听时退回轮询
+        Boolean observed = DomObserver.awaitState(this.ele, attr, mode, endTime - System.currentTimeMillis());
+        if (observed != null) {
+            if (observed) return true;
+        } else {
+            while (System.currentTimeMillis() < endTime) {
+                ElementStates states = this.ele.states();
+                try {
+                    if (Objects.equals(states.getClass().getMethod(attr).invoke(states), mode)) return true;
+                    TimeUnit.MILLISECONDS.sleep(50);
+                } catch (NoSuchMethodException | InvocationTargetException | IllegalAccessException |
+                         InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
             }
         }
         if (raiseErr == Boolean.TRUE || Settings.raiseWhenWaitFailed)
@@ -1,23 +1,24 @@
 package com.ll.news.bot;
 
-import com.pengrad.telegrambot.TelegramBot;
+import com.ll.news.bot.delivery.OutboundMessage;
+import com.ll.news.bot.delivery.TelegramDelivery;
 import com.pengrad.telegrambot.model.request.ParseMode;
-import com.pengrad.telegrambot.request.SendMessage;
-import com.pengrad.telegrambot.response.SendResponse;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.util.concurrent.CompletableFuture;
+
 /**
  * Telegram机器人服务类
- * 封装Telegram Bot的常用操作
+ * 封装Telegram Bot的常用操作，消息统一经发送引擎限流发送
  */
 @Service
 @Slf4j
 public class TelegramBotService {
 
     @Autowired
-    private TelegramBot bot;
+    private TelegramDelivery delivery;
 
     /**
      * 发送文本消息给用户
@@ -28,78 +29,73 @@ public class TelegramBotService {
 
     /**
      * 发送文本消息给聊天
+     * @return 进入发送队列返回true
      */
     public boolean sendMessage(String chatId, String text) {
-        try {
-            SendMessage request = new SendMessage(chatId, text);
-            // 如果消息太长，进行截断
-            if (text.length() > 4096) {
-                text = text.substring(0, 4093) + "...";
-                request = new SendMessage(chatId, text);
-            }
+        return accepted(sendMessageAsync(chatId, text));
+    }
 
-            SendResponse response = bot.execute(request);
+    /**
+     * 发送文本消息给用户
+     * @return 发送结果, 送达为true, 最终失败为false
+     */
+    public CompletableFuture<Boolean> sendMessageAsync(Long userId, String text) {
+        return sendMessageAsync(userId.toString(), text);
+    }
 
-            if (response.isOk()) {
-                log.debug("消息发送成功给聊天{}：{}", chatId, truncateText(text, 50));
-                return true;
-            } else {
-                log.error("消息发送失败给聊天{}：{} - {}",
-                         chatId, response.errorCode(), response.description());
-                return false;
-            }
-        } catch (Exception e) {
-            log.error("发送消息给聊天{}时发生异常：{}", chatId, e.getMessage(), e);
-            return false;
+    /**
+     * 发送文本消息给聊天
+     * @return 发送结果, 送达为true, 最终失败为false
+     */
+    public CompletableFuture<Boolean> sendMessageAsync(String chatId, String text) {
+        // 如果消息太长，进行截断
+        if (text.length() > 4096) {
+            text = text.substring(0, 4093) + "...";
         }
+        return submit(chatId, text, null, "消息");
     }
 
     /**
      * 发送Markdown格式的消息
      */
     public boolean sendMarkdownMessage(String chatId, String text) {
-        try {
-            SendMessage request = new SendMessage(chatId, text)
-                    .parseMode(ParseMode.Markdown);
-
-            SendResponse response = bot.execute(request);
-
-            if (response.isOk()) {
-                log.debug("Markdown消息发送成功给聊天{}：{}", chatId, truncateText(text, 50));
-                return true;
-            } else {
-                log.error("Markdown消息发送失败给聊天{}：{} - {}",
-                         chatId, response.errorCode(), response.description());
-                return false;
-            }
-        } catch (Exception e) {
-            log.error("发送Markdown消息给聊天{}时发生异常：{}", chatId, e.getMessage(), e);
-            return false;
-        }
+        return accepted(submit(chatId, text, ParseMode.Markdown, "Markdown消息"));
     }
 
     /**
      * 发送HTML格式的消息
      */
     public boolean sendHtmlMessage(String chatId, String text) {
-        try {
-            SendMessage request = new SendMessage(chatId, text)
-                    .parseMode(ParseMode.HTML);
+        return accepted(submit(chatId, text, ParseMode.HTML, "HTML消息"));
+    }
 
-            SendResponse response = bot.execute(request);
+    /**
+     * 发送引擎已停止时立即以false完成, 其余都已进入发送队列
+     */
+    private static boolean accepted(CompletableFuture<Boolean> result) {
+        return !result.isDone() || Boolean.TRUE.equals(result.getNow(false));
+    }
 
-            if (response.isOk()) {
-                log.debug("HTML消息发送成功给聊天{}：{}", chatId, truncateText(text, 50));
-                return true;
+    /**
+     * 交给发送引擎排队发送，按Telegram限流发送，结果异步记录日志
+     * @return 发送结果
+     */
+    private CompletableFuture<Boolean> submit(String chatId, String text, ParseMode parseMode, String type) {
+        OutboundMessage message = OutboundMessage.builder()
+                .chatId(chatId)
+                .text(text)
+                .parseMode(parseMode)
+                .disablePreview(false)
+                .build();
+        CompletableFuture<Boolean> result = delivery.submit(message);
+        result.whenComplete((ok, e) -> {
+            if (Boolean.TRUE.equals(ok)) {
+                log.debug("{}发送成功给聊天{}：{}", type, chatId, truncateText(message.getText(), 50));
             } else {
-                log.error("HTML消息发送失败给聊天{}：{} - {}",
-                         chatId, response.errorCode(), response.description());
-                return false;
+                log.error("{}发送失败给聊天{}", type, chatId, e);
             }
-        } catch (Exception e) {
-            log.error("发送HTML消息给聊天{}时发生异常：{}", chatId, e.getMessage(), e);
-            return false;
-        }
+        });
+        return result;
     }
 
     /**
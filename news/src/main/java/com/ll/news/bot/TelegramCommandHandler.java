@@ -3,6 +3,8 @@ package com.ll.news.bot;
 import com.ll.news.model.News;
 import com.ll.news.entity.UserPreference;
 import com.ll.news.service.INewsService;
+import com.ll.news.service.StatisticsDTO;
+import com.ll.news.service.StatisticsService;
 import com.ll.news.service.UserPreferenceService;
 import com.pengrad.telegrambot.model.Message;
 import lombok.extern.slf4j.Slf4j;
@@ -34,6 +36,9 @@ public class TelegramCommandHandler {
     @Autowired
     private INewsService newsService;
 
+    @Autowired
+    private StatisticsService statisticsService;
+
     /**
      * 处理用户命令
      */
@@ -172,19 +177,20 @@ public class TelegramCommandHandler {
     }
 
     private void handleStats(Long userId) {
-        // 创建模拟统计数据（实际实现时会连接真实统计服务）
+        StatisticsDTO stats = statisticsService.getStatistics();
         String message = "📊 Daily News 统计信息\n\n" +
                 "📈 今日数据\n" +
-                "• 新闻抓取：127条\n" +
-                "• 成功推送：89条\n" +
-                "• 数据源：5个\n\n" +
+                "• 新闻抓取：" + stats.getTodayNewsCount() + "条\n" +
+                "• 成功推送：" + stats.getTodayPushCount() + "条\n" +
+                "• 数据源：" + stats.getActiveSources() + "个\n\n" +
                 "👥 用户统计\n" +
-                "• 活跃用户：12人\n" +
-                "• 总订阅数：28个\n\n" +
+                "• 活跃用户：" + stats.getActiveUsers() + "人\n" +
+                "• 总订阅数：" + stats.getTotalSubscriptions() + "个\n\n" +
                 "⚡ 系统状态\n" +
-                "• 运行时间：24小时\n" +
-                "• 数据库状态：正常\n" +
-                "• Telegram连接：正常";
+                "• 运行时间：" + stats.getUptime() + "\n" +
+                "• 推送排队：" + stats.getQueuedTasks() + "个\n" +
+                "• 发送耗时：" + String.format("%.0fms", stats.getTelegramSendMillis()) + "\n" +
+                "• 错误次数：" + stats.getErrors();
 
         botService.sendMessage(userId, message);
     }
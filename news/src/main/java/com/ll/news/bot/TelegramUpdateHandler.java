@@ -1,5 +1,7 @@
 package com.ll.news.bot;
 
+import com.ll.news.bot.delivery.OutboundMessage;
+import com.ll.news.bot.delivery.TelegramDelivery;
 import com.pengrad.telegrambot.TelegramBot;
 import com.pengrad.telegrambot.UpdatesListener;
 import com.pengrad.telegrambot.model.Message;
@@ -21,6 +23,9 @@ public class TelegramUpdateHandler implements UpdatesListener {
     @Autowired
     private TelegramBot telegramBot;
 
+    @Autowired
+    private TelegramDelivery delivery;
+
     @Autowired
     private TelegramCommandHandler commandHandler;
 
@@ -80,7 +85,7 @@ public class TelegramUpdateHandler implements UpdatesListener {
         String response = generateAutoResponse(text);
 
         if (response != null) {
-            telegramBot.execute(new com.pengrad.telegrambot.request.SendMessage(userId, response));
+            delivery.submit(userId.toString(), response, OutboundMessage.Priority.HIGH);
         }
     }
 
@@ -0,0 +1,69 @@
+package com.ll.news.bot.delivery;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.toolkit.Wrappers;
+import com.ll.news.mapper.TelegramOutboxMapper;
+import com.ll.news.model.TelegramOutbox;
+import com.pengrad.telegrambot.model.request.ParseMode;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 基于telegram_outbox表的发件箱
+ */
+@Component
+public class DbOutboxStore implements OutboxStore {
+
+    private static final int SILENT = 1;
+    private static final int NO_PREVIEW = 2;
+    private static final int COALESCE = 4;
+
+    @Autowired
+    TelegramOutboxMapper outboxMapper;
+
+    @Override
+    public void save(String channel, OutboundMessage message) {
+        int flags = (message.isDisableNotification() ? SILENT : 0)
+                | (message.isDisablePreview() ? NO_PREVIEW : 0)
+                | (message.isCoalesce() ? COALESCE : 0);
+        TelegramOutbox outbox = TelegramOutbox.builder()
+                .channel(channel)
+                .chatId(message.getChatId())
+                .text(message.getText())
+                .parseMode(message.getParseMode() == null ? null : message.getParseMode().name())
+                .priority(message.getPriority().name())
+                .flags(flags)
+                .createdAt(System.currentTimeMillis())
+                .build();
+        outboxMapper.insert(outbox);
+        message.setId(outbox.getId());
+    }
+
+    @Override
+    public void delete(Collection<Long> ids) {
+        outboxMapper.deleteByIds(ids);
+    }
+
+    @Override
+    public List<OutboundMessage> load(String channel) {
+        LambdaQueryWrapper<TelegramOutbox> query = Wrappers.lambdaQuery(TelegramOutbox.class);
+        query.eq(TelegramOutbox::getChannel, channel);
+        query.orderByAsc(TelegramOutbox::getId);
+        return outboxMapper.selectList(query).stream().map(outbox -> {
+            int flags = outbox.getFlags() == null ? 0 : outbox.getFlags();
+            return OutboundMessage.builder()
+                    .id(outbox.getId())
+                    .chatId(outbox.getChatId())
+                    .text(outbox.getText())
+                    .parseMode(outbox.getParseMode() == null ? null : ParseMode.valueOf(outbox.getParseMode()))
+                    .priority(OutboundMessage.Priority.valueOf(outbox.getPriority()))
+                    .disableNotification((flags & SILENT) != 0)
+                    .disablePreview((flags & NO_PREVIEW) != 0)
+                    .coalesce((flags & COALESCE) != 0)
+                    .build();
+        }).toList();
+    }
+}
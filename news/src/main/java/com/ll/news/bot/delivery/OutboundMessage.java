@@ -0,0 +1,53 @@
+package com.ll.news.bot.delivery;
+
+import com.pengrad.telegrambot.model.request.ParseMode;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 待发送的Telegram消息
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class OutboundMessage {
+
+    /**
+     * 发件箱id, 未持久化时为null
+     */
+    private Long id;
+
+    private String chatId;
+
+    private String text;
+
+    /**
+     * 为null时发送纯文本
+     */
+    private ParseMode parseMode;
+
+    @Builder.Default
+    private Priority priority = Priority.NORMAL;
+
+    private boolean disableNotification;
+
+    @Builder.Default
+    private boolean disablePreview = true;
+
+    /**
+     * 是否允许和同一聊天的其他消息合并发送
+     */
+    @Builder.Default
+    private boolean coalesce = true;
+
+    public enum Priority {
+        /**
+         * 优先通道, 交易提醒和命令回复
+         */
+        HIGH,
+        NORMAL
+    }
+}
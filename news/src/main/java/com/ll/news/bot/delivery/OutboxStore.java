@@ -0,0 +1,23 @@
+package com.ll.news.bot.delivery;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 发件箱, 消息入队前保存, 发送完成后删除, 重启后重新投递未完成的消息
+ */
+public interface OutboxStore {
+
+    /**
+     * 保存消息并回填id
+     * @param channel 发送通道, 每个机器人一个
+     */
+    void save(String channel, OutboundMessage message);
+
+    void delete(Collection<Long> ids);
+
+    /**
+     * @return 通道中未完成的消息, 按保存顺序
+     */
+    List<OutboundMessage> load(String channel);
+}
@@ -0,0 +1,554 @@
+package com.ll.news.bot.delivery;
+
+import com.pengrad.telegrambot.Callback;
+import com.pengrad.telegrambot.TelegramBot;
+import com.pengrad.telegrambot.model.LinkPreviewOptions;
+import com.pengrad.telegrambot.model.ResponseParameters;
+import com.pengrad.telegrambot.request.SendMessage;
+import com.pengrad.telegrambot.response.SendResponse;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Telegram发送引擎, 每个机器人一个
+ * 全局和每个聊天各一个令牌桶, 优先通道先发, 同一聊天排队的消息合并成一条,
+ * 429按retry_after暂停该聊天, 网络和服务端错误按消息计数指数退避重试, 合并发送被其他4xx拒绝时拆开逐条重发,
+ * 发件箱保证重启不丢消息。
+ * 绑定指标后记录每次请求的耗时, 按结果区分
+ */
+@Slf4j
+public class TelegramDelivery implements AutoCloseable, MeterBinder {
+
+    /**
+     * 单条消息最大长度
+     */
+    private static final int MAX_LENGTH = 4096;
+
+    /**
+     * 单次最多合并的消息数
+     */
+    private static final int MAX_COALESCE = 20;
+
+    private static final String SEPARATOR = "\n\n";
+
+    private static final int MAX_ATTEMPTS = 5;
+
+    private static final long BASE_BACKOFF = TimeUnit.SECONDS.toNanos(1);
+
+    private static final long MAX_BACKOFF = TimeUnit.MINUTES.toNanos(1);
+
+    /**
+     * 聊天空闲多久后回收队列
+     */
+    private static final long IDLE_EVICT = TimeUnit.MINUTES.toNanos(5);
+
+    private static final long MAX_IDLE_WAIT = TimeUnit.SECONDS.toNanos(1);
+
+    private final String channel;
+
+    private final TelegramBot bot;
+
+    private final OutboxStore store;
+
+    private final double chatRate;
+
+    private final double groupRate;
+
+    private final TokenBucket global;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Condition changed = lock.newCondition();
+
+    /**
+     * 按轮转顺序排列, 发送后移到末尾
+     */
+    private final LinkedHashMap<String, ChatQueue> chats = new LinkedHashMap<>();
+
+    private final Thread dispatcher;
+
+    private volatile boolean running = true;
+
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder delivered = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder throttled = new LongAdder();
+    private final LongAdder retried = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+
+    /**
+     * 请求耗时, 未绑定指标时为null
+     */
+    private volatile MeterRegistry registry;
+
+    /**
+     * @param channel    通道名称, 发件箱按通道区分
+     * @param bot        机器人
+     * @param store      发件箱, 为null时不持久化
+     * @param globalRate 全局每秒最多发送数
+     * @param chatRate   私聊每秒最多发送数
+     * @param groupRate  群组每秒最多发送数
+     */
+    public TelegramDelivery(String channel, TelegramBot bot, OutboxStore store, double globalRate, double chatRate, double groupRate) {
+        this.channel = channel;
+        this.bot = bot;
+        this.store = store;
+        this.chatRate = chatRate;
+        this.groupRate = groupRate;
+        this.global = new TokenBucket(globalRate, globalRate);
+        this.dispatcher = new Thread(this::dispatchLoop, "tg-delivery-" + channel);
+        this.dispatcher.setDaemon(true);
+        restore();
+        this.dispatcher.start();
+    }
+
+    public CompletableFuture<Boolean> submit(String chatId, String text, OutboundMessage.Priority priority) {
+        return submit(OutboundMessage.builder().chatId(chatId).text(text).priority(priority).build());
+    }
+
+    /**
+     * 提交消息, 先写发件箱再入队
+     *
+     * @return 发送结果, 合并发送时和同批消息一起完成, 最终失败为false
+     */
+    public CompletableFuture<Boolean> submit(OutboundMessage message) {
+        if (!running) {
+            return CompletableFuture.completedFuture(false);
+        }
+        if (store != null) {
+            try {
+                store.save(channel, message);
+            } catch (Exception e) {
+                log.warn("telegram outbox {} save error", channel, e);
+            }
+        }
+        Pending pending = new Pending(message, new CompletableFuture<>());
+        submitted.increment();
+        enqueue(pending);
+        return pending.future;
+    }
+
+    private void restore() {
+        if (store == null) {
+            return;
+        }
+        try {
+            List<OutboundMessage> messages = store.load(channel);
+            for (OutboundMessage message : messages) {
+                enqueue(new Pending(message, new CompletableFuture<>()));
+            }
+            if (!messages.isEmpty()) {
+                log.info("telegram outbox {} restore {} messages", channel, messages.size());
+            }
+        } catch (Exception e) {
+            log.warn("telegram outbox {} restore error", channel, e);
+        }
+    }
+
+    private void enqueue(Pending pending) {
+        lock.lock();
+        try {
+            String chatId = pending.message.getChatId();
+            chats.computeIfAbsent(chatId, this::newChat).lane(pending.message.getPriority()).addLast(pending);
+            changed.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private ChatQueue newChat(String chatId) {
+        // 群组和频道id为负数
+        double rate = chatId.startsWith("-") ? groupRate : chatRate;
+        return new ChatQueue(chatId, new TokenBucket(rate, 1));
+    }
+
+    private void dispatchLoop() {
+        lock.lock();
+        try {
+            while (running) {
+                long wait = dispatchReady();
+                changed.awaitNanos(wait);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 锁内调用, 先发优先通道, 再发普通通道
+     *
+     * @return 下次需要检查的等待时间
+     */
+    private long dispatchReady() {
+        long now = System.nanoTime();
+        long wait = MAX_IDLE_WAIT;
+        List<ChatQueue> sent = new ArrayList<>();
+        lanes:
+        for (OutboundMessage.Priority priority : OutboundMessage.Priority.values()) {
+            Iterator<ChatQueue> iterator = chats.values().iterator();
+            while (iterator.hasNext()) {
+                ChatQueue chat = iterator.next();
+                if (chat.inFlight || chat.lane(priority).isEmpty()) {
+                    if (chat.idle(now)) {
+                        iterator.remove();
+                    }
+                    continue;
+                }
+                long chatWait = Math.max(chat.blockedUntil - now, chat.bucket.waitNanos(now));
+                if (chatWait > 0) {
+                    wait = Math.min(wait, chatWait);
+                    continue;
+                }
+                long globalWait = global.waitNanos(now);
+                if (globalWait > 0) {
+                    wait = Math.min(wait, globalWait);
+                    break lanes;
+                }
+                global.take(now);
+                chat.bucket.take(now);
+                chat.inFlight = true;
+                chat.lastActive = now;
+                send(chat, chat.poll(priority));
+                sent.add(chat);
+            }
+        }
+        // 轮转, 本轮发过的排到最后
+        for (ChatQueue chat : sent) {
+            chats.remove(chat.chatId);
+            chats.put(chat.chatId, chat);
+        }
+        return wait;
+    }
+
+    private void send(ChatQueue chat, List<Pending> batch) {
+        OutboundMessage head = batch.get(0).message;
+        StringJoiner text = new StringJoiner(SEPARATOR);
+        for (Pending pending : batch) {
+            text.add(pending.message.getText());
+        }
+        SendMessage request = new SendMessage(chat.chatId, text.toString())
+                .disableNotification(head.isDisableNotification())
+                .linkPreviewOptions(new LinkPreviewOptions().isDisabled(head.isDisablePreview()));
+        if (head.getParseMode() != null) {
+            request.parseMode(head.getParseMode());
+        }
+        requests.increment();
+        if (batch.size() > 1) {
+            coalesced.add(batch.size() - 1);
+        }
+        long start = System.nanoTime();
+        bot.execute(request, new Callback<SendMessage, SendResponse>() {
+            @Override
+            public void onResponse(SendMessage request, SendResponse response) {
+                record(start, response.isOk() ? "success" : response.errorCode() == 429 ? "throttled" : "error");
+                completed(chat, batch, response, null);
+            }
+
+            @Override
+            public void onFailure(SendMessage request, IOException e) {
+                record(start, "io_error");
+                completed(chat, batch, null, e);
+            }
+        });
+    }
+
+    private void completed(ChatQueue chat, List<Pending> batch, SendResponse response, IOException error) {
+        List<Pending> done = null;
+        boolean ok = false;
+        lock.lock();
+        try {
+            chat.inFlight = false;
+            long now = System.nanoTime();
+            if (response != null && response.isOk()) {
+                ok = true;
+                done = batch;
+            } else if (response != null && response.errorCode() == 429) {
+                // 限流不计入重试次数, 按服务端要求的时间暂停该聊天
+                ResponseParameters parameters = response.parameters();
+                int retryAfter = parameters == null || parameters.retryAfter() == null ? 1 : parameters.retryAfter();
+                chat.blockedUntil = now + TimeUnit.SECONDS.toNanos(retryAfter);
+                chat.requeue(batch);
+                throttled.increment();
+                log.warn("telegram {} chat {} throttled, retry after {}s", channel, chat.chatId, retryAfter);
+            } else if (response == null || response.errorCode() >= 500) {
+                // 重试次数按消息记录, 重新入队后可能和别的消息合并
+                List<Pending> retry = new ArrayList<>();
+                List<Pending> exhausted = new ArrayList<>();
+                int attempts = 0;
+                for (Pending pending : batch) {
+                    if (++pending.attempts >= MAX_ATTEMPTS) {
+                        exhausted.add(pending);
+                    } else {
+                        retry.add(pending);
+                        attempts = Math.max(attempts, pending.attempts);
+                    }
+                }
+                if (!retry.isEmpty()) {
+                    chat.blockedUntil = now + backoff(attempts);
+                    chat.requeue(retry);
+                    retried.increment();
+                }
+                if (!exhausted.isEmpty()) {
+                    done = exhausted;
+                }
+            } else if (batch.size() > 1) {
+                // 合并后的文本可能才有格式错误, 拆开逐条发送, 不连累其他消息
+                for (Pending pending : batch) {
+                    pending.alone = true;
+                }
+                chat.requeue(batch);
+                log.warn("telegram {} chat {} coalesced send of {} messages rejected: {} {}, resend one by one",
+                        channel, chat.chatId, batch.size(), response.errorCode(), response.description());
+            } else {
+                // 其他4xx重试也不会成功
+                done = batch;
+            }
+            changed.signal();
+        } finally {
+            lock.unlock();
+        }
+        if (done == null) {
+            return;
+        }
+        if (ok) {
+            delivered.add(done.size());
+        } else {
+            failed.add(done.size());
+            log.error("telegram {} send to {} failed: {}", channel, chat.chatId,
+                    response != null ? response.errorCode() + " " + response.description() : error.getMessage());
+        }
+        finish(done, ok);
+    }
+
+    private void finish(List<Pending> batch, boolean ok) {
+        if (store != null) {
+            List<Long> ids = new ArrayList<>();
+            for (Pending pending : batch) {
+                if (pending.message.getId() != null) {
+                    ids.add(pending.message.getId());
+                }
+            }
+            if (!ids.isEmpty()) {
+                try {
+                    store.delete(ids);
+                } catch (Exception e) {
+                    log.warn("telegram outbox {} delete error", channel, e);
+                }
+            }
+        }
+        for (Pending pending : batch) {
+            pending.future.complete(ok);
+        }
+    }
+
+    private void record(long start, String outcome) {
+        MeterRegistry meters = registry;
+        if (meters != null) {
+            Timer.builder("telegram.send").tag("channel", channel).tag("outcome", outcome)
+                    .register(meters).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private static long backoff(int attempts) {
+        long backoff = Math.min(MAX_BACKOFF, BASE_BACKOFF << Math.min(attempts - 1, 16));
+        return backoff / 2 + ThreadLocalRandom.current().nextLong(backoff / 2 + 1);
+    }
+
+    /**
+     * @return 当前统计信息
+     */
+    public Stats stats() {
+        int queued = 0;
+        lock.lock();
+        try {
+            for (ChatQueue chat : chats.values()) {
+                queued += chat.high.size() + chat.normal.size();
+            }
+            return new Stats(channel, chats.size(), queued, submitted.sum(), requests.sum(), delivered.sum(), coalesced.sum(),
+                    throttled.sum(), retried.sum(), failed.sum());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("telegram.queued", this, d -> d.stats().getQueued())
+                .description("排队中的消息数量").tag("channel", channel).register(registry);
+        Gauge.builder("telegram.chats", this, d -> d.stats().getChats())
+                .description("活跃聊天数量").tag("channel", channel).register(registry);
+        messages(registry, "submitted", submitted);
+        messages(registry, "delivered", delivered);
+        messages(registry, "coalesced", coalesced);
+        messages(registry, "failed", failed);
+        FunctionCounter.builder("telegram.requests", requests, LongAdder::sum).tag("channel", channel).register(registry);
+        FunctionCounter.builder("telegram.throttled", throttled, LongAdder::sum).tag("channel", channel).register(registry);
+        FunctionCounter.builder("telegram.retried", retried, LongAdder::sum).tag("channel", channel).register(registry);
+        this.registry = registry;
+    }
+
+    private void messages(MeterRegistry registry, String result, LongAdder adder) {
+        FunctionCounter.builder("telegram.messages", adder, LongAdder::sum)
+                .tag("channel", channel).tag("result", result).register(registry);
+    }
+
+    /**
+     * 停止调度, 未发送的消息留在发件箱中, 下次启动继续发送
+     */
+    @Override
+    public void close() {
+        running = false;
+        lock.lock();
+        try {
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            dispatcher.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static class Pending {
+        private final OutboundMessage message;
+        private final CompletableFuture<Boolean> future;
+        private int attempts;
+        /**
+         * 合并发送被拒绝后单独发送
+         */
+        private boolean alone;
+
+        Pending(OutboundMessage message, CompletableFuture<Boolean> future) {
+            this.message = message;
+            this.future = future;
+        }
+    }
+
+    private static class ChatQueue {
+        private final String chatId;
+        private final TokenBucket bucket;
+        private final Deque<Pending> high = new ArrayDeque<>();
+        private final Deque<Pending> normal = new ArrayDeque<>();
+        private boolean inFlight;
+        private long blockedUntil;
+        private long lastActive = System.nanoTime();
+
+        ChatQueue(String chatId, TokenBucket bucket) {
+            this.chatId = chatId;
+            this.bucket = bucket;
+        }
+
+        Deque<Pending> lane(OutboundMessage.Priority priority) {
+            return priority == OutboundMessage.Priority.HIGH ? high : normal;
+        }
+
+        /**
+         * 取出队首消息, 并合并之后格式相同的消息
+         */
+        List<Pending> poll(OutboundMessage.Priority priority) {
+            Deque<Pending> lane = lane(priority);
+            List<Pending> batch = new ArrayList<>();
+            Pending first = lane.poll();
+            batch.add(first);
+            if (!first.message.isCoalesce() || first.alone) {
+                return batch;
+            }
+            int length = first.message.getText().length();
+            while (batch.size() < MAX_COALESCE && !lane.isEmpty()) {
+                OutboundMessage next = lane.peek().message;
+                if (lane.peek().alone || !next.isCoalesce() || next.getParseMode() != first.message.getParseMode()
+                        || next.isDisableNotification() != first.message.isDisableNotification()
+                        || next.isDisablePreview() != first.message.isDisablePreview()) {
+                    break;
+                }
+                length += SEPARATOR.length() + next.getText().length();
+                if (length > MAX_LENGTH) {
+                    break;
+                }
+                batch.add(lane.poll());
+            }
+            return batch;
+        }
+
+        /**
+         * 放回队首, 保持顺序
+         */
+        void requeue(List<Pending> batch) {
+            Deque<Pending> lane = lane(batch.get(0).message.getPriority());
+            for (int i = batch.size() - 1; i >= 0; i--) {
+                lane.addFirst(batch.get(i));
+            }
+        }
+
+        boolean idle(long now) {
+            return !inFlight && high.isEmpty() && normal.isEmpty() && now - lastActive > IDLE_EVICT && now >= blockedUntil && bucket.full(now);
+        }
+    }
+
+    @Getter
+    @ToString
+    @AllArgsConstructor
+    public static class Stats {
+        /**
+         * 发送通道
+         */
+        private final String channel;
+        /**
+         * 活跃聊天数量
+         */
+        private final int chats;
+        /**
+         * 排队中的消息数量
+         */
+        private final int queued;
+        /**
+         * 提交的消息数量
+         */
+        private final long submitted;
+        /**
+         * 实际请求次数
+         */
+        private final long requests;
+        /**
+         * 发送成功的消息数量
+         */
+        private final long delivered;
+        /**
+         * 合并发送节省的请求次数
+         */
+        private final long coalesced;
+        /**
+         * 429限流次数
+         */
+        private final long throttled;
+        /**
+         * 重试次数
+         */
+        private final long retried;
+        /**
+         * 最终失败的消息数量
+         */
+        private final long failed;
+    }
+}
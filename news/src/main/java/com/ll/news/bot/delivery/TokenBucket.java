@@ -0,0 +1,56 @@
+package com.ll.news.bot.delivery;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 令牌桶, 非线程安全, 由调度线程在锁内使用
+ */
+class TokenBucket {
+
+    private final double capacity;
+
+    private final double tokensPerNano;
+
+    private double tokens;
+
+    private long last;
+
+    /**
+     * @param ratePerSecond 每秒补充的令牌数
+     * @param burst         桶容量, 允许的突发数量
+     */
+    TokenBucket(double ratePerSecond, double burst) {
+        this.capacity = Math.max(1, burst);
+        this.tokensPerNano = ratePerSecond / TimeUnit.SECONDS.toNanos(1);
+        this.tokens = capacity;
+        this.last = System.nanoTime();
+    }
+
+    /**
+     * @return 距离有可用令牌还需等待的纳秒数, 0表示现在可用
+     */
+    long waitNanos(long now) {
+        refill(now);
+        return tokens >= 1 ? 0 : (long) Math.ceil((1 - tokens) / tokensPerNano);
+    }
+
+    void take(long now) {
+        refill(now);
+        tokens -= 1;
+    }
+
+    /**
+     * 桶是否已满, 满桶说明长时间没有使用
+     */
+    boolean full(long now) {
+        refill(now);
+        return tokens >= capacity;
+    }
+
+    private void refill(long now) {
+        if (now > last) {
+            tokens = Math.min(capacity, tokens + (now - last) * tokensPerNano);
+            last = now;
+        }
+    }
+}
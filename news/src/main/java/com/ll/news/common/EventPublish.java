@@ -6,6 +6,8 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Component;
 
+import java.util.List;
+
 @Component
 @Slf4j
 public class EventPublish {
@@ -19,4 +21,10 @@ public class EventPublish {
         publisher.publishEvent(event);
     }
 
+    public void publishNewsBatchEvent(List<News> news) {
+        NewsBatchEvent event = new NewsBatchEvent();
+        event.setNews(news);
+        publisher.publishEvent(event);
+    }
+
 }
@@ -0,0 +1,18 @@
+package com.ll.news.common;
+
+import com.ll.news.model.News;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 一次刷新新入库的新闻
+ */
+@Data
+@NoArgsConstructor
+public class NewsBatchEvent {
+
+    private List<News> news;
+
+}
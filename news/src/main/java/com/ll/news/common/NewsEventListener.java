@@ -1,12 +1,10 @@
 package com.ll.news.common;
 
+import com.ll.news.bot.delivery.OutboundMessage;
+import com.ll.news.bot.delivery.TelegramDelivery;
 import com.ll.news.model.News;
 import com.ll.news.service.INewsService;
-import com.pengrad.telegrambot.TelegramBot;
-import com.pengrad.telegrambot.model.LinkPreviewOptions;
 import com.pengrad.telegrambot.model.request.ParseMode;
-import com.pengrad.telegrambot.request.SendMessage;
-import com.pengrad.telegrambot.response.SendResponse;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
@@ -14,7 +12,10 @@ import org.springframework.context.event.EventListener;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
 
 @Slf4j
 @Component
@@ -24,15 +25,51 @@ public class NewsEventListener {
     private String chatId;
 
     @Autowired
-    TelegramBot bot;
+    TelegramDelivery delivery;
 
     @Autowired
     INewsService newsService;
 
+    @Autowired
+    NewsMetrics metrics;
+
     @EventListener(classes = NewsEvent.class)
     @Async("msgExecutor")
     public void newsEventListener(NewsEvent newsEvent) {
         News news = newsEvent.getNews();
+        send(news).thenAccept(ok -> {
+            if (ok) {
+                metrics.pushed("channel", 1);
+                news.setStatus(NewsConst.Status.PUBLISHED);
+                newsService.updateById(news);
+            }
+        });
+    }
+
+    @EventListener(classes = NewsBatchEvent.class)
+    @Async("msgExecutor")
+    public void newsBatchEventListener(NewsBatchEvent batchEvent) {
+        List<News> newsList = batchEvent.getNews();
+        List<CompletableFuture<Boolean>> futures = new ArrayList<>();
+        for (News news : newsList) {
+            futures.add(send(news));
+        }
+        // 整批发送完成后一条语句更新状态
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).thenRun(() -> {
+            List<Long> published = new ArrayList<>();
+            for (int i = 0; i < newsList.size(); i++) {
+                News news = newsList.get(i);
+                if (futures.get(i).join() && Objects.nonNull(news.getId())) {
+                    news.setStatus(NewsConst.Status.PUBLISHED);
+                    published.add(news.getId());
+                }
+            }
+            metrics.pushed("channel", published.size());
+            newsService.updateStatusByIds(published, NewsConst.Status.PUBLISHED);
+        });
+    }
+
+    private CompletableFuture<Boolean> send(News news) {
         String siteSource = news.getSiteSource();
         NewsConst.Source bySource = NewsConst.Source.getBySource(siteSource);
         String title = "";
@@ -46,20 +83,14 @@ public class NewsEventListener {
 //                        new InlineKeyboardButton("AI总结").callbackData("ai_sum"),
 //                });
 
-        SendMessage request = new SendMessage(chatId, "[" + title + news.getTitle() + "](" +news.getLink() + ")\n\n" + news.getContent())
+        OutboundMessage message = OutboundMessage.builder()
+                .chatId(chatId)
+                .text("[" + title + news.getTitle() + "](" +news.getLink() + ")\n\n" + news.getContent())
                 .parseMode(ParseMode.Markdown)
                 .disableNotification(true)
-                .linkPreviewOptions(new LinkPreviewOptions().isDisabled(true))
-//                .replyMarkup(inlineKeyboard)
-                ;
-
-        SendResponse execute = bot.execute(request);
-
-        if (execute.isOk()) {
-            news.setStatus(NewsConst.Status.PUBLISHED);
-            newsService.updateById(news);
-        }
+                .build();
 
+        return delivery.submit(message);
     }
 
 
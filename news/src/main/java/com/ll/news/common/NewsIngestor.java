@@ -0,0 +1,54 @@
+package com.ll.news.common;
+
+import com.ll.news.model.News;
+import com.ll.news.service.INewsDedupService;
+import com.ll.news.service.INewsService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * 新闻批量入库
+ * 来源在一次刷新中收集新链接, 结束时一条语句入库, 并发布一个批量事件
+ */
+@Component
+@Slf4j
+public class NewsIngestor {
+
+    @Autowired
+    INewsService newsService;
+
+    @Autowired
+    INewsDedupService dedup;
+
+    @Autowired
+    EventPublish eventPublish;
+
+    @Autowired
+    NewsMetrics metrics;
+
+    public List<News> ingest(NewsConst.Source source, List<News> batch) {
+        if (batch.isEmpty()) {
+            return List.of();
+        }
+        long start = System.nanoTime();
+        List<News> inserted;
+        try {
+            inserted = newsService.insertNewsBatch(batch);
+        } catch (RuntimeException e) {
+            metrics.error("ingest");
+            throw e;
+        }
+        metrics.inserted(source.source(), System.nanoTime() - start, batch.size(), inserted.size());
+        for (News news : inserted) {
+            dedup.mark(source, news.getLink());
+        }
+        log.info("{} ingest {} of {} news", source.source(), inserted.size(), batch.size());
+        if (!inserted.isEmpty()) {
+            eventPublish.publishNewsBatchEvent(inserted);
+        }
+        return inserted;
+    }
+}
@@ -0,0 +1,197 @@
+package com.ll.news.common;
+
+import com.ll.drissonPage.units.HttpClientPool;
+import com.ll.news.site.base.SourceStat;
+import io.micrometer.core.instrument.*;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * 新闻管道的指标
+ * 来源刷新、抓取、解析、入库和推送的耗时与计数, 通过/actuator/prometheus暴露, /stats也从这里读取。
+ * 一次刷新在来源自己的线程上同步执行, 期间的HTTP请求和入库耗时记在线程变量上, 解析耗时为刷新总耗时减去这两部分
+ */
+@Component
+public class NewsMetrics {
+
+    public static final String SOURCE_REFRESH = "news.source.refresh";
+    public static final String SOURCE_FETCH = "news.source.fetch";
+    public static final String SOURCE_PARSE = "news.source.parse";
+    public static final String INGEST_INSERT = "news.ingest.insert";
+    public static final String ITEMS = "news.items";
+    public static final String ITEMS_TODAY = "news.items.today";
+    public static final String PUSHES = "news.pushes";
+    public static final String PUSHES_TODAY = "news.pushes.today";
+    public static final String SOURCES_ACTIVE = "news.sources.active";
+    public static final String ERRORS = "news.errors";
+    public static final String HTTP_REQUESTS = "news.http.requests";
+
+    private static final ThreadLocal<Refresh> CURRENT = new ThreadLocal<>();
+
+    private final MeterRegistry registry;
+
+    private final DayCounter todayItems = new DayCounter();
+
+    private final DayCounter todayPushes = new DayCounter();
+
+    public NewsMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @PostConstruct
+    public void init() {
+        HttpClientPool.observe(this::onHttpCall);
+        FunctionCounter.builder("news.http.pool.calls", HttpClientPool.class, c -> HttpClientPool.stats().getCalls())
+                .description("共享HTTP客户端发起的请求数").register(registry);
+        FunctionCounter.builder("news.http.pool.connects", HttpClientPool.class, c -> HttpClientPool.stats().getConnects())
+                .description("新建连接数").register(registry);
+        FunctionCounter.builder("news.http.pool.handshakes", HttpClientPool.class, c -> HttpClientPool.stats().getHandshakes())
+                .description("TLS握手次数").register(registry);
+        Gauge.builder("news.http.pool.connections", HttpClientPool.class, c -> HttpClientPool.stats().getPooledConnections())
+                .description("连接池中的连接数").register(registry);
+        Gauge.builder(ITEMS_TODAY, todayItems, DayCounter::get).description("今日入库的新闻数").register(registry);
+        Gauge.builder(PUSHES_TODAY, todayPushes, DayCounter::get).description("今日推送成功的消息数").register(registry);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        HttpClientPool.observe(null);
+    }
+
+    public MeterRegistry registry() {
+        return registry;
+    }
+
+    public <T> void gauge(String name, String description, T obj, ToDoubleFunction<T> value) {
+        Gauge.builder(name, obj, value).description(description).strongReference(true).register(registry);
+    }
+
+    /**
+     * 来源的超时、跳过次数和距上次成功的时间
+     */
+    public void bind(SourceStat stat) {
+        Tags tags = Tags.of("source", stat.getSource());
+        FunctionCounter.builder("news.source.timeouts", stat, SourceStat::getTimeouts).tags(tags).register(registry);
+        FunctionCounter.builder("news.source.skipped", stat, SourceStat::getSkipped)
+                .description("并发预算用尽跳过的次数").tags(tags).register(registry);
+        Gauge.builder("news.source.freshness", stat, s -> s.getFreshnessMillis() < 0 ? Double.NaN : s.getFreshnessMillis() / 1000.0)
+                .description("距最近一次成功刷新的秒数").baseUnit("seconds").tags(tags).register(registry);
+    }
+
+    /**
+     * 在来源线程上开始一次刷新
+     */
+    public void begin() {
+        CURRENT.set(new Refresh());
+    }
+
+    /**
+     * 结束刷新, 记录总耗时、抓取耗时和解析耗时
+     */
+    public void end(String source, long nanos, boolean success) {
+        Refresh refresh = CURRENT.get();
+        CURRENT.remove();
+        Timer.builder(SOURCE_REFRESH).tag("source", source).tag("outcome", success ? "success" : "failure")
+                .register(registry).record(nanos, TimeUnit.NANOSECONDS);
+        if (!success) {
+            error("source");
+        }
+        if (refresh == null) {
+            return;
+        }
+        Timer.builder(SOURCE_FETCH).tag("source", source).register(registry).record(refresh.fetchNanos, TimeUnit.NANOSECONDS);
+        long parse = Math.max(0, nanos - refresh.fetchNanos - refresh.insertNanos);
+        Timer.builder(SOURCE_PARSE).tag("source", source).register(registry).record(parse, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 一次批量入库
+     *
+     * @param site     来源
+     * @param batch    提交的数量
+     * @param inserted 实际插入的数量, 其余为已存在
+     */
+    public void inserted(String site, long nanos, int batch, int inserted) {
+        Timer.builder(INGEST_INSERT).tag("site", site).register(registry).record(nanos, TimeUnit.NANOSECONDS);
+        Refresh refresh = CURRENT.get();
+        if (refresh != null) {
+            refresh.insertNanos += nanos;
+        }
+        items(site, "new", inserted);
+        items(site, "duplicate", batch - inserted);
+        todayItems.add(inserted);
+    }
+
+    /**
+     * 抓取时去重跳过一条
+     */
+    public void skipped(String site) {
+        items(site, "skipped", 1);
+    }
+
+    /**
+     * @param type channel为频道推送, personalized为个性化推送
+     */
+    public void pushed(String type, int count) {
+        if (count > 0) {
+            registry.counter(PUSHES, "type", type).increment(count);
+            todayPushes.add(count);
+        }
+    }
+
+    /**
+     * @param component 出错的环节, 如source、ingest、personalized
+     */
+    public void error(String component) {
+        registry.counter(ERRORS, "component", component).increment();
+    }
+
+    private void items(String site, String result, int count) {
+        if (count > 0) {
+            registry.counter(ITEMS, "site", site, "result", result).increment(count);
+        }
+    }
+
+    private void onHttpCall(String host, long nanos, boolean success) {
+        Timer.builder(HTTP_REQUESTS).tag("host", host).tag("outcome", success ? "success" : "failure")
+                .register(registry).record(nanos, TimeUnit.NANOSECONDS);
+        Refresh refresh = CURRENT.get();
+        if (refresh != null) {
+            refresh.fetchNanos += nanos;
+        }
+    }
+
+    /**
+     * 一次刷新中累计的耗时, 只在来源线程上访问
+     */
+    private static class Refresh {
+        private long fetchNanos;
+        private long insertNanos;
+    }
+
+    /**
+     * 按自然日清零的计数
+     */
+    private static class DayCounter {
+        private long day;
+        private long count;
+
+        synchronized void add(long n) {
+            long today = LocalDate.now().toEpochDay();
+            if (today != day) {
+                day = today;
+                count = 0;
+            }
+            count += n;
+        }
+
+        synchronized double get() {
+            return LocalDate.now().toEpochDay() == day ? count : 0;
+        }
+    }
+}
@@ -0,0 +1,260 @@
+package com.ll.news.common.executor;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.Queue;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 每个任务一个线程, 用信号量限制同时执行的数量
+ * 任务都是阻塞在HTTP或数据库上, 运行时支持虚拟线程时每个任务起一个虚拟线程, 否则用按需创建、空闲回收的平台线程。
+ * 超过并发数的任务在内存队列中等待, 执行中和等待中的总数超过上限时直接拒绝, 提交方不会被阻塞, 也不会在提交线程上执行
+ */
+@Slf4j
+public class BulkheadExecutor implements AsyncTaskExecutor, MeterBinder, AutoCloseable {
+
+    private final String name;
+
+    private final int concurrency;
+
+    private final int queueCapacity;
+
+    private final long awaitTerminationMillis;
+
+    private final boolean virtual;
+
+    private final Executor threads;
+
+    private final Semaphore permits;
+
+    private final Queue<Queued> queue = new ConcurrentLinkedQueue<>();
+
+    /**
+     * 已接受且未结束的任务数, 包括排队中的
+     */
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private final AtomicInteger queued = new AtomicInteger();
+
+    private final AtomicInteger active = new AtomicInteger();
+
+    private final LongAdder completed = new LongAdder();
+
+    private final LongAdder failed = new LongAdder();
+
+    private final LongAdder rejected = new LongAdder();
+
+    private volatile Timer wait;
+
+    private volatile boolean closed;
+
+    /**
+     * @param concurrency            同时执行的任务数
+     * @param queueCapacity          等待执行的任务数上限, 0为不排队, 并发用尽时直接拒绝
+     * @param awaitTerminationMillis 关闭时等待已接受任务完成的时间
+     * @param virtualThreads         运行时支持时使用虚拟线程
+     */
+    public BulkheadExecutor(String name, int concurrency, int queueCapacity, long awaitTerminationMillis, boolean virtualThreads) {
+        this.name = name;
+        this.concurrency = Math.max(1, concurrency);
+        this.queueCapacity = Math.max(0, queueCapacity);
+        this.awaitTerminationMillis = awaitTerminationMillis;
+        this.permits = new Semaphore(this.concurrency);
+        ThreadFactory factory = virtualThreads ? VirtualThreads.factory(name + "-") : null;
+        this.virtual = factory != null;
+        if (factory != null) {
+            this.threads = task -> factory.newThread(task).start();
+        } else {
+            CustomizableThreadFactory platform = new CustomizableThreadFactory(name + "-");
+            platform.setDaemon(true);
+            // 线程数由信号量限制, 池本身不设上限, 空闲60秒回收
+            this.threads = new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60, TimeUnit.SECONDS, new SynchronousQueue<>(), platform);
+        }
+        log.info("executor {} concurrency {}, queue {}, virtual threads {}", name, this.concurrency, this.queueCapacity, virtual);
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        if (closed) {
+            reject("closed");
+        }
+        if (inFlight.incrementAndGet() > concurrency + queueCapacity) {
+            inFlight.decrementAndGet();
+            reject("full, concurrency " + concurrency + ", queue " + queueCapacity);
+        }
+        queued.incrementAndGet();
+        queue.offer(new Queued(task, System.nanoTime()));
+        drain();
+    }
+
+    @Override
+    public Future<?> submit(Runnable task) {
+        FutureTask<Object> future = new FutureTask<>(task, null);
+        execute(future);
+        return future;
+    }
+
+    @Override
+    public <T> Future<T> submit(Callable<T> task) {
+        FutureTask<T> future = new FutureTask<>(task);
+        execute(future);
+        return future;
+    }
+
+    /**
+     * 有空闲的并发名额时取出排队的任务执行
+     * 提交和结束时都会调用, 入队在先、释放名额在先, 两边至少有一方能看到任务和名额
+     */
+    private void drain() {
+        while (!queue.isEmpty() && permits.tryAcquire()) {
+            Queued next = queue.poll();
+            if (next == null) {
+                permits.release();
+                continue;
+            }
+            queued.decrementAndGet();
+            active.incrementAndGet();
+            try {
+                threads.execute(() -> run(next));
+            } catch (RuntimeException | Error e) {
+                active.decrementAndGet();
+                inFlight.decrementAndGet();
+                permits.release();
+                rejected.increment();
+                log.error("executor {} start thread failed", name, e);
+            }
+        }
+    }
+
+    private void run(Queued next) {
+        Timer timer = wait;
+        if (timer != null) {
+            timer.record(System.nanoTime() - next.enqueued, TimeUnit.NANOSECONDS);
+        }
+        try {
+            next.task.run();
+        } catch (Throwable e) {
+            failed.increment();
+            log.error("executor {} task failed", name, e);
+        } finally {
+            completed.increment();
+            active.decrementAndGet();
+            inFlight.decrementAndGet();
+            permits.release();
+            drain();
+        }
+    }
+
+    private void reject(String reason) {
+        rejected.increment();
+        throw new TaskRejectedException("executor " + name + " " + reason);
+    }
+
+    public Stats stats() {
+        return new Stats(name, virtual, concurrency, queueCapacity, active.get(), queued.get(), completed.sum(), failed.sum(), rejected.sum());
+    }
+
+    /**
+     * 与Spring Boot绑定的线程池指标同名, 以name区分
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Tags tags = Tags.of("name", name);
+        Gauge.builder("executor.active", active, AtomicInteger::get)
+                .description("正在执行的任务数").tags(tags).register(registry);
+        Gauge.builder("executor.queued", queued, AtomicInteger::get)
+                .description("等待并发名额的任务数").tags(tags).register(registry);
+        Gauge.builder("executor.queue.remaining", this, e -> Math.max(0, e.concurrency + e.queueCapacity - e.inFlight.get()))
+                .description("还能接受的任务数").tags(tags).register(registry);
+        Gauge.builder("executor.pool.max", this, e -> e.concurrency)
+                .description("并发上限").tags(tags).register(registry);
+        FunctionCounter.builder("executor.completed", completed, LongAdder::sum)
+                .description("已完成的任务数").tags(tags).register(registry);
+        FunctionCounter.builder("executor.failed", failed, LongAdder::sum)
+                .description("抛出异常的任务数").tags(tags).register(registry);
+        FunctionCounter.builder("executor.rejected", rejected, LongAdder::sum)
+                .description("超过上限被拒绝的任务数").tags(tags).register(registry);
+        wait = Timer.builder("executor.wait").description("任务等待并发名额的时间").tags(tags).register(registry);
+    }
+
+    /**
+     * 不再接受新任务, 等待已接受的任务完成
+     */
+    @Override
+    public void close() {
+        closed = true;
+        long deadline = System.currentTimeMillis() + awaitTerminationMillis;
+        try {
+            while (inFlight.get() > 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(50);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (inFlight.get() > 0) {
+            log.warn("executor {} closed with {} unfinished tasks", name, inFlight.get());
+        }
+        if (threads instanceof ExecutorService executor) {
+            executor.shutdownNow();
+        }
+    }
+
+    @AllArgsConstructor
+    private static class Queued {
+        private final Runnable task;
+        private final long enqueued;
+    }
+
+    @Getter
+    @ToString
+    @AllArgsConstructor
+    public static class Stats {
+        private final String name;
+        /**
+         * 是否使用虚拟线程
+         */
+        private final boolean virtual;
+        /**
+         * 并发上限
+         */
+        private final int concurrency;
+        /**
+         * 排队上限
+         */
+        private final int queueCapacity;
+        /**
+         * 正在执行的任务数
+         */
+        private final int active;
+        /**
+         * 等待中的任务数
+         */
+        private final int queued;
+        /**
+         * 已完成的任务数
+         */
+        private final long completed;
+        /**
+         * 抛出异常的任务数
+         */
+        private final long failed;
+        /**
+         * 被拒绝的任务数
+         */
+        private final long rejected;
+    }
+}
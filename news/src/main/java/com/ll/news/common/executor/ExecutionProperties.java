@@ -0,0 +1,75 @@
+package com.ll.news.common.executor;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 执行器配置
+ * app:
+ *   execution:
+ *     virtual-threads: true
+ *     scheduler-pool-size: 4
+ *     lanes:
+ *       msgExecutor:
+ *         concurrency: 20
+ *         queue-capacity: 2000
+ */
+@ConfigurationProperties(prefix = "app.execution")
+@Component
+@Data
+public class ExecutionProperties {
+
+    /**
+     * 运行时支持时使用虚拟线程
+     */
+    private boolean virtualThreads = true;
+
+    /**
+     * 定时器线程数, 只负责触发, 耗时的任务交给执行器
+     */
+    private int schedulerPoolSize = 4;
+
+    /**
+     * 按执行器名称覆盖默认值
+     */
+    private Map<String, Lane> lanes = new LinkedHashMap<>();
+
+    /**
+     * 按配置创建执行器, 未配置的项使用代码里的默认值
+     */
+    public BulkheadExecutor create(String name, Lane defaults) {
+        Lane lane = lanes.getOrDefault(name, new Lane());
+        int concurrency = lane.getConcurrency() != null ? lane.getConcurrency() : defaults.getConcurrency();
+        int queueCapacity = lane.getQueueCapacity() != null ? lane.getQueueCapacity() : defaults.getQueueCapacity();
+        int await = lane.getAwaitTerminationSeconds() != null ? lane.getAwaitTerminationSeconds() : defaults.getAwaitTerminationSeconds();
+        return new BulkheadExecutor(name, concurrency, queueCapacity, await * 1000L, virtualThreads);
+    }
+
+    @Data
+    public static class Lane {
+        /**
+         * 同时执行的任务数
+         */
+        private Integer concurrency;
+        /**
+         * 等待执行的任务数上限
+         */
+        private Integer queueCapacity;
+        /**
+         * 关闭时等待任务完成的秒数
+         */
+        private Integer awaitTerminationSeconds;
+
+        public static Lane of(int concurrency, int queueCapacity, int awaitTerminationSeconds) {
+            Lane lane = new Lane();
+            lane.setConcurrency(concurrency);
+            lane.setQueueCapacity(queueCapacity);
+            lane.setAwaitTerminationSeconds(awaitTerminationSeconds);
+            return lane;
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.ll.news.common.executor;
+
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * 虚拟线程工厂
+ * 项目按Java 17编译, 运行在Java 21及以上时通过反射使用Thread.ofVirtual(), 否则返回null由调用方改用平台线程
+ */
+final class VirtualThreads {
+
+    private VirtualThreads() {
+    }
+
+    /**
+     * @param prefix 线程名前缀, 后面接序号
+     * @return 不支持虚拟线程时为null
+     */
+    static ThreadFactory factory(String prefix) {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> ofVirtual = Class.forName("java.lang.Thread$Builder$OfVirtual");
+            builder = ofVirtual.getMethod("name", String.class, long.class).invoke(builder, prefix, 0L);
+            return (ThreadFactory) Class.forName("java.lang.Thread$Builder").getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+}
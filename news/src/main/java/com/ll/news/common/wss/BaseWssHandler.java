@@ -21,6 +21,11 @@ public abstract class BaseWssHandler implements WssHandler  {
 
     }
 
+    @Override
+    public boolean blocking() {
+        return false;
+    }
+
     @Override
     public void beforeConnect() {
 
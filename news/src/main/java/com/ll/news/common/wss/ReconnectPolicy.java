@@ -0,0 +1,135 @@
+package com.ll.news.common.wss;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 重连策略
+ * 连续失败越多等待越久: 指数退避, 不超过最长等待, 一半固定一半随机, 避免多个连接同时重连。
+ * 连续失败达到阈值后熔断, 熔断期间不重连, 结束后试连一次(半开), 连上后恢复, 再次失败继续熔断。
+ * 连上后保持不到稳定时长就断开也算一次失败, 防止服务端接受后立即断开时反复重连。
+ * 只在连接的context上修改
+ */
+public class ReconnectPolicy {
+
+    public enum State {
+        /**
+         * 正常重连
+         */
+        CLOSED,
+        /**
+         * 熔断中
+         */
+        OPEN,
+        /**
+         * 熔断结束后试连
+         */
+        HALF_OPEN
+    }
+
+    private final long baseDelay;
+
+    private final long maxDelay;
+
+    private final int breakerFailures;
+
+    private final long breakerMillis;
+
+    private final long stableMillis;
+
+    private volatile int failures;
+
+    private volatile State state = State.CLOSED;
+
+    private volatile long opens;
+
+    private long connectedAt = -1;
+
+    /**
+     * @param baseDelay       第一次失败后的等待（毫秒）
+     * @param maxDelay        最长等待（毫秒）
+     * @param breakerFailures 连续失败多少次后熔断
+     * @param breakerMillis   熔断时长（毫秒）
+     * @param stableMillis    连上后保持多久算稳定（毫秒）
+     */
+    public ReconnectPolicy(long baseDelay, long maxDelay, int breakerFailures, long breakerMillis, long stableMillis) {
+        if (baseDelay < 1 || maxDelay < baseDelay || breakerFailures < 1) {
+            throw new IllegalArgumentException("invalid reconnect policy");
+        }
+        this.baseDelay = baseDelay;
+        this.maxDelay = maxDelay;
+        this.breakerFailures = breakerFailures;
+        this.breakerMillis = breakerMillis;
+        this.stableMillis = stableMillis;
+    }
+
+    public static ReconnectPolicy of(WssConnectOption option) {
+        return new ReconnectPolicy(option.getReconnectBaseMillis(), option.getReconnectMaxMillis(),
+                option.getBreakerFailures(), option.getBreakerMillis(), option.getStableMillis());
+    }
+
+    /**
+     * @return 下次连接前的等待（毫秒）, 没有失败过时为0
+     */
+    public long nextDelay() {
+        int n = failures;
+        if (n == 0) {
+            return 0;
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (n >= breakerFailures) {
+            if (state != State.OPEN) {
+                state = State.OPEN;
+                opens++;
+            }
+            return breakerMillis + random.nextLong(baseDelay);
+        }
+        long delay = Math.min(maxDelay, baseDelay << Math.min(n - 1, 30));
+        long half = delay / 2;
+        return half + random.nextLong(delay - half + 1);
+    }
+
+    /**
+     * 开始一次连接
+     */
+    public void onAttempt() {
+        if (state == State.OPEN) {
+            state = State.HALF_OPEN;
+        }
+    }
+
+    public void onConnected(long now) {
+        connectedAt = now;
+        state = State.CLOSED;
+    }
+
+    public void onConnectFailed() {
+        failures++;
+    }
+
+    public void onClosed(long now) {
+        if (connectedAt >= 0 && now - connectedAt >= stableMillis) {
+            failures = 0;
+        } else {
+            failures++;
+        }
+        connectedAt = -1;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * @return 连续失败次数
+     */
+    public int getFailures() {
+        return failures;
+    }
+
+    /**
+     * @return 累计熔断次数
+     */
+    public long getOpens() {
+        return opens;
+    }
+}
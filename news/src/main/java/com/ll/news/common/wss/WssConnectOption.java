@@ -24,4 +24,29 @@ public class WssConnectOption {
 
     private Boolean ssl = true;
 
+    /**
+     * 重连退避的初始等待（毫秒）
+     */
+    private long reconnectBaseMillis = 1000L;
+
+    /**
+     * 重连退避的最长等待（毫秒）
+     */
+    private long reconnectMaxMillis = 60_000L;
+
+    /**
+     * 连续失败多少次后熔断
+     */
+    private int breakerFailures = 10;
+
+    /**
+     * 熔断时长（毫秒）
+     */
+    private long breakerMillis = 300_000L;
+
+    /**
+     * 连上后保持多久算稳定, 之后断开不计为失败（毫秒）
+     */
+    private long stableMillis = 30_000L;
+
 }
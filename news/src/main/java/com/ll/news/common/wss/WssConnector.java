@@ -1,6 +1,5 @@
 package com.ll.news.common.wss;
 
-import io.vertx.core.Future;
 import io.vertx.core.Vertx;
 import io.vertx.core.http.*;
 import io.vertx.core.impl.VertxImpl;
@@ -10,12 +9,12 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.Objects;
-import java.util.function.Consumer;
 
 /**
  * WSS 连接
  * 持有一个ws连接
- * 支持自动重连
+ * 支持自动重连, 按{@link ReconnectPolicy}退避和熔断
+ * 回调默认直接在连接的event loop context上执行, handler声明blocking时提交到worker线程
  *
  * @author cheng.t
  * @date 2024/09/20
@@ -24,8 +23,6 @@ public class WssConnector {
 
     private static final Logger log = LoggerFactory.getLogger(WssConnector.class);
 
-    private static final long delay = 3000L;
-
     @Getter
     private WssContext context;
 
@@ -37,8 +34,23 @@ public class WssConnector {
 
     protected WssHandler wssHandler;
 
+    /**
+     * 等待中的重连定时器
+     */
     protected Long timerId;
 
+    @Getter
+    private final ReconnectPolicy reconnectPolicy;
+
+    private final WssMetrics metrics = new WssMetrics();
+
+    /**
+     * 上一次断开的时间, 用于统计重连耗时, 0为没有断开过
+     */
+    private long disconnectedAt;
+
+    private volatile boolean destroyed;
+
     public WssConnector(WebSocketClient webSocketClient, WssContext context, WssHandler wssHandler) {
         Vertx vertx = context.getVertx();
         VertxImpl v = (VertxImpl) vertx;
@@ -48,18 +60,26 @@ public class WssConnector {
         this.context = context;
         this.wssHandler = wssHandler;
         this.webSocketClient = webSocketClient;
+        this.reconnectPolicy = ReconnectPolicy.of(context.getOption());
         wssHandler.wssContext(context);
         wssHandler.onInit();
-
-        monitor();
     }
 
     public boolean connectedStatus() {
         return context.connectedStatus();
     }
 
+    /**
+     * 断开时或需要重新连接时调用, 按重连策略等待后连接
+     */
     public void reconnect() {
-        context.changeStatus(0);
+        context.getContext().runOnContext(v -> {
+            if (destroyed) {
+                return;
+            }
+            context.setStatus(0);
+            scheduleConnect();
+        });
     }
 
     public void connecting() {
@@ -74,26 +94,73 @@ public class WssConnector {
         context.changeStatus(-1);
     }
 
+    public boolean isDestroyed() {
+        return destroyed;
+    }
+
     public void destroyClient() {
+        destroyed = true;
+        disableStatus();
+        context.getContext().runOnContext(v -> {
+            if (Objects.nonNull(timerId)) {
+                context.getVertx().cancelTimer(timerId);
+                timerId = null;
+            }
+            if (Objects.nonNull(webSocket)) {
+                if (!webSocket.isClosed()) {
+                    webSocket.close();
+                }
+            }
+        });
+    }
+
+    /**
+     * @return 连接的统计
+     */
+    public WssMetrics.Stats stats() {
+        return metrics.stats(reconnectPolicy);
+    }
+
+    /**
+     * 在context上调用, 已有等待中的定时器时不重复安排
+     */
+    private void scheduleConnect() {
         if (Objects.nonNull(timerId)) {
-            context.getVertx().cancelTimer(timerId);
+            return;
         }
-        if (Objects.nonNull(webSocket)) {
-            if (!webSocket.isClosed()) {
-                webSocket.close();
-            }
+        long delay = reconnectPolicy.nextDelay();
+        if (delay > 0) {
+            log.info("{} reconnect in {} ms, breaker {}, failures {}", name(), delay, reconnectPolicy.getState(), reconnectPolicy.getFailures());
         }
+        // 在context上设置的定时器回调也在context上
+        timerId = context.getVertx().setTimer(Math.max(1L, delay), id -> {
+            timerId = null;
+            attempt();
+        });
     }
 
-    protected void handlerAsync(Consumer<Void> handler) {
-        context.getContext().executeBlocking(() -> {
-            try {
-                handler.accept(null);
-            } catch (Exception e) {
-                log.error("wss handlerAsync error", e);
-            }
-            return null;
-        });
+    protected void attempt() {
+        // 禁用或连接中或已连接直接跳过
+        if (destroyed || !context.shouldConnect()) {
+            return;
+        }
+        // 设置为连接中
+        context.setStatus(1);
+        reconnectPolicy.onAttempt();
+        if (Objects.isNull(webSocket) || webSocket.isClosed()) {
+            connect();
+        } else {
+            // 主动关闭的旧连接不再触发重连
+            webSocket.closeHandler(null);
+            webSocket.close().onComplete(v -> connect());
+        }
+    }
+
+    private void connectFailed() {
+        metrics.connectFailed();
+        reconnectPolicy.onConnectFailed();
+        context.setStatus(0);
+        scheduleConnect();
     }
 
     protected void connect() {
@@ -101,7 +168,7 @@ public class WssConnector {
             wssHandler.beforeConnect();
         } catch (Exception e) {
             log.error("beforeConnect fail, will retry, {}", e.getMessage());
-            reconnect();
+            connectFailed();
             return;
         }
 
@@ -111,82 +178,106 @@ public class WssConnector {
         String host = options.getHost();
         String uri = options.getUri();
 
-        try {
-            webSocketClient.connect(port, host, uri, r -> {
+        webSocketClient.connect(port, host, uri, r -> {
+            if (destroyed) {
                 if (r.succeeded()) {
-                    connectStatus();
-                    log.info("{} wss connect success, link {} ", wssHandler.getClass().getSimpleName(), host + uri);
-                    this.webSocket = r.result();
-
-                    handlerAsync(v -> {
-                        wssHandler.onConnect(webSocket);
-                    });
-
-                    webSocket.frameHandler(frame -> {
-                        handlerAsync(v -> {
-                            wssHandler.frameHandler(webSocket, frame);
-                        });
-                    });
-
-                    webSocket.closeHandler(s -> {
-                        log.warn("{} close msg {}, reason {}, link {} ", wssHandler.getClass().getSimpleName(), webSocket.closeReason(), webSocket.closeReason(), host + uri);
-                        disableStatus();
-                        handlerAsync(v -> {
-                            wssHandler.onClosed(webSocket);
-                        });
-                        reconnect();
-                    });
-
-                    webSocket.textMessageHandler(text -> {
-                        handlerAsync(v -> {
-                            try {
-                                wssHandler.onTextMsg(webSocket, text);
-                            } catch (Exception e) {
-                                log.error("wss textMsg handle error {}", text, e);
-                            }
-                        });
-                    });
-
-                    webSocket.binaryMessageHandler(binary -> {
-                        handlerAsync(v -> {
-                            wssHandler.onBinaryMsg(webSocket, binary.getBytes());
-                        });
-                    });
-                } else {
-                    log.warn("{} wss connect failed,will retry, msg {}, link {} ", wssHandler.getClass().getSimpleName(), r.cause().getMessage(), host + uri);
-                    reconnect();
+                    r.result().close();
                 }
+                return;
+            }
+            if (r.succeeded()) {
+                onOpen(r.result(), host + uri);
+            } else {
+                log.warn("{} wss connect failed,will retry, msg {}, link {} ", name(), r.cause().getMessage(), host + uri);
+                connectFailed();
+            }
+        });
+    }
+
+    private void onOpen(WebSocket webSocket, String link) {
+        long now = System.currentTimeMillis();
+        context.setStatus(2);
+        reconnectPolicy.onConnected(now);
+        if (disconnectedAt > 0) {
+            metrics.reconnected(now - disconnectedAt);
+            log.info("{} wss reconnect success in {} ms, link {} ", name(), now - disconnectedAt, link);
+            disconnectedAt = 0;
+        } else {
+            log.info("{} wss connect success, link {} ", name(), link);
+        }
+        this.webSocket = webSocket;
+        boolean blocking = wssHandler.blocking();
+
+        dispatch(blocking, () -> wssHandler.onConnect(webSocket));
+
+        webSocket.frameHandler(frame -> {
+            dispatch(blocking, () -> wssHandler.frameHandler(webSocket, frame));
+        });
+
+        webSocket.closeHandler(s -> {
+            log.warn("{} close code {}, reason {}, link {} ", name(), webSocket.closeStatusCode(), webSocket.closeReason(), link);
+            context.setStatus(-1);
+            disconnectedAt = System.currentTimeMillis();
+            reconnectPolicy.onClosed(disconnectedAt);
+            dispatch(blocking, () -> wssHandler.onClosed(webSocket));
+            reconnect();
+        });
+
+        webSocket.textMessageHandler(text -> {
+            metrics.received(text.length());
+            if (blocking) {
+                dispatch(true, () -> onText(webSocket, text));
+            } else {
+                onText(webSocket, text);
+            }
+        });
+
+        webSocket.binaryMessageHandler(binary -> {
+            metrics.received(binary.length());
+            dispatch(blocking, () -> {
+                long start = System.nanoTime();
+                wssHandler.onBinaryMsg(webSocket, binary.getBytes());
+                metrics.handled(System.nanoTime() - start);
             });
+        });
+    }
+
+    private void onText(WebSocket webSocket, String text) {
+        long start = System.nanoTime();
+        try {
+            wssHandler.onTextMsg(webSocket, text);
         } catch (Exception e) {
-            throw new RuntimeException(e);
+            log.error("wss textMsg handle error {}", text, e);
         }
+        metrics.handled(System.nanoTime() - start);
+    }
 
+    /**
+     * 直连模式在当前event loop上执行, 阻塞模式提交到worker线程, 同一连接按提交顺序执行
+     */
+    private void dispatch(boolean blocking, Runnable handler) {
+        if (!blocking) {
+            run(handler);
+            return;
+        }
+        metrics.enqueued();
+        context.getContext().executeBlocking(() -> {
+            metrics.dequeued();
+            run(handler);
+            return null;
+        }, true);
     }
 
-    protected long getWsCheckDelay() {
-        return delay;
+    private static void run(Runnable handler) {
+        try {
+            handler.run();
+        } catch (Exception e) {
+            log.error("wss handler error", e);
+        }
     }
 
-    protected void monitor() {
-        context.getVertx().setPeriodic(getWsCheckDelay(), id -> {
-            context.getContext().executeBlocking(() -> {
-                this.timerId = id;
-                // 禁用或连接中或已连接直接跳过
-                if (!context.shouldConnect()) {
-                    return Future.succeededFuture();
-                }
-                // 设置为连接中
-                connecting();
-                if (Objects.isNull(webSocket) || webSocket.isClosed()) {
-                    connect();
-                } else {
-                    webSocket.close().onComplete(v -> {
-                        connect();
-                    });
-                }
-                return Future.succeededFuture();
-            });
-        });
+    private String name() {
+        return wssHandler.getClass().getSimpleName();
     }
 
 }
@@ -13,6 +13,12 @@ public interface WssHandler {
 
     void onInit();
 
+    /**
+     * 回调默认直接在连接的event loop上执行, 不能阻塞;
+     * 返回true时回调提交到worker线程按顺序执行, 用于有阻塞操作的handler
+     */
+    boolean blocking();
+
     void beforeConnect();
 
     void onConnect(WebSocket websocket);
@@ -0,0 +1,168 @@
+package com.ll.news.common.wss;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 单个连接的统计: 收到的消息、处理耗时、排队数量和重连
+ * 直连模式在event loop上处理, 排队数量恒为0
+ */
+public class WssMetrics {
+
+    private final LongAdder messages = new LongAdder();
+
+    private final LongAdder bytes = new LongAdder();
+
+    private final LongAdder handleNanos = new LongAdder();
+
+    private volatile long maxHandleNanos;
+
+    private final AtomicInteger pending = new AtomicInteger();
+
+    private volatile int maxPending;
+
+    private final LongAdder reconnects = new LongAdder();
+
+    private final LongAdder reconnectMillis = new LongAdder();
+
+    private volatile long lastReconnectMillis;
+
+    private volatile long maxReconnectMillis;
+
+    private final LongAdder connectFailures = new LongAdder();
+
+    /**
+     * 计算速率的上一次采样
+     */
+    private long sampleNanos = System.nanoTime();
+
+    private long sampleMessages;
+
+    private double rate;
+
+    void received(int length) {
+        messages.increment();
+        bytes.add(length);
+    }
+
+    void handled(long nanos) {
+        handleNanos.add(nanos);
+        if (nanos > maxHandleNanos) {
+            maxHandleNanos = nanos;
+        }
+    }
+
+    void enqueued() {
+        int n = pending.incrementAndGet();
+        if (n > maxPending) {
+            maxPending = n;
+        }
+    }
+
+    void dequeued() {
+        pending.decrementAndGet();
+    }
+
+    void reconnected(long millis) {
+        reconnects.increment();
+        reconnectMillis.add(millis);
+        lastReconnectMillis = millis;
+        if (millis > maxReconnectMillis) {
+            maxReconnectMillis = millis;
+        }
+    }
+
+    void connectFailed() {
+        connectFailures.increment();
+    }
+
+    /**
+     * 速率为距上一次采样的平均值, 采样间隔至少1秒
+     */
+    public synchronized Stats stats(ReconnectPolicy policy) {
+        long now = System.nanoTime();
+        long total = messages.sum();
+        long elapsed = now - sampleNanos;
+        if (elapsed >= TimeUnit.SECONDS.toNanos(1)) {
+            rate = (total - sampleMessages) * 1e9 / elapsed;
+            sampleNanos = now;
+            sampleMessages = total;
+        }
+        long count = reconnects.sum();
+        return new Stats(total, bytes.sum(), rate, pending.get(), maxPending,
+                total == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(handleNanos.sum() / total), TimeUnit.NANOSECONDS.toMicros(maxHandleNanos),
+                count, connectFailures.sum(), lastReconnectMillis, count == 0 ? 0 : reconnectMillis.sum() / count, maxReconnectMillis,
+                policy.getState(), policy.getFailures(), policy.getOpens());
+    }
+
+    @Getter
+    @ToString
+    @AllArgsConstructor
+    public static class Stats {
+        /**
+         * 收到的消息数
+         */
+        private final long messages;
+        /**
+         * 收到的字节数, 文本消息按字符数
+         */
+        private final long bytes;
+        /**
+         * 每秒消息数
+         */
+        private final double rate;
+        /**
+         * 阻塞模式下等待处理的消息数
+         */
+        private final int pending;
+        /**
+         * 等待处理的消息数的最高值
+         */
+        private final int maxPending;
+        /**
+         * 平均处理耗时（微秒）
+         */
+        private final long avgHandleMicros;
+        /**
+         * 最长处理耗时（微秒）
+         */
+        private final long maxHandleMicros;
+        /**
+         * 断开后重新连上的次数
+         */
+        private final long reconnects;
+        /**
+         * 连接失败次数
+         */
+        private final long connectFailures;
+        /**
+         * 最近一次从断开到重新连上的耗时（毫秒）
+         */
+        private final long lastReconnectMillis;
+        /**
+         * 平均重连耗时（毫秒）
+         */
+        private final long avgReconnectMillis;
+        /**
+         * 最长重连耗时（毫秒）
+         */
+        private final long maxReconnectMillis;
+        /**
+         * 熔断状态
+         */
+        private final ReconnectPolicy.State breaker;
+        /**
+         * 连续失败次数
+         */
+        private final int failures;
+        /**
+         * 累计熔断次数
+         */
+        private final long breakerOpens;
+    }
+}
@@ -25,6 +25,7 @@ public abstract class KeepAliveBaseWssHandler extends BaseWssHandler {
         try {
             Buffer data = frame.binaryData();
             webSocket.writePong(data);
+            onControlFrameSent();
             if (log.isDebugEnabled()) {
                 log.debug("receive ping and send pong {}", data.toString());
             }
@@ -33,6 +34,11 @@ public abstract class KeepAliveBaseWssHandler extends BaseWssHandler {
         }
     }
 
+    /**
+     * 发送ping或pong之后调用, 需要按连接限制消息频率时覆盖
+     */
+    protected void onControlFrameSent() {
+    }
 
     @Override
     public void onInit() {
@@ -46,9 +52,14 @@ public abstract class KeepAliveBaseWssHandler extends BaseWssHandler {
         WssContext wssContext = wssContext();
         Vertx vertx = wssContext.getVertx();
         vertx.setTimer(TimeUnit.SECONDS.toMillis(RandomUtils.nextInt(5, 10)), id -> {
+            // 连接销毁后不再保活
+            if (wssContext.getWssConnector() != null && wssContext.getWssConnector().isDestroyed()) {
+                return;
+            }
             if (wssContext.connectedStatus()) {
                 WebSocket webSocket = wssContext.getWssConnector().getWebSocket();
                 webSocket.writePing(Buffer.buffer());
+                onControlFrameSent();
             }
             timerKeepAlive();
         });
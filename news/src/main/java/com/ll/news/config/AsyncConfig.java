@@ -1,15 +1,16 @@
 package com.ll.news.config;
 
+import com.ll.news.common.executor.BulkheadExecutor;
+import com.ll.news.common.executor.ExecutionProperties;
+import com.ll.news.common.executor.ExecutionProperties.Lane;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.annotation.EnableAsync;
-import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
-
-import java.util.concurrent.Executor;
 
 /**
  * 异步执行器配置
- * 为不同的异步任务配置专用的线程池
+ * 任务主要阻塞在Telegram和数据库请求上, 每个任务一个线程(支持时为虚拟线程), 并发数由信号量限制。
+ * 并发数、排队上限可在app.execution.lanes下按名称覆盖, 指标为executor.*{name=执行器名称}
  */
 @Configuration
 @EnableAsync
@@ -19,50 +20,26 @@ public class AsyncConfig {
      * 个性化新闻推送执行器
      * 专门处理个性化新闻推送任务
      */
-    @Bean("personalizedExecutor")
-    public Executor personalizedExecutor() {
-        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
-        executor.setCorePoolSize(5);
-        executor.setMaxPoolSize(10);
-        executor.setQueueCapacity(100);
-        executor.setThreadNamePrefix("PersonalizedNews-");
-        executor.setWaitForTasksToCompleteOnShutdown(true);
-        executor.setAwaitTerminationSeconds(60);
-        executor.initialize();
-        return executor;
+    @Bean(value = "personalizedExecutor", destroyMethod = "close")
+    public BulkheadExecutor personalizedExecutor(ExecutionProperties properties) {
+        return properties.create("personalizedExecutor", Lane.of(10, 1000, 60));
     }
 
     /**
      * Telegram消息执行器
      * 专门处理Telegram消息发送任务
      */
-    @Bean("telegramExecutor")
-    public Executor telegramExecutor() {
-        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
-        executor.setCorePoolSize(3);
-        executor.setMaxPoolSize(6);
-        executor.setQueueCapacity(50);
-        executor.setThreadNamePrefix("Telegram-");
-        executor.setWaitForTasksToCompleteOnShutdown(true);
-        executor.setAwaitTerminationSeconds(30);
-        executor.initialize();
-        return executor;
+    @Bean(value = "telegramExecutor", destroyMethod = "close")
+    public BulkheadExecutor telegramExecutor(ExecutionProperties properties) {
+        return properties.create("telegramExecutor", Lane.of(6, 1000, 30));
     }
 
     /**
      * 通用异步执行器
      * 处理其他异步任务
      */
-    @Bean("taskExecutor")
-    public Executor taskExecutor() {
-        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
-        executor.setCorePoolSize(4);
-        executor.setMaxPoolSize(8);
-        executor.setQueueCapacity(200);
-        executor.setThreadNamePrefix("AsyncTask-");
-        executor.setWaitForTasksToCompleteOnShutdown(true);
-        executor.setAwaitTerminationSeconds(60);
-        executor.initialize();
-        return executor;
+    @Bean(value = "taskExecutor", destroyMethod = "close")
+    public BulkheadExecutor taskExecutor(ExecutionProperties properties) {
+        return properties.create("taskExecutor", Lane.of(8, 1000, 60));
     }
-}
\ No newline at end of file
+}
@@ -1,39 +1,33 @@
 package com.ll.news.config;
 
 
+import com.ll.news.common.executor.BulkheadExecutor;
+import com.ll.news.common.executor.ExecutionProperties;
+import com.ll.news.common.executor.ExecutionProperties.Lane;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.core.task.TaskExecutor;
 import org.springframework.scheduling.TaskScheduler;
-import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
 
-import java.util.concurrent.ThreadPoolExecutor;
-
 @Configuration
 public class ScheduledConfig {
 
     @Bean
-    public TaskScheduler taskScheduler() {
+    public TaskScheduler taskScheduler(ExecutionProperties properties) {
         ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
-        scheduler.setPoolSize(20); // 设置线程池大小
+        scheduler.setPoolSize(properties.getSchedulerPoolSize()); // 只负责触发, 来源刷新在各自的执行器上
         scheduler.setThreadNamePrefix("scheduled-task-"); // 设置线程名前缀
         scheduler.setDaemon(true); // 设置守护线程
         return scheduler;
     }
 
 
-    @Bean
-    public TaskExecutor msgExecutor() {
-        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
-        executor.setCorePoolSize(10);
-        executor.setMaxPoolSize(10);
-        executor.setQueueCapacity(100);
-        executor.setKeepAliveSeconds(60);
-        executor.setThreadNamePrefix("msg-sender");
-        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
-        executor.setWaitForTasksToCompleteOnShutdown(true);
-        return executor;
+    /**
+     * 消息发送执行器, 会在vertx的定时器和分片线程上提交, 满了直接拒绝, 不在提交线程上执行
+     */
+    @Bean(destroyMethod = "close")
+    public BulkheadExecutor msgExecutor(ExecutionProperties properties) {
+        return properties.create("msgExecutor", Lane.of(10, 2000, 60));
     }
 
 }
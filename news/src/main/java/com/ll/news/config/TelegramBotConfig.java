@@ -1,5 +1,7 @@
 package com.ll.news.config;
 
+import com.ll.news.bot.delivery.OutboxStore;
+import com.ll.news.bot.delivery.TelegramDelivery;
 import com.pengrad.telegrambot.TelegramBot;
 import lombok.Data;
 import org.springframework.beans.factory.annotation.Value;
@@ -22,6 +24,18 @@ public class TelegramBotConfig {
         return new TelegramBot(token);
     }
 
+    /**
+     * 新闻机器人的发送引擎
+     * Telegram限制全局约30条/秒, 同一私聊1条/秒, 同一群组20条/分钟
+     */
+    @Bean(destroyMethod = "close")
+    public TelegramDelivery telegramDelivery(TelegramBot telegramBot, OutboxStore outboxStore,
+                                             @Value("${app.telegram.delivery.global-rate:25}") double globalRate,
+                                             @Value("${app.telegram.delivery.chat-rate:1}") double chatRate,
+                                             @Value("${app.telegram.delivery.group-rate:0.33}") double groupRate) {
+        return new TelegramDelivery("news", telegramBot, outboxStore, globalRate, chatRate, groupRate);
+    }
+
     /**
      * Telegram命令配置属性
      */
@@ -1,8 +1,16 @@
 package com.ll.news.controller;
 
+import com.ll.drissonPage.units.HttpClientPool;
+import com.ll.news.service.StatisticsDTO;
+import com.ll.news.service.StatisticsService;
+import com.ll.news.site.NewsManager;
+import com.ll.news.site.base.SourceStat;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.List;
 
 
 @RestController
@@ -16,9 +24,39 @@ public class StatController {
 //        dailyCrawler.bitcoinEntitiesCrawl();
 //    }
 
+    @Autowired
+    private NewsManager newsManager;
+
+    @Autowired
+    private StatisticsService statisticsService;
+
     @RequestMapping
     public String status() {
         return "ok";
     }
 
+    /**
+     * 各来源刷新耗时与新鲜度
+     */
+    @GetMapping("/sources")
+    public List<SourceStat> sources() {
+        return newsManager.stats();
+    }
+
+    /**
+     * 共享HTTP客户端的命中、建连与握手统计
+     */
+    @GetMapping("/http-pool")
+    public HttpClientPool.Stats httpPool() {
+        return HttpClientPool.stats();
+    }
+
+    /**
+     * 今日新闻、推送和系统状态, 数据来自实时指标
+     */
+    @GetMapping("/stats")
+    public StatisticsDTO stats() {
+        return statisticsService.getStatistics();
+    }
+
 }
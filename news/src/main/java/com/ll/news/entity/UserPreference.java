@@ -1,5 +1,9 @@
 package com.ll.news.entity;
 
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableField;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -10,6 +14,7 @@ import org.hibernate.annotations.UpdateTimestamp;
 import javax.persistence.*;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
@@ -20,14 +25,16 @@ import java.util.List;
  */
 @Entity
 @Table(name = "user_preferences")
+@TableName(value = "user_preferences")
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
-@Builder
+@Builder(toBuilder = true)
 public class UserPreference {
 
     @Id
     @Column(name = "user_id")
+    @TableId(value = "user_id", type = IdType.INPUT)
     private Long userId;  // Telegram用户ID
 
     @Column(name = "keywords", length = 1000)
@@ -46,6 +53,7 @@ public class UserPreference {
     private LocalTime pushEndTime = LocalTime.of(22, 0);  // 推送结束时间
 
     @Column(name = "is_enabled", nullable = false)
+    @TableField(value = "is_enabled")
     @Builder.Default
     private Boolean enabled = true;  // 是否启用推送
 
@@ -71,7 +79,7 @@ public class UserPreference {
         if (keywords == null || keywords.trim().isEmpty()) {
             return Collections.emptyList();
         }
-        return Arrays.asList(keywords.split(","));
+        return new ArrayList<>(Arrays.asList(keywords.split(",")));
     }
 
     /**
@@ -1,10 +1,12 @@
 package com.ll.news.listener;
 
+import com.ll.news.common.NewsBatchEvent;
 import com.ll.news.common.NewsEvent;
+import com.ll.news.common.NewsMetrics;
 import com.ll.news.bot.TelegramBotService;
-import com.ll.news.entity.News;
 import com.ll.news.entity.UserPreference;
-import com.ll.news.enumeration.NewsStatus;
+import com.ll.news.model.News;
+import com.ll.news.service.SubscriptionIndex;
 import com.ll.news.service.UserPreferenceService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -17,10 +19,13 @@ import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * 个性化新闻监听器
- * 根据用户偏好推送个性化新闻
+ * 根据用户偏好推送个性化新闻, 关键词匹配走订阅索引
  */
 @Component
 @Slf4j
@@ -32,85 +37,80 @@ public class PersonalizedNewsListener {
     @Autowired
     private TelegramBotService telegramBotService;
 
+    @Autowired
+    private SubscriptionIndex subscriptionIndex;
+
+    @Autowired
+    private NewsMetrics metrics;
+
     @EventListener(classes = NewsEvent.class)
     @Async("personalizedExecutor")  // 使用专用线程池
     public void handlePersonalizedNews(NewsEvent event) {
-        News news = event.getNews();
-
-        // 只在新闻状态为"已发布"时处理
-        if (news.getStatus() != NewsStatus.PUBLISHED.getCode()) {
-            return;
-        }
-
-        log.info("处理个性化新闻推送: {}", news.getTitle());
-
-        // 获取活跃用户列表
-        List<UserPreference> activeUsers = userPreferenceService.getActiveUsers();
-
-        int pushedCount = 0;
-        for (UserPreference user : activeUsers) {
-            if (shouldPushToUser(news, user)) {
-                try {
-                    sendPersonalizedNews(news, user);
-                    user.recordPush();  // 记录推送
-                    userPreferenceService.updateUserPreference(user);  // 更新推送记录
-                    pushedCount++;
-                } catch (Exception e) {
-                    log.error("个性化推送给用户{}失败", user.getUserId(), e);
-                }
-            }
-        }
-
-        log.info("个性化新闻推送完成，共推送给{}位用户", pushedCount);
+        handle(event.getNews());
     }
 
-    private boolean shouldPushToUser(News news, UserPreference user) {
-        // 1. 检查是否启用推送
-        if (!user.getEnabled()) {
-            return false;
+    @EventListener(classes = NewsBatchEvent.class)
+    @Async("personalizedExecutor")
+    public void handlePersonalizedNewsBatch(NewsBatchEvent event) {
+        for (News news : event.getNews()) {
+            handle(news);
         }
+    }
 
-        // 2. 检查时间窗口
-        if (!user.isInPushWindow()) {
-            return false;
+    private void handle(News news) {
+        if (!subscriptionIndex.isLoaded()) {
+            subscriptionIndex.rebuild(userPreferenceService.getActiveUsers());
         }
 
-        // 3. 检查频率控制
-        if (!user.shouldPush()) {
-            return false;
+        // 一次扫描得到所有命中的用户和关键词
+        Map<Long, Set<String>> matched = subscriptionIndex.match(news.getTitle() + " " + news.getContent());
+        if (matched.isEmpty()) {
+            return;
         }
 
-        // 4. 关键词匹配
-        return matchesKeywords(news, user.getKeywordList());
-    }
+        log.info("处理个性化新闻推送: {}, 命中{}位用户", news.getTitle(), matched.size());
 
-    private boolean matchesKeywords(News news, List<String> keywords) {
-        if (keywords.isEmpty()) {
-            return false;  // 没有订阅关键词，不匹配
+        int submitted = 0;
+        for (Map.Entry<Long, Set<String>> entry : matched.entrySet()) {
+            UserPreference user = userPreferenceService.getUserPreference(entry.getKey());
+            // 检查推送开关、时间窗口和频率, 通过即预占, 送达或失败后释放
+            if (user == null || !userPreferenceService.tryReservePush(user.getUserId())) {
+                continue;
+            }
+            try {
+                sendPersonalizedNews(news, user, findMatchedKeyword(user.getKeywordList(), entry.getValue()));
+                submitted++;
+            } catch (Exception e) {
+                userPreferenceService.releasePush(user.getUserId());
+                metrics.error("personalized");
+                log.error("个性化推送给用户{}失败", user.getUserId(), e);
+            }
         }
 
-        String content = (news.getTitle() + " " + news.getContent()).toLowerCase();
-
-        return keywords.stream()
-                .anyMatch(keyword -> content.contains(keyword.toLowerCase()));
+        log.info("个性化新闻推送已提交，共{}位用户", submitted);
     }
 
-    private void sendPersonalizedNews(News news, UserPreference user) {
+    private void sendPersonalizedNews(News news, UserPreference user, String matchedKeyword) {
         // 构建个性化消息
-        String message = buildPersonalizedMessage(news, user);
-
-        // 发送消息到用户
-        boolean sent = telegramBotService.sendMessage(user.getUserId(), message);
-        if (sent) {
-            log.info("向用户{}发送个性化新闻成功", user.getUserId());
-        } else {
-            log.error("向用户{}发送个性化新闻失败", user.getUserId());
-        }
+        String message = buildPersonalizedMessage(news, user, matchedKeyword);
+
+        // 发送消息到用户, 送达后才记录推送, 定时批量写回
+        Long userId = user.getUserId();
+        telegramBotService.sendMessageAsync(userId, message).whenComplete((ok, e) -> {
+            if (Boolean.TRUE.equals(ok)) {
+                userPreferenceService.recordPush(userId);
+                metrics.pushed("personalized", 1);
+                log.info("向用户{}发送个性化新闻成功", userId);
+            } else {
+                userPreferenceService.releasePush(userId);
+                metrics.error("personalized");
+                log.error("向用户{}发送个性化新闻失败", userId, e);
+            }
+        });
     }
 
-    private String buildPersonalizedMessage(News news, UserPreference user) {
+    private String buildPersonalizedMessage(News news, UserPreference user, String matchedKeyword) {
         String keywords = user.getKeywords();
-        String matchedKeyword = findMatchedKeyword(news, user.getKeywordList());
 
         return String.format("🎯 为您推送个性化新闻\n\n" +
                 "📰 %s\n" +
@@ -129,11 +129,12 @@ public class PersonalizedNewsListener {
         );
     }
 
-    private String findMatchedKeyword(News news, List<String> keywords) {
-        String content = (news.getTitle() + " " + news.getContent()).toLowerCase();
-
+    /**
+     * 按用户订阅顺序取第一个命中的关键词, 保留用户输入的写法
+     */
+    private String findMatchedKeyword(List<String> keywords, Set<String> matched) {
         return keywords.stream()
-                .filter(keyword -> content.contains(keyword.toLowerCase()))
+                .filter(keyword -> matched.contains(keyword.trim().toLowerCase(Locale.ROOT)))
                 .findFirst()
                 .orElse(null);
     }
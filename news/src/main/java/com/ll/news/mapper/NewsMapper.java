@@ -2,6 +2,27 @@ package com.ll.news.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.ll.news.model.News;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.List;
 
 public interface NewsMapper extends BaseMapper<News> {
+
+    /**
+     * 多行插入, (site_source, link) 已存在的行忽略
+     * @return 实际插入的行数
+     */
+    int insertIgnoreBatch(@Param("list") List<News> list);
+
+    /**
+     * 多行插入, 只在postgresql上可用
+     * @return 实际插入的行, 只有id、site_source和link
+     */
+    List<News> insertIgnoreBatchReturning(@Param("list") List<News> list);
+
+    /**
+     * 单行插入, 已存在时忽略, 插入时回填id
+     * @return 实际插入的行数
+     */
+    int insertIgnore(News news);
 }
\ No newline at end of file
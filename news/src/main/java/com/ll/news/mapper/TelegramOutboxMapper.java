@@ -0,0 +1,7 @@
+package com.ll.news.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.ll.news.model.TelegramOutbox;
+
+public interface TelegramOutboxMapper extends BaseMapper<TelegramOutbox> {
+}
@@ -3,6 +3,9 @@ package com.ll.news.mapper;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.ll.news.entity.UserPreference;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.List;
 
 /**
  * 用户偏好Mapper接口
@@ -11,4 +14,9 @@ import org.apache.ibatis.annotations.Mapper;
 public interface UserPreferenceMapper extends BaseMapper<UserPreference> {
     // MyBatis-Plus 会自动提供基本的CRUD方法
     // 这里可以添加自定义的复杂查询方法
-}
\ No newline at end of file
+
+    /**
+     * 批量写回推送记录, 只更新last_push_at和push_count
+     */
+    int updatePushStats(@Param("list") List<UserPreference> list);
+}
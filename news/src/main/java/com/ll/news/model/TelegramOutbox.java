@@ -0,0 +1,68 @@
+package com.ll.news.model;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableField;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * telegram_outbox
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@TableName(value = "telegram_outbox")
+public class TelegramOutbox {
+    /**
+     * 唯一id
+     */
+    @TableId(value = "id", type = IdType.AUTO)
+    private Long id;
+
+    /**
+     * 发送通道
+     */
+    @TableField(value = "channel")
+    private String channel;
+
+    /**
+     * 聊天id
+     */
+    @TableField(value = "chat_id")
+    private String chatId;
+
+    /**
+     * 消息内容
+     */
+    @TableField(value = "text")
+    private String text;
+
+    /**
+     * 格式, 为空时纯文本
+     */
+    @TableField(value = "parse_mode")
+    private String parseMode;
+
+    /**
+     * 优先级
+     */
+    @TableField(value = "priority")
+    private String priority;
+
+    /**
+     * 发送选项, 位1 静默, 位2 关闭预览, 位3 允许合并
+     */
+    @TableField(value = "flags")
+    private Integer flags;
+
+    /**
+     * 创建时间
+     */
+    @TableField(value = "created_at")
+    private Long createdAt;
+}
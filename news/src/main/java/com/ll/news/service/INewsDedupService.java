@@ -0,0 +1,26 @@
+package com.ll.news.service;
+
+import com.ll.news.common.NewsConst;
+
+/**
+ * 新闻去重
+ * 每个来源在内存中维护一个布隆过滤器，启动时从news表加载，
+ * 过滤器判断不存在即为新链接，只有可能存在时才查询数据库确认
+ */
+public interface INewsDedupService {
+
+    /**
+     * 链接是否已入库
+     * @param source 来源
+     * @param link 链接
+     * @return 已入库返回true
+     */
+    boolean seen(NewsConst.Source source, String link);
+
+    /**
+     * 记录已入库的链接
+     * @param source 来源
+     * @param link 链接
+     */
+    void mark(NewsConst.Source source, String link);
+}
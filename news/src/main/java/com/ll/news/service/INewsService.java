@@ -11,14 +11,37 @@ public interface INewsService {
 
     int insertNews(News news);
 
+    /**
+     * 批量插入, 同一来源和链接已存在的忽略
+     * @param newsList 新闻
+     * @return 本次新插入的新闻, 已回填id
+     */
+    List<News> insertNewsBatch(List<News> newsList);
+
     int updateById(News news);
 
+    int updateStatusByIds(List<Long> ids, int status);
+
     int deleteNewsById(Long id);
 
     int deleteNewsByIds(List<Long> ids);
 
     List<News> expireIds(String source, String link, long delayMills);
 
+    /**
+     * 来源已入库新闻的最新发布时间
+     * @param source 来源
+     * @return 最新发布时间(毫秒), 没有数据返回 0
+     */
+    long latestPublishTime(String source);
+
+    /**
+     * 来源已入库的全部链接
+     * @param source 来源
+     * @return 链接
+     */
+    List<String> listLinks(String source);
+
     /**
      * 获取最新新闻
      * @param count 新闻数量
@@ -19,4 +19,16 @@ public class StatisticsDTO {
     private int activeUsers;
     private int totalSubscriptions;
     private String uptime;
+    /**
+     * 启动以来各环节的出错次数
+     */
+    private long errors;
+    /**
+     * Telegram发送请求的平均耗时（毫秒）
+     */
+    private double telegramSendMillis;
+    /**
+     * 推送线程池中排队的任务数
+     */
+    private int queuedTasks;
 }
\ No newline at end of file
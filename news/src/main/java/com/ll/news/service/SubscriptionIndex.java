@@ -0,0 +1,162 @@
+package com.ll.news.service;
+
+import com.ll.news.entity.UserPreference;
+import com.ll.news.utils.AhoCorasick;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 订阅索引
+ * 所有启用推送用户的关键词构建一个Aho-Corasick自动机, 一次扫描文章得到命中的用户和关键词。
+ * 用户增删关键词只更新关键词到用户的映射, 只有关键词集合变化时才重建自动机
+ */
+@Component
+@Slf4j
+public class SubscriptionIndex {
+
+    /**
+     * 用户订阅的关键词, 小写
+     */
+    private final Map<Long, Set<String>> userKeywords = new HashMap<>();
+
+    /**
+     * 关键词订阅的用户, 集合会被快照共享, 需线程安全
+     */
+    private final Map<String, Set<Long>> keywordUsers = new HashMap<>();
+
+    private volatile Snapshot snapshot = new Snapshot(new AhoCorasick(List.of()), new String[0], emptyUsers());
+
+    private volatile boolean loaded;
+
+    /**
+     * 用全部启用推送的用户重建索引
+     */
+    public synchronized void rebuild(Collection<UserPreference> users) {
+        userKeywords.clear();
+        keywordUsers.clear();
+        for (UserPreference user : users) {
+            if (Boolean.TRUE.equals(user.getEnabled())) {
+                replace(user.getUserId(), normalize(user.getKeywordList()));
+            }
+        }
+        compile();
+        loaded = true;
+    }
+
+    /**
+     * 用户关键词或启用状态变化后调用
+     */
+    public synchronized void update(UserPreference user) {
+        Set<String> keywords = Boolean.TRUE.equals(user.getEnabled()) ? normalize(user.getKeywordList()) : Set.of();
+        if (replace(user.getUserId(), keywords)) {
+            compile();
+        }
+    }
+
+    public synchronized void remove(Long userId) {
+        if (replace(userId, Set.of())) {
+            compile();
+        }
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * 匹配文章, 忽略大小写
+     *
+     * @return 命中的用户和命中的关键词(小写)
+     */
+    public Map<Long, Set<String>> match(String text) {
+        Map<Long, Set<String>> result = new HashMap<>();
+        if (text == null || text.isEmpty()) {
+            return result;
+        }
+        Snapshot current = snapshot;
+        BitSet matched = current.automaton.match(text);
+        for (int i = matched.nextSetBit(0); i >= 0; i = matched.nextSetBit(i + 1)) {
+            for (Long userId : current.users[i]) {
+                result.computeIfAbsent(userId, k -> new LinkedHashSet<>()).add(current.keywords[i]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return 不同关键词数量
+     */
+    public int keywordCount() {
+        return snapshot.keywords.length;
+    }
+
+    /**
+     * 按差异更新用户的关键词
+     *
+     * @return 关键词集合是否变化, 变化时需要重建自动机
+     */
+    private boolean replace(Long userId, Set<String> keywords) {
+        Set<String> old = userKeywords.getOrDefault(userId, Set.of());
+        boolean changed = false;
+        for (String keyword : keywords) {
+            if (!old.contains(keyword)) {
+                Set<Long> users = keywordUsers.get(keyword);
+                if (users == null) {
+                    users = ConcurrentHashMap.newKeySet();
+                    keywordUsers.put(keyword, users);
+                    changed = true;
+                }
+                users.add(userId);
+            }
+        }
+        for (String keyword : old) {
+            if (!keywords.contains(keyword)) {
+                Set<Long> users = keywordUsers.get(keyword);
+                users.remove(userId);
+                if (users.isEmpty()) {
+                    keywordUsers.remove(keyword);
+                    changed = true;
+                }
+            }
+        }
+        if (keywords.isEmpty()) {
+            userKeywords.remove(userId);
+        } else {
+            userKeywords.put(userId, keywords);
+        }
+        return changed;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void compile() {
+        String[] keywords = keywordUsers.keySet().toArray(new String[0]);
+        Set<Long>[] users = new Set[keywords.length];
+        for (int i = 0; i < keywords.length; i++) {
+            users[i] = keywordUsers.get(keywords[i]);
+        }
+        snapshot = new Snapshot(new AhoCorasick(Arrays.asList(keywords)), keywords, users);
+        log.debug("subscription index rebuilt, {} users, {} keywords", userKeywords.size(), keywords.length);
+    }
+
+    private static Set<String> normalize(List<String> keywords) {
+        Set<String> result = new LinkedHashSet<>();
+        for (String keyword : keywords) {
+            String k = keyword.trim().toLowerCase(Locale.ROOT);
+            if (!k.isEmpty()) {
+                result.add(k);
+            }
+        }
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Set<Long>[] emptyUsers() {
+        return new Set[0];
+    }
+
+    private record Snapshot(AhoCorasick automaton, String[] keywords, Set<Long>[] users) {
+    }
+}
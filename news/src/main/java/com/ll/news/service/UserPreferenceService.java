@@ -27,6 +27,28 @@ public interface UserPreferenceService {
      */
     void updateUserPreference(UserPreference preference);
 
+    /**
+     * 检查频率和时间窗口并预占一次推送, 同一用户同时只有一条在途推送
+     * @param userId 用户ID
+     * @return 是否可以推送, 返回true时必须以recordPush或releasePush结束
+     */
+    boolean tryReservePush(Long userId);
+
+    /**
+     * 记录一次已送达的推送并释放预占, 只更新内存, 定时批量写回数据库
+     */
+    void recordPush(Long userId);
+
+    /**
+     * 推送失败时释放预占, 不记录推送
+     */
+    void releasePush(Long userId);
+
+    /**
+     * 把内存中的推送记录写回数据库
+     */
+    void flushPushStats();
+
     /**
      * 添加关键词
      * @param userId 用户ID
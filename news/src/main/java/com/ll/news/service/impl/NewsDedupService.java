@@ -0,0 +1,99 @@
+package com.ll.news.service.impl;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnels;
+import com.ll.news.common.NewsConst;
+import com.ll.news.common.NewsMetrics;
+import com.ll.news.service.INewsDedupService;
+import com.ll.news.service.INewsService;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Service
+@Slf4j
+public class NewsDedupService implements INewsDedupService {
+
+    // 每个来源预期的链接数量, news表保留30天
+    private static final int EXPECTED = 100_000;
+
+    // 布隆过滤器误判率
+    private static final double FPP = 0.001;
+
+    // 已确认存在的链接, 每次抓取看到的大多是已入库链接, 避免重复查库
+    private static final int CONFIRMED_SIZE = 2_000;
+
+    @Autowired
+    INewsService newsService;
+
+    @Autowired
+    NewsMetrics metrics;
+
+    private final Map<NewsConst.Source, Index> indexes = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        for (NewsConst.Source source : NewsConst.Source.values()) {
+            try {
+                index(source);
+            } catch (Exception e) {
+                // 加载失败时首次查询再加载
+                log.warn("dedup index {} load error", source.source(), e);
+            }
+        }
+    }
+
+    @Override
+    public boolean seen(NewsConst.Source source, String link) {
+        Index index = index(source);
+        if (!index.filter.mightContain(link)) {
+            return false;
+        }
+        if (index.confirmed.getIfPresent(link) != null) {
+            metrics.skipped(source.source());
+            return true;
+        }
+        boolean exist = newsService.existNewsBySourceAndLink(source.source(), link);
+        if (exist) {
+            index.confirmed.put(link, Boolean.TRUE);
+            metrics.skipped(source.source());
+        }
+        return exist;
+    }
+
+    @Override
+    public void mark(NewsConst.Source source, String link) {
+        Index index = index(source);
+        index.filter.put(link);
+        index.confirmed.put(link, Boolean.TRUE);
+    }
+
+    private Index index(NewsConst.Source source) {
+        return indexes.computeIfAbsent(source, this::load);
+    }
+
+    private Index load(NewsConst.Source source) {
+        List<String> links = newsService.listLinks(source.source());
+        Index index = new Index(Math.max(EXPECTED, links.size() * 2));
+        links.forEach(index.filter::put);
+        log.info("dedup index {} loaded {} links", source.source(), links.size());
+        return index;
+    }
+
+    private static class Index {
+        private final BloomFilter<CharSequence> filter;
+        private final Cache<String, Boolean> confirmed = CacheBuilder.newBuilder().maximumSize(CONFIRMED_SIZE).build();
+
+        Index(int expected) {
+            this.filter = BloomFilter.create(Funnels.stringFunnel(StandardCharsets.UTF_8), expected, FPP);
+        }
+    }
+}
@@ -1,24 +1,47 @@
 package com.ll.news.service.impl;
 
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
 import com.baomidou.mybatisplus.core.toolkit.Wrappers;
+import com.google.common.collect.Lists;
 import com.ll.news.mapper.NewsMapper;
 import com.ll.news.model.News;
 import com.ll.news.service.INewsService;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.ibatis.session.SqlSessionFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
 
 
 @Service
 @Slf4j
 public class NewsService implements INewsService {
 
+    // 单条语句最多的行数
+    private static final int BATCH_SIZE = 500;
+
+    private static final String POSTGRESQL = "postgresql";
+
     @Autowired
     NewsMapper newsMapper;
 
+    @Autowired
+    SqlSessionFactory sqlSessionFactory;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
     @Override
     public boolean existNewsBySourceAndLink(String source, String link) {
         LambdaQueryWrapper<News> query = Wrappers.lambdaQuery(News.class);
@@ -40,11 +63,124 @@ public class NewsService implements INewsService {
         return newsMapper.insert(news);
     }
 
+    @Override
+    public List<News> insertNewsBatch(List<News> newsList) {
+        // 批内按来源和链接去重
+        Map<String, News> batch = new LinkedHashMap<>();
+        for (News news : newsList) {
+            batch.putIfAbsent(key(news.getSiteSource(), news.getLink()), news);
+        }
+        if (batch.isEmpty()) {
+            return List.of();
+        }
+        // 去掉已入库的, 剩下的一条语句插入
+        for (News exist : selectBySourceAndLinks(batch.values())) {
+            batch.remove(key(exist.getSiteSource(), exist.getLink()));
+        }
+        if (batch.isEmpty()) {
+            return List.of();
+        }
+        List<News> list = new ArrayList<>(batch.values());
+        boolean postgres = POSTGRESQL.equals(sqlSessionFactory.getConfiguration().getDatabaseId());
+        List<News> inserted = new ArrayList<>(list.size());
+        for (List<News> part : Lists.partition(list, BATCH_SIZE)) {
+            inserted.addAll(postgres ? insertReturning(part) : insertIgnore(part));
+        }
+        if (inserted.size() < list.size()) {
+            log.warn("insert news batch {}, {} inserted concurrently", list.size(), list.size() - inserted.size());
+        }
+        return inserted;
+    }
+
+    /**
+     * postgresql: returning只返回本次插入的行, 按来源和链接回填id
+     */
+    private List<News> insertReturning(List<News> part) {
+        Map<String, News> byKey = new LinkedHashMap<>();
+        for (News news : part) {
+            byKey.put(key(news.getSiteSource(), news.getLink()), news);
+        }
+        List<News> inserted = new ArrayList<>(part.size());
+        for (News row : newsMapper.insertIgnoreBatchReturning(part)) {
+            News news = byKey.get(key(row.getSiteSource(), row.getLink()));
+            if (news != null) {
+                news.setId(row.getId());
+                inserted.add(news);
+            }
+        }
+        return inserted;
+    }
+
+    /**
+     * mysql: 多行 insert ... on duplicate key update id = id, 只吸收唯一键冲突, 其他错误照常抛出。
+     * 冲突行影响行数为0(连接参数useAffectedRows=true), 插入行数不一致时说明有行被其他写入方抢先插入,
+     * 回滚这一批后逐行插入, 只保留影响行数为1的
+     */
+    private List<News> insertIgnore(List<News> part) {
+        TransactionTemplate nested = new TransactionTemplate(transactionManager);
+        nested.setPropagationBehavior(TransactionDefinition.PROPAGATION_NESTED);
+        Boolean all = nested.execute(status -> {
+            if (newsMapper.insertIgnoreBatch(part) == part.size()) {
+                return true;
+            }
+            status.setRollbackOnly();
+            return false;
+        });
+        if (Boolean.TRUE.equals(all)) {
+            // 多行插入的自增id不一定连续, 回查id
+            Map<String, News> byKey = new LinkedHashMap<>();
+            for (News news : part) {
+                byKey.put(key(news.getSiteSource(), news.getLink()), news);
+            }
+            for (News row : selectBySourceAndLinks(part)) {
+                News news = byKey.get(key(row.getSiteSource(), row.getLink()));
+                if (news != null) {
+                    news.setId(row.getId());
+                }
+            }
+            return part;
+        }
+        List<News> inserted = new ArrayList<>(part.size());
+        for (News news : part) {
+            if (newsMapper.insertIgnore(news) == 1) {
+                inserted.add(news);
+            }
+        }
+        return inserted;
+    }
+
+    private List<News> selectBySourceAndLinks(Collection<News> newsList) {
+        List<News> result = new ArrayList<>();
+        for (List<News> part : Lists.partition(new ArrayList<>(newsList), BATCH_SIZE)) {
+            LambdaQueryWrapper<News> query = Wrappers.lambdaQuery(News.class);
+            query.select(News::getId, News::getSiteSource, News::getLink);
+            query.in(News::getSiteSource, part.stream().map(News::getSiteSource).collect(Collectors.toSet()));
+            query.in(News::getLink, part.stream().map(News::getLink).collect(Collectors.toSet()));
+            result.addAll(newsMapper.selectList(query));
+        }
+        return result;
+    }
+
+    private static String key(String source, String link) {
+        return source + "\n" + link;
+    }
+
     @Override
     public int updateById(News news) {
         return newsMapper.updateById(news);
     }
 
+    @Override
+    public int updateStatusByIds(List<Long> ids, int status) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        LambdaUpdateWrapper<News> update = Wrappers.lambdaUpdate(News.class);
+        update.set(News::getStatus, status);
+        update.in(News::getId, ids);
+        return newsMapper.update(update);
+    }
+
     @Override
     public int deleteNewsById(Long id) {
         return newsMapper.deleteById(id);
@@ -65,6 +201,25 @@ public class NewsService implements INewsService {
         return newsMapper.selectList(query);
     }
 
+    @Override
+    public long latestPublishTime(String source) {
+        LambdaQueryWrapper<News> query = Wrappers.lambdaQuery(News.class);
+        query.select(News::getPublishTime);
+        query.eq(News::getSiteSource, source);
+        query.orderByDesc(News::getPublishTime);
+        query.last("limit 1");
+        News news = newsMapper.selectOne(query);
+        return news == null || news.getPublishTime() == null ? 0 : news.getPublishTime();
+    }
+
+    @Override
+    public List<String> listLinks(String source) {
+        LambdaQueryWrapper<News> query = Wrappers.lambdaQuery(News.class);
+        query.select(News::getLink);
+        query.eq(News::getSiteSource, source);
+        return newsMapper.selectList(query).stream().map(News::getLink).filter(Objects::nonNull).toList();
+    }
+
 
 
 
@@ -1,46 +1,55 @@
 package com.ll.news.service.impl;
 
+import com.ll.news.common.NewsMetrics;
 import com.ll.news.service.StatisticsDTO;
 import com.ll.news.service.StatisticsService;
 import com.ll.news.service.UserPreferenceService;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.search.Search;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.lang.management.ManagementFactory;
 import java.time.Duration;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 /**
  * 统计服务实现类
- * 提供系统统计信息的简化实现
+ * 新闻、推送和来源数量读取管道上的实时指标, 与/actuator/prometheus中的一致
  */
 @Service
 @Slf4j
 public class StatisticsServiceImpl implements StatisticsService {
 
+    /**
+     * 推送相关的执行器, 队列长度来自executor.queued指标
+     */
+    private static final List<String> EXECUTORS = List.of("personalizedExecutor", "msgExecutor", "telegramExecutor");
+
     @Autowired
     private UserPreferenceService userPreferenceService;
 
-    // 模拟应用启动时间（实际项目中应该从应用启动时记录）
-    private static final LocalDateTime APP_START_TIME = LocalDateTime.now().minusDays(1);
+    @Autowired
+    private MeterRegistry registry;
 
     @Override
     public int getTodayNewsCount() {
-        // 模拟今日新闻数量，实际项目中应该从数据库查询
-        return 127;
+        return (int) gauge(NewsMetrics.ITEMS_TODAY);
     }
 
     @Override
     public int getTodayPushCount() {
-        // 模拟今日推送数量
-        return 89;
+        return (int) gauge(NewsMetrics.PUSHES_TODAY);
     }
 
     @Override
     public int getActiveSources() {
-        // 模拟活跃数据源数量
-        return 5;
+        return (int) gauge(NewsMetrics.SOURCES_ACTIVE);
     }
 
     @Override
@@ -49,8 +58,8 @@ public class StatisticsServiceImpl implements StatisticsService {
         try {
             return (int) userPreferenceService.getActiveUserCount();
         } catch (Exception e) {
-            log.warn("获取活跃用户数量失败，使用默认值", e);
-            return 12; // 默认值
+            log.warn("获取活跃用户数量失败", e);
+            return 0;
         }
     }
 
@@ -60,14 +69,14 @@ public class StatisticsServiceImpl implements StatisticsService {
         try {
             return (int) userPreferenceService.getTotalSubscriptionCount();
         } catch (Exception e) {
-            log.warn("获取总订阅数量失败，使用默认值", e);
-            return 28; // 默认值
+            log.warn("获取总订阅数量失败", e);
+            return 0;
         }
     }
 
     @Override
     public String getUptime() {
-        Duration uptime = Duration.between(APP_START_TIME, LocalDateTime.now());
+        Duration uptime = Duration.ofMillis(ManagementFactory.getRuntimeMXBean().getUptime());
         long days = uptime.toDays();
         long hours = uptime.toHours() % 24;
         long minutes = uptime.toMinutes() % 60;
@@ -90,6 +99,40 @@ public class StatisticsServiceImpl implements StatisticsService {
                 .activeUsers(getActiveUsers())
                 .totalSubscriptions(getTotalSubscriptions())
                 .uptime(getUptime())
+                .errors((long) sum(registry.find(NewsMetrics.ERRORS)))
+                .telegramSendMillis(telegramSendMillis())
+                .queuedTasks((int) EXECUTORS.stream().mapToDouble(name -> sum(registry.find("executor.queued").tag("name", name))).sum())
                 .build();
     }
-}
\ No newline at end of file
+
+    /**
+     * 新闻机器人发送请求的平均耗时
+     */
+    private double telegramSendMillis() {
+        long count = 0;
+        double total = 0;
+        for (Timer timer : registry.find("telegram.send").tag("channel", "news").timers()) {
+            count += timer.count();
+            total += timer.totalTime(TimeUnit.MILLISECONDS);
+        }
+        return count == 0 ? 0 : total / count;
+    }
+
+    private double gauge(String name) {
+        Gauge gauge = registry.find(name).gauge();
+        return gauge == null || Double.isNaN(gauge.value()) ? 0 : gauge.value();
+    }
+
+    /**
+     * 同名指标所有标签的合计, 计数器取累计值, 仪表取当前值
+     */
+    private static double sum(Search search) {
+        double sum = 0;
+        for (Meter meter : search.meters()) {
+            for (var measurement : meter.measure()) {
+                sum += measurement.getValue();
+            }
+        }
+        return sum;
+    }
+}
@@ -1,20 +1,33 @@
 package com.ll.news.service.impl;
 
-import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.google.common.collect.Lists;
 import com.ll.news.entity.UserPreference;
 import com.ll.news.mapper.UserPreferenceMapper;
+import com.ll.news.service.SubscriptionIndex;
 import com.ll.news.service.UserPreferenceService;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.time.LocalTime;
-import java.util.Collections;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * 用户偏好服务实现类
+ * 全部用户偏好缓存在内存中, 推送线程直接读取缓存中的对象。
+ * 命令处理器的修改在副本上进行, 写库提交后再替换缓存和订阅索引, 回滚时缓存不受影响;
+ * 推送前在缓存对象上原子地检查频率并预占, 送达后才记录推送, 推送记录只改内存, 由定时任务批量写回
  */
 @Service
 @Slf4j
@@ -23,10 +36,31 @@ public class UserPreferenceServiceImpl extends ServiceImpl<UserPreferenceMapper,
 
     private static final int MAX_KEYWORDS = 10;  // 最大关键词数量
 
+    private static final int FLUSH_BATCH_SIZE = 500;
+
+    private final Map<Long, UserPreference> cache = new ConcurrentHashMap<>();
+
+    /**
+     * 有未写回推送记录的用户
+     */
+    private final Set<Long> dirty = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 已预占推送、尚未送达或失败的用户
+     */
+    private final Set<Long> inFlight = ConcurrentHashMap.newKeySet();
+
+    private volatile boolean loaded;
+
+    @Autowired
+    private SubscriptionIndex subscriptionIndex;
+
     @Override
     @Transactional
     public void initializeUser(Long userId) {
         if (existsByUserId(userId)) {
+            // /start 时以数据库为准刷新缓存
+            reload(userId);
             log.debug("用户{}已存在，跳过初始化", userId);
             return;
         }
@@ -42,21 +76,109 @@ public class UserPreferenceServiceImpl extends ServiceImpl<UserPreferenceMapper,
                 .build();
 
         save(preference);
+        afterCommit(() -> cache.putIfAbsent(userId, preference));
         log.info("初始化用户{}的偏好设置成功", userId);
     }
 
     @Override
     public UserPreference getUserPreference(Long userId) {
-        return getById(userId);
+        ensureLoaded();
+        UserPreference preference = cache.get(userId);
+        if (preference == null) {
+            preference = getById(userId);
+            if (preference != null) {
+                UserPreference existing = cache.putIfAbsent(userId, preference);
+                if (existing != null) {
+                    preference = existing;
+                }
+            }
+        }
+        return preference;
     }
 
     @Override
     @Transactional
     public void updateUserPreference(UserPreference preference) {
-        updateById(preference);
+        UserPreference updated = copy(preference);
+        updateById(updated);
+        afterCommit(() -> publish(updated));
         log.debug("更新用户{}的偏好设置", preference.getUserId());
     }
 
+    @Override
+    public boolean tryReservePush(Long userId) {
+        ensureLoaded();
+        boolean[] reserved = new boolean[1];
+        // 检查和预占与recordPush、publish互斥, 同一批新闻不会对同一用户重复通过频率检查
+        cache.computeIfPresent(userId, (id, current) -> {
+            synchronized (current) {
+                reserved[0] = !inFlight.contains(userId)
+                        && Boolean.TRUE.equals(current.getEnabled())
+                        && current.isInPushWindow()
+                        && current.shouldPush()
+                        && inFlight.add(userId);
+            }
+            return current;
+        });
+        return reserved[0];
+    }
+
+    @Override
+    public void recordPush(Long userId) {
+        ensureLoaded();
+        // 与publish替换缓存互斥, 推送记录不会落在已被替换的旧对象上
+        UserPreference preference = cache.computeIfPresent(userId, (id, current) -> {
+            synchronized (current) {
+                current.recordPush();
+                inFlight.remove(userId);
+            }
+            return current;
+        });
+        if (preference != null) {
+            dirty.add(userId);
+        } else {
+            inFlight.remove(userId);
+        }
+    }
+
+    @Override
+    public void releasePush(Long userId) {
+        inFlight.remove(userId);
+    }
+
+    @Override
+    @Scheduled(initialDelayString = "${user-preference.flush-interval:30000}", fixedDelayString = "${user-preference.flush-interval:30000}")
+    public void flushPushStats() {
+        if (dirty.isEmpty()) {
+            return;
+        }
+        List<UserPreference> stats = new ArrayList<>();
+        for (Iterator<Long> it = dirty.iterator(); it.hasNext(); ) {
+            Long userId = it.next();
+            it.remove();
+            UserPreference preference = cache.get(userId);
+            if (preference == null) {
+                continue;
+            }
+            stats.add(pushStats(preference));
+        }
+        for (List<UserPreference> part : Lists.partition(stats, FLUSH_BATCH_SIZE)) {
+            try {
+                baseMapper.updatePushStats(part);
+            } catch (Exception e) {
+                // 写库失败留到下次重试
+                part.forEach(preference -> dirty.add(preference.getUserId()));
+                log.error("写回{}位用户的推送记录失败", part.size(), e);
+            }
+        }
+        log.debug("写回{}位用户的推送记录", stats.size());
+    }
+
+    @PreDestroy
+    public void destroy() {
+        flushPushStats();
+    }
+
     @Override
     @Transactional
     public boolean addKeyword(Long userId, String keyword) {
@@ -80,9 +202,10 @@ public class UserPreferenceServiceImpl extends ServiceImpl<UserPreferenceMapper,
             return false;
         }
 
-        boolean added = preference.addKeyword(keyword);
+        UserPreference updated = copy(preference);
+        boolean added = updated.addKeyword(keyword);
         if (added) {
-            updateUserPreference(preference);
+            updateUserPreference(updated);
             log.info("用户{}添加关键词\"{}\"成功", userId, keyword);
         } else {
             log.warn("用户{}关键词\"{}\"已存在", userId, keyword);
@@ -107,9 +230,10 @@ public class UserPreferenceServiceImpl extends ServiceImpl<UserPreferenceMapper,
             return false;
         }
 
-        boolean removed = preference.removeKeyword(keyword);
+        UserPreference updated = copy(preference);
+        boolean removed = updated.removeKeyword(keyword);
         if (removed) {
-            updateUserPreference(preference);
+            updateUserPreference(updated);
             log.info("用户{}移除关键词\"{}\"成功", userId, keyword);
         } else {
             log.warn("用户{}关键词\"{}\"不存在", userId, keyword);
@@ -126,14 +250,16 @@ public class UserPreferenceServiceImpl extends ServiceImpl<UserPreferenceMapper,
 
     @Override
     public List<UserPreference> getActiveUsers() {
-        QueryWrapper<UserPreference> queryWrapper = new QueryWrapper<>();
-        queryWrapper.eq("is_enabled", true);
-        return list(queryWrapper);
+        ensureLoaded();
+        return cache.values().stream()
+                .filter(user -> Boolean.TRUE.equals(user.getEnabled()))
+                .toList();
     }
 
     @Override
     public List<UserPreference> getAllUserPreferences() {
-        return list();
+        ensureLoaded();
+        return new ArrayList<>(cache.values());
     }
 
     @Override
@@ -145,11 +271,12 @@ public class UserPreferenceServiceImpl extends ServiceImpl<UserPreferenceMapper,
             return false;
         }
 
-        preference.setPushFrequency(frequency);
-        preference.setPushStartTime(startTime);
-        preference.setPushEndTime(endTime);
+        UserPreference updated = copy(preference);
+        updated.setPushFrequency(frequency);
+        updated.setPushStartTime(startTime);
+        updated.setPushEndTime(endTime);
 
-        updateUserPreference(preference);
+        updateUserPreference(updated);
         log.info("用户{}更新推送设置：频率{}分钟，时间{}-{}",
                 userId, frequency, startTime, endTime);
         return true;
@@ -164,8 +291,9 @@ public class UserPreferenceServiceImpl extends ServiceImpl<UserPreferenceMapper,
             return false;
         }
 
-        preference.setEnabled(enabled);
-        updateUserPreference(preference);
+        UserPreference updated = copy(preference);
+        updated.setEnabled(enabled);
+        updateUserPreference(updated);
         log.info("用户{}设置推送状态为：{}", userId, enabled ? "启用" : "禁用");
         return true;
     }
@@ -179,26 +307,114 @@ public class UserPreferenceServiceImpl extends ServiceImpl<UserPreferenceMapper,
     @Transactional
     public void deleteUserPreference(Long userId) {
         removeById(userId);
+        afterCommit(() -> {
+            cache.remove(userId);
+            dirty.remove(userId);
+            inFlight.remove(userId);
+            subscriptionIndex.remove(userId);
+        });
         log.info("删除用户{}的偏好设置", userId);
     }
 
     @Override
     public long getUserCount() {
-        return count();
+        ensureLoaded();
+        return cache.size();
     }
 
     @Override
     public long getActiveUserCount() {
-        QueryWrapper<UserPreference> queryWrapper = new QueryWrapper<>();
-        queryWrapper.eq("is_enabled", true);
-        return count(queryWrapper);
+        return getActiveUsers().size();
     }
 
     @Override
     public long getTotalSubscriptionCount() {
-        List<UserPreference> allUsers = list();
-        return allUsers.stream()
+        return getAllUserPreferences().stream()
                 .mapToLong(user -> user.getKeywordList().size())
                 .sum();
     }
-}
\ No newline at end of file
+
+    /**
+     * 首次使用时把全部用户读入内存
+     */
+    private void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+        synchronized (cache) {
+            if (!loaded) {
+                for (UserPreference preference : list()) {
+                    cache.putIfAbsent(preference.getUserId(), preference);
+                }
+                loaded = true;
+                log.info("加载{}位用户的偏好设置", cache.size());
+            }
+        }
+    }
+
+    /**
+     * 先写回该用户的推送记录, 再从数据库重新读取
+     */
+    private void reload(Long userId) {
+        UserPreference cached = cache.get(userId);
+        if (cached != null && dirty.remove(userId)) {
+            baseMapper.updatePushStats(List.of(pushStats(cached)));
+        }
+        UserPreference preference = getById(userId);
+        if (preference == null) {
+            cache.remove(userId);
+            subscriptionIndex.remove(userId);
+        } else {
+            cache.put(userId, preference);
+            subscriptionIndex.update(preference);
+        }
+    }
+
+    /**
+     * 提交后替换缓存和订阅索引, 保留旧对象上这期间产生的推送记录
+     */
+    private void publish(UserPreference updated) {
+        UserPreference published = cache.compute(updated.getUserId(), (id, current) -> {
+            if (current != null) {
+                synchronized (current) {
+                    updated.setLastPushAt(current.getLastPushAt());
+                    updated.setPushCount(current.getPushCount());
+                }
+            }
+            return updated;
+        });
+        subscriptionIndex.update(published);
+    }
+
+    /**
+     * 在事务提交后执行, 没有事务时立即执行
+     */
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private static UserPreference copy(UserPreference preference) {
+        synchronized (preference) {
+            return preference.toBuilder().build();
+        }
+    }
+
+    private static UserPreference pushStats(UserPreference preference) {
+        synchronized (preference) {
+            return UserPreference.builder()
+                    .userId(preference.getUserId())
+                    .lastPushAt(preference.getLastPushAt())
+                    .pushCount(preference.getPushCount())
+                    .build();
+        }
+    }
+}
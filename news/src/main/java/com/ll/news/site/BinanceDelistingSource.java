@@ -2,20 +2,18 @@ package com.ll.news.site;
 
 import com.alibaba.fastjson.JSONArray;
 import com.alibaba.fastjson.JSONObject;
-import com.google.common.cache.LoadingCache;
 import com.ll.drissonPage.element.SessionElement;
 import com.ll.drissonPage.page.SessionPage;
-import com.ll.news.common.CacheUtils;
 import com.ll.news.common.ContentHandler;
 import com.ll.news.common.EventPublish;
 import com.ll.news.common.NewsConst;
 import com.ll.news.model.News;
+import com.ll.news.service.INewsDedupService;
 import com.ll.news.service.INewsService;
 import com.ll.news.site.base.BaseSource;
 import com.ytby.teams.TeamsMsgUtil;
 import com.ytby.teams.model.AcAction;
 import com.ytby.teams.template.CommonAcTemplate;
-import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 
@@ -40,16 +38,13 @@ public class BinanceDelistingSource extends BaseSource {
     @Autowired
     TeamsMsgUtil teamsMsgUtil;
 
-    private LoadingCache<String, News> cache;
-    @PostConstruct
-    public void init() {
-        this.cache = CacheUtils.cache(newsService, NewsConst.Source.binance_delisting);
-    }
+    @Autowired
+    INewsDedupService dedup;
 
 
     @Override
     public void refresh() throws Exception {
-        SessionPage page = new SessionPage();
+        SessionPage page = SessionPage.pooled();
         String url = NewsConst.Source.binance_delisting.link();
         page.get(url);
         SessionElement element = page.ele("#__APP_DATA");
@@ -74,7 +69,7 @@ public class BinanceDelistingSource extends BaseSource {
 
     private void grabArticle(JSONArray articles) {
         for (Object article : articles) {
-            SessionPage page = new SessionPage();
+            SessionPage page = SessionPage.pooled();
             JSONObject obj = (JSONObject) article;
             String code = obj.getString("code");
             String title = obj.getString("title");
@@ -96,14 +91,14 @@ public class BinanceDelistingSource extends BaseSource {
             news.setLink(url);
             news.setTags("[]");
             news.setContent(content);
-            try {
-                cache.get(url);
+            if (dedup.seen(NewsConst.Source.binance_delisting, url)) {
                 log.info("skip link {}", url);
-            } catch (Exception e) {
+            } else {
                 log.info("{} not find, will insert", url);
                 sendTeamsMsg(url, content);
                 newsService.insertNews(news);
                 eventPublish.publishNewsEvent(news);
+                dedup.mark(NewsConst.Source.binance_delisting, url);
             }
             page.close();
         }
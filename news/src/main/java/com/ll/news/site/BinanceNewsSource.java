@@ -1,20 +1,18 @@
 package com.ll.news.site;
 
-import com.google.common.cache.LoadingCache;
 import com.ll.drissonPage.element.SessionElement;
 import com.ll.drissonPage.page.SessionPage;
-import com.ll.news.common.CacheUtils;
 import com.ll.news.common.ContentHandler;
-import com.ll.news.common.EventPublish;
 import com.ll.news.common.NewsConst;
+import com.ll.news.common.NewsIngestor;
 import com.ll.news.model.News;
-import com.ll.news.service.INewsService;
+import com.ll.news.service.INewsDedupService;
 import com.ll.news.site.base.BaseSource;
-import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
 
@@ -26,17 +24,11 @@ public class BinanceNewsSource extends BaseSource {
     ContentHandler filter;
 
     @Autowired
-    INewsService newsService;
+    NewsIngestor ingestor;
 
     @Autowired
-    EventPublish eventPublish;
+    INewsDedupService dedup;
 
-    private LoadingCache<String, News> cache;
-
-    @PostConstruct
-    public void init() {
-        this.cache = CacheUtils.cache(newsService, NewsConst.Source.binance_new);
-    }
 
 
     @Override
@@ -44,7 +36,8 @@ public class BinanceNewsSource extends BaseSource {
 
         // link, content
 
-        SessionPage page = new SessionPage();
+        SessionPage page = SessionPage.pooled();
+        List<News> batch = new ArrayList<>();
 
         String url = NewsConst.Source.binance_new.link();
         String source = NewsConst.Source.binance_new.source();
@@ -81,17 +74,16 @@ public class BinanceNewsSource extends BaseSource {
             news.setTags("[]");
             news.setContent(content);
 
-            try {
-                cache.get(href);
+            if (dedup.seen(NewsConst.Source.binance_new, href)) {
                 log.info("skip link {}", href);
-            } catch (Exception e) {
+            } else {
                 log.info("{} not find, will insert", href);
-                newsService.insertNews(news);
-                eventPublish.publishNewsEvent(news);
+                batch.add(news);
             }
 
         }
 
+        ingestor.ingest(NewsConst.Source.binance_new, batch);
         page.close();
 
     }
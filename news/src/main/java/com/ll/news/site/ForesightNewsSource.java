@@ -1,16 +1,15 @@
 package com.ll.news.site;
 
 import cn.hutool.core.codec.Base64;
-import cn.hutool.core.util.ZipUtil;
 import com.alibaba.fastjson.JSONArray;
 import com.alibaba.fastjson.JSONObject;
-import com.google.common.cache.LoadingCache;
+import com.alibaba.fastjson.JSONReader;
 import com.ll.drissonPage.page.SessionPage;
-import com.ll.news.common.CacheUtils;
 import com.ll.news.common.ContentHandler;
-import com.ll.news.common.EventPublish;
 import com.ll.news.common.NewsConst;
+import com.ll.news.common.NewsIngestor;
 import com.ll.news.model.News;
+import com.ll.news.service.INewsDedupService;
 import com.ll.news.service.INewsService;
 import com.ll.news.site.base.BaseSource;
 import jakarta.annotation.PostConstruct;
@@ -18,11 +17,18 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.text.SimpleDateFormat;
 import java.time.ZoneOffset;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
 import java.util.Objects;
 import java.util.TimeZone;
+import java.util.zip.InflaterInputStream;
 
 @Component
 @Slf4j
@@ -35,19 +41,25 @@ public class ForesightNewsSource extends BaseSource {
     INewsService newsService;
 
     @Autowired
-    EventPublish eventPublish;
+    NewsIngestor ingestor;
 
-    private LoadingCache<String, News> cache;
+    @Autowired
+    INewsDedupService dedup;
+
+    /**
+     * 高水位，已处理快讯的最新发布时间(毫秒)，启动时从库中恢复
+     */
+    private volatile long watermark;
 
     @PostConstruct
     public void init() {
-        cache = CacheUtils.cache(newsService, NewsConst.Source.foresightNews_quick_news);
+        watermark = newsService.latestPublishTime(NewsConst.Source.foresightNews_quick_news.source());
     }
 
     @Override
     public void refresh() {
 
-        SessionPage page = new SessionPage();
+        SessionPage page = SessionPage.pooled();
 
         SimpleDateFormat simpleDateFormat = new SimpleDateFormat("yyyyMMdd");
         simpleDateFormat.setTimeZone(TimeZone.getTimeZone(ZoneOffset.ofHours(0)));
@@ -61,58 +73,96 @@ public class ForesightNewsSource extends BaseSource {
         page.get(url);  // 访问网站
 
         JSONObject json = page.json();
+        page.close();
         String data = json.getString("data");
         byte[] decode = Base64.decode(data);
-        byte[] bytes = ZipUtil.unZlib(decode);
-        String content = new String(bytes);
-
-        JSONArray dataArray = (JSONArray) JSONArray.parse(content);
-
-        for (Object o : dataArray) {
-            JSONObject jsonObject = (JSONObject) o;
-            JSONArray news = jsonObject.getJSONArray("news");
-            for (Object object : news) {
-                JSONArray tagArray = new JSONArray();
-                JSONObject newsItem = (JSONObject) object;
-                String id = newsItem.getString("id");
-                String title = newsItem.getString("title");
-                String contentStr = newsItem.getString("brief");
-                Long published_at = newsItem.getLong("published_at") * 1000;
-                String detailUrlItem = detailUrl + id;
-                JSONArray tags = newsItem.getJSONArray("tags");
-                if (Objects.isNull(tags)) {
-                    continue;
-                }
-                for (Object tag : tags) {
-                    JSONObject tagObj = (JSONObject) tag;
-                    String tagName = tagObj.getString("name");
-                    tagArray.add(tagName);
-                }
 
-                News newsInsert = News.builder()
-                        .siteSource(source)
-                        .link(detailUrlItem)
-                        .publishTime(published_at)
-                        .title(title)
-                        .status(NewsConst.Status.NEW)
-                        .content(contentStr)
-                        .tags(tagArray.toString())
-                        .build();
-
-                try {
-                    cache.get(detailUrlItem);
-                    log.info("skip link {}", detailUrlItem);
-                } catch (Exception e) {
-                    log.info("{} not find, will insert", detailUrlItem);
-                    newsService.insertNews(newsInsert);
-                    eventPublish.publishNewsEvent(newsInsert);
+        //快讯按发布时间倒序，解压后边读边解析，读到高水位之前的条目即停止
+        long watermark = this.watermark;
+        long latest = watermark;
+        long previous = Long.MAX_VALUE;
+        boolean descending = true;
+        boolean reached = false;
+        int parsed = 0;
+        List<News> batch = new ArrayList<>();
+        //提前停止时json未读完，JSONReader.close会校验结尾报错，所以只关闭底层流
+        try (InputStreamReader in = new InputStreamReader(new InflaterInputStream(new ByteArrayInputStream(decode)), StandardCharsets.UTF_8)) {
+            JSONReader reader = new JSONReader(in);
+            reader.startArray();
+            days:
+            while (reader.hasNext()) {
+                reader.startObject();
+                while (reader.hasNext()) {
+                    String key = reader.readString();
+                    if (!"news".equals(key)) {
+                        reader.readObject();
+                        continue;
+                    }
+                    reader.startArray();
+                    while (reader.hasNext()) {
+                        JSONObject newsItem = reader.readObject(JSONObject.class);
+                        parsed++;
+                        Long published_at = newsItem.getLong("published_at") * 1000;
+                        descending = descending && published_at <= previous;
+                        previous = published_at;
+                        latest = Math.max(latest, published_at);
+                        if (published_at < watermark) {
+                            if (descending) {
+                                reached = true;
+                                break days;
+                            }
+                            continue;
+                        }
+                        handle(newsItem, published_at, source, detailUrl, batch);
+                    }
+                    reader.endArray();
                 }
+                reader.endObject();
             }
-
+            if (!reached) {
+                reader.endArray();
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
         }
+        ingestor.ingest(NewsConst.Source.foresightNews_quick_news, batch);
+        this.watermark = latest;
+        log.info("foresight parsed {} items, watermark {}", parsed, latest);
 
-        page.close();
+    }
+
+    private void handle(JSONObject newsItem, Long published_at, String source, String detailUrl, List<News> batch) {
+        JSONArray tagArray = new JSONArray();
+        String id = newsItem.getString("id");
+        String title = newsItem.getString("title");
+        String contentStr = newsItem.getString("brief");
+        String detailUrlItem = detailUrl + id;
+        JSONArray tags = newsItem.getJSONArray("tags");
+        if (Objects.isNull(tags)) {
+            return;
+        }
+        for (Object tag : tags) {
+            JSONObject tagObj = (JSONObject) tag;
+            String tagName = tagObj.getString("name");
+            tagArray.add(tagName);
+        }
 
+        News newsInsert = News.builder()
+                .siteSource(source)
+                .link(detailUrlItem)
+                .publishTime(published_at)
+                .title(title)
+                .status(NewsConst.Status.NEW)
+                .content(contentStr)
+                .tags(tagArray.toString())
+                .build();
+
+        if (dedup.seen(NewsConst.Source.foresightNews_quick_news, detailUrlItem)) {
+            log.info("skip link {}", detailUrlItem);
+        } else {
+            log.info("{} not find, will insert", detailUrlItem);
+            batch.add(newsInsert);
+        }
     }
 
 }
@@ -1,22 +1,20 @@
 package com.ll.news.site;
 
-import com.google.common.cache.LoadingCache;
 import com.ll.drissonPage.element.SessionElement;
 import com.ll.drissonPage.page.SessionPage;
-import com.ll.news.common.CacheUtils;
 import com.ll.news.common.ContentHandler;
-import com.ll.news.common.EventPublish;
 import com.ll.news.common.NewsConst;
+import com.ll.news.common.NewsIngestor;
 import com.ll.news.model.News;
-import com.ll.news.service.INewsService;
+import com.ll.news.service.INewsDedupService;
 import com.ll.news.site.base.BaseSource;
-import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import java.text.SimpleDateFormat;
+import java.time.Duration;
 import java.time.ZoneOffset;
 import java.util.ArrayList;
 import java.util.Date;
@@ -33,23 +31,28 @@ public class Jin10FedSource extends BaseSource {
     private static final int KEEPDAYS = 7;
 
     @Autowired
-    INewsService newsService;
+    NewsIngestor ingestor;
 
     @Autowired
-    EventPublish eventPublish;
+    INewsDedupService dedup;
 
-    private LoadingCache<String, News> jin10_fed_cache;
+    @Override
+    public Duration interval() {
+        return Duration.ofSeconds(60);
+    }
 
-    @PostConstruct
-    public void init() {
-        this.jin10_fed_cache = CacheUtils.cache(newsService, NewsConst.Source.jin10_fed);
+    @Override
+    public Duration timeout() {
+        // 需要逐条抓取详情页, 放宽超时
+        return Duration.ofMinutes(3);
     }
 
     @Override
     public void refresh() {
         // link, content
 
-        SessionPage page = new SessionPage();
+        SessionPage page = SessionPage.pooled();
+        List<News> batch = new ArrayList<>();
 
         String url = NewsConst.Source.jin10_fed.link();
         String source = NewsConst.Source.jin10_fed.source();
@@ -68,7 +71,7 @@ public class Jin10FedSource extends BaseSource {
                 continue;
             }
             if (StringUtils.isNoneEmpty(link)) {
-                if (jin10_fed_cache.getIfPresent(link) != null) {
+                if (dedup.seen(NewsConst.Source.jin10_fed, link)) {
                     log.info("skip link {}", link);
                     continue;
                 }
@@ -112,13 +115,11 @@ public class Jin10FedSource extends BaseSource {
                 news.setContent(join);
                 news.setTags("[]");
 
-                try {
-                    jin10_fed_cache.get(s);
+                if (dedup.seen(NewsConst.Source.jin10_fed, s)) {
                     log.info("skip link {}", s);
-                } catch (Exception e) {
+                } else {
                     log.info("{} not find, will insert", s);
-                    newsService.insertNews(news);
-                    eventPublish.publishNewsEvent(news);
+                    batch.add(news);
                 }
 
             } catch (Exception e) {
@@ -126,6 +127,7 @@ public class Jin10FedSource extends BaseSource {
             }
         }
 
+        ingestor.ingest(NewsConst.Source.jin10_fed, batch);
         page.close();
 
     }
@@ -1,33 +1,136 @@
 package com.ll.news.site;
 
 
+import com.ll.news.common.NewsMetrics;
+import com.ll.news.common.executor.BulkheadExecutor;
+import com.ll.news.common.executor.ExecutionProperties;
+import com.ll.news.common.executor.ExecutionProperties.Lane;
 import com.ll.news.site.base.BaseSource;
+import com.ll.news.site.base.SourceStat;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.TaskScheduler;
 import org.springframework.stereotype.Component;
 
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * 来源调度
+ * 每个来源按自己的间隔、超时和并发预算在独立线程池上刷新,
+ * 单个来源卡住只会占满自己的并发预算, 不影响其他来源
+ */
 @Component
 @Slf4j
 public class NewsManager {
 
+    private static final long INITIAL_DELAY = 5000L;
+
     @Autowired
     List<BaseSource> sources;
 
-    @Scheduled(initialDelay = 5000, fixedDelay = 30_000)
-    public void refresh() {
+    @Autowired
+    TaskScheduler taskScheduler;
+
+    @Autowired
+    NewsMetrics metrics;
+
+    @Autowired
+    ExecutionProperties execution;
+
+    private final Map<String, BulkheadExecutor> executors = new ConcurrentHashMap<>();
+
+    private final Map<String, SourceStat> stats = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void start() {
+        Instant startAt = Instant.now().plusMillis(INITIAL_DELAY);
         for (BaseSource source : sources) {
+            String name = source.name();
+            int concurrency = Math.max(1, source.concurrency());
+
+            // 不排队: 并发预算用尽时直接拒绝, 本轮跳过
+            BulkheadExecutor executor = execution.create("source-" + name, Lane.of(concurrency, 0, 0));
+            executors.put(name, executor);
+            SourceStat stat = new SourceStat(source);
+            stats.put(name, stat);
+            executor.bindTo(metrics.registry());
+            metrics.bind(stat);
+
+            taskScheduler.scheduleWithFixedDelay(() -> trigger(source), startAt, source.interval());
+            log.info("source {} scheduled, interval {}, timeout {}, concurrency {}", name, source.interval(), source.timeout(), concurrency);
+        }
+        metrics.gauge(NewsMetrics.SOURCES_ACTIVE, "三个刷新间隔内成功过的来源数", this, NewsManager::activeSources);
+    }
+
+    public List<SourceStat> stats() {
+        return new ArrayList<>(stats.values());
+    }
+
+    /**
+     * @return 三个刷新间隔内成功刷新过的来源数
+     */
+    public int activeSources() {
+        int active = 0;
+        for (SourceStat stat : stats.values()) {
+            long freshness = stat.getFreshnessMillis();
+            if (freshness >= 0 && freshness <= stat.getIntervalMillis() * 3 + stat.getTimeoutMillis()) {
+                active++;
+            }
+        }
+        return active;
+    }
+
+    private void trigger(BaseSource source) {
+        String name = source.name();
+        SourceStat stat = stats.get(name);
+
+        Future<?> future;
+        try {
+            future = executors.get(name).submit(() -> run(source, stat));
+        } catch (RejectedExecutionException e) {
+            stat.skip();
+            log.warn("source {} reach concurrency {}, skip this round", name, stat.getConcurrency());
+            return;
+        }
 
-            try {
-                source.refresh();
-            } catch (Exception e) {
-                log.error("error {}", source.getClass().getSimpleName(), e);
+        taskScheduler.schedule(() -> {
+            if (!future.isDone()) {
+                stat.timeout();
+                log.warn("source {} refresh timeout {}, interrupt", name, source.timeout());
+                future.cancel(true);
             }
+        }, Instant.now().plus(source.timeout()));
+    }
 
+    private void run(BaseSource source, SourceStat stat) {
+        long start = System.nanoTime();
+        stat.start(System.currentTimeMillis());
+        metrics.begin();
+        boolean success = false;
+        try {
+            source.refresh();
+            success = true;
+        } catch (Exception e) {
+            log.error("error {}", source.name(), e);
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            stat.finish(TimeUnit.NANOSECONDS.toMillis(elapsed), success);
+            metrics.end(source.name(), elapsed, success);
         }
     }
 
+    @PreDestroy
+    public void shutdown() {
+        executors.values().forEach(BulkheadExecutor::close);
+    }
 
 }
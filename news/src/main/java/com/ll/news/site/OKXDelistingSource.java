@@ -3,12 +3,11 @@ package com.ll.news.site;
 import com.alibaba.fastjson.JSON;
 import com.alibaba.fastjson.JSONArray;
 import com.alibaba.fastjson.JSONObject;
-import com.google.common.cache.LoadingCache;
-import com.ll.news.common.CacheUtils;
 import com.ll.news.common.ContentHandler;
 import com.ll.news.common.EventPublish;
 import com.ll.news.common.NewsConst;
 import com.ll.news.model.News;
+import com.ll.news.service.INewsDedupService;
 import com.ll.news.service.INewsService;
 import com.ll.news.site.base.BaseSource;
 import com.okx.connector.client.SpotClient;
@@ -16,7 +15,6 @@ import com.okx.connector.client.impl.SpotClientImpl;
 import com.ytby.teams.TeamsMsgUtil;
 import com.ytby.teams.model.AcAction;
 import com.ytby.teams.template.CommonAcTemplate;
-import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 import okhttp3.OkHttpClient;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -45,11 +43,8 @@ public class OKXDelistingSource extends BaseSource {
     @Autowired
     TeamsMsgUtil teamsMsgUtil;
 
-    private LoadingCache<String, News> cache;
-    @PostConstruct
-    public void init() {
-        this.cache = CacheUtils.cache(newsService, NewsConst.Source.okx_delisting);
-    }
+    @Autowired
+    INewsDedupService dedup;
 
     @Override
     public void refresh() throws Exception {
@@ -82,14 +77,14 @@ public class OKXDelistingSource extends BaseSource {
             news.setLink(href);
             news.setTags("[]");
             news.setContent(title);
-            try {
-                cache.get(href);
+            if (dedup.seen(NewsConst.Source.okx_delisting, href)) {
                 log.info("skip link {}", href);
-            } catch (Exception e) {
+            } else {
                 log.info("{} not find, will insert", href);
                 sendTeamsMsg(href, title, pTime);
                 newsService.insertNews(news);
                 eventPublish.publishNewsEvent(news);
+                dedup.mark(NewsConst.Source.okx_delisting, href);
             }
         } catch (Exception e) {
             log.error(e.getMessage());
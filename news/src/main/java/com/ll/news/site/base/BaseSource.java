@@ -1,7 +1,37 @@
 package com.ll.news.site.base;
 
 
+import java.time.Duration;
+
 public abstract class BaseSource {
 
     public abstract void refresh() throws Exception;
+
+    /**
+     * 来源名称, 用于调度线程命名和统计
+     */
+    public String name() {
+        return getClass().getSimpleName();
+    }
+
+    /**
+     * 两次刷新之间的间隔
+     */
+    public Duration interval() {
+        return Duration.ofSeconds(30);
+    }
+
+    /**
+     * 单次刷新的超时时间, 超时后中断刷新线程
+     */
+    public Duration timeout() {
+        return Duration.ofSeconds(60);
+    }
+
+    /**
+     * 并发预算, 同一来源最多同时执行的刷新数
+     */
+    public int concurrency() {
+        return 1;
+    }
 }
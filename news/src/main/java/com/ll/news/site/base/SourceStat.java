@@ -0,0 +1,87 @@
+package com.ll.news.site.base;
+
+import lombok.Getter;
+
+/**
+ * 单个来源的刷新统计
+ * 记录刷新耗时、成功/失败/超时次数, 以及最近一次成功时间(新鲜度)
+ */
+@Getter
+public class SourceStat {
+
+    private final String source;
+
+    private final long intervalMillis;
+
+    private final long timeoutMillis;
+
+    private final int concurrency;
+
+    private volatile long runs;
+
+    private volatile long failures;
+
+    private volatile long timeouts;
+
+    /**
+     * 并发预算用尽被跳过的次数
+     */
+    private volatile long skipped;
+
+    private volatile int running;
+
+    private volatile long lastLatencyMillis;
+
+    private volatile long maxLatencyMillis;
+
+    private volatile long totalLatencyMillis;
+
+    private volatile long lastStartAt;
+
+    private volatile long lastSuccessAt;
+
+    public SourceStat(BaseSource source) {
+        this.source = source.name();
+        this.intervalMillis = source.interval().toMillis();
+        this.timeoutMillis = source.timeout().toMillis();
+        this.concurrency = source.concurrency();
+    }
+
+    public synchronized void start(long now) {
+        running++;
+        lastStartAt = now;
+    }
+
+    public synchronized void finish(long latency, boolean success) {
+        running--;
+        runs++;
+        lastLatencyMillis = latency;
+        maxLatencyMillis = Math.max(maxLatencyMillis, latency);
+        totalLatencyMillis += latency;
+        if (success) {
+            lastSuccessAt = System.currentTimeMillis();
+        } else {
+            failures++;
+        }
+    }
+
+    public synchronized void timeout() {
+        timeouts++;
+    }
+
+    public synchronized void skip() {
+        skipped++;
+    }
+
+    public synchronized long getAvgLatencyMillis() {
+        return runs == 0 ? 0 : totalLatencyMillis / runs;
+    }
+
+    /**
+     * 距最近一次成功刷新的时间, 从未成功返回 -1
+     */
+    public synchronized long getFreshnessMillis() {
+        return lastSuccessAt == 0 ? -1 : System.currentTimeMillis() - lastSuccessAt;
+    }
+
+}
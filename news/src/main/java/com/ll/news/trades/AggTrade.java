@@ -0,0 +1,86 @@
+package com.ll.news.trades;
+
+import lombok.Data;
+
+/**
+ * 归集成交, 只保留告警用到的字段
+ * 解析时复用同一个实例, 需要保留时用copy
+ */
+@Data
+public class AggTrade {
+
+    /**
+     * 币对, s
+     */
+    private String symbol;
+
+    /**
+     * 成交价, p
+     */
+    private double price;
+
+    /**
+     * 成交量, q
+     */
+    private double qty;
+
+    /**
+     * 买方是否为挂单方, 即主动卖出, m
+     */
+    private boolean maker;
+
+    /**
+     * 事件时间, E
+     */
+    private long eventTime;
+
+    /**
+     * 归集成交id, 同一币对连续递增, a, 没有时为-1
+     */
+    private long id;
+
+    /**
+     * 被归集的首个成交id, f
+     */
+    private long firstId;
+
+    /**
+     * 被归集的末个成交id, l
+     */
+    private long lastId;
+
+    /**
+     * 是否为重连后从REST补齐的历史成交, 只计入统计不触发告警
+     */
+    private boolean backfilled;
+
+    public double amount() {
+        return price * qty;
+    }
+
+    public AggTrade copy() {
+        AggTrade trade = new AggTrade();
+        trade.symbol = symbol;
+        trade.price = price;
+        trade.qty = qty;
+        trade.maker = maker;
+        trade.eventTime = eventTime;
+        trade.id = id;
+        trade.firstId = firstId;
+        trade.lastId = lastId;
+        trade.backfilled = backfilled;
+        return trade;
+    }
+
+    void reset() {
+        symbol = null;
+        price = Double.NaN;
+        qty = Double.NaN;
+        maker = false;
+        eventTime = 0;
+        id = -1;
+        firstId = -1;
+        lastId = -1;
+        backfilled = false;
+    }
+}
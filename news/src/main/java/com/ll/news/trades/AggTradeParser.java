@@ -0,0 +1,364 @@
+package com.ll.news.trades;
+
+import io.vertx.core.buffer.Buffer;
+
+/**
+ * aggTrade流式解析
+ * 直接在文本或Buffer上扫描s、p、q、m、E以及成交id a、f、l写入复用的AggTrade, 不生成JSONObject和装箱数值,
+ * 币对名缓存后复用同一个String。
+ * 有状态, 不是线程安全的, 每个线程一个实例
+ */
+public final class AggTradeParser {
+
+    private static final int SYMBOL = 1;
+    private static final int PRICE = 1 << 1;
+    private static final int QTY = 1 << 2;
+    private static final int MAKER = 1 << 3;
+    private static final int EVENT_TIME = 1 << 4;
+    private static final int ALL = SYMBOL | PRICE | QTY | MAKER | EVENT_TIME;
+    private static final int AGG_ID = 1 << 5;
+    private static final int FIRST_ID = 1 << 6;
+    private static final int LAST_ID = 1 << 7;
+    /**
+     * 成交id可选, 币安的消息里都在m之前, 不影响提前结束扫描
+     */
+    private static final int ALL_WITH_IDS = ALL | AGG_ID | FIRST_ID | LAST_ID;
+
+    private static final int MAX_SYMBOLS = 256;
+
+    private static final String STREAM_PREFIX = "{\"stream\":\"";
+
+    /**
+     * 2^53以内的整数和10^22以内的10的幂都能精确表示为double, 一次除法即是正确舍入的结果
+     */
+    private static final long MAX_EXACT = 1L << 53;
+
+    private static final double[] POW10 = new double[23];
+
+    static {
+        POW10[0] = 1;
+        for (int i = 1; i < POW10.length; i++) {
+            POW10[i] = POW10[i - 1] * 10;
+        }
+    }
+
+    private final String[] symbols = new String[MAX_SYMBOLS];
+
+    private int symbolCount;
+
+    private final BufferChars bufferChars = new BufferChars();
+
+    private CharSequence in;
+
+    private int pos;
+
+    private int end;
+
+    /**
+     * 解析组合流或单个流的aggTrade消息
+     *
+     * @return 5个字段是否都已解析
+     */
+    public boolean parse(CharSequence text, AggTrade trade) {
+        trade.reset();
+        in = text;
+        pos = 0;
+        end = text.length();
+        try {
+            return (scan(trade) & ALL) == ALL;
+        } catch (RuntimeException e) {
+            return false;
+        } finally {
+            in = null;
+        }
+    }
+
+    /**
+     * 直接解析Buffer中的UTF-8字节, 用到的字段都是ASCII
+     */
+    public boolean parse(Buffer buffer, AggTrade trade) {
+        bufferChars.buffer = buffer;
+        try {
+            return parse(bufferChars, trade);
+        } finally {
+            bufferChars.buffer = null;
+        }
+    }
+
+    /**
+     * 组合流消息以{"stream":"btcusdt@aggTrade"开头, 取@之前的币对计算hash, 用于分片, 不解析整条消息
+     *
+     * @return 不是组合流消息时返回0
+     */
+    public static int streamHash(CharSequence text) {
+        if (!startsWith(text, STREAM_PREFIX)) {
+            return 0;
+        }
+        int hash = 0;
+        for (int i = STREAM_PREFIX.length(); i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '@' || c == '"') {
+                break;
+            }
+            hash = 31 * hash + c;
+        }
+        return hash;
+    }
+
+    /**
+     * @return 是否为组合流推送的消息, 订阅请求的响应不是
+     */
+    public static boolean isStreamMessage(CharSequence text) {
+        return startsWith(text, STREAM_PREFIX);
+    }
+
+    private static boolean startsWith(CharSequence text, String prefix) {
+        if (text.length() < prefix.length()) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length(); i++) {
+            if (text.charAt(i) != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int scan(AggTrade trade) {
+        int found = 0;
+        while (pos < end) {
+            if (in.charAt(pos) != '"') {
+                pos++;
+                continue;
+            }
+            int start = ++pos;
+            skipString();
+            int len = pos - 1 - start;
+            skipWhitespace();
+            // 后面不是冒号的是值, 不是键
+            if (pos >= end || in.charAt(pos) != ':') {
+                continue;
+            }
+            pos++;
+            if (len != 1) {
+                continue;
+            }
+            skipWhitespace();
+            switch (in.charAt(start)) {
+                case 's' -> {
+                    trade.setSymbol(readSymbol());
+                    found |= SYMBOL;
+                }
+                case 'p' -> {
+                    trade.setPrice(readDouble());
+                    found |= PRICE;
+                }
+                case 'q' -> {
+                    trade.setQty(readDouble());
+                    found |= QTY;
+                }
+                case 'm' -> {
+                    trade.setMaker(readBoolean());
+                    found |= MAKER;
+                }
+                case 'E' -> {
+                    trade.setEventTime(readLong());
+                    found |= EVENT_TIME;
+                }
+                case 'a' -> {
+                    trade.setId(readLong());
+                    found |= AGG_ID;
+                }
+                case 'f' -> {
+                    trade.setFirstId(readLong());
+                    found |= FIRST_ID;
+                }
+                case 'l' -> {
+                    trade.setLastId(readLong());
+                    found |= LAST_ID;
+                }
+                default -> {
+                }
+            }
+            if (found == ALL_WITH_IDS) {
+                break;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * pos在开引号之后, 结束时在闭引号之后
+     */
+    private void skipString() {
+        while (pos < end) {
+            char c = in.charAt(pos++);
+            if (c == '\\') {
+                pos++;
+            } else if (c == '"') {
+                return;
+            }
+        }
+    }
+
+    private void skipWhitespace() {
+        while (pos < end && in.charAt(pos) <= ' ') {
+            pos++;
+        }
+    }
+
+    private String readSymbol() {
+        if (in.charAt(pos) != '"') {
+            throw new IllegalArgumentException("symbol is not a string");
+        }
+        int start = ++pos;
+        skipString();
+        int len = pos - 1 - start;
+        for (int i = 0; i < symbolCount; i++) {
+            if (regionEquals(symbols[i], start, len)) {
+                return symbols[i];
+            }
+        }
+        String symbol = in.subSequence(start, start + len).toString();
+        if (symbolCount < MAX_SYMBOLS) {
+            symbols[symbolCount++] = symbol;
+        }
+        return symbol;
+    }
+
+    private boolean regionEquals(String symbol, int start, int len) {
+        if (symbol.length() != len) {
+            return false;
+        }
+        for (int i = 0; i < len; i++) {
+            if (symbol.charAt(i) != in.charAt(start + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 解析带引号或不带引号的十进制数, 有指数或有效位过多时退回Double.parseDouble
+     */
+    private double readDouble() {
+        boolean quoted = in.charAt(pos) == '"';
+        if (quoted) {
+            pos++;
+        }
+        int start = pos;
+        while (pos < end && isNumberChar(in.charAt(pos))) {
+            pos++;
+        }
+        int stop = pos;
+        if (quoted) {
+            skipString();
+        }
+        int i = start;
+        boolean negative = in.charAt(i) == '-';
+        if (negative || in.charAt(i) == '+') {
+            i++;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int scale = 0;
+        boolean fraction = false;
+        boolean exact = i < stop;
+        for (; i < stop && exact; i++) {
+            char c = in.charAt(i);
+            if (c >= '0' && c <= '9') {
+                mantissa = mantissa * 10 + (c - '0');
+                if (mantissa != 0) {
+                    digits++;
+                }
+                if (fraction) {
+                    scale++;
+                }
+                exact = digits <= 18;
+            } else if (c == '.' && !fraction) {
+                fraction = true;
+            } else {
+                exact = false;
+            }
+        }
+        if (exact) {
+            while (mantissa >= MAX_EXACT && scale > 0 && mantissa % 10 == 0) {
+                mantissa /= 10;
+                scale--;
+            }
+            if (mantissa < MAX_EXACT && scale < POW10.length) {
+                double value = mantissa / POW10[scale];
+                return negative ? -value : value;
+            }
+        }
+        return Double.parseDouble(in.subSequence(start, stop).toString());
+    }
+
+    private static boolean isNumberChar(char c) {
+        return (c >= '0' && c <= '9') || c == '.' || c == '-' || c == '+' || c == 'e' || c == 'E';
+    }
+
+    private long readLong() {
+        boolean quoted = in.charAt(pos) == '"';
+        if (quoted) {
+            pos++;
+        }
+        boolean negative = in.charAt(pos) == '-';
+        if (negative) {
+            pos++;
+        }
+        long value = 0;
+        for (; pos < end; pos++) {
+            char c = in.charAt(pos);
+            if (c < '0' || c > '9') {
+                break;
+            }
+            value = value * 10 + (c - '0');
+        }
+        if (quoted) {
+            skipString();
+        }
+        return negative ? -value : value;
+    }
+
+    private boolean readBoolean() {
+        char c = in.charAt(pos);
+        if (c == 't') {
+            pos += 4;
+            return true;
+        }
+        if (c == 'f') {
+            pos += 5;
+            return false;
+        }
+        throw new IllegalArgumentException("not a boolean");
+    }
+
+    /**
+     * Buffer的字符视图, 按单字节读取
+     */
+    private static final class BufferChars implements CharSequence {
+
+        private Buffer buffer;
+
+        @Override
+        public int length() {
+            return buffer.length();
+        }
+
+        @Override
+        public char charAt(int index) {
+            return (char) (buffer.getByte(index) & 0xff);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return buffer.getString(start, end);
+        }
+
+        @Override
+        public String toString() {
+            return buffer.toString();
+        }
+    }
+}
@@ -0,0 +1,345 @@
+package com.ll.news.trades;
+
+import cn.hutool.core.util.StrUtil;
+import com.ll.news.bot.delivery.OutboundMessage;
+import io.vertx.core.Vertx;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.Getter;
+import lombok.ToString;
+import org.apache.commons.lang3.tuple.Pair;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+/**
+ * aggTrade处理流水线
+ * 按币对分片解析, 补齐缺口, 写入滑动窗口, 产生单笔和累计告警。
+ * 不依赖Spring和Telegram, 告警交给AlertSink, 时钟可替换, 回放录制的成交时直接使用
+ */
+public class AggTradePipeline implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(AggTradePipeline.class);
+
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss").withZone(ZoneOffset.ofHours(8));
+
+    public interface AlertSink {
+
+        /**
+         * 单笔告警在分片中回调, 累计告警在调用checkDuration的线程回调, 不能阻塞
+         */
+        void alert(Alert alert);
+    }
+
+    @Getter
+    @ToString
+    @AllArgsConstructor
+    public static class Alert {
+
+        private final String text;
+
+        private final OutboundMessage.Priority priority;
+
+        /**
+         * 触发单笔告警的消息收到时的System.nanoTime(), 累计告警和补齐的成交为0
+         */
+        private final long receivedNanos;
+    }
+
+    private final BinanceAggProperties properties;
+
+    private final LongSupplier clock;
+
+    private final AlertSink sink;
+
+    /**
+     * 按币对分片处理成交, 同一币对在同一分片内按顺序处理
+     */
+    private final TradeShards shards;
+
+    /**
+     * 按分片下标使用, 只在对应分片中访问
+     */
+    private final AggTradeParser[] parsers;
+    private final AggTrade[] trades;
+    private final long[] receivedNanos;
+
+    /**
+     * 单笔告警的数量阈值, 币种 -> 数量, 可重新加载
+     */
+    private volatile Map<String, Long> amtLimits = Map.of();
+
+    // spot-symbol, amt
+    private final Map<String, Stat> statMap = new ConcurrentHashMap<>();
+
+    /**
+     * 类型 -> 币对 -> Stat, 查找时不用拼接key
+     */
+    private final Map<String, Map<String, Stat>> statIndex = new ConcurrentHashMap<>();
+
+    /**
+     * @param properties 读取limit、seconds、count和分片配置, count可以运行中修改
+     * @param clock      当前时间（毫秒）, 用于滑动窗口和告警时间
+     */
+    public AggTradePipeline(BinanceAggProperties properties, Vertx vertx, LongSupplier clock, AlertSink sink) {
+        this.properties = properties;
+        this.clock = clock;
+        this.sink = sink;
+        if (properties.getAmt() != null) {
+            amtLimits = Map.copyOf(properties.getAmt());
+        }
+        int count = Optional.ofNullable(properties.getShards()).orElse(Runtime.getRuntime().availableProcessors());
+        shards = new TradeShards(vertx, count, properties.getShardQueue());
+        parsers = new AggTradeParser[count];
+        trades = new AggTrade[count];
+        receivedNanos = new long[count];
+        for (int i = 0; i < count; i++) {
+            parsers[i] = new AggTradeParser();
+            trades[i] = new AggTrade();
+        }
+    }
+
+    public void setAmtLimits(Map<String, Long> amtLimits) {
+        this.amtLimits = Map.copyOf(amtLimits);
+    }
+
+    public Map<String, Long> getAmtLimits() {
+        return amtLimits;
+    }
+
+    /**
+     * 在收到消息的线程调用, 按币对提交到分片
+     *
+     * @param type 类型, 用于告警, 如现货
+     * @return 分片已满时返回false, 消息被丢弃
+     */
+    public boolean dispatch(String type, TradeGapRecovery recovery, String text) {
+        long received = System.nanoTime();
+        int shard = shards.shardOf(AggTradeParser.streamHash(text));
+        return shards.execute(shard, () -> handleMsg(shard, type, recovery, text, received));
+    }
+
+    /**
+     * 检查所有币对窗口内的大单笔数, 达到count的方向产生累计告警
+     */
+    public void checkDuration() {
+        long now = clock.getAsLong();
+        int count = properties.getCount();
+        for (Stat stat : statMap.values()) {
+            Pair<String, String> durationCheck = stat.durationCheck(count, now);
+            if (durationCheck != null) {
+                if (Objects.nonNull(durationCheck.getLeft())) {
+                    sink.alert(new Alert(durationCheck.getLeft(), OutboundMessage.Priority.NORMAL, 0));
+                }
+                if (Objects.nonNull(durationCheck.getRight())) {
+                    sink.alert(new Alert(durationCheck.getRight(), OutboundMessage.Priority.NORMAL, 0));
+                }
+            }
+        }
+    }
+
+    public TradeShards.Stats shardStats() {
+        return shards.stats();
+    }
+
+    /**
+     * 关闭后不再接收消息, 已排队的继续处理
+     */
+    @Override
+    public void close() {
+        shards.close();
+    }
+
+    private Stat stat(int shard, String type, String symbol) {
+        Map<String, Stat> stats = statIndex.computeIfAbsent(type, k -> new ConcurrentHashMap<>());
+        Stat stat = stats.get(symbol);
+        if (stat == null) {
+            stat = statMap.computeIfAbsent(type + "_" + symbol, k -> {
+                Stat s = new Stat(symbol, symbol.replace("USDT", ""), type,
+                        new TradeWindow(properties.getLimit() * 1_000_000, TimeUnit.SECONDS.toMillis(properties.getSeconds())));
+                s.setShard(shard);
+                s.setSink(t -> apply(s, t));
+                s.setResume(task -> shards.control(shard, task));
+                return s;
+            });
+            stats.put(symbol, stat);
+        }
+        return stat;
+    }
+
+    private void handleMsg(int shard, String type, TradeGapRecovery recovery, String text, long received) {
+        AggTrade trade = trades[shard];
+        if (!parsers[shard].parse(text, trade)) {
+            return;
+        }
+        receivedNanos[shard] = received;
+        Stat stat = stat(shard, type, trade.getSymbol());
+        recovery.accept(stat.getSequence(), trade, stat.getSink(), stat.getResume());
+    }
+
+    /**
+     * 按id顺序写入一笔成交, 包括补齐的成交, 补齐的是几分钟前的历史成交, 只计入窗口不发单笔告警
+     */
+    private void apply(Stat stat, AggTrade trade) {
+        String symbol = stat.getSymbol();
+        String type = stat.getType();
+        Long amtLimit = amtLimits.get(stat.getCurrency());
+        long now = clock.getAsLong();
+
+        boolean needNotifySingle = stat.update(trade, amtLimit, now) && !trade.isBackfilled();
+
+        if (needNotifySingle) {
+            log.info("trade notify {} {}", type, trade);
+
+            String timeStr = TIME_FORMAT.format(Instant.ofEpochMilli(now));
+
+            String amt = stat.getAmtStr();
+            String volStr = stat.getVolStr();
+            String priceStr = stat.getPriceStr();
+            String side = stat.getSide();
+
+            String binance = StrUtil.format(
+                    "#单笔触发通知 \n" +
+                            "*交易所*: {} \n" +
+                            "*类型*: {} \n" +
+                            "*时间*: {} \n" +
+                            "*币对*: {} \n" +
+                            "*方向*: {} \n" +
+                            "*成交量*: {} \n" +
+                            "*成交价*: {} \n" +
+                            "*成交额*: {}M \n" +
+                            "{}",
+                    "Binance", type, timeStr, symbol, side, volStr, priceStr, amt, "#单笔" + " #" + symbol + " #" + side + " #" + type);
+
+            // 复用的解析结果是刚收到的消息, 缓存或补齐的成交是复制的实例
+            int shard = stat.getShard();
+            long received = trade == trades[shard] ? receivedNanos[shard] : 0;
+            sink.alert(new Alert(binance, OutboundMessage.Priority.HIGH, received));
+        }
+    }
+
+    @Data
+    static class Stat {
+
+        public Stat(String symbol, String currency, String type, TradeWindow window) {
+            this.symbol = symbol;
+            this.currency = currency;
+            this.type = type;
+            this.window = window;
+        }
+
+        private String symbol;
+        private String currency;
+        private String type;
+
+        /**
+         * 由所在分片写入, 定时检查只读
+         */
+        private final TradeWindow window;
+
+        /**
+         * 成交id的连续性, 只在所在分片中访问
+         */
+        private final TradeGapRecovery.Sequence sequence = new TradeGapRecovery.Sequence();
+
+        /**
+         * 所在分片, 按顺序写入成交, 和回到所在分片, 创建时绑定, 避免每笔成交生成lambda
+         */
+        private int shard;
+        private Consumer<AggTrade> sink;
+        private Consumer<Runnable> resume;
+
+        private double amt;
+        private double lastPrice;
+        private double lastQty;
+        private boolean lastSell;
+
+        public String getAmtStr() {
+            double v = amt / 1_000_000;
+            return new BigDecimal(v).setScale(2, RoundingMode.HALF_UP).stripTrailingZeros().toPlainString();
+        }
+
+        public String getVolStr() {
+            return Double.toString(lastQty);
+        }
+
+        public String getPriceStr() {
+            return Double.toString(lastPrice);
+        }
+
+        public String getSide() {
+            return lastSell ? "主动卖出" : "主动买入";
+        }
+
+
+        public Pair<String, String> durationCheck(int count, long now) {
+            TradeWindow.Stats stats = window.stats(0, now);
+            if (stats.getBuy().getCount() == 0 && stats.getSell().getCount() == 0) {
+                return null;
+            }
+
+            String timeStr = TIME_FORMAT.format(Instant.ofEpochMilli(now));
+
+            // 2、监控1分钟内大于1M美金的吃单数量，单一方向大于5条的时候报警提示。
+            //必要的告警参数：币种，一分钟内大于1M的单子数量，方向，总金额。
+
+            String sellStr = getString(symbol, type, count, stats.getSell(), timeStr, "主动卖出");
+            String buyStr = getString(symbol, type, count, stats.getBuy(), timeStr, "主动买入");
+
+            return Pair.of(sellStr, buyStr);
+        }
+
+        private static @Nullable String getString(String symbol, String type, int count, TradeWindow.Side side, String timeStr, String sideStr) {
+            double sellAmt = side.getLargeAmount();
+            double sellQty = side.getLargeQty();
+            int sellCount = side.getLargeCount();
+
+            String sellStr = null;
+            if (sellCount >= count) {
+                sellStr = StrUtil.format(
+                        "#累计1分钟触发通知 \n" +
+                                "*交易所*: {} \n" +
+                                "*类型*: {} \n" +
+                                "*时间*: {} \n" +
+                                "*币对*: {} \n" +
+                                "*方向*: {} \n" +
+                                "*次数*: {} \n" +
+                                "*总成交量*: {} \n" +
+                                "*总成交额*: {}M \n" +
+                                "{}",
+                        "Binance", type, timeStr, symbol, sideStr, sellCount, new BigDecimal(sellAmt).setScale(2, RoundingMode.HALF_UP).stripTrailingZeros().toPlainString(),
+                        new BigDecimal(sellQty).setScale(2, RoundingMode.HALF_UP).stripTrailingZeros().toPlainString(), "#累计 " + " #" + symbol + " #" + sideStr + " #" + type);
+            }
+            return sellStr;
+        }
+
+
+        /**
+         * @param trade    复用的解析结果, 不保留引用
+         * @param amtLimit 单笔告警的数量阈值, 为空时不告警
+         * @param now      当前时间
+         */
+        public boolean update(AggTrade trade, Long amtLimit, long now) {
+            window.add(trade, now);
+
+            lastPrice = trade.getPrice();
+            lastQty = trade.getQty();
+            lastSell = trade.isMaker();
+            this.amt = trade.amount();
+            return amtLimit != null && lastQty >= amtLimit;
+        }
+    }
+}
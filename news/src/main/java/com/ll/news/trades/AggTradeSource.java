@@ -0,0 +1,19 @@
+package com.ll.news.trades;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * 归集成交的历史数据来源, 用于补齐断线期间缺失的成交
+ */
+public interface AggTradeSource {
+
+    /**
+     * @param symbol 币对, 大写
+     * @param fromId 起始的归集成交id, 包含
+     * @param limit  最多返回的数量
+     * @return 按id升序, 没有更多时为空
+     */
+    List<AggTrade> fetch(String symbol, long fromId, int limit) throws IOException;
+
+}
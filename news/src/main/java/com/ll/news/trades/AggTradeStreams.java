@@ -0,0 +1,359 @@
+package com.ll.news.trades;
+
+import com.alibaba.fastjson2.JSONObject;
+import com.ll.news.common.wss.WssConnectOption;
+import com.ll.news.common.wss.WssConnector;
+import com.ll.news.common.wss.WssContext;
+import com.ll.news.common.wss.WssMetrics;
+import com.ll.news.common.wss.quote.KeepAliveBaseWssHandler;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.WebSocket;
+import io.vertx.core.http.WebSocketClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * 一个市场的aggTrade订阅管理
+ * 币对分散到多个组合流连接上, 每个连接不超过流数量上限; 运行中增删币对通过SUBSCRIBE/UNSUBSCRIBE完成, 不重连。
+ * 订阅变更先记在连接上, 定时合并成一条消息发送, 和ping/pong一起控制在币安每个连接每秒5条的消息限制内;
+ * 重连时按连接当前的币对重新拼接uri, 未发送的变更一并生效。
+ * 空出来的连接保留, 后续新增的币对优先放入
+ */
+public class AggTradeStreams {
+
+    private static final Logger log = LoggerFactory.getLogger(AggTradeStreams.class);
+
+    private static final String STREAM_SUFFIX = "@aggTrade";
+
+    /**
+     * 订阅变更的发送间隔, 每次最多SUBSCRIBE、UNSUBSCRIBE各一条
+     */
+    private static final long FLUSH_INTERVAL = 500L;
+
+    /**
+     * 单条订阅消息最多的流数量
+     */
+    private static final int MAX_PARAMS = 200;
+
+    /**
+     * 每个连接每秒的消息上限
+     */
+    private static final int MAX_MESSAGES = 5;
+
+    /**
+     * 每秒保留给ping/pong的消息数
+     */
+    private static final int CONTROL_RESERVE = 2;
+
+    private final String name;
+
+    private final String host;
+
+    private final int port;
+
+    private final int maxStreams;
+
+    private final WebSocketClient webSocketClient;
+
+    private final Vertx vertx;
+
+    /**
+     * 收到的成交消息, 直接在连接的event loop上回调, 不能阻塞
+     */
+    private final Consumer<String> onTrade;
+
+    private final AtomicLong ids = new AtomicLong();
+
+    private final List<Connection> connections = new ArrayList<>();
+
+    /**
+     * 币对(大写) -> 所在连接
+     */
+    private final Map<String, Connection> assigned = new HashMap<>();
+
+    private final long flushTimer;
+
+    private boolean closed;
+
+    /**
+     * @param name       名称, 用于日志
+     * @param host       组合流的域名
+     * @param port       端口
+     * @param maxStreams 每个连接的流数量上限
+     * @param onTrade    成交消息回调
+     */
+    public AggTradeStreams(String name, String host, int port, int maxStreams, WebSocketClient webSocketClient, Vertx vertx, Consumer<String> onTrade) {
+        if (maxStreams < 1) {
+            throw new IllegalArgumentException("maxStreams must be positive");
+        }
+        this.name = name;
+        this.host = host;
+        this.port = port;
+        this.maxStreams = maxStreams;
+        this.webSocketClient = webSocketClient;
+        this.vertx = vertx;
+        this.onTrade = onTrade;
+        this.flushTimer = vertx.setPeriodic(FLUSH_INTERVAL, id -> flush());
+    }
+
+    /**
+     * 把订阅调整为给定的币对, 多的退订, 少的订阅
+     */
+    public synchronized void update(Collection<String> symbols) {
+        Set<String> target = new LinkedHashSet<>();
+        for (String symbol : symbols) {
+            target.add(symbol.trim().toUpperCase(Locale.ROOT));
+        }
+        List<String> removed = new ArrayList<>();
+        for (String symbol : assigned.keySet()) {
+            if (!target.contains(symbol)) {
+                removed.add(symbol);
+            }
+        }
+        unsubscribe(removed);
+        subscribe(target);
+    }
+
+    public synchronized void subscribe(Collection<String> symbols) {
+        if (closed) {
+            log.warn("{} closed, ignore subscribe", name);
+            return;
+        }
+        int added = 0;
+        for (String symbol : symbols) {
+            String s = symbol.trim().toUpperCase(Locale.ROOT);
+            if (s.isEmpty() || assigned.containsKey(s)) {
+                continue;
+            }
+            Connection connection = available();
+            connection.add(stream(s));
+            assigned.put(s, connection);
+            added++;
+        }
+        if (added > 0) {
+            log.info("{} subscribe {} symbols, {} symbols on {} connections", name, added, assigned.size(), connections.size());
+        }
+    }
+
+    public synchronized void unsubscribe(Collection<String> symbols) {
+        int removed = 0;
+        for (String symbol : symbols) {
+            String s = symbol.trim().toUpperCase(Locale.ROOT);
+            Connection connection = assigned.remove(s);
+            if (connection != null) {
+                connection.remove(stream(s));
+                removed++;
+            }
+        }
+        if (removed > 0) {
+            log.info("{} unsubscribe {} symbols, {} symbols on {} connections", name, removed, assigned.size(), connections.size());
+        }
+    }
+
+    public synchronized Set<String> symbols() {
+        return new TreeSet<>(assigned.keySet());
+    }
+
+    /**
+     * @return 每个连接上的流数量
+     */
+    public synchronized int[] loads() {
+        int[] loads = new int[connections.size()];
+        for (int i = 0; i < loads.length; i++) {
+            loads[i] = connections.get(i).size();
+        }
+        return loads;
+    }
+
+    /**
+     * @return 每个连接的收发和重连统计
+     */
+    public List<WssMetrics.Stats> stats() {
+        List<Connection> current;
+        synchronized (this) {
+            current = new ArrayList<>(connections);
+        }
+        List<WssMetrics.Stats> stats = new ArrayList<>(current.size());
+        for (Connection connection : current) {
+            stats.add(connection.connector.stats());
+        }
+        return stats;
+    }
+
+    /**
+     * 停止发送订阅变更并断开所有连接, 之后的订阅被忽略
+     */
+    public void close() {
+        List<Connection> current;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            current = new ArrayList<>(connections);
+        }
+        vertx.cancelTimer(flushTimer);
+        for (Connection connection : current) {
+            connection.connector.destroyClient();
+        }
+        log.info("{} closed {} connections", name, current.size());
+    }
+
+    /**
+     * 流数量最少且未满的连接, 都满了新建连接
+     */
+    private Connection available() {
+        Connection best = null;
+        for (Connection connection : connections) {
+            if (connection.size() < maxStreams && (best == null || connection.size() < best.size())) {
+                best = connection;
+            }
+        }
+        if (best == null) {
+            best = new Connection(connections.size());
+            connections.add(best);
+        }
+        return best;
+    }
+
+    private void flush() {
+        List<Connection> current;
+        synchronized (this) {
+            current = new ArrayList<>(connections);
+        }
+        for (Connection connection : current) {
+            connection.flush();
+        }
+    }
+
+    private static String stream(String symbol) {
+        return symbol.toLowerCase(Locale.ROOT) + STREAM_SUFFIX;
+    }
+
+    /**
+     * 一个组合流连接
+     */
+    private class Connection extends KeepAliveBaseWssHandler {
+
+        private final int index;
+
+        private final WssConnector connector;
+
+        private final Set<String> streams = new LinkedHashSet<>();
+
+        /**
+         * 已记录但还没发送的变更
+         */
+        private final Set<String> pendingSubscribe = new LinkedHashSet<>();
+
+        private final Set<String> pendingUnsubscribe = new LinkedHashSet<>();
+
+        /**
+         * 订阅消息和控制帧共用的额度
+         */
+        private final MessageLimiter limiter = new MessageLimiter(MAX_MESSAGES, CONTROL_RESERVE);
+
+        private Connection(int index) {
+            this.index = index;
+            WssConnectOption option = new WssConnectOption();
+            option.setPort(port);
+            option.setHost(host);
+            option.setUri("/stream");
+            option.setOrigUri("/stream");
+            option.setSsl(true);
+            this.connector = new WssConnector(webSocketClient, new WssContext(option, vertx), this);
+            connector.reconnect();
+        }
+
+        synchronized int size() {
+            return streams.size();
+        }
+
+        synchronized void add(String stream) {
+            streams.add(stream);
+            if (!pendingUnsubscribe.remove(stream)) {
+                pendingSubscribe.add(stream);
+            }
+        }
+
+        synchronized void remove(String stream) {
+            streams.remove(stream);
+            if (!pendingSubscribe.remove(stream)) {
+                pendingUnsubscribe.add(stream);
+            }
+        }
+
+        /**
+         * 重连时用当前的流拼接uri, 待发送的变更随之作废
+         */
+        @Override
+        public synchronized void beforeConnect() {
+            pendingSubscribe.clear();
+            pendingUnsubscribe.clear();
+            String uri = streams.isEmpty() ? "/stream" : "/stream?streams=" + String.join("/", streams);
+            wssContext().getOption().setUri(uri);
+        }
+
+        @Override
+        public void onTextMsg(WebSocket webSocket, String text) {
+            if (AggTradeParser.isStreamMessage(text)) {
+                onTrade.accept(text);
+                return;
+            }
+            // 订阅请求的响应, 成功时result为null
+            JSONObject response = JSONObject.parseObject(text);
+            if (response.containsKey("error")) {
+                log.warn("{}#{} subscription error {}", name, index, text);
+            }
+        }
+
+        @Override
+        protected void onControlFrameSent() {
+            limiter.record();
+        }
+
+        void flush() {
+            if (!connector.connectedStatus()) {
+                return;
+            }
+            List<String> unsubscribe = take(pendingUnsubscribe);
+            List<String> subscribe = take(pendingSubscribe);
+            WebSocket webSocket = connector.getWebSocket();
+            send(webSocket, "UNSUBSCRIBE", unsubscribe);
+            send(webSocket, "SUBSCRIBE", subscribe);
+        }
+
+        /**
+         * 有待发送的变更且额度足够时取出一批, 否则留到下次
+         */
+        private synchronized List<String> take(Set<String> pending) {
+            if (pending.isEmpty() || !limiter.tryAcquire()) {
+                return List.of();
+            }
+            List<String> batch = new ArrayList<>(Math.min(pending.size(), MAX_PARAMS));
+            for (Iterator<String> it = pending.iterator(); it.hasNext() && batch.size() < MAX_PARAMS; ) {
+                batch.add(it.next());
+                it.remove();
+            }
+            return batch;
+        }
+
+        private void send(WebSocket webSocket, String method, List<String> params) {
+            if (params.isEmpty()) {
+                return;
+            }
+            JSONObject request = new JSONObject();
+            request.put("method", method);
+            request.put("params", params);
+            request.put("id", ids.incrementAndGet());
+            webSocket.writeTextMessage(request.toJSONString()).onFailure(e -> {
+                // 连接断开, 重连时按当前的流重新订阅
+                log.warn("{}#{} {} {} streams failed, {}", name, index, method, params.size(), e.getMessage());
+            });
+        }
+    }
+}
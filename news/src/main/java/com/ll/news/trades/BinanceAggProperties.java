@@ -4,6 +4,7 @@ import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
 
+import java.util.List;
 import java.util.Map;
 
 @ConfigurationProperties(value = "binance.agg-trades")
@@ -28,5 +29,100 @@ public class BinanceAggProperties {
 
     private Map<String, Long> amt;
 
+    /**
+     * 现货监控的币对
+     */
+    private List<String> spotSymbols = List.of("BTCUSDT", "ETHUSDT");
+
+    /**
+     * U本位合约监控的币对
+     */
+    private List<String> umSymbols = List.of("BTCUSDT", "ETHUSDT");
+
+    /**
+     * 每个连接的流数量上限, 币安现货1024, 合约200
+     */
+    private Integer streamsPerConnection = 200;
+
+    /**
+     * 外部配置文件, 结构同本配置, 修改后定时重新加载币对和阈值, 不需要重启
+     */
+    private String reloadFile;
+
+    /**
+     * 检查外部配置文件的间隔（秒）
+     */
+    private Long reloadSeconds = 30L;
+
+    /**
+     * 成交处理分片数量, 默认为CPU核数
+     */
+    private Integer shards;
+
+    /**
+     * 每个分片的排队上限
+     */
+    private Integer shardQueue = 10_000;
+
+    /**
+     * 现货补齐缺失成交的REST接口
+     */
+    private String spotRestUrl = "https://api.binance.com/api/v3/aggTrades";
+
+    /**
+     * U本位合约补齐缺失成交的REST接口
+     */
+    private String umRestUrl = "https://fapi.binance.com/fapi/v1/aggTrades";
+
+    /**
+     * 单个缺口最多补齐的成交数, 超过时放弃
+     */
+    private Integer backfillLimit = 5_000;
+
+    /**
+     * 补齐期间每个币对最多缓存的成交数
+     */
+    private Integer backfillBuffer = 20_000;
+
+    /**
+     * 同时进行的补齐请求数
+     */
+    private Integer backfillConcurrency = 2;
+
+    /**
+     * 等待执行的补齐数上限, 超过时放弃补齐
+     */
+    private Integer backfillQueue = 16;
+
+    /**
+     * 现货补齐每分钟可用的请求权重, 币安现货按IP每分钟6000
+     */
+    private Integer spotBackfillWeight = 1_200;
+
+    /**
+     * U本位补齐每分钟可用的请求权重, 币安U本位按IP每分钟2400
+     */
+    private Integer umBackfillWeight = 480;
+
+    /**
+     * 现货/api/v3/aggTrades单次请求的权重
+     */
+    private Integer spotRequestWeight = 2;
+
+    /**
+     * U本位/fapi/v1/aggTrades单次请求的权重
+     */
+    private Integer umRequestWeight = 20;
+
+    /**
+     * 录制原始消息的目录, 为空不录制, 录制的文件可以离线回放
+     */
+    private String tapeDir;
+
+    /**
+     * 单个录制文件的大小（MB）
+     */
+    private Integer tapeSegmentMb = 256;
+
 
 }
@@ -1,45 +1,49 @@
 package com.ll.news.trades;
 
 import cn.hutool.core.util.StrUtil;
-import com.alibaba.fastjson2.JSONObject;
-import com.ll.news.common.wss.WssConnectOption;
-import com.ll.news.common.wss.WssConnector;
-import com.ll.news.common.wss.WssContext;
-import com.ll.news.common.wss.quote.KeepAliveBaseWssHandler;
+import com.ll.news.bot.delivery.OutboundMessage;
+import com.ll.news.bot.delivery.OutboxStore;
+import com.ll.news.bot.delivery.TelegramDelivery;
+import com.ll.news.common.executor.BulkheadExecutor;
+import com.ll.news.common.wss.WssMetrics;
 import com.pengrad.telegrambot.TelegramBot;
 import com.pengrad.telegrambot.model.LinkPreviewOptions;
 import com.pengrad.telegrambot.model.request.ParseMode;
 import com.pengrad.telegrambot.request.SendMessage;
-import com.pengrad.telegrambot.response.SendResponse;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
 import io.vertx.core.Vertx;
-import io.vertx.core.http.WebSocket;
 import io.vertx.core.http.WebSocketClient;
 import jakarta.annotation.PostConstruct;
-import lombok.Data;
+import jakarta.annotation.PreDestroy;
 import lombok.val;
 import okhttp3.OkHttpClient;
-import org.apache.commons.lang3.tuple.Pair;
-import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.ApplicationArguments;
 import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.source.ConfigurationPropertySources;
+import org.springframework.boot.env.YamlPropertySourceLoader;
+import org.springframework.core.env.PropertySource;
+import org.springframework.core.io.FileSystemResource;
 import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
 import org.springframework.stereotype.Component;
 
-import java.math.BigDecimal;
-import java.math.RoundingMode;
-import java.text.SimpleDateFormat;
-import java.time.ZoneOffset;
+import java.io.File;
+import java.nio.file.Path;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
 
 @Component
-public class BinanceAggTradesCheck implements ApplicationRunner {
+public class BinanceAggTradesCheck implements ApplicationRunner, MeterBinder {
 
     private static final Logger log = LoggerFactory.getLogger(BinanceAggTradesCheck.class);
 
@@ -54,272 +58,245 @@ public class BinanceAggTradesCheck implements ApplicationRunner {
 
     TelegramBot bot;
 
+    @Autowired
+    OutboxStore outboxStore;
+
+    /**
+     * 大额成交机器人的发送引擎, 单笔提醒走优先通道
+     */
+    TelegramDelivery delivery;
+
     @Autowired
     private WebSocketClient webSocketClient;
     @Autowired
     private Vertx vertx;
 
-    ExecutorService threadExecutor = Executors.newSingleThreadExecutor();
+    /**
+     * 解析、统计和告警
+     */
+    AggTradePipeline pipeline;
 
-    @PostConstruct
-    public void init() {
-        bot = new TelegramBot(aggProperties.getTg().get("token"));
+    private long lastRejected;
 
-    }
+    AggTradeStreams spotStreams;
+    AggTradeStreams umStreams;
 
-    @Data
-    static class Stat {
+    /**
+     * 重连后补齐缺失的成交
+     */
+    TradeGapRecovery spotRecovery;
+    TradeGapRecovery umRecovery;
 
-        public Stat(String symbol, String currency, String type) {
-            this.symbol = symbol;
-            this.currency = currency;
-            this.type = type;
-        }
+    /**
+     * 补齐的REST请求
+     */
+    BulkheadExecutor backfill;
 
-        private String symbol;
-        private String currency;
-        private String type;
+    private long lastGaps;
 
-        private Double amt = 0.0;
-        private JSONObject last;
-        private List<JSONObject> eventList = new ArrayList<>();
+    /**
+     * 录制收到的原始消息, 未配置tape-dir时为null
+     */
+    TradeTapeWriter spotTape;
+    TradeTapeWriter umTape;
 
-        public String getAmtStr() {
-            double v = amt / 1_000_000;
-            return new BigDecimal(v).setScale(2, RoundingMode.HALF_UP).stripTrailingZeros().toPlainString();
-        }
+    private volatile long reloadModified;
 
-        public String getVolStr() {
-            Double qty = last.getDouble("q");
-            return qty.toString();
-        }
+    @PostConstruct
+    public void init() {
+        bot = new TelegramBot(aggProperties.getTg().get("token"));
+        delivery = new TelegramDelivery("agg", bot, outboxStore, 25, 1, 0.33);
+
+        pipeline = new AggTradePipeline(aggProperties, vertx, System::currentTimeMillis,
+                alert -> offload(() -> sendMsgAsync(alert.getText(), alert.getPriority())));
+
+        // REST请求在独立的小执行器上执行, 不占用分片和vertx的worker线程, 满了放弃补齐
+        backfill = new BulkheadExecutor("trade-backfill", aggProperties.getBackfillConcurrency(), aggProperties.getBackfillQueue(), 0, true);
+        spotRecovery = new TradeGapRecovery("spot", new BinanceRestAggTrades(okHttpClient, aggProperties.getSpotRestUrl()), backfill,
+                aggProperties.getBackfillLimit(), aggProperties.getBackfillBuffer(),
+                new WeightLimiter(aggProperties.getSpotBackfillWeight()), aggProperties.getSpotRequestWeight());
+        umRecovery = new TradeGapRecovery("um", new BinanceRestAggTrades(okHttpClient, aggProperties.getUmRestUrl()), backfill,
+                aggProperties.getBackfillLimit(), aggProperties.getBackfillBuffer(),
+                new WeightLimiter(aggProperties.getUmBackfillWeight()), aggProperties.getUmRequestWeight());
+    }
 
-        public String getPriceStr() {
-            Double price = last.getDouble("p");
-            return price.toString();
+    @PreDestroy
+    public void destroy() {
+        if (spotStreams != null) {
+            spotStreams.close();
         }
-
-        public String getSide() {
-            boolean sell = last.getBoolean("m");
-            return sell ? "主动卖出" : "主动买入";
+        if (umStreams != null) {
+            umStreams.close();
         }
-
-
-        public Pair<String, String> durationCheck(Double limit, int count) {
-            if (eventList.isEmpty()) {
-                return null;
-            }
-            List<JSONObject> sellSideList = new ArrayList<>();
-            List<JSONObject> buySideList = new ArrayList<>();
-            for (JSONObject jsonObject : eventList) {
-                Boolean m = jsonObject.getBoolean("m");
-                if (m) {
-                    sellSideList.add(jsonObject);
-                } else {
-                    buySideList.add(jsonObject);
-                }
-            }
-
-            SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-            format.setTimeZone(TimeZone.getTimeZone(ZoneOffset.ofHours(8)));
-            String timeStr = format.format(new Date());
-
-            // 2、监控1分钟内大于1M美金的吃单数量，单一方向大于5条的时候报警提示。
-            //必要的告警参数：币种，一分钟内大于1M的单子数量，方向，总金额。
-
-            String sellStr = getString(symbol, type, limit, count, sellSideList, timeStr, "主动卖出");
-            String buyStr = getString(symbol, type, limit, count, buySideList, timeStr, "主动买入");
-
-            return Pair.of(sellStr, buyStr);
+        pipeline.close();
+        backfill.close();
+        delivery.close();
+        if (spotTape != null) {
+            spotTape.close();
+        }
+        if (umTape != null) {
+            umTape.close();
         }
+    }
 
-        private static @Nullable String getString(String symbol, String type, Double limit, int count, List<JSONObject> sellSideList, String timeStr, String sideStr) {
-            double sellAmt = 0.0;
-            double sellQty = 0.0;
-            int sellCount = 0;
-            for (JSONObject jsonObject : sellSideList) {
-                Double price = jsonObject.getDouble("p");
-                Double qty = jsonObject.getDouble("q");
-                double sumAmt = price * qty;
-                if (sumAmt > limit * 1_000_000) {
-                    sellAmt += sumAmt;
-                    sellCount++;
-                    sellQty += qty;
-                }
-            }
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
 
-            String sellStr = null;
-            if (sellCount >= count) {
-                sellStr = StrUtil.format(
-                        "#累计1分钟触发通知 \n" +
-                                "*交易所*: {} \n" +
-                                "*类型*: {} \n" +
-                                "*时间*: {} \n" +
-                                "*币对*: {} \n" +
-                                "*方向*: {} \n" +
-                                "*次数*: {} \n" +
-                                "*总成交量*: {} \n" +
-                                "*总成交额*: {}M \n" +
-                                "{}",
-                        "Binance", type, timeStr, symbol, sideStr, sellCount, new BigDecimal(sellAmt).setScale(2, RoundingMode.HALF_UP).stripTrailingZeros().toPlainString(),
-                        new BigDecimal(sellQty).setScale(2, RoundingMode.HALF_UP).stripTrailingZeros().toPlainString(), "#累计 " + " #" + symbol + " #" + sideStr + " #" + type);
-            }
-            return sellStr;
+        if (StrUtil.isNotBlank(aggProperties.getTapeDir())) {
+            Path dir = Path.of(aggProperties.getTapeDir());
+            int segmentBytes = aggProperties.getTapeSegmentMb() << 20;
+            spotTape = new TradeTapeWriter(dir, "spot", segmentBytes);
+            umTape = new TradeTapeWriter(dir, "um", segmentBytes);
         }
 
+        int maxStreams = aggProperties.getStreamsPerConnection();
+        spotStreams = new AggTradeStreams("spot", "stream.binance.com", 443, maxStreams, webSocketClient, vertx, text -> dispatch("现货", spotRecovery, spotTape, text));
+        umStreams = new AggTradeStreams("um", "fstream.binance.com", 443, maxStreams, webSocketClient, vertx, text -> dispatch("U本位", umRecovery, umTape, text));
+        spotStreams.update(aggProperties.getSpotSymbols());
+        umStreams.update(aggProperties.getUmSymbols());
 
-        public boolean update(JSONObject jsonObject, Long seconds, Long amtLimit) {
-            Boolean m = jsonObject.getBoolean("m");
-//            if (!m) {
-//                return false;
-//            }
+        if (StrUtil.isNotBlank(aggProperties.getReloadFile())) {
+            offload(this::reload);
+            vertx.setPeriodic(TimeUnit.SECONDS.toMillis(aggProperties.getReloadSeconds()), t -> offload(this::reload));
+        }
 
-            last = jsonObject;
+        vertx.setPeriodic(TimeUnit.SECONDS.toMillis(30), t -> {
+            TradeShards.Stats shardStats = pipeline.shardStats();
+            if (shardStats.getRejected() > lastRejected) {
+                log.warn("trade shards full, dropped {} trades, {}", shardStats.getRejected() - lastRejected, shardStats);
+                lastRejected = shardStats.getRejected();
+            }
+            checkStreams();
+            pipeline.checkDuration();
+        });
 
-            Double price = jsonObject.getDouble("p");
-            Double qty = jsonObject.getDouble("q");
-            double sumAmt = qty;
 
-            long millis = System.currentTimeMillis();
-            for (Iterator<JSONObject> iterator = eventList.iterator(); iterator.hasNext(); ) {
-                JSONObject object = iterator.next();
-                Long time = object.getLong("E");
-                if (millis - time > seconds * 1000) {
-                    iterator.remove();
-                }
-            }
-            eventList.add(jsonObject);
+    }
 
-            this.amt = qty * price;
-            return qty >= amtLimit;
+    /**
+     * 在分片线程和vertx定时器上提交, 执行器满了丢弃并记录, 不阻塞提交线程
+     */
+    private void offload(Runnable task) {
+        try {
+            msgExecutor.execute(task);
+        } catch (TaskRejectedException e) {
+            log.warn("msgExecutor rejected, drop task, {}", e.getMessage());
         }
     }
 
-    // spot-symbol, amt
-    private final Map<String, Stat> statMap = new ConcurrentHashMap<>();
-
-
+    /**
+     * 分片处理、连接、缺口和发送引擎的统计作为指标暴露, 连接在启动后才创建, 之前为0
+     */
     @Override
-    public void run(ApplicationArguments args) throws Exception {
-
-        listenSpot();
-
-        listenUm();
-
-        vertx.setPeriodic(TimeUnit.SECONDS.toMillis(30), t -> {
-            for (Map.Entry<String, Stat> entry : statMap.entrySet()) {
-                Stat stat = entry.getValue();
-                Pair<String, String> durationCheck = stat.durationCheck(aggProperties.getLimit(), aggProperties.getCount());
-
-                if (durationCheck != null) {
-                    String left = durationCheck.getLeft();
-                    String right = durationCheck.getRight();
-                    msgExecutor.execute(() -> {
-                        if (Objects.nonNull(left)) {
-                            sendMsgAsync(left);
-                        }
-                        if (Objects.nonNull(right)) {
-                            sendMsgAsync(right);
-                        }
-                    });
-                }
-            }
-        });
+    public void bindTo(MeterRegistry registry) {
+        delivery.bindTo(registry);
+        backfill.bindTo(registry);
+        FunctionCounter.builder("trades.processed", this, c -> c.pipeline.shardStats().getExecuted())
+                .description("分片处理的成交数").register(registry);
+        FunctionCounter.builder("trades.dropped", this, c -> c.pipeline.shardStats().getRejected())
+                .description("分片队列满丢弃的成交数").register(registry);
+        Gauge.builder("trades.pending", this, c -> Arrays.stream(c.pipeline.shardStats().getPending()).sum())
+                .description("分片中等待处理的成交数").register(registry);
+        bindStreams(registry, "spot", c -> c.spotStreams, spotRecovery);
+        bindStreams(registry, "um", c -> c.umStreams, umRecovery);
+    }
 
+    private void bindStreams(MeterRegistry registry, String type, Function<BinanceAggTradesCheck, AggTradeStreams> streams, TradeGapRecovery recovery) {
+        Tags tags = Tags.of("type", type);
+        FunctionCounter.builder("trades.ws.messages", this, c -> sum(streams.apply(c), WssMetrics.Stats::getMessages)).tags(tags).register(registry);
+        FunctionCounter.builder("trades.ws.reconnects", this, c -> sum(streams.apply(c), WssMetrics.Stats::getReconnects)).tags(tags).register(registry);
+        FunctionCounter.builder("trades.ws.connect.failures", this, c -> sum(streams.apply(c), WssMetrics.Stats::getConnectFailures)).tags(tags).register(registry);
+        Gauge.builder("trades.ws.rate", this, c -> sum(streams.apply(c), WssMetrics.Stats::getRate))
+                .description("每秒消息数").tags(tags).register(registry);
+        Gauge.builder("trades.ws.connections", this, c -> streams.apply(c) == null ? 0 : streams.apply(c).stats().size()).tags(tags).register(registry);
+        FunctionCounter.builder("trades.gaps", recovery, r -> r.stats().getGaps()).tags(tags).register(registry);
+        FunctionCounter.builder("trades.gap.trades", recovery, r -> r.stats().getMissing()).tags(tags).tag("result", "missing").register(registry);
+        FunctionCounter.builder("trades.gap.trades", recovery, r -> r.stats().getRecovered()).tags(tags).tag("result", "recovered").register(registry);
+        FunctionCounter.builder("trades.gap.trades", recovery, r -> r.stats().getLost()).tags(tags).tag("result", "lost").register(registry);
+        FunctionCounter.builder("trades.gap.trades", recovery, r -> r.stats().getDuplicates()).tags(tags).tag("result", "duplicate").register(registry);
+        FunctionCounter.builder("trades.gaps.throttled", recovery, r -> r.stats().getThrottled())
+                .description("权重额度用尽或执行器已满放弃补齐的缺口数").tags(tags).register(registry);
+    }
 
+    private static double sum(AggTradeStreams streams, ToDoubleFunction<WssMetrics.Stats> value) {
+        if (streams == null) {
+            return 0;
+        }
+        double sum = 0;
+        for (WssMetrics.Stats stats : streams.stats()) {
+            sum += value.applyAsDouble(stats);
+        }
+        return sum;
     }
 
-    private void listenSpot() {
-        WssConnectOption wssConnectOption = new WssConnectOption();
-        wssConnectOption.setPort(443);
-        wssConnectOption.setHost("stream.binance.com");
-        wssConnectOption.setUri("/stream?streams=btcusdt@aggTrade/ethusdt@aggTrade");
-        wssConnectOption.setOrigUri("/stream?streams=btcusdt@aggTrade/ethusdt@aggTrade");
-        wssConnectOption.setSsl(true);
-        new WssConnector(webSocketClient, new WssContext(wssConnectOption, vertx), new KeepAliveBaseWssHandler() {
-            @Override
-            public void onTextMsg(WebSocket webSocket, String text) {
-                JSONObject jsonObject = JSONObject.parseObject(text);
-                JSONObject data = jsonObject.getJSONObject("data");
-                if (Objects.nonNull(data)) {
-                    String symbol = data.getString("s");
-                    String currency = symbol.replace("USDT", "");
-                    String type = "现货";
-                    threadExecutor.execute(() -> handleMsg(symbol, currency, type, data));
-                }
+    /**
+     * 重新加载外部配置文件中的币对和阈值, 文件没有变化时跳过
+     */
+    private void reload() {
+        File file = new File(aggProperties.getReloadFile());
+        long modified = file.lastModified();
+        if (modified == 0 || modified == reloadModified) {
+            return;
+        }
+        reloadModified = modified;
+        try {
+            List<PropertySource<?>> sources = new YamlPropertySourceLoader().load(file.getName(), new FileSystemResource(file));
+            BinanceAggProperties fresh = new Binder(ConfigurationPropertySources.from(sources))
+                    .bind("binance.agg-trades", BinanceAggProperties.class)
+                    .orElse(null);
+            if (fresh == null) {
+                log.warn("reload {} skipped, no binance.agg-trades", file);
+                return;
+            }
+            if (fresh.getAmt() != null) {
+                pipeline.setAmtLimits(fresh.getAmt());
             }
-        }).reconnect();
+            if (fresh.getCount() != null) {
+                aggProperties.setCount(fresh.getCount());
+            }
+            spotStreams.update(fresh.getSpotSymbols());
+            umStreams.update(fresh.getUmSymbols());
+            log.info("reload {}, spot {} symbols, um {} symbols, thresholds {}", file, fresh.getSpotSymbols().size(), fresh.getUmSymbols().size(), pipeline.getAmtLimits());
+        } catch (Exception e) {
+            log.error("reload {} failed", file, e);
+        }
     }
 
-    private void listenUm() {
-        WssConnectOption wssConnectOption = new WssConnectOption();
-        wssConnectOption.setPort(443);
-        wssConnectOption.setHost("fstream.binance.com");
-        wssConnectOption.setUri("/stream?streams=btcusdt@aggTrade/ethusdt@aggTrade");
-        wssConnectOption.setOrigUri("/stream?streams=btcusdt@aggTrade/ethusdt@aggTrade");
-        wssConnectOption.setSsl(true);
-        new WssConnector(webSocketClient, new WssContext(wssConnectOption, vertx), new KeepAliveBaseWssHandler() {
-            @Override
-            public void onTextMsg(WebSocket webSocket, String text) {
-                JSONObject jsonObject = JSONObject.parseObject(text);
-                JSONObject data = jsonObject.getJSONObject("data");
-                if (Objects.nonNull(data)) {
-                    String symbol = data.getString("s");
-                    String currency = symbol.replace("USDT", "");
-                    String type = "U本位";
-                    threadExecutor.execute(() -> handleMsg(symbol, currency, type, data));
-                }
-            }
-        }).reconnect();
+    /**
+     * 缺口和重连有变化时记录
+     */
+    private void checkStreams() {
+        TradeGapRecovery.Stats spotGaps = spotRecovery.stats();
+        TradeGapRecovery.Stats umGaps = umRecovery.stats();
+        long gaps = spotGaps.getGaps() + umGaps.getGaps();
+        if (gaps > lastGaps) {
+            log.warn("trade gaps, spot {}, um {}, spot connections {}, um connections {}", spotGaps, umGaps, spotStreams.stats(), umStreams.stats());
+            lastGaps = gaps;
+        } else if (log.isDebugEnabled()) {
+            log.debug("spot connections {}, um connections {}", spotStreams.stats(), umStreams.stats());
+        }
     }
 
-    private void handleMsg(String symbol, String currency, String type, JSONObject data) {
-        String key = type + "_" + symbol;
-        Stat stat = statMap.computeIfAbsent(key, k -> new Stat(symbol, currency, type));
-        Long amtLimit = aggProperties.getAmt().get(currency);
-
-        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-        format.setTimeZone(TimeZone.getTimeZone(ZoneOffset.ofHours(8)));
-        String timeStr = format.format(new Date());
-
-        boolean needNotifySingle = stat.update(data, aggProperties.getSeconds(), amtLimit);
-
-        if (needNotifySingle) {
-            log.info("trade notify {}", data.toJSONString());
-
-            String amt = stat.getAmtStr();
-            String volStr = stat.getVolStr();
-            String priceStr = stat.getPriceStr();
-            String side = stat.getSide();
-
-            String binance = StrUtil.format(
-                    "#单笔触发通知 \n" +
-                            "*交易所*: {} \n" +
-                            "*类型*: {} \n" +
-                            "*时间*: {} \n" +
-                            "*币对*: {} \n" +
-                            "*方向*: {} \n" +
-                            "*成交量*: {} \n" +
-                            "*成交价*: {} \n" +
-                            "*成交额*: {}M \n" +
-                            "{}",
-                    "Binance", type, timeStr, symbol, side, volStr, priceStr, amt, "#单笔" + " #" + symbol + " #" + side + " #" + type);
-
-            sendMsgAsync(binance);
+    private void dispatch(String type, TradeGapRecovery recovery, TradeTapeWriter tape, String text) {
+        if (tape != null) {
+            tape.append(text);
         }
+        pipeline.dispatch(type, recovery, text);
     }
 
-    private void sendMsgAsync(String left) {
-        SendMessage request = new SendMessage(aggProperties.getTg().get("chatId"), left)
+    private void sendMsgAsync(String left, OutboundMessage.Priority priority) {
+        OutboundMessage message = OutboundMessage.builder()
+                .chatId(aggProperties.getTg().get("chatId"))
+                .text(left)
                 .parseMode(ParseMode.Markdown)
                 .disableNotification(false)
-                .linkPreviewOptions(new LinkPreviewOptions().isDisabled(true))
-//                .replyMarkup(inlineKeyboard)
-                ;
-        SendResponse execute = bot.execute(request);
-        if (!execute.isOk()) {
-            log.warn("send tg fail {}", execute.message());
-        }
+                .priority(priority)
+                .build();
+        delivery.submit(message).thenAccept(ok -> {
+            if (!ok) {
+                log.warn("send tg fail {}", left);
+            }
+        });
     }
 
     public static void main(String[] args) {
@@ -0,0 +1,68 @@
+package com.ll.news.trades;
+
+import com.alibaba.fastjson2.JSONArray;
+import com.alibaba.fastjson2.JSONObject;
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 币安REST接口的归集成交, 现货/api/v3/aggTrades, U本位/fapi/v1/aggTrades
+ * 返回里没有s和E, 币对取请求参数, 事件时间用成交时间T
+ */
+public class BinanceRestAggTrades implements AggTradeSource {
+
+    /**
+     * 单次请求的数量上限
+     */
+    public static final int MAX_LIMIT = 1000;
+
+    private final OkHttpClient okHttpClient;
+
+    private final HttpUrl url;
+
+    /**
+     * @param url 接口地址, 如https://api.binance.com/api/v3/aggTrades
+     */
+    public BinanceRestAggTrades(OkHttpClient okHttpClient, String url) {
+        this.okHttpClient = okHttpClient;
+        this.url = HttpUrl.get(url);
+    }
+
+    @Override
+    public List<AggTrade> fetch(String symbol, long fromId, int limit) throws IOException {
+        HttpUrl request = url.newBuilder()
+                .addQueryParameter("symbol", symbol)
+                .addQueryParameter("fromId", Long.toString(fromId))
+                .addQueryParameter("limit", Integer.toString(Math.min(limit, MAX_LIMIT)))
+                .build();
+        try (Response response = okHttpClient.newCall(new Request.Builder().url(request).get().build()).execute()) {
+            ResponseBody body = response.body();
+            if (!response.isSuccessful() || body == null) {
+                throw new IOException("aggTrades " + symbol + " http " + response.code());
+            }
+            JSONArray array = JSONArray.parseArray(body.string());
+            List<AggTrade> trades = new ArrayList<>(array.size());
+            for (int i = 0; i < array.size(); i++) {
+                JSONObject item = array.getJSONObject(i);
+                AggTrade trade = new AggTrade();
+                trade.setSymbol(symbol);
+                trade.setId(item.getLongValue("a"));
+                trade.setPrice(item.getDoubleValue("p"));
+                trade.setQty(item.getDoubleValue("q"));
+                trade.setFirstId(item.getLongValue("f"));
+                trade.setLastId(item.getLongValue("l"));
+                trade.setEventTime(item.getLongValue("T"));
+                trade.setMaker(item.getBooleanValue("m"));
+                trades.add(trade);
+            }
+            return trades;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.ll.news.trades;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 单个连接的消息额度
+ * 币安每个连接每秒最多收5条消息, ping/pong控制帧也计入。按最近一秒内已发送的消息计数:
+ * 控制帧总是发送并计入; 订阅消息发送后还要给控制帧留出余量, 否则留到下次发送
+ */
+public class MessageLimiter {
+
+    private static final long WINDOW = TimeUnit.SECONDS.toNanos(1);
+
+    private final int limit;
+
+    /**
+     * 订阅消息之外保留给控制帧的条数
+     */
+    private final int reserve;
+
+    /**
+     * 最近一秒内发送消息的时间
+     */
+    private final ArrayDeque<Long> sent = new ArrayDeque<>();
+
+    /**
+     * @param messagesPerSecond 每秒允许的消息数量
+     * @param reserve           保留给控制帧的条数
+     */
+    public MessageLimiter(int messagesPerSecond, int reserve) {
+        if (reserve < 0 || reserve >= messagesPerSecond) {
+            throw new IllegalArgumentException("reserve must be between 0 and messagesPerSecond");
+        }
+        this.limit = messagesPerSecond;
+        this.reserve = reserve;
+    }
+
+    public boolean tryAcquire() {
+        return tryAcquire(System.nanoTime());
+    }
+
+    public void record() {
+        record(System.nanoTime());
+    }
+
+    /**
+     * @return 发送后仍有保留余量时计入并返回true
+     */
+    synchronized boolean tryAcquire(long now) {
+        expire(now);
+        if (sent.size() + 1 + reserve > limit) {
+            return false;
+        }
+        sent.addLast(now);
+        return true;
+    }
+
+    /**
+     * 记录一条已发送的控制帧
+     */
+    synchronized void record(long now) {
+        expire(now);
+        sent.addLast(now);
+    }
+
+    private void expire(long now) {
+        while (!sent.isEmpty() && now - sent.peekFirst() >= WINDOW) {
+            sent.pollFirst();
+        }
+    }
+}
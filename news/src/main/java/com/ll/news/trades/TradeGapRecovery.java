@@ -0,0 +1,307 @@
+package com.ll.news.trades;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * aggTrade缺口补齐
+ * 按归集成交id(a)检查每个币对是否连续, 重连后出现缺口时从REST拉取缺失的区间, 期间到达的成交先缓存,
+ * 补齐后按id顺序写入, 滑动窗口不漏算也不重复算, 补齐的成交标记为backfilled, 不触发单笔告警。
+ * id不大于已写入的成交为重复, 直接跳过。
+ * 缺口太大、缓存满了或拉取失败时放弃补齐, 缺失的成交计入丢失。
+ * 过载时分片丢弃的消息也会表现为缺口, 补齐的请求权重和排队都有上限, 额度用尽或执行器已满时同样放弃
+ */
+public class TradeGapRecovery {
+
+    private static final Logger log = LoggerFactory.getLogger(TradeGapRecovery.class);
+
+    private final String name;
+
+    private final AggTradeSource source;
+
+    /**
+     * 执行REST请求, 并发和排队有上限
+     */
+    private final Executor executor;
+
+    /**
+     * 请求权重额度, 为null不限制
+     */
+    private final WeightLimiter limiter;
+
+    /**
+     * 每次REST请求的权重
+     */
+    private final int requestWeight;
+
+    /**
+     * 单个缺口最多补齐的成交数
+     */
+    private final int maxMissing;
+
+    /**
+     * 补齐期间最多缓存的成交数
+     */
+    private final int maxBuffered;
+
+    private final LongAdder gaps = new LongAdder();
+
+    private final LongAdder missing = new LongAdder();
+
+    private final LongAdder recovered = new LongAdder();
+
+    private final LongAdder lost = new LongAdder();
+
+    private final LongAdder duplicates = new LongAdder();
+
+    private final LongAdder throttled = new LongAdder();
+
+    public TradeGapRecovery(String name, AggTradeSource source, Executor executor, int maxMissing, int maxBuffered) {
+        this(name, source, executor, maxMissing, maxBuffered, null, 0);
+    }
+
+    /**
+     * @param limiter       请求权重额度, 为null不限制
+     * @param requestWeight 每次REST请求的权重
+     */
+    public TradeGapRecovery(String name, AggTradeSource source, Executor executor, int maxMissing, int maxBuffered,
+                            WeightLimiter limiter, int requestWeight) {
+        this.name = name;
+        this.source = source;
+        this.executor = executor;
+        this.maxMissing = maxMissing;
+        this.maxBuffered = maxBuffered;
+        this.limiter = limiter;
+        this.requestWeight = requestWeight;
+    }
+
+    /**
+     * 单个币对的序列状态, 只在币对所在分片中访问
+     */
+    public static class Sequence {
+
+        /**
+         * 已写入的最大id
+         */
+        private long lastId = -1;
+
+        /**
+         * 补齐期间到达的成交, 不在补齐时为null
+         */
+        private ArrayDeque<AggTrade> buffered;
+
+        /**
+         * 第几次补齐, 放弃后迟到的结果按此忽略
+         */
+        private int round;
+    }
+
+    /**
+     * 在币对所在分片中调用
+     *
+     * @param trade  解析结果, 可能是复用的实例, 需要缓存时复制
+     * @param apply  按顺序写入统计
+     * @param resume 回到币对所在分片执行, 不能丢弃
+     */
+    public void accept(Sequence seq, AggTrade trade, Consumer<AggTrade> apply, Consumer<Runnable> resume) {
+        long id = trade.getId();
+        if (id < 0) {
+            // 没有id的消息不检查
+            apply.accept(trade);
+            return;
+        }
+        if (seq.buffered != null) {
+            if (seq.buffered.size() < maxBuffered) {
+                seq.buffered.add(trade.copy());
+                return;
+            }
+            long to = seq.buffered.peekFirst().getId() - 1;
+            lost.add(to - seq.lastId);
+            log.warn("{} {} gap recovery buffer full, give up [{}, {}]", name, trade.getSymbol(), seq.lastId + 1, to);
+            drain(seq, to, apply, resume);
+            // 缓存的成交里可能又开始了新的补齐
+            accept(seq, trade, apply, resume);
+            return;
+        }
+        if (seq.lastId >= 0 && id <= seq.lastId) {
+            duplicates.increment();
+            return;
+        }
+        if (seq.lastId >= 0 && id > seq.lastId + 1) {
+            long from = seq.lastId + 1;
+            long to = id - 1;
+            long count = to - from + 1;
+            gaps.increment();
+            missing.add(count);
+            if (count > maxMissing) {
+                lost.add(count);
+                log.warn("{} {} gap {} trades [{}, {}] exceeds {}, skipped", name, trade.getSymbol(), count, from, to, maxMissing);
+            } else if (!acquire(weight(count))) {
+                lost.add(count);
+                throttled.increment();
+                log.warn("{} {} gap {} trades [{}, {}], backfill weight exhausted, skipped", name, trade.getSymbol(), count, from, to);
+            } else if (backfill(seq, trade, from, to, weight(count), apply, resume)) {
+                log.info("{} {} gap {} trades [{}, {}], backfill", name, trade.getSymbol(), count, from, to);
+                return;
+            } else {
+                lost.add(count);
+                throttled.increment();
+                log.warn("{} {} gap {} trades [{}, {}], backfill executor full, skipped", name, trade.getSymbol(), count, from, to);
+            }
+        }
+        seq.lastId = id;
+        apply.accept(trade);
+    }
+
+    public Stats stats() {
+        return new Stats(gaps.sum(), missing.sum(), recovered.sum(), lost.sum(), duplicates.sum(), throttled.sum());
+    }
+
+    /**
+     * 按分页数计算整个缺口的请求权重
+     */
+    private int weight(long count) {
+        long pages = (count + BinanceRestAggTrades.MAX_LIMIT - 1) / BinanceRestAggTrades.MAX_LIMIT;
+        return (int) (pages * requestWeight);
+    }
+
+    private boolean acquire(int weight) {
+        return limiter == null || limiter.tryAcquire(weight);
+    }
+
+    /**
+     * 开始补齐, 之后到达的成交先缓存
+     *
+     * @param weight 已扣除的请求权重, 执行器拒绝时退回
+     * @return 执行器已满时返回false, 不进入补齐
+     */
+    private boolean backfill(Sequence seq, AggTrade trade, long from, long to, int weight, Consumer<AggTrade> apply, Consumer<Runnable> resume) {
+        seq.buffered = new ArrayDeque<>();
+        seq.buffered.add(trade.copy());
+        int round = ++seq.round;
+        String symbol = trade.getSymbol();
+        try {
+            executor.execute(() -> {
+                List<AggTrade> fetched = fetch(symbol, from, to);
+                resume.accept(() -> complete(seq, round, to, fetched, apply, resume));
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            if (limiter != null) {
+                limiter.refund(weight);
+            }
+            seq.buffered = null;
+            seq.round++;
+            return false;
+        }
+    }
+
+    /**
+     * 分页拉取[from, to], 失败时返回已拉到的部分
+     */
+    private List<AggTrade> fetch(String symbol, long from, long to) {
+        List<AggTrade> result = new ArrayList<>();
+        long next = from;
+        try {
+            while (next <= to) {
+                List<AggTrade> page = source.fetch(symbol, next, (int) Math.min(to - next + 1, BinanceRestAggTrades.MAX_LIMIT));
+                if (page.isEmpty()) {
+                    break;
+                }
+                for (AggTrade trade : page) {
+                    if (trade.getId() >= next && trade.getId() <= to) {
+                        result.add(trade);
+                    }
+                }
+                long last = page.get(page.size() - 1).getId();
+                if (last < next) {
+                    break;
+                }
+                next = last + 1;
+            }
+        } catch (Exception e) {
+            log.warn("{} {} backfill [{}, {}] failed at {}, {}", name, symbol, from, to, next, e.getMessage());
+        }
+        return result;
+    }
+
+    private void complete(Sequence seq, int round, long to, List<AggTrade> fetched, Consumer<AggTrade> apply, Consumer<Runnable> resume) {
+        if (seq.buffered == null || seq.round != round) {
+            // 已放弃
+            return;
+        }
+        long from = seq.lastId + 1;
+        int applied = 0;
+        for (AggTrade trade : fetched) {
+            if (trade.getId() > seq.lastId) {
+                seq.lastId = trade.getId();
+                trade.setBackfilled(true);
+                apply.accept(trade);
+                applied++;
+            }
+        }
+        recovered.add(applied);
+        long count = to - from + 1;
+        if (applied < count) {
+            lost.add(count - applied);
+            log.warn("{} gap [{}, {}] recovered {} of {} trades", name, from, to, applied, count);
+        }
+        drain(seq, to, apply, resume);
+    }
+
+    /**
+     * 结束补齐, 按顺序处理缓存的成交, 其中再出现缺口时重新补齐
+     *
+     * @param lastId 视为已写入的最大id
+     */
+    private void drain(Sequence seq, long lastId, Consumer<AggTrade> apply, Consumer<Runnable> resume) {
+        ArrayDeque<AggTrade> buffered = seq.buffered;
+        seq.buffered = null;
+        seq.round++;
+        seq.lastId = Math.max(seq.lastId, lastId);
+        for (AggTrade trade : buffered) {
+            accept(seq, trade, apply, resume);
+        }
+    }
+
+    @Getter
+    @ToString
+    @AllArgsConstructor
+    public static class Stats {
+        /**
+         * 发现的缺口数
+         */
+        private final long gaps;
+        /**
+         * 缺失的成交数
+         */
+        private final long missing;
+        /**
+         * 补齐的成交数
+         */
+        private final long recovered;
+        /**
+         * 没能补齐的成交数
+         */
+        private final long lost;
+        /**
+         * 跳过的重复成交数
+         */
+        private final long duplicates;
+        /**
+         * 权重额度用尽或执行器已满放弃补齐的缺口数
+         */
+        private final long throttled;
+    }
+}
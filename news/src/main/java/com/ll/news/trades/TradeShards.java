@@ -0,0 +1,187 @@
+package com.ll.news.trades;
+
+import io.vertx.core.Context;
+import io.vertx.core.Vertx;
+import io.vertx.core.impl.VertxImpl;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 按币对分片处理成交
+ * 每个分片绑定一个Vert.x event loop context, 同一分片的任务按提交顺序执行, 同一币对总在同一分片, 保证顺序。
+ * 每个分片有排队上限, 超过上限的任务直接丢弃并计数, 不阻塞提交线程
+ */
+public class TradeShards implements AutoCloseable {
+
+    private final Shard[] shards;
+
+    private final int capacity;
+
+    private volatile boolean closed;
+
+    /**
+     * @param vertx    vertx
+     * @param count    分片数量
+     * @param capacity 每个分片的排队上限
+     */
+    public TradeShards(Vertx vertx, int count, int capacity) {
+        if (count < 1 || capacity < 1) {
+            throw new IllegalArgumentException("count and capacity must be positive");
+        }
+        this.capacity = capacity;
+        this.shards = new Shard[count];
+        VertxImpl v = (VertxImpl) vertx;
+        for (int i = 0; i < count; i++) {
+            // 新建的context轮流分配event loop
+            shards[i] = new Shard(v.createEventLoopContext());
+        }
+    }
+
+    public int size() {
+        return shards.length;
+    }
+
+    /**
+     * @param hash 币对的hash
+     * @return 分片下标
+     */
+    public int shardOf(int hash) {
+        return Math.floorMod(hash, shards.length);
+    }
+
+    /**
+     * 提交到指定分片
+     *
+     * @return 分片已满或已关闭时返回false, 任务被丢弃
+     */
+    public boolean execute(int shard, Runnable task) {
+        Shard s = shards[shard];
+        if (closed) {
+            s.rejected.increment();
+            return false;
+        }
+        int pending = s.pending.incrementAndGet();
+        if (pending > capacity) {
+            s.pending.decrementAndGet();
+            s.rejected.increment();
+            return false;
+        }
+        if (pending > s.maxPending) {
+            s.maxPending = pending;
+        }
+        long submitted = System.nanoTime();
+        s.context.runOnContext(v -> {
+            s.pending.decrementAndGet();
+            long delay = System.nanoTime() - submitted;
+            s.executed.increment();
+            s.totalDelayNanos.add(delay);
+            if (delay > s.maxDelayNanos) {
+                s.maxDelayNanos = delay;
+            }
+            task.run();
+        });
+        return true;
+    }
+
+    /**
+     * 提交控制任务, 不受排队上限限制, 不计入统计, 用于不能丢弃的少量任务
+     */
+    public void control(int shard, Runnable task) {
+        shards[shard].context.runOnContext(v -> task.run());
+    }
+
+    /**
+     * @return 当前统计信息
+     */
+    public Stats stats() {
+        int[] pending = new int[shards.length];
+        int maxPending = 0;
+        long executed = 0;
+        long rejected = 0;
+        long totalDelay = 0;
+        long maxDelay = 0;
+        for (int i = 0; i < shards.length; i++) {
+            Shard s = shards[i];
+            pending[i] = s.pending.get();
+            maxPending = Math.max(maxPending, s.maxPending);
+            executed += s.executed.sum();
+            rejected += s.rejected.sum();
+            totalDelay += s.totalDelayNanos.sum();
+            maxDelay = Math.max(maxDelay, s.maxDelayNanos);
+        }
+        return new Stats(shards.length, capacity, pending, maxPending, executed, rejected,
+                executed == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(totalDelay / executed), TimeUnit.NANOSECONDS.toMicros(maxDelay));
+    }
+
+    /**
+     * 关闭后不再接收任务, 已排队的任务继续执行
+     */
+    @Override
+    public void close() {
+        closed = true;
+    }
+
+    private static class Shard {
+
+        private final Context context;
+
+        private final AtomicInteger pending = new AtomicInteger();
+
+        private final LongAdder executed = new LongAdder();
+
+        private final LongAdder rejected = new LongAdder();
+
+        private final LongAdder totalDelayNanos = new LongAdder();
+
+        private volatile int maxPending;
+
+        private volatile long maxDelayNanos;
+
+        private Shard(Context context) {
+            this.context = context;
+        }
+    }
+
+    @Getter
+    @ToString
+    @AllArgsConstructor
+    public static class Stats {
+        /**
+         * 分片数量
+         */
+        private final int shards;
+        /**
+         * 每个分片的排队上限
+         */
+        private final int capacity;
+        /**
+         * 每个分片当前排队数量
+         */
+        private final int[] pending;
+        /**
+         * 单个分片排队数量的最高值
+         */
+        private final int maxPending;
+        /**
+         * 已执行的任务数
+         */
+        private final long executed;
+        /**
+         * 因排队已满被丢弃的任务数
+         */
+        private final long rejected;
+        /**
+         * 平均排队时间（微秒）
+         */
+        private final long avgDelayMicros;
+        /**
+         * 最长排队时间（微秒）
+         */
+        private final long maxDelayMicros;
+    }
+}
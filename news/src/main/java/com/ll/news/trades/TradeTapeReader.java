@@ -0,0 +1,169 @@
+package com.ll.news.trades;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * 读取{@link TradeTapeWriter}录制的文件, 按顺序逐条读取, 不是线程安全的
+ * 现货和U本位录制在同一个目录, 文件名以市场开头（spot-、um-）, 读目录时只读一个市场的文件, 时间才是递增的
+ */
+public class TradeTapeReader implements AutoCloseable {
+
+    private final List<Path> files;
+
+    private int next;
+
+    private String market;
+
+    private FileChannel channel;
+
+    private MappedByteBuffer buffer;
+
+    private long micros;
+
+    private byte[] bytes = new byte[1024];
+
+    private int length;
+
+    /**
+     * @param path 单个文件, 或只有一个市场录制文件的目录
+     */
+    public TradeTapeReader(Path path) throws IOException {
+        this(path, null);
+    }
+
+    /**
+     * @param path   单个文件, 或目录下该市场的.tape文件按文件名顺序读取
+     * @param market 市场, 即文件名前缀, 如spot; 为null时目录下只能有一个市场的文件
+     */
+    public TradeTapeReader(Path path, String market) throws IOException {
+        this.files = files(path, market);
+    }
+
+    /**
+     * @return 目录下该市场的录制文件, 按文件名即录制时间排序
+     * @throws IllegalArgumentException 未指定市场而目录下有多个市场的文件
+     */
+    public static List<Path> files(Path path, String market) throws IOException {
+        if (!Files.isDirectory(path)) {
+            return List.of(path);
+        }
+        List<Path> files;
+        try (Stream<Path> list = Files.list(path)) {
+            files = list.filter(p -> p.getFileName().toString().endsWith(TradeTapeWriter.SUFFIX))
+                    .filter(p -> market == null || market.equals(market(p)))
+                    .sorted().toList();
+        }
+        if (market == null) {
+            Set<String> markets = files.stream().map(TradeTapeReader::market).collect(Collectors.toCollection(TreeSet::new));
+            if (markets.size() > 1) {
+                throw new IllegalArgumentException("tape dir " + path + " has markets " + markets + ", specify one");
+            }
+        }
+        return files;
+    }
+
+    /**
+     * @return 文件名中的市场, 即第一个-之前的部分
+     */
+    public static String market(Path file) {
+        String name = file.getFileName().toString();
+        int dash = name.indexOf('-');
+        return dash > 0 ? name.substring(0, dash) : name;
+    }
+
+    /**
+     * @return 是否读到了下一条
+     */
+    public boolean next() throws IOException {
+        while (true) {
+            if (buffer == null && !open()) {
+                return false;
+            }
+            if (buffer.remaining() > 0) {
+                int len = (int) readVarint();
+                if (len > 0) {
+                    micros += readVarint();
+                    if (bytes.length < len) {
+                        bytes = new byte[Math.max(len, bytes.length * 2)];
+                    }
+                    buffer.get(bytes, 0, len);
+                    length = len;
+                    return true;
+                }
+            }
+            close();
+        }
+    }
+
+    /**
+     * @return 当前消息的收到时间（微秒）
+     */
+    public long micros() {
+        return micros;
+    }
+
+    /**
+     * @return 当前消息所在文件的市场, 如spot
+     */
+    public String market() {
+        return market;
+    }
+
+    /**
+     * @return 当前消息
+     */
+    public String text() {
+        return new String(bytes, 0, length, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+        buffer = null;
+    }
+
+    private boolean open() throws IOException {
+        while (next < files.size()) {
+            Path file = files.get(next++);
+            channel = FileChannel.open(file, StandardOpenOption.READ);
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.remaining() >= TradeTapeWriter.HEADER_BYTES && buffer.getInt() == TradeTapeWriter.MAGIC) {
+                if (buffer.getInt() != TradeTapeWriter.VERSION) {
+                    throw new IOException("unsupported tape version " + file);
+                }
+                micros = buffer.getLong();
+                market = market(file);
+                return true;
+            }
+            close();
+            throw new IOException("not a tape file " + file);
+        }
+        return false;
+    }
+
+    private long readVarint() {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalStateException("malformed varint");
+    }
+}
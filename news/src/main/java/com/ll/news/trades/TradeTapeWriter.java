@@ -0,0 +1,302 @@
+package com.ll.news.trades;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 成交录制
+ * 把收到的原始消息和收到时间追加到内存映射文件, 文件按固定大小预分配, 写满后换下一个文件。
+ * 文件格式:
+ * <pre>
+ * 文件头: int 魔数TAPE, int 版本, long 起始时间（微秒）
+ * 记录:   varint 消息字节数, varint 距上一条的时间（微秒）, UTF-8消息
+ * </pre>
+ * 消息字节数为0表示结束, 预分配未写入的部分都是0。
+ * 写入在连接的事件循环线程上, 只做内存复制: 下一个文件由后台线程提前创建和映射, 写满时直接切换,
+ * 旧文件也交给后台线程刷盘关闭; 下一个文件还没准备好时丢弃消息并计数, 不等待。
+ * 多个连接可以共用一个实例, 写入加锁; 创建文件失败后停止录制, 不影响成交处理
+ */
+public class TradeTapeWriter implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(TradeTapeWriter.class);
+
+    public static final int MAGIC = 0x54415045;
+
+    public static final int VERSION = 1;
+
+    public static final int HEADER_BYTES = 16;
+
+    public static final String SUFFIX = ".tape";
+
+    private static final DateTimeFormatter FILE_TIME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    private final Path dir;
+
+    private final String name;
+
+    private final int segmentBytes;
+
+    /**
+     * 微秒时间 = baseMicros + (nanoTime - baseNanos) / 1000, 单调递增
+     */
+    private final long baseMicros;
+
+    private final long baseNanos;
+
+    /**
+     * 创建、刷盘和关闭文件的后台线程
+     */
+    private final ExecutorService io;
+
+    private Segment current;
+
+    private MappedByteBuffer buffer;
+
+    /**
+     * 后台准备中的下一个文件
+     */
+    private CompletableFuture<Segment> next;
+
+    private int segment;
+
+    private long lastMicros;
+
+    private long records;
+
+    private long dropped;
+
+    private boolean waiting;
+
+    private boolean closed;
+
+    /**
+     * @param dir          录制目录
+     * @param name         文件名前缀, 如spot
+     * @param segmentBytes 单个文件大小
+     */
+    public TradeTapeWriter(Path dir, String name, int segmentBytes) throws IOException {
+        if (segmentBytes < 1024) {
+            throw new IllegalArgumentException("segmentBytes too small");
+        }
+        this.dir = dir;
+        this.name = name;
+        this.segmentBytes = segmentBytes;
+        this.baseMicros = TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis());
+        this.baseNanos = System.nanoTime();
+        Files.createDirectories(dir);
+        this.io = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "tape-" + name);
+            thread.setDaemon(true);
+            return thread;
+        });
+        // 第一个文件在调用方线程上准备好, 之后的都在后台
+        this.next = CompletableFuture.completedFuture(open());
+    }
+
+    /**
+     * 追加一条消息, 收到时间取当前时间
+     */
+    public void append(CharSequence text) {
+        append(text, baseMicros + (System.nanoTime() - baseNanos) / 1000);
+    }
+
+    public synchronized void append(CharSequence text, long micros) {
+        if (closed || text.length() == 0) {
+            return;
+        }
+        try {
+            int length = utf8Length(text);
+            // 两个varint最多15字节
+            if (buffer == null || buffer.remaining() < length + 15) {
+                if (!roll(micros)) {
+                    dropped++;
+                    return;
+                }
+                if (buffer.remaining() < length + 15) {
+                    log.warn("{} tape skip message of {} bytes, larger than segment", name, length);
+                    return;
+                }
+            }
+            writeVarint(length);
+            writeVarint(Math.max(0, micros - lastMicros));
+            if (length == text.length()) {
+                for (int i = 0; i < length; i++) {
+                    buffer.put((byte) text.charAt(i));
+                }
+            } else {
+                buffer.put(text.toString().getBytes(StandardCharsets.UTF_8));
+            }
+            lastMicros = Math.max(lastMicros, micros);
+            records++;
+        } catch (RuntimeException e) {
+            log.error("{} tape write failed, recording stopped", name, e);
+            closeQuietly();
+        }
+    }
+
+    /**
+     * @return 已录制的消息数
+     */
+    public synchronized long records() {
+        return records;
+    }
+
+    /**
+     * @return 下一个文件没准备好而丢弃的消息数
+     */
+    public synchronized long dropped() {
+        return dropped;
+    }
+
+    /**
+     * 停止录制, 等待后台线程把文件刷盘关闭
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            closeQuietly();
+        }
+        io.shutdown();
+        try {
+            if (!io.awaitTermination(10, TimeUnit.SECONDS)) {
+                log.warn("{} tape close timed out", name);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void closeQuietly() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        retire();
+        // 准备好但没用上的文件删除
+        next.thenAcceptAsync(Segment::delete, io);
+    }
+
+    /**
+     * 第一次写入时或写满时切换到后台准备好的文件, 文件头的起始时间为新文件第一条消息的时间
+     *
+     * @return 下一个文件还没准备好时为false
+     */
+    private boolean roll(long micros) {
+        Segment ready = next.getNow(null);
+        if (ready == null) {
+            if (!waiting) {
+                waiting = true;
+                log.warn("{} tape next segment not ready, dropping messages", name);
+            }
+            return false;
+        }
+        waiting = false;
+        retire();
+        current = ready;
+        buffer = ready.buffer;
+        lastMicros = micros;
+        buffer.putLong(8, lastMicros);
+        next = CompletableFuture.supplyAsync(() -> {
+            try {
+                return open();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, io);
+        log.info("{} tape recording to {}", name, ready.file);
+        return true;
+    }
+
+    /**
+     * 把写满或停止录制时的文件交给后台线程刷盘关闭
+     */
+    private void retire() {
+        Segment old = current;
+        current = null;
+        buffer = null;
+        if (old != null) {
+            io.execute(old::finish);
+        }
+    }
+
+    /**
+     * 创建并映射下一个文件, 写好文件头, 起始时间在切换时填写
+     */
+    private Segment open() throws IOException {
+        Path file = dir.resolve(String.format("%s-%s-%04d%s", name, FILE_TIME.format(LocalDateTime.now()), segment++, SUFFIX));
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+        // 预先载入页, 减少事件循环线程上的缺页
+        buffer.load();
+        buffer.putInt(MAGIC);
+        buffer.putInt(VERSION);
+        buffer.putLong(0);
+        return new Segment(file, channel, buffer);
+    }
+
+    private void writeVarint(long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    private static int utf8Length(CharSequence text) {
+        int length = text.length();
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) >= 0x80) {
+                return text.toString().getBytes(StandardCharsets.UTF_8).length;
+            }
+        }
+        return length;
+    }
+
+    private class Segment {
+
+        private final Path file;
+
+        private final FileChannel channel;
+
+        private final MappedByteBuffer buffer;
+
+        Segment(Path file, FileChannel channel, MappedByteBuffer buffer) {
+            this.file = file;
+            this.channel = channel;
+            this.buffer = buffer;
+        }
+
+        void finish() {
+            try {
+                buffer.force();
+                channel.close();
+            } catch (IOException e) {
+                log.warn("{} tape close failed, {}", name, e.getMessage());
+            }
+        }
+
+        void delete() {
+            try {
+                channel.close();
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                log.warn("{} tape delete failed, {}", name, e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,276 @@
+package com.ll.news.trades;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * 单个币对的滑动窗口统计
+ * 成交按(时间, 价格, 数量, 方向)存在基本类型环形数组里, 每个窗口长度维护一个尾指针和买卖两边的累计值,
+ * 进出窗口时增减, 每笔成交O(1)。大单为成交额超过阈值的成交。
+ * 只能由一个线程写入, 读取走乐观读, 不阻塞写入
+ */
+public class TradeWindow {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private static final int BUY = 0;
+    private static final int SELL = 1;
+
+    private final StampedLock lock = new StampedLock();
+
+    /**
+     * 大单阈值, 成交额
+     */
+    private final double threshold;
+
+    private final Window[] windows;
+
+    private long[] times;
+    private double[] prices;
+    private double[] qtys;
+    private boolean[] sells;
+
+    /**
+     * 下一笔成交的序号, 序号按容量取模得到数组下标
+     */
+    private long head;
+
+    /**
+     * @param threshold     大单阈值, 成交额
+     * @param windowMillis  窗口长度(毫秒), 可以有多个
+     */
+    public TradeWindow(double threshold, long... windowMillis) {
+        if (windowMillis.length == 0) {
+            throw new IllegalArgumentException("at least one window");
+        }
+        this.threshold = threshold;
+        this.windows = new Window[windowMillis.length];
+        for (int i = 0; i < windowMillis.length; i++) {
+            windows[i] = new Window(windowMillis[i]);
+        }
+        times = new long[INITIAL_CAPACITY];
+        prices = new double[INITIAL_CAPACITY];
+        qtys = new double[INITIAL_CAPACITY];
+        sells = new boolean[INITIAL_CAPACITY];
+    }
+
+    /**
+     * 写入一笔成交, 并移出各窗口过期的成交
+     *
+     * @param now 当前时间, 和成交时间的差超过窗口长度即过期
+     */
+    public void add(AggTrade trade, long now) {
+        long stamp = lock.writeLock();
+        try {
+            for (Window window : windows) {
+                evict(window, now);
+            }
+            ensureCapacity();
+            int i = (int) (head & (times.length - 1));
+            times[i] = trade.getEventTime();
+            prices[i] = trade.getPrice();
+            qtys[i] = trade.getQty();
+            sells[i] = trade.isMaker();
+            for (Window window : windows) {
+                window.apply(trade.getPrice(), trade.getQty(), trade.isMaker(), 1);
+            }
+            head++;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * 读取窗口统计, 不修改窗口, 已过期但还没移出的成交在结果里扣除
+     *
+     * @param window 窗口下标, 对应构造时的顺序
+     * @param now    当前时间
+     */
+    public Stats stats(int window, long now) {
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            try {
+                Stats stats = read(windows[window], now);
+                if (lock.validate(stamp)) {
+                    return stats;
+                }
+            } catch (RuntimeException e) {
+                // 读到了不一致的状态, 加读锁重试
+            }
+        }
+        stamp = lock.readLock();
+        try {
+            return read(windows[window], now);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    public long windowMillis(int window) {
+        return windows[window].millis;
+    }
+
+    private Stats read(Window window, long now) {
+        double[] sums = window.sums.clone();
+        long tail = window.tail;
+        long end = head;
+        long[] times = this.times;
+        double[] prices = this.prices;
+        double[] qtys = this.qtys;
+        boolean[] sells = this.sells;
+        int mask = times.length - 1;
+        // 乐观读时序号可能不一致, 最多扫一圈
+        for (long seq = tail, limit = Math.min(end, tail + times.length); seq < limit; seq++) {
+            int i = (int) (seq & mask);
+            if (now - times[i] <= window.millis) {
+                break;
+            }
+            apply(sums, threshold, prices[i], qtys[i], sells[i], -1);
+        }
+        return new Stats(window.millis, side(sums, BUY), side(sums, SELL));
+    }
+
+    private void evict(Window window, long now) {
+        int mask = times.length - 1;
+        while (window.tail < head) {
+            int i = (int) (window.tail & mask);
+            if (now - times[i] <= window.millis) {
+                break;
+            }
+            window.apply(prices[i], qtys[i], sells[i], -1);
+            window.tail++;
+        }
+        if (window.tail == head) {
+            // 窗口清空时归零, 避免浮点累计误差
+            Arrays.fill(window.sums, 0);
+        }
+    }
+
+    /**
+     * 环形数组需要容纳最长窗口里的全部成交, 满了翻倍
+     */
+    private void ensureCapacity() {
+        long oldest = head;
+        for (Window window : windows) {
+            oldest = Math.min(oldest, window.tail);
+        }
+        int capacity = times.length;
+        if (head - oldest < capacity) {
+            return;
+        }
+        int newCapacity = capacity << 1;
+        long[] newTimes = new long[newCapacity];
+        double[] newPrices = new double[newCapacity];
+        double[] newQtys = new double[newCapacity];
+        boolean[] newSells = new boolean[newCapacity];
+        for (long seq = oldest; seq < head; seq++) {
+            int from = (int) (seq & (capacity - 1));
+            int to = (int) (seq & (newCapacity - 1));
+            newTimes[to] = times[from];
+            newPrices[to] = prices[from];
+            newQtys[to] = qtys[from];
+            newSells[to] = sells[from];
+        }
+        times = newTimes;
+        prices = newPrices;
+        qtys = newQtys;
+        sells = newSells;
+    }
+
+    /**
+     * 每边6个累计值: 笔数, 成交量, 成交额, 大单笔数, 大单成交量, 大单成交额
+     */
+    private static void apply(double[] sums, double threshold, double price, double qty, boolean sell, int sign) {
+        int base = (sell ? SELL : BUY) * 6;
+        double amount = price * qty;
+        sums[base] += sign;
+        sums[base + 1] += sign * qty;
+        sums[base + 2] += sign * amount;
+        if (amount > threshold) {
+            sums[base + 3] += sign;
+            sums[base + 4] += sign * qty;
+            sums[base + 5] += sign * amount;
+        }
+    }
+
+    private static Side side(double[] sums, int side) {
+        int base = side * 6;
+        return new Side((int) sums[base], sums[base + 1], sums[base + 2], (int) sums[base + 3], sums[base + 4], sums[base + 5]);
+    }
+
+    private final class Window {
+
+        private final long millis;
+
+        /**
+         * 窗口内最早一笔成交的序号
+         */
+        private long tail;
+
+        private final double[] sums = new double[12];
+
+        private Window(long millis) {
+            this.millis = millis;
+        }
+
+        private void apply(double price, double qty, boolean sell, int sign) {
+            TradeWindow.apply(sums, threshold, price, qty, sell, sign);
+        }
+    }
+
+    @Getter
+    @ToString
+    @AllArgsConstructor
+    public static class Stats {
+
+        private final long windowMillis;
+
+        private final Side buy;
+
+        private final Side sell;
+
+        public Side side(boolean sell) {
+            return sell ? this.sell : buy;
+        }
+    }
+
+    @Getter
+    @ToString
+    @AllArgsConstructor
+    public static class Side {
+
+        /**
+         * 成交笔数
+         */
+        private final int count;
+
+        /**
+         * 成交量
+         */
+        private final double qty;
+
+        /**
+         * 成交额
+         */
+        private final double amount;
+
+        /**
+         * 大单笔数
+         */
+        private final int largeCount;
+
+        /**
+         * 大单成交量
+         */
+        private final double largeQty;
+
+        /**
+         * 大单成交额
+         */
+        private final double largeAmount;
+    }
+}
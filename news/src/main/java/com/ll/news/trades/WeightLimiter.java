@@ -0,0 +1,59 @@
+package com.ll.news.trades;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * REST请求权重额度
+ * 币安按IP每分钟累计请求权重, 超限会被封禁一段时间。补齐只使用其中一部分额度, 按令牌桶匀速恢复,
+ * 额度不足时调用方放弃补齐而不是等待
+ */
+public class WeightLimiter {
+
+    private final double capacity;
+
+    private final double weightPerNano;
+
+    private double available;
+
+    private long last;
+
+    /**
+     * @param weightPerMinute 每分钟可用的权重, 也是允许的突发量
+     */
+    public WeightLimiter(int weightPerMinute) {
+        this(weightPerMinute, System.nanoTime());
+    }
+
+    WeightLimiter(int weightPerMinute, long now) {
+        this.capacity = Math.max(1, weightPerMinute);
+        this.weightPerNano = capacity / TimeUnit.MINUTES.toNanos(1);
+        this.available = capacity;
+        this.last = now;
+    }
+
+    public boolean tryAcquire(int weight) {
+        return tryAcquire(weight, System.nanoTime());
+    }
+
+    /**
+     * @return 额度足够时扣除并返回true, 不够时不扣除
+     */
+    synchronized boolean tryAcquire(int weight, long now) {
+        if (now > last) {
+            available = Math.min(capacity, available + (now - last) * weightPerNano);
+            last = now;
+        }
+        if (available < weight) {
+            return false;
+        }
+        available -= weight;
+        return true;
+    }
+
+    /**
+     * 退回已扣除但没有用掉的权重, 例如请求没能提交执行
+     */
+    public synchronized void refund(int weight) {
+        available = Math.min(capacity, available + weight);
+    }
+}
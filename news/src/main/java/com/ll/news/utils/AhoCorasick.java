@@ -0,0 +1,139 @@
+package com.ll.news.utils;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.List;
+import java.util.TreeMap;
+
+/**
+ * Aho-Corasick多模式匹配, 忽略大小写
+ * 构建后不可变, 可多线程同时匹配, 一次扫描文本得到所有出现过的模式
+ */
+public final class AhoCorasick {
+
+    private static final int ROOT = 0;
+
+    /**
+     * 每个节点的转移字符, 有序, 二分查找
+     */
+    private final char[][] keys;
+
+    private final int[][] targets;
+
+    private final int[] fail;
+
+    /**
+     * 节点对应的模式下标, 没有为-1
+     */
+    private final int[] output;
+
+    /**
+     * 沿失败链最近的有输出的节点, 没有为-1
+     */
+    private final int[] dict;
+
+    private final int patterns;
+
+    public AhoCorasick(List<String> patterns) {
+        this.patterns = patterns.size();
+        List<TreeMap<Character, Integer>> trie = new ArrayList<>();
+        List<Integer> out = new ArrayList<>();
+        trie.add(new TreeMap<>());
+        out.add(-1);
+        for (int i = 0; i < patterns.size(); i++) {
+            String pattern = patterns.get(i);
+            if (pattern == null || pattern.isEmpty()) {
+                continue;
+            }
+            int node = ROOT;
+            for (int j = 0; j < pattern.length(); j++) {
+                char c = Character.toLowerCase(pattern.charAt(j));
+                Integer next = trie.get(node).get(c);
+                if (next == null) {
+                    next = trie.size();
+                    trie.get(node).put(c, next);
+                    trie.add(new TreeMap<>());
+                    out.add(-1);
+                }
+                node = next;
+            }
+            if (out.get(node) < 0) {
+                out.set(node, i);
+            }
+        }
+
+        int size = trie.size();
+        keys = new char[size][];
+        targets = new int[size][];
+        output = new int[size];
+        for (int i = 0; i < size; i++) {
+            TreeMap<Character, Integer> edges = trie.get(i);
+            keys[i] = new char[edges.size()];
+            targets[i] = new int[edges.size()];
+            int k = 0;
+            for (var edge : edges.entrySet()) {
+                keys[i][k] = edge.getKey();
+                targets[i][k++] = edge.getValue();
+            }
+            output[i] = out.get(i);
+        }
+
+        fail = new int[size];
+        dict = new int[size];
+        Arrays.fill(dict, -1);
+        Deque<Integer> queue = new ArrayDeque<>();
+        for (int child : targets[ROOT]) {
+            queue.add(child);
+        }
+        while (!queue.isEmpty()) {
+            int node = queue.poll();
+            for (int k = 0; k < keys[node].length; k++) {
+                char c = keys[node][k];
+                int child = targets[node][k];
+                int f = fail[node];
+                while (f != ROOT && next(f, c) < 0) {
+                    f = fail[f];
+                }
+                int g = next(f, c);
+                fail[child] = g >= 0 && g != child ? g : ROOT;
+                dict[child] = output[fail[child]] >= 0 ? fail[child] : dict[fail[child]];
+                queue.add(child);
+            }
+        }
+    }
+
+    /**
+     * @return 文本中出现过的模式下标
+     */
+    public BitSet match(CharSequence text) {
+        BitSet matched = new BitSet(patterns);
+        int state = ROOT;
+        for (int i = 0; i < text.length(); i++) {
+            char c = Character.toLowerCase(text.charAt(i));
+            int g;
+            while ((g = next(state, c)) < 0 && state != ROOT) {
+                state = fail[state];
+            }
+            state = Math.max(g, ROOT);
+            for (int t = output[state] >= 0 ? state : dict[state]; t > ROOT; t = dict[t]) {
+                matched.set(output[t]);
+            }
+        }
+        return matched;
+    }
+
+    /**
+     * @return 模式数量
+     */
+    public int size() {
+        return patterns;
+    }
+
+    private int next(int node, char c) {
+        int k = Arrays.binarySearch(keys[node], c);
+        return k >= 0 ? targets[node][k] : -1;
+    }
+}
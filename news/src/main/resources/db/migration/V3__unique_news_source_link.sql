@@ -0,0 +1,8 @@
+-- 新闻 (site_source, link) 唯一
+-- 布隆过滤器判断可能存在时按 (site_source, link) 回查确认, 批量入库使用 on duplicate key update id = id 保证幂等
+
+-- 清理重复数据, 保留最早的一条
+DELETE n1 FROM news n1
+JOIN news n2 ON n1.site_source = n2.site_source AND n1.link = n2.link AND n1.id > n2.id;
+
+CREATE UNIQUE INDEX uk_source_link ON news(site_source, link);
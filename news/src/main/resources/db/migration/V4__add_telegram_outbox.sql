@@ -0,0 +1,15 @@
+-- Telegram发件箱
+-- 消息发送前写入, 发送完成后删除, 重启后重新投递
+
+CREATE TABLE IF NOT EXISTS telegram_outbox (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    channel VARCHAR(64) NOT NULL COMMENT '发送通道',
+    chat_id VARCHAR(64) NOT NULL COMMENT '聊天id',
+    text TEXT NOT NULL COMMENT '消息内容',
+    parse_mode VARCHAR(16) NULL COMMENT '格式',
+    priority VARCHAR(16) NOT NULL DEFAULT 'NORMAL' COMMENT '优先级',
+    flags INT NOT NULL DEFAULT 0 COMMENT '发送选项',
+    created_at BIGINT NOT NULL COMMENT '创建时间'
+) COMMENT='Telegram发件箱';
+
+CREATE INDEX idx_telegram_outbox_channel ON telegram_outbox(channel, id);
@@ -0,0 +1,201 @@
+package benchmark;
+
+import ch.qos.logback.classic.Level;
+import com.ll.news.bot.delivery.OutboundMessage;
+import com.ll.news.trades.*;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpServer;
+import io.vertx.core.http.ServerWebSocket;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 录制成交的回放
+ * 本地起一个Vert.x WebSocket服务代替币安组合流, 按录制时的间隔发送消息, 速度可选1倍、N倍或最快。
+ * 客户端走AggTradeStreams和WssConnector, 处理走AggTradePipeline, 时钟为录制时间, 告警只计数不发送,
+ * 累计告警每30秒录制时间检查一次, 检查前等已发送的处理完, 不同速度的结果相同。
+ * 结束时输出吞吐量和单笔告警的延迟分位数, 延迟从连接收到消息到产生告警
+ * <p>
+ * 用法: TradeTapeReplay 录制文件或目录 [速度: 1|N|max] [单笔阈值: BTC=10,ETH=100] [市场: spot|um]
+ * 目录下同时有现货和U本位的录制时只回放指定的市场, 默认spot; 消息的类型按所在文件的市场确定
+ */
+public class TradeTapeReplay {
+
+    private static final String STREAM_PREFIX = "{\"stream\":\"";
+
+    private static final long CHECK_INTERVAL_MICROS = TimeUnit.SECONDS.toMicros(30);
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println("usage: TradeTapeReplay <tape file or dir> [1|N|max] [BTC=10,ETH=100] [spot|um]");
+            System.exit(1);
+        }
+        ((ch.qos.logback.classic.Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME)).setLevel(Level.INFO);
+        ((ch.qos.logback.classic.Logger) LoggerFactory.getLogger(AggTradePipeline.class)).setLevel(Level.WARN);
+
+        Path path = Path.of(args[0]);
+        double speed = args.length > 1 && !"max".equals(args[1]) ? Double.parseDouble(args[1]) : 0;
+        Map<String, Long> amt = new HashMap<>();
+        if (args.length > 2) {
+            for (String kv : args[2].split(",")) {
+                String[] pair = kv.split("=");
+                amt.put(pair[0].trim(), Long.parseLong(pair[1].trim()));
+            }
+        } else {
+            amt.put("BTC", 50L);
+            amt.put("ETH", 2000L);
+        }
+        String market = args.length > 3 ? args[3] : Files.isDirectory(path) ? "spot" : TradeTapeReader.market(path);
+        String type = type(market);
+
+        // 先扫一遍得到消息数和币对
+        long frames = 0;
+        long firstMicros = -1;
+        long lastMicros = 0;
+        Set<String> symbols = new TreeSet<>();
+        try (TradeTapeReader reader = new TradeTapeReader(path, market)) {
+            while (reader.next()) {
+                if (!market.equals(reader.market())) {
+                    System.err.println("tape " + path + " is " + reader.market() + ", not " + market);
+                    System.exit(1);
+                }
+                frames++;
+                if (firstMicros < 0) {
+                    firstMicros = reader.micros();
+                }
+                lastMicros = reader.micros();
+                String text = reader.text();
+                if (text.startsWith(STREAM_PREFIX)) {
+                    int at = text.indexOf('@', STREAM_PREFIX.length());
+                    if (at > 0) {
+                        symbols.add(text.substring(STREAM_PREFIX.length(), at));
+                    }
+                }
+            }
+        }
+        if (frames == 0) {
+            System.err.println("empty tape " + path);
+            System.exit(1);
+        }
+        System.out.printf("tape %s %s, %d frames, %d symbols, span %.1f s, speed %s%n", path, market, frames, symbols.size(),
+                (lastMicros - firstMicros) / 1e6, speed == 0 ? "max" : speed + "x");
+
+        Vertx vertx = Vertx.vertx();
+        CompletableFuture<ServerWebSocket> connected = new CompletableFuture<>();
+        HttpServer server = vertx.createHttpServer()
+                .webSocketHandler(connected::complete)
+                .listen(0)
+                .toCompletionStage().toCompletableFuture().get();
+
+        BinanceAggProperties properties = new BinanceAggProperties();
+        properties.setLimit(1.0);
+        properties.setSeconds(60L);
+        properties.setCount(5);
+        properties.setAmt(amt);
+
+        AtomicLong tapeMillis = new AtomicLong(firstMicros / 1000);
+        List<Long> latencies = Collections.synchronizedList(new ArrayList<>());
+        AtomicLong durationAlerts = new AtomicLong();
+        AggTradePipeline pipeline = new AggTradePipeline(properties, vertx, tapeMillis::get, alert -> {
+            if (alert.getPriority() == OutboundMessage.Priority.HIGH) {
+                if (alert.getReceivedNanos() > 0) {
+                    latencies.add(System.nanoTime() - alert.getReceivedNanos());
+                }
+            } else {
+                durationAlerts.incrementAndGet();
+            }
+        });
+        TradeGapRecovery recovery = new TradeGapRecovery("replay", (symbol, fromId, limit) -> List.of(), Runnable::run, 0, 0);
+        AggTradeStreams streams = new AggTradeStreams("replay", "localhost", server.actualPort(), Math.max(1, symbols.size()),
+                vertx.createWebSocketClient(), vertx, text -> pipeline.dispatch(type, recovery, text));
+        streams.update(symbols.stream().map(s -> s.toUpperCase(Locale.ROOT)).toList());
+        ServerWebSocket ws = connected.get(30, TimeUnit.SECONDS);
+
+        long sent = 0;
+        long start = System.nanoTime();
+        long nextCheck = firstMicros + CHECK_INTERVAL_MICROS;
+        try (TradeTapeReader reader = new TradeTapeReader(path, market)) {
+            while (reader.next()) {
+                long micros = reader.micros();
+                if (speed > 0) {
+                    long due = start + (long) ((micros - firstMicros) * 1000 / speed);
+                    for (long wait = due - System.nanoTime(); wait > 0; wait = due - System.nanoTime()) {
+                        LockSupport.parkNanos(Math.min(wait, 1_000_000));
+                    }
+                }
+                while (ws.writeQueueFull()) {
+                    LockSupport.parkNanos(50_000);
+                }
+                tapeMillis.set(micros / 1000);
+                ws.writeTextMessage(reader.text());
+                sent++;
+                if (micros >= nextCheck) {
+                    // 已发送的处理完再检查, 结果和回放速度无关
+                    drain(pipeline, sent);
+                    pipeline.checkDuration();
+                    nextCheck = micros + CHECK_INTERVAL_MICROS;
+                }
+            }
+        }
+        TradeShards.Stats shardStats = drain(pipeline, sent);
+        long elapsed = System.nanoTime() - start;
+        pipeline.checkDuration();
+
+        System.out.printf("sent %d, processed %d, dropped %d, elapsed %.3f s, throughput %.0f msgs/s%n",
+                sent, shardStats.getExecuted(), shardStats.getRejected(), elapsed / 1e9, shardStats.getExecuted() * 1e9 / elapsed);
+        long[] sorted = latencies.stream().mapToLong(Long::longValue).sorted().toArray();
+        System.out.printf("single alerts %d, latency us p50 %d, p90 %d, p99 %d, p99.9 %d, max %d%n", sorted.length,
+                percentile(sorted, 0.5), percentile(sorted, 0.9), percentile(sorted, 0.99), percentile(sorted, 0.999),
+                sorted.length == 0 ? 0 : sorted[sorted.length - 1] / 1000);
+        System.out.printf("duration alerts %d%n", durationAlerts.get());
+        System.out.println("shards " + shardStats);
+        System.out.println("gaps " + recovery.stats());
+        System.out.println("connections " + streams.stats());
+
+        pipeline.close();
+        vertx.close().toCompletionStage().toCompletableFuture().get(10, TimeUnit.SECONDS);
+    }
+
+    /**
+     * @return 市场对应的成交类型, 与录制时BinanceAggTradesCheck分发的一致
+     */
+    private static String type(String market) {
+        return switch (market) {
+            case "spot" -> "现货";
+            case "um" -> "U本位";
+            default -> throw new IllegalArgumentException("unknown market " + market);
+        };
+    }
+
+    /**
+     * 等待已发送的消息都处理完, 最多60秒
+     */
+    private static TradeShards.Stats drain(AggTradePipeline pipeline, long sent) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(60);
+        TradeShards.Stats stats = pipeline.shardStats();
+        while (stats.getExecuted() + stats.getRejected() < sent && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+            stats = pipeline.shardStats();
+        }
+        return stats;
+    }
+
+    /**
+     * @return 分位数（微秒）
+     */
+    private static long percentile(long[] sorted, double p) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))] / 1000;
+    }
+}
@@ -0,0 +1,164 @@
+package benchmark;
+
+import ch.qos.logback.classic.Level;
+import com.ll.news.common.wss.WssConnectOption;
+import com.ll.news.common.wss.WssConnector;
+import com.ll.news.common.wss.WssContext;
+import com.ll.news.common.wss.quote.KeepAliveBaseWssHandler;
+import com.ll.news.trades.AggTrade;
+import com.ll.news.trades.AggTradeParser;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.WebSocket;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import simulator.BinanceStreamSimulator;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * WssConnector端到端压测
+ * 本地模拟器按设定速率推送aggTrade, 客户端为WssConnector和KeepAliveBaseWssHandler, 每条消息解析并检查成交id是否连续。
+ * 每秒输出收到的消息数, 结束时输出平均速率、客户端event loop线程每条消息的分配、GC次数和耗时、重连和缺口统计。
+ * 客户端和模拟器用不同的Vertx, 不共用线程
+ * <p>
+ * 用法: WssConnectorSimulation [每秒成交数, 默认100000] [流数量, 默认10] [秒数, 默认20] [断开间隔秒, 0不断开]
+ */
+public class WssConnectorSimulation {
+
+    public static void main(String[] args) throws Exception {
+        ((ch.qos.logback.classic.Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME)).setLevel(Level.INFO);
+
+        double rate = args.length > 0 ? Double.parseDouble(args[0]) : 100_000;
+        int streams = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+        long disconnectSeconds = args.length > 3 ? Long.parseLong(args[3]) : 0;
+
+        Vertx serverVertx = Vertx.vertx();
+        BinanceStreamSimulator.Options options = new BinanceStreamSimulator.Options();
+        options.setRatePerStream(rate / streams);
+        options.setPingMillis(1_000);
+        options.setPongTimeoutMillis(5_000);
+        options.setDisconnectEveryMillis(TimeUnit.SECONDS.toMillis(disconnectSeconds));
+        BinanceStreamSimulator simulator = new BinanceStreamSimulator(serverVertx, options);
+        int port = simulator.start();
+
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < streams; i++) {
+            names.add("sym" + i + "usdt@aggTrade");
+        }
+        WssConnectOption option = new WssConnectOption();
+        option.setHost("localhost");
+        option.setPort(port);
+        option.setUri("/stream?streams=" + String.join("/", names));
+        option.setOrigUri(option.getUri());
+        option.setSsl(false);
+        option.setReconnectBaseMillis(200);
+        option.setStableMillis(1_000);
+
+        Vertx clientVertx = Vertx.vertx();
+        CountingHandler handler = new CountingHandler();
+        WssConnector connector = new WssConnector(clientVertx.createWebSocketClient(), new WssContext(option, clientVertx), handler);
+        connector.reconnect();
+
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (handler.thread == null && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        if (handler.thread == null) {
+            System.err.println("no message received");
+            System.exit(1);
+        }
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = handler.thread.getId();
+        long gcCount = gcCount();
+        long gcMillis = gcMillis();
+        long allocated = threads.getThreadAllocatedBytes(threadId);
+        long startFrames = handler.frames;
+        long start = System.nanoTime();
+
+        long last = startFrames;
+        for (int i = 1; i <= seconds; i++) {
+            Thread.sleep(1000);
+            long frames = handler.frames;
+            System.out.printf("%3d s %,10d msgs/s%n", i, frames - last);
+            last = frames;
+        }
+
+        long elapsed = System.nanoTime() - start;
+        long frames = handler.frames - startFrames;
+        long bytes = threads.getThreadAllocatedBytes(threadId) - allocated;
+        System.out.printf("offered %,.0f msgs/s, received %,d in %.1f s, %,.0f msgs/s%n", rate, frames, elapsed / 1e9, frames * 1e9 / elapsed);
+        System.out.printf("client event loop allocated %,d bytes, %.0f bytes/msg%n", bytes, frames == 0 ? 0.0 : (double) bytes / frames);
+        System.out.printf("gc %d collections, %d ms%n", gcCount() - gcCount, gcMillis() - gcMillis);
+        System.out.printf("gaps %d, missing %d, parse failures %d%n", handler.gaps, handler.missing, handler.failures);
+        System.out.println("connector " + connector.stats());
+        System.out.println("simulator " + simulator.stats());
+
+        connector.destroyClient();
+        simulator.close();
+        clientVertx.close().toCompletionStage().toCompletableFuture().get(10, TimeUnit.SECONDS);
+        serverVertx.close().toCompletionStage().toCompletableFuture().get(10, TimeUnit.SECONDS);
+    }
+
+    private static long gcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, gc.getCollectionCount());
+        }
+        return count;
+    }
+
+    private static long gcMillis() {
+        long millis = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            millis += Math.max(0, gc.getCollectionTime());
+        }
+        return millis;
+    }
+
+    /**
+     * 在连接的event loop上解析每条消息, 按币对检查成交id
+     */
+    private static class CountingHandler extends KeepAliveBaseWssHandler {
+
+        private final AggTradeParser parser = new AggTradeParser();
+
+        private final AggTrade trade = new AggTrade();
+
+        private final Map<String, long[]> lastIds = new HashMap<>();
+
+        private volatile Thread thread;
+
+        private volatile long frames;
+
+        private long gaps;
+
+        private long missing;
+
+        private long failures;
+
+        @Override
+        public void onTextMsg(WebSocket webSocket, String text) {
+            if (thread == null) {
+                thread = Thread.currentThread();
+            }
+            if (!parser.parse(text, trade)) {
+                failures++;
+                return;
+            }
+            long[] last = lastIds.computeIfAbsent(trade.getSymbol(), k -> new long[]{-1});
+            if (last[0] >= 0 && trade.getId() > last[0] + 1) {
+                gaps++;
+                missing += trade.getId() - last[0] - 1;
+            }
+            last[0] = Math.max(last[0], trade.getId());
+            frames++;
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.ll.news.bot.delivery;
+
+import com.pengrad.telegrambot.Callback;
+import com.pengrad.telegrambot.TelegramBot;
+import com.pengrad.telegrambot.request.SendMessage;
+import com.pengrad.telegrambot.response.SendResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * TelegramDelivery 测试
+ * 请求由测试逐个应答, 第一条在途时提交的消息会合并成一批
+ */
+class TelegramDeliveryTest {
+
+    private final BlockingQueue<Call> calls = new LinkedBlockingQueue<>();
+
+    private final TelegramDelivery delivery = new TelegramDelivery("test", bot(), null, 1000, 1000, 1000);
+
+    @AfterEach
+    void close() {
+        delivery.close();
+    }
+
+    @Test
+    void resendsRejectedBatchOneByOne() throws Exception {
+        CompletableFuture<Boolean> first = delivery.submit("1", "a", OutboundMessage.Priority.NORMAL);
+        Call call = next();
+        assertThat(call.text()).isEqualTo("a");
+        CompletableFuture<Boolean> second = delivery.submit("1", "b", OutboundMessage.Priority.NORMAL);
+        CompletableFuture<Boolean> third = delivery.submit("1", "c", OutboundMessage.Priority.NORMAL);
+        call.respond(200);
+
+        Call batch = next();
+        assertThat(batch.text()).isEqualTo("b\n\nc");
+        batch.respond(400);
+
+        Call b = next();
+        assertThat(b.text()).isEqualTo("b");
+        b.respond(200);
+        Call c = next();
+        assertThat(c.text()).isEqualTo("c");
+        c.respond(400);
+
+        assertThat(first.get(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(second.get(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(third.get(5, TimeUnit.SECONDS)).isFalse();
+        assertThat(delivery.stats().getFailed()).isEqualTo(1);
+    }
+
+    @Test
+    void failsSingleMessageRejectedWith400() throws Exception {
+        CompletableFuture<Boolean> future = delivery.submit("1", "a", OutboundMessage.Priority.NORMAL);
+        next().respond(400);
+
+        assertThat(future.get(5, TimeUnit.SECONDS)).isFalse();
+        assertThat(calls.poll(200, TimeUnit.MILLISECONDS)).isNull();
+    }
+
+    private Call next() throws InterruptedException {
+        Call call = calls.poll(5, TimeUnit.SECONDS);
+        assertThat(call).isNotNull();
+        return call;
+    }
+
+    @SuppressWarnings("unchecked")
+    private TelegramBot bot() {
+        TelegramBot bot = mock(TelegramBot.class);
+        doAnswer(invocation -> {
+            calls.add(new Call(invocation.getArgument(0), invocation.getArgument(1)));
+            return null;
+        }).when(bot).execute(any(SendMessage.class), any(Callback.class));
+        return bot;
+    }
+
+    private record Call(SendMessage request, Callback<SendMessage, SendResponse> callback) {
+
+        String text() {
+            return (String) request.getParameters().get("text");
+        }
+
+        void respond(int code) {
+            SendResponse response = mock(SendResponse.class);
+            when(response.isOk()).thenReturn(code == 200);
+            when(response.errorCode()).thenReturn(code == 200 ? 0 : code);
+            when(response.description()).thenReturn(code == 200 ? null : "Bad Request");
+            callback.onResponse(request, response);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.ll.news.bot.delivery;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * TokenBucket 测试
+ * 时间由测试传入, 从构造之后取的时间开始
+ */
+class TokenBucketTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    void allowsBurstThenWaits() {
+        TokenBucket bucket = new TokenBucket(2, 3);
+        long now = System.nanoTime();
+
+        assertThat(bucket.full(now)).isTrue();
+        for (int i = 0; i < 3; i++) {
+            assertThat(bucket.waitNanos(now)).isZero();
+            bucket.take(now);
+        }
+        assertThat(bucket.full(now)).isFalse();
+        // 每秒2个, 下一个要等0.5秒
+        assertThat(bucket.waitNanos(now)).isEqualTo(SECOND / 2);
+        assertThat(bucket.waitNanos(now + SECOND / 4)).isEqualTo(SECOND / 4);
+        assertThat(bucket.waitNanos(now + SECOND / 2)).isZero();
+    }
+
+    @Test
+    void refillsUpToCapacity() {
+        TokenBucket bucket = new TokenBucket(10, 2);
+        long now = System.nanoTime();
+        bucket.take(now);
+        bucket.take(now);
+
+        // 空闲很久也只补到容量
+        now += 60 * SECOND;
+        assertThat(bucket.full(now)).isTrue();
+        bucket.take(now);
+        bucket.take(now);
+        assertThat(bucket.waitNanos(now)).isEqualTo(SECOND / 10);
+    }
+
+    @Test
+    void takingWhenEmptyGoesIntoDebt() {
+        TokenBucket bucket = new TokenBucket(1, 1);
+        long now = System.nanoTime();
+        bucket.take(now);
+        bucket.take(now);
+
+        // 欠了一个令牌, 要等两秒才有下一个
+        assertThat(bucket.waitNanos(now)).isEqualTo(2 * SECOND);
+        assertThat(bucket.waitNanos(now + 2 * SECOND)).isZero();
+    }
+
+    @Test
+    void ignoresTimeGoingBackwards() {
+        TokenBucket bucket = new TokenBucket(1, 1);
+        long now = System.nanoTime();
+        bucket.take(now);
+
+        assertThat(bucket.waitNanos(now - SECOND)).isEqualTo(SECOND);
+        assertThat(bucket.waitNanos(now)).isEqualTo(SECOND);
+    }
+
+    @Test
+    void burstBelowOneStillAllowsOne() {
+        TokenBucket bucket = new TokenBucket(1, 0);
+        long now = System.nanoTime();
+
+        assertThat(bucket.waitNanos(now)).isZero();
+        bucket.take(now);
+        assertThat(bucket.waitNanos(now)).isEqualTo(SECOND);
+    }
+}
@@ -0,0 +1,108 @@
+package com.ll.news.common.wss;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * ReconnectPolicy 测试
+ * 覆盖指数退避的范围、熔断和半开、稳定时长
+ */
+class ReconnectPolicyTest {
+
+    private final ReconnectPolicy policy = new ReconnectPolicy(100, 1000, 5, 30_000, 10_000);
+
+    @Test
+    void noDelayBeforeAnyFailure() {
+        assertThat(policy.nextDelay()).isZero();
+        assertThat(policy.getState()).isEqualTo(ReconnectPolicy.State.CLOSED);
+    }
+
+    @Test
+    void backsOffExponentiallyWithJitterUpToMax() {
+        long[] expected = {100, 200, 400, 800};
+        for (long delay : expected) {
+            policy.onConnectFailed();
+            for (int i = 0; i < 100; i++) {
+                // 一半固定一半随机
+                assertThat(policy.nextDelay()).isBetween(delay / 2, delay);
+            }
+        }
+        assertThat(policy.getState()).isEqualTo(ReconnectPolicy.State.CLOSED);
+
+        ReconnectPolicy wide = new ReconnectPolicy(100, 1000, 100, 30_000, 10_000);
+        for (int i = 0; i < 50; i++) {
+            wide.onConnectFailed();
+        }
+        for (int i = 0; i < 100; i++) {
+            assertThat(wide.nextDelay()).isBetween(500L, 1000L);
+        }
+    }
+
+    @Test
+    void opensBreakerAfterConsecutiveFailures() {
+        for (int i = 0; i < 5; i++) {
+            policy.onConnectFailed();
+        }
+
+        assertThat(policy.nextDelay()).isBetween(30_000L, 30_100L);
+        assertThat(policy.getState()).isEqualTo(ReconnectPolicy.State.OPEN);
+        assertThat(policy.getOpens()).isEqualTo(1);
+
+        // 熔断期间多次计算等待只算一次熔断
+        policy.nextDelay();
+        assertThat(policy.getOpens()).isEqualTo(1);
+    }
+
+    @Test
+    void halfOpenAttemptClosesOnSuccessAndReopensOnFailure() {
+        for (int i = 0; i < 5; i++) {
+            policy.onConnectFailed();
+        }
+        policy.nextDelay();
+
+        policy.onAttempt();
+        assertThat(policy.getState()).isEqualTo(ReconnectPolicy.State.HALF_OPEN);
+        policy.onConnectFailed();
+        policy.nextDelay();
+        assertThat(policy.getState()).isEqualTo(ReconnectPolicy.State.OPEN);
+        assertThat(policy.getOpens()).isEqualTo(2);
+
+        policy.onAttempt();
+        policy.onConnected(0);
+        assertThat(policy.getState()).isEqualTo(ReconnectPolicy.State.CLOSED);
+    }
+
+    @Test
+    void stableConnectionResetsFailures() {
+        policy.onConnectFailed();
+        policy.onConnectFailed();
+        policy.onConnected(1_000);
+        policy.onClosed(11_000);
+
+        assertThat(policy.getFailures()).isZero();
+        assertThat(policy.nextDelay()).isZero();
+    }
+
+    @Test
+    void shortLivedConnectionCountsAsFailure() {
+        policy.onConnectFailed();
+        policy.onConnected(1_000);
+        policy.onClosed(2_000);
+
+        assertThat(policy.getFailures()).isEqualTo(2);
+        assertThat(policy.nextDelay()).isBetween(100L, 200L);
+
+        // 没连上就关闭也算失败
+        policy.onClosed(3_000);
+        assertThat(policy.getFailures()).isEqualTo(3);
+    }
+
+    @Test
+    void rejectsInvalidSettings() {
+        assertThrows(IllegalArgumentException.class, () -> new ReconnectPolicy(0, 1000, 5, 30_000, 10_000));
+        assertThrows(IllegalArgumentException.class, () -> new ReconnectPolicy(100, 50, 5, 30_000, 10_000));
+        assertThrows(IllegalArgumentException.class, () -> new ReconnectPolicy(100, 1000, 0, 30_000, 10_000));
+    }
+}
@@ -0,0 +1,140 @@
+package com.ll.news.trades;
+
+import io.vertx.core.buffer.Buffer;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * AggTradeParser 测试
+ * 覆盖带引号和不带引号的数值、指数、有效位过多时的退回、缺少字段和Buffer解析
+ */
+class AggTradeParserTest {
+
+    private static final String FRAME = "{\"stream\":\"btcusdt@aggTrade\",\"data\":{\"e\":\"aggTrade\",\"E\":1718000000123,"
+            + "\"s\":\"BTCUSDT\",\"a\":3000000001,\"p\":\"67012.34\",\"q\":\"0.01500\",\"f\":4000000001,\"l\":4000000003,"
+            + "\"T\":1718000000122,\"m\":true,\"M\":true}}";
+
+    private final AggTradeParser parser = new AggTradeParser();
+
+    private final AggTrade trade = new AggTrade();
+
+    @Test
+    void parsesCombinedStreamMessage() {
+        assertThat(parser.parse(FRAME, trade)).isTrue();
+
+        assertThat(trade.getSymbol()).isEqualTo("BTCUSDT");
+        assertThat(trade.getPrice()).isEqualTo(67012.34);
+        assertThat(trade.getQty()).isEqualTo(0.015);
+        assertThat(trade.isMaker()).isTrue();
+        assertThat(trade.getEventTime()).isEqualTo(1718000000123L);
+        assertThat(trade.getId()).isEqualTo(3000000001L);
+        assertThat(trade.getFirstId()).isEqualTo(4000000001L);
+        assertThat(trade.getLastId()).isEqualTo(4000000003L);
+    }
+
+    @Test
+    void parsesUnquotedNumbersAndWhitespace() {
+        String text = "{ \"e\" : \"aggTrade\", \"E\" : 1718000000123, \"s\" : \"ETHUSDT\", \"p\" : 3500.5, \"q\" : 12 , \"m\" : false }";
+
+        assertThat(parser.parse(text, trade)).isTrue();
+        assertThat(trade.getSymbol()).isEqualTo("ETHUSDT");
+        assertThat(trade.getPrice()).isEqualTo(3500.5);
+        assertThat(trade.getQty()).isEqualTo(12.0);
+        assertThat(trade.isMaker()).isFalse();
+        assertThat(trade.getEventTime()).isEqualTo(1718000000123L);
+    }
+
+    @Test
+    void parsesExponentsAndSigns() {
+        assertThat(parser.parse(message("\"1.5e3\"", "2E-8"), trade)).isTrue();
+        assertThat(trade.getPrice()).isEqualTo(1500.0);
+        assertThat(trade.getQty()).isEqualTo(2e-8);
+
+        assertThat(parser.parse(message("-0.25", "\"+3\""), trade)).isTrue();
+        assertThat(trade.getPrice()).isEqualTo(-0.25);
+        assertThat(trade.getQty()).isEqualTo(3.0);
+    }
+
+    @Test
+    void matchesDoubleParseDoubleForManyDigits() {
+        String[] values = {"0.00000001", "123456789.12345678", "99999999999999999999.5", "0.1", "67000.00000000",
+                "1234567890123456789", "0.000000000000000000000001"};
+        for (String value : values) {
+            assertThat(parser.parse(message("\"" + value + "\"", value), trade)).as(value).isTrue();
+            assertThat(trade.getPrice()).as(value).isEqualTo(Double.parseDouble(value));
+            assertThat(trade.getQty()).as(value).isEqualTo(Double.parseDouble(value));
+        }
+    }
+
+    @Test
+    void failsWhenRequiredFieldIsMissing() {
+        String noQty = "{\"E\":1718000000123,\"s\":\"BTCUSDT\",\"p\":\"67012.34\",\"m\":true}";
+        assertThat(parser.parse(noQty, trade)).isFalse();
+
+        String noSymbol = "{\"E\":1718000000123,\"p\":\"67012.34\",\"q\":\"1\",\"m\":true}";
+        assertThat(parser.parse(noSymbol, trade)).isFalse();
+
+        // 订阅响应
+        assertThat(parser.parse("{\"result\":null,\"id\":1}", trade)).isFalse();
+        assertThat(parser.parse("", trade)).isFalse();
+    }
+
+    @Test
+    void failsOnMalformedValues() {
+        assertThat(parser.parse(message("\"abc\"", "1"), trade)).isFalse();
+        assertThat(parser.parse("{\"E\":1,\"s\":\"BTCUSDT\",\"p\":\"1\",\"q\":\"1\",\"m\":1}", trade)).isFalse();
+        assertThat(parser.parse("{\"E\":1,\"s\":BTCUSDT,\"p\":\"1\",\"q\":\"1\",\"m\":true}", trade)).isFalse();
+        // 截断的消息
+        assertThat(parser.parse(FRAME.substring(0, FRAME.indexOf("\"q\":") + 5), trade)).isFalse();
+    }
+
+    @Test
+    void idsAreOptional() {
+        assertThat(parser.parse(FRAME, trade)).isTrue();
+        // 没有成交id时为-1, 不保留上一条的值
+        assertThat(parser.parse(message("1", "2"), trade)).isTrue();
+        assertThat(trade.getId()).isEqualTo(-1);
+        assertThat(trade.getFirstId()).isEqualTo(-1);
+        assertThat(trade.getLastId()).isEqualTo(-1);
+    }
+
+    @Test
+    void ignoresKeysInsideValuesAndLongerKeys() {
+        String text = "{\"e\":\"\\\"p\\\":\",\"price\":\"1\",\"E\":5,\"s\":\"BTCUSDT\",\"p\":\"2\",\"q\":\"3\",\"m\":false}";
+
+        assertThat(parser.parse(text, trade)).isTrue();
+        assertThat(trade.getPrice()).isEqualTo(2.0);
+        assertThat(trade.getQty()).isEqualTo(3.0);
+    }
+
+    @Test
+    void reusesSymbolStrings() {
+        assertThat(parser.parse(FRAME, trade)).isTrue();
+        String first = trade.getSymbol();
+        assertThat(parser.parse(FRAME, trade)).isTrue();
+
+        assertThat(trade.getSymbol()).isSameAs(first);
+    }
+
+    @Test
+    void parsesBuffer() {
+        assertThat(parser.parse(Buffer.buffer(FRAME), trade)).isTrue();
+
+        assertThat(trade.getSymbol()).isEqualTo("BTCUSDT");
+        assertThat(trade.getPrice()).isEqualTo(67012.34);
+        assertThat(trade.getLastId()).isEqualTo(4000000003L);
+    }
+
+    @Test
+    void hashesStreamName() {
+        assertThat(AggTradeParser.isStreamMessage(FRAME)).isTrue();
+        assertThat(AggTradeParser.streamHash(FRAME)).isEqualTo("btcusdt".hashCode());
+        assertThat(AggTradeParser.isStreamMessage("{\"result\":null}")).isFalse();
+        assertThat(AggTradeParser.streamHash("{\"result\":null}")).isZero();
+    }
+
+    private static String message(String price, String qty) {
+        return "{\"E\":1718000000123,\"s\":\"BTCUSDT\",\"p\":" + price + ",\"q\":" + qty + ",\"m\":true}";
+    }
+}
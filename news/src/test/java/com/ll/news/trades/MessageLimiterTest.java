@@ -0,0 +1,53 @@
+package com.ll.news.trades;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * MessageLimiter 测试, 时间由测试传入
+ */
+class MessageLimiterTest {
+
+    private static final long MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+
+    @Test
+    void keepsReserveForControlFrames() {
+        MessageLimiter limiter = new MessageLimiter(5, 2);
+
+        assertThat(limiter.tryAcquire(0)).isTrue();
+        assertThat(limiter.tryAcquire(0)).isTrue();
+        assertThat(limiter.tryAcquire(0)).isTrue();
+        assertThat(limiter.tryAcquire(0)).isFalse();
+    }
+
+    @Test
+    void controlFramesCountAgainstSubscriptions() {
+        MessageLimiter limiter = new MessageLimiter(5, 2);
+        limiter.record(0);
+        limiter.record(0);
+
+        assertThat(limiter.tryAcquire(0)).isTrue();
+        assertThat(limiter.tryAcquire(0)).isFalse();
+    }
+
+    @Test
+    void releasesMessagesOlderThanOneSecond() {
+        MessageLimiter limiter = new MessageLimiter(5, 2);
+        assertThat(limiter.tryAcquire(0)).isTrue();
+        assertThat(limiter.tryAcquire(500 * MILLI)).isTrue();
+        assertThat(limiter.tryAcquire(500 * MILLI)).isTrue();
+
+        assertThat(limiter.tryAcquire(999 * MILLI)).isFalse();
+        assertThat(limiter.tryAcquire(1000 * MILLI)).isTrue();
+        assertThat(limiter.tryAcquire(1000 * MILLI)).isFalse();
+    }
+
+    @Test
+    void rejectsReserveNotBelowLimit() {
+        assertThatThrownBy(() -> new MessageLimiter(5, 5)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
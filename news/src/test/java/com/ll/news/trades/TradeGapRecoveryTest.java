@@ -0,0 +1,251 @@
+package com.ll.news.trades;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * TradeGapRecovery 测试
+ * REST请求放进队列由测试手动执行, 回到分片直接在当前线程执行, 覆盖补齐、缓存满、迟到的结果和重复成交
+ */
+class TradeGapRecoveryTest {
+
+    private final Queue<Runnable> tasks = new ArrayDeque<>();
+
+    private final List<Long> applied = new ArrayList<>();
+
+    private final Consumer<AggTrade> apply = trade -> applied.add(trade.getId());
+
+    private final Consumer<Runnable> resume = Runnable::run;
+
+    private final TradeGapRecovery.Sequence seq = new TradeGapRecovery.Sequence();
+
+    @Test
+    void appliesInOrderAndSkipsDuplicates() {
+        TradeGapRecovery recovery = recovery((symbol, fromId, limit) -> List.of(), 100, 10);
+
+        accept(recovery, 1, 2, 2, 3, 1);
+
+        assertThat(applied).containsExactly(1L, 2L, 3L);
+        assertThat(recovery.stats().getDuplicates()).isEqualTo(2);
+        assertThat(recovery.stats().getGaps()).isZero();
+    }
+
+    @Test
+    void backfillsGapAndAppliesBufferedAfterIt() {
+        TradeGapRecovery recovery = recovery(range(3, 4), 100, 10);
+
+        accept(recovery, 1, 2, 5, 6);
+        // 补齐完成前只写入缺口之前的成交
+        assertThat(applied).containsExactly(1L, 2L);
+
+        runTasks();
+        assertThat(applied).containsExactly(1L, 2L, 3L, 4L, 5L, 6L);
+        TradeGapRecovery.Stats stats = recovery.stats();
+        assertThat(stats.getGaps()).isEqualTo(1);
+        assertThat(stats.getMissing()).isEqualTo(2);
+        assertThat(stats.getRecovered()).isEqualTo(2);
+        assertThat(stats.getLost()).isZero();
+    }
+
+    @Test
+    void skipsBufferedDuplicatesAfterBackfill() {
+        TradeGapRecovery recovery = recovery(range(3, 4), 100, 10);
+
+        // 补齐期间重复推送了缺口内和缺口之前的成交
+        accept(recovery, 1, 2, 5, 4, 2, 6);
+        runTasks();
+
+        assertThat(applied).containsExactly(1L, 2L, 3L, 4L, 5L, 6L);
+        assertThat(recovery.stats().getDuplicates()).isEqualTo(2);
+    }
+
+    @Test
+    void givesUpWhenBufferIsFullAndIgnoresLateResult() {
+        TradeGapRecovery recovery = recovery(range(3, 4), 100, 2);
+
+        accept(recovery, 1, 2, 5, 6, 7);
+        // 缓存满了放弃补齐, 缓存的成交和新成交按顺序写入
+        assertThat(applied).containsExactly(1L, 2L, 5L, 6L, 7L);
+        assertThat(recovery.stats().getLost()).isEqualTo(2);
+
+        // 迟到的结果被忽略, 不会乱序写入
+        runTasks();
+        assertThat(applied).containsExactly(1L, 2L, 5L, 6L, 7L);
+        assertThat(recovery.stats().getRecovered()).isZero();
+
+        accept(recovery, 8);
+        assertThat(applied).containsExactly(1L, 2L, 5L, 6L, 7L, 8L);
+    }
+
+    @Test
+    void startsNewBackfillForGapInsideBuffer() {
+        List<String> requests = new ArrayList<>();
+        TradeGapRecovery recovery = recovery((symbol, fromId, limit) -> {
+            requests.add(fromId + "+" + limit);
+            return fromId == 3 ? range(3, 3).fetch(symbol, fromId, limit) : range(6, 6).fetch(symbol, fromId, limit);
+        }, 100, 10);
+
+        accept(recovery, 1, 2, 4, 5, 7, 8);
+        runTasks();
+
+        assertThat(requests).containsExactly("3+1", "6+1");
+        assertThat(applied).containsExactly(1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L);
+        assertThat(recovery.stats().getGaps()).isEqualTo(2);
+        assertThat(recovery.stats().getRecovered()).isEqualTo(2);
+    }
+
+    @Test
+    void countsUnrecoveredTradesAsLost() {
+        TradeGapRecovery partial = recovery(range(3, 3), 100, 10);
+        accept(partial, 1, 2, 6);
+        runTasks();
+        assertThat(applied).containsExactly(1L, 2L, 3L, 6L);
+        assertThat(partial.stats().getRecovered()).isEqualTo(1);
+        assertThat(partial.stats().getLost()).isEqualTo(2);
+
+        applied.clear();
+        TradeGapRecovery failing = recovery((symbol, fromId, limit) -> {
+            throw new IOException("timeout");
+        }, 100, 10);
+        TradeGapRecovery.Sequence other = new TradeGapRecovery.Sequence();
+        for (long id : new long[]{1, 2, 5}) {
+            failing.accept(other, trade(id), apply, resume);
+        }
+        runTasks();
+        assertThat(applied).containsExactly(1L, 2L, 5L);
+        assertThat(failing.stats().getLost()).isEqualTo(2);
+    }
+
+    @Test
+    void skipsGapLargerThanMaxMissing() {
+        TradeGapRecovery recovery = recovery(range(3, 100), 10, 10);
+
+        accept(recovery, 1, 2, 100);
+
+        assertThat(tasks).isEmpty();
+        assertThat(applied).containsExactly(1L, 2L, 100L);
+        assertThat(recovery.stats().getLost()).isEqualTo(97);
+    }
+
+    @Test
+    void countsGapAsLostWhenWeightIsExhausted() {
+        // 额度只够一次请求
+        TradeGapRecovery recovery = new TradeGapRecovery("test", range(3, 10), tasks::add, 100, 10,
+                new WeightLimiter(2, System.nanoTime()), 2);
+
+        accept(recovery, 1, 2, 4);
+        runTasks();
+        accept(recovery, 6);
+
+        assertThat(tasks).isEmpty();
+        assertThat(applied).containsExactly(1L, 2L, 3L, 4L, 6L);
+        TradeGapRecovery.Stats stats = recovery.stats();
+        assertThat(stats.getGaps()).isEqualTo(2);
+        assertThat(stats.getThrottled()).isEqualTo(1);
+        assertThat(stats.getLost()).isEqualTo(1);
+    }
+
+    @Test
+    void countsGapAsLostWhenExecutorRejects() {
+        TradeGapRecovery recovery = new TradeGapRecovery("test", range(3, 4), task -> {
+            throw new RejectedExecutionException("full");
+        }, 100, 10);
+
+        accept(recovery, 1, 2, 5, 6);
+
+        assertThat(applied).containsExactly(1L, 2L, 5L, 6L);
+        assertThat(recovery.stats().getThrottled()).isEqualTo(1);
+        assertThat(recovery.stats().getLost()).isEqualTo(2);
+    }
+
+    @Test
+    void refundsWeightWhenExecutorRejects() {
+        WeightLimiter limiter = new WeightLimiter(2, System.nanoTime());
+        TradeGapRecovery recovery = new TradeGapRecovery("test", range(3, 4), task -> {
+            throw new RejectedExecutionException("full");
+        }, 100, 10, limiter, 2);
+
+        accept(recovery, 1, 2, 5);
+
+        // 没有提交的请求不占用额度
+        assertThat(limiter.tryAcquire(2)).isTrue();
+    }
+
+    @Test
+    void marksOnlyBackfilledTrades() {
+        TradeGapRecovery recovery = recovery(range(3, 4), 100, 10);
+        List<Long> backfilled = new ArrayList<>();
+        Consumer<AggTrade> mark = trade -> {
+            applied.add(trade.getId());
+            if (trade.isBackfilled()) {
+                backfilled.add(trade.getId());
+            }
+        };
+
+        for (long id : new long[]{1, 2, 5, 6}) {
+            recovery.accept(seq, trade(id), mark, resume);
+        }
+        runTasks();
+
+        assertThat(applied).containsExactly(1L, 2L, 3L, 4L, 5L, 6L);
+        assertThat(backfilled).containsExactly(3L, 4L);
+    }
+
+    @Test
+    void appliesTradesWithoutId() {
+        TradeGapRecovery recovery = recovery(range(3, 4), 100, 10);
+
+        accept(recovery, 1, -1, -1, 2);
+
+        assertThat(applied).containsExactly(1L, -1L, -1L, 2L);
+        assertThat(recovery.stats().getDuplicates()).isZero();
+    }
+
+    private TradeGapRecovery recovery(AggTradeSource source, int maxMissing, int maxBuffered) {
+        return new TradeGapRecovery("test", source, tasks::add, maxMissing, maxBuffered);
+    }
+
+    private void accept(TradeGapRecovery recovery, long... ids) {
+        for (long id : ids) {
+            recovery.accept(seq, trade(id), apply, resume);
+        }
+    }
+
+    private void runTasks() {
+        Runnable task;
+        while ((task = tasks.poll()) != null) {
+            task.run();
+        }
+    }
+
+    /**
+     * @return 有[first, last]范围内成交的来源
+     */
+    private static AggTradeSource range(long first, long last) {
+        return (symbol, fromId, limit) -> {
+            List<AggTrade> page = new ArrayList<>();
+            for (long id = Math.max(first, fromId); id <= last && page.size() < limit; id++) {
+                page.add(trade(id));
+            }
+            return page;
+        };
+    }
+
+    private static AggTrade trade(long id) {
+        AggTrade trade = new AggTrade();
+        trade.setSymbol("BTCUSDT");
+        trade.setId(id);
+        trade.setPrice(100);
+        trade.setQty(1);
+        return trade;
+    }
+}
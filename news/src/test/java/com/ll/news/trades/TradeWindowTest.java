@@ -0,0 +1,119 @@
+package com.ll.news.trades;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * TradeWindow 测试
+ * 覆盖多个窗口各自移出过期成交、环形数组扩容、已过期但还没移出时的读取
+ */
+class TradeWindowTest {
+
+    private static final long SECOND = 1000;
+
+    @Test
+    void evictsEachWindowIndependently() {
+        TradeWindow window = new TradeWindow(1000, 10 * SECOND, 60 * SECOND);
+        window.add(trade(0, 100, 1, false), 0);
+        window.add(trade(5 * SECOND, 100, 2, true), 5 * SECOND);
+        window.add(trade(20 * SECOND, 100, 20, false), 20 * SECOND);
+
+        // 10秒窗口只剩最后一笔, 60秒窗口三笔都在
+        TradeWindow.Stats shortWindow = window.stats(0, 20 * SECOND);
+        assertThat(shortWindow.getWindowMillis()).isEqualTo(10 * SECOND);
+        assertThat(shortWindow.getBuy().getCount()).isEqualTo(1);
+        assertThat(shortWindow.getBuy().getQty()).isCloseTo(20, within(1e-9));
+        assertThat(shortWindow.getSell().getCount()).isZero();
+
+        TradeWindow.Stats longWindow = window.stats(1, 20 * SECOND);
+        assertThat(longWindow.getBuy().getCount()).isEqualTo(2);
+        assertThat(longWindow.getBuy().getQty()).isCloseTo(21, within(1e-9));
+        assertThat(longWindow.getSell().getCount()).isEqualTo(1);
+        assertThat(longWindow.getSell().getAmount()).isCloseTo(200, within(1e-9));
+
+        // 超过60秒后全部移出
+        window.add(trade(90 * SECOND, 100, 3, true), 90 * SECOND);
+        TradeWindow.Stats later = window.stats(1, 90 * SECOND);
+        assertThat(later.getBuy().getCount()).isZero();
+        assertThat(later.getBuy().getQty()).isZero();
+        assertThat(later.getSell().getCount()).isEqualTo(1);
+        assertThat(later.getSell().getQty()).isCloseTo(3, within(1e-9));
+    }
+
+    @Test
+    void countsLargeTradesAboveThreshold() {
+        TradeWindow window = new TradeWindow(1000, 60 * SECOND);
+        window.add(trade(0, 100, 5, false), 0);
+        window.add(trade(1, 100, 15, false), 1);
+        window.add(trade(2, 100, 20, true), 2);
+
+        TradeWindow.Stats stats = window.stats(0, 2);
+        assertThat(stats.side(false).getCount()).isEqualTo(2);
+        assertThat(stats.side(false).getLargeCount()).isEqualTo(1);
+        assertThat(stats.side(false).getLargeQty()).isCloseTo(15, within(1e-9));
+        assertThat(stats.side(false).getLargeAmount()).isCloseTo(1500, within(1e-9));
+        assertThat(stats.side(true).getLargeCount()).isEqualTo(1);
+    }
+
+    @Test
+    void growsRingWhenWindowHoldsMoreThanCapacity() {
+        TradeWindow window = new TradeWindow(1000, 10 * SECOND, 60 * SECOND);
+        int count = 5000;
+        for (int i = 0; i < count; i++) {
+            window.add(trade(i, 100, 1, i % 2 == 1), i);
+        }
+
+        // 初始容量1024, 全部5000笔都在60秒窗口里, 扩容后没有丢失或错位
+        TradeWindow.Stats stats = window.stats(1, count - 1);
+        assertThat(stats.getBuy().getCount() + stats.getSell().getCount()).isEqualTo(count);
+        assertThat(stats.getBuy().getQty()).isCloseTo(count / 2.0, within(1e-6));
+
+        // 扩容后继续滑动, 10秒后移出前面的成交
+        long now = count - 1 + 10 * SECOND + 1;
+        window.add(trade(now, 100, 1, false), now);
+        TradeWindow.Stats shortWindow = window.stats(0, now);
+        assertThat(shortWindow.getBuy().getCount()).isEqualTo(1);
+        assertThat(shortWindow.getSell().getCount()).isZero();
+        TradeWindow.Stats longWindow = window.stats(1, now);
+        assertThat(longWindow.getBuy().getCount() + longWindow.getSell().getCount()).isEqualTo(count + 1);
+    }
+
+    @Test
+    void readDeductsExpiredButNotEvictedTrades() {
+        TradeWindow window = new TradeWindow(1000, 10 * SECOND);
+        window.add(trade(0, 100, 1, false), 0);
+        window.add(trade(5 * SECOND, 100, 2, false), 5 * SECOND);
+        window.add(trade(8 * SECOND, 100, 4, true), 8 * SECOND);
+
+        // 没有新成交写入, 窗口里还保留着过期的成交, 读取时扣除
+        TradeWindow.Stats stats = window.stats(0, 12 * SECOND);
+        assertThat(stats.getBuy().getCount()).isEqualTo(1);
+        assertThat(stats.getBuy().getQty()).isCloseTo(2, within(1e-9));
+        assertThat(stats.getSell().getCount()).isEqualTo(1);
+
+        stats = window.stats(0, 30 * SECOND);
+        assertThat(stats.getBuy().getCount()).isZero();
+        assertThat(stats.getSell().getCount()).isZero();
+
+        // 读取不修改窗口, 较早的时间仍能读到全部
+        assertThat(window.stats(0, 8 * SECOND).getBuy().getCount()).isEqualTo(2);
+    }
+
+    @Test
+    void rejectsNoWindow() {
+        assertThrows(IllegalArgumentException.class, () -> new TradeWindow(1000));
+    }
+
+    private static AggTrade trade(long eventTime, double price, double qty, boolean sell) {
+        AggTrade trade = new AggTrade();
+        trade.setSymbol("BTCUSDT");
+        trade.setEventTime(eventTime);
+        trade.setPrice(price);
+        trade.setQty(qty);
+        trade.setMaker(sell);
+        return trade;
+    }
+}
@@ -0,0 +1,70 @@
+package com.ll.news.trades;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * WeightLimiter 测试, 时间由测试传入
+ */
+class WeightLimiterTest {
+
+    private static final long MINUTE = TimeUnit.MINUTES.toNanos(1);
+
+    @Test
+    void allowsBurstUpToWeightPerMinute() {
+        WeightLimiter limiter = new WeightLimiter(60, 0);
+
+        assertThat(limiter.tryAcquire(40, 0)).isTrue();
+        assertThat(limiter.tryAcquire(20, 0)).isTrue();
+        assertThat(limiter.tryAcquire(1, 0)).isFalse();
+    }
+
+    @Test
+    void refusalDoesNotConsumeWeight() {
+        WeightLimiter limiter = new WeightLimiter(60, 0);
+
+        assertThat(limiter.tryAcquire(50, 0)).isTrue();
+        assertThat(limiter.tryAcquire(20, 0)).isFalse();
+        assertThat(limiter.tryAcquire(10, 0)).isTrue();
+    }
+
+    @Test
+    void refillsEvenlyUpToCapacity() {
+        WeightLimiter limiter = new WeightLimiter(60, 0);
+        assertThat(limiter.tryAcquire(60, 0)).isTrue();
+
+        // 每秒恢复1
+        assertThat(limiter.tryAcquire(10, TimeUnit.SECONDS.toNanos(9))).isFalse();
+        assertThat(limiter.tryAcquire(10, TimeUnit.SECONDS.toNanos(10))).isTrue();
+
+        // 空闲很久也只恢复到每分钟的额度
+        long later = 10 * MINUTE;
+        assertThat(limiter.tryAcquire(60, later)).isTrue();
+        assertThat(limiter.tryAcquire(1, later)).isFalse();
+    }
+
+    @Test
+    void requestHeavierThanCapacityIsNeverAllowed() {
+        WeightLimiter limiter = new WeightLimiter(10, 0);
+
+        assertThat(limiter.tryAcquire(20, MINUTE)).isFalse();
+        assertThat(limiter.tryAcquire(10, MINUTE)).isTrue();
+    }
+
+    @Test
+    void refundRestoresWeightUpToCapacity() {
+        WeightLimiter limiter = new WeightLimiter(60, 0);
+        assertThat(limiter.tryAcquire(60, 0)).isTrue();
+
+        limiter.refund(20);
+        assertThat(limiter.tryAcquire(20, 0)).isTrue();
+        assertThat(limiter.tryAcquire(1, 0)).isFalse();
+
+        limiter.refund(100);
+        assertThat(limiter.tryAcquire(61, 0)).isFalse();
+        assertThat(limiter.tryAcquire(60, 0)).isTrue();
+    }
+}
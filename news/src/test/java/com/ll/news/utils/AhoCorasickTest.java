@@ -0,0 +1,71 @@
+package com.ll.news.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * AhoCorasick 测试
+ * 覆盖重叠、嵌套的模式, 失败链上的输出和大小写
+ */
+class AhoCorasickTest {
+
+    @Test
+    void matchesOverlappingPatterns() {
+        AhoCorasick ac = new AhoCorasick(List.of("he", "she", "his", "hers"));
+
+        assertThat(indexes(ac.match("ushers"))).containsExactly(0, 1, 3);
+        assertThat(indexes(ac.match("ahishers"))).containsExactly(0, 1, 2, 3);
+    }
+
+    @Test
+    void matchesNestedPatterns() {
+        // 短模式是长模式的前缀、后缀和中间部分
+        AhoCorasick ac = new AhoCorasick(List.of("bitcoin", "bit", "coin", "tco", "bitcoin etf"));
+
+        assertThat(indexes(ac.match("spot bitcoin etf approved"))).containsExactly(0, 1, 2, 3, 4);
+        assertThat(indexes(ac.match("bitcoin"))).containsExactly(0, 1, 2, 3);
+        assertThat(indexes(ac.match("coinbase"))).containsExactly(2);
+    }
+
+    @Test
+    void followsFailureLinksAfterPartialMatch() {
+        AhoCorasick ac = new AhoCorasick(List.of("abcd", "bce", "c"));
+
+        // abc之后遇到e, 沿失败链转到bc继续匹配
+        assertThat(indexes(ac.match("abce"))).containsExactly(1, 2);
+        assertThat(indexes(ac.match("aabcd"))).containsExactly(0, 2);
+    }
+
+    @Test
+    void ignoresCase() {
+        AhoCorasick ac = new AhoCorasick(List.of("ETF", "SEC", "Binance"));
+
+        assertThat(indexes(ac.match("sec delays eth etf, BINANCE responds"))).containsExactly(0, 1, 2);
+        assertThat(indexes(ac.match("Etf"))).containsExactly(0);
+    }
+
+    @Test
+    void matchesNonAsciiPatterns() {
+        AhoCorasick ac = new AhoCorasick(List.of("比特币", "以太坊", "币安"));
+
+        assertThat(indexes(ac.match("比特币现货ETF获批, 币安上线"))).containsExactly(0, 2);
+    }
+
+    @Test
+    void skipsEmptyPatternsAndKeepsIndexes() {
+        AhoCorasick ac = new AhoCorasick(List.of("", "eth", "btc"));
+
+        assertThat(ac.size()).isEqualTo(3);
+        assertThat(indexes(ac.match("btc and eth"))).containsExactly(1, 2);
+        assertThat(indexes(ac.match(""))).isEmpty();
+        assertThat(indexes(ac.match("sol"))).isEmpty();
+    }
+
+    private static int[] indexes(BitSet matched) {
+        return matched.stream().toArray();
+    }
+}
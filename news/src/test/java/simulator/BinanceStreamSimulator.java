@@ -0,0 +1,489 @@
+package simulator;
+
+import com.alibaba.fastjson2.JSONArray;
+import com.alibaba.fastjson2.JSONObject;
+import com.alibaba.fastjson2.JSONWriter;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpHeaders;
+import io.vertx.core.http.HttpServer;
+import io.vertx.core.http.HttpServerRequest;
+import io.vertx.core.http.ServerWebSocket;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.Getter;
+import lombok.ToString;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 本地的币安组合流模拟
+ * <ul>
+ *     <li>/stream?streams=btcusdt@aggTrade/... 建立连接, 支持SUBSCRIBE、UNSUBSCRIBE、LIST_SUBSCRIPTIONS, 每秒消息数和流数量超限时断开或报错</li>
+ *     <li>按设定的速率生成aggTrade, 成交id按时间推进, 断线期间的成交在重连后形成缺口</li>
+ *     <li>/api/v3/aggTrades和/fapi/v1/aggTrades按id返回同样的成交, 用于补齐缺口</li>
+ *     <li>定时ping, 超时没有pong断开; 可以强制断开所有连接, 或一段时间内拒绝连接</li>
+ * </ul>
+ * 成交内容由币对和id决定, 同一个成交从流和REST拿到的一样
+ */
+public class BinanceStreamSimulator implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(BinanceStreamSimulator.class);
+
+    private static final String STREAM_SUFFIX = "@aggTrade";
+
+    @Data
+    public static class Options {
+
+        private int port = 0;
+
+        /**
+         * 每个流每秒的成交数
+         */
+        private double ratePerStream = 1000;
+
+        /**
+         * 每个连接的流数量上限
+         */
+        private int maxStreams = 1024;
+
+        /**
+         * 每个连接每秒收到的消息上限, 超过时断开
+         */
+        private int maxMessagesPerSecond = 5;
+
+        /**
+         * 发送ping的间隔（毫秒）, 0不发送
+         */
+        private long pingMillis = 20_000;
+
+        /**
+         * 多久没有收到pong断开（毫秒）
+         */
+        private long pongTimeoutMillis = 60_000;
+
+        /**
+         * 定时断开所有连接的间隔（毫秒）, 0不断开
+         */
+        private long disconnectEveryMillis = 0;
+
+        /**
+         * 每多少笔成交出现一笔大单
+         */
+        private int largeEvery = 1000;
+
+        /**
+         * 单次生成最多补发的成交数, 发送跟不上时不会一次堆积太多
+         */
+        private int maxBurst = 5_000;
+    }
+
+    private final Vertx vertx;
+
+    private final Options options;
+
+    private final long startMillis = System.currentTimeMillis();
+
+    private final Set<Connection> connections = ConcurrentHashMap.newKeySet();
+
+    private HttpServer server;
+
+    private long disconnectTimer = -1;
+
+    private volatile long refuseUntil;
+
+    private final AtomicInteger totalConnections = new AtomicInteger();
+
+    private final LongAdder framesSent = new LongAdder();
+
+    private final LongAdder requests = new LongAdder();
+
+    private final LongAdder rateLimitCloses = new LongAdder();
+
+    private final LongAdder pingTimeouts = new LongAdder();
+
+    private final LongAdder pongs = new LongAdder();
+
+    private final LongAdder refused = new LongAdder();
+
+    private final LongAdder backpressure = new LongAdder();
+
+    private final LongAdder restRequests = new LongAdder();
+
+    public BinanceStreamSimulator(Vertx vertx, Options options) {
+        this.vertx = vertx;
+        this.options = options;
+    }
+
+    /**
+     * @return 监听的端口
+     */
+    public int start() throws Exception {
+        server = vertx.createHttpServer()
+                .requestHandler(this::handle)
+                .listen(options.getPort())
+                .toCompletionStage().toCompletableFuture().get(10, TimeUnit.SECONDS);
+        if (options.getDisconnectEveryMillis() > 0) {
+            disconnectTimer = vertx.setPeriodic(options.getDisconnectEveryMillis(), t -> disconnectAll());
+        }
+        log.info("simulator listening on {}, {}", server.actualPort(), options);
+        return server.actualPort();
+    }
+
+    /**
+     * 强制断开所有连接
+     */
+    public void disconnectAll() {
+        for (Connection connection : connections) {
+            connection.ws.close((short) 1001, "simulated disconnect");
+        }
+    }
+
+    /**
+     * 一段时间内拒绝新连接, 模拟交易所不可用
+     */
+    public void refuseConnections(long millis) {
+        refuseUntil = System.currentTimeMillis() + millis;
+        disconnectAll();
+    }
+
+    /**
+     * 成交id按时间推进, 和有没有连接无关
+     */
+    public long currentId(long now) {
+        return (long) ((now - startMillis) * options.getRatePerStream() / 1000);
+    }
+
+    public Stats stats() {
+        return new Stats(connections.size(), totalConnections.get(), framesSent.sum(), requests.sum(), rateLimitCloses.sum(),
+                pingTimeouts.sum(), pongs.sum(), refused.sum(), backpressure.sum(), restRequests.sum());
+    }
+
+    @Override
+    public void close() {
+        if (disconnectTimer >= 0) {
+            vertx.cancelTimer(disconnectTimer);
+        }
+        disconnectAll();
+        if (server != null) {
+            server.close();
+        }
+    }
+
+    private void handle(HttpServerRequest request) {
+        if ("websocket".equalsIgnoreCase(request.getHeader(HttpHeaders.UPGRADE))) {
+            upgrade(request);
+        } else {
+            rest(request);
+        }
+    }
+
+    /**
+     * 握手前在HTTP请求上校验路径、拒绝状态和订阅数量
+     */
+    private void upgrade(HttpServerRequest request) {
+        if (!"/stream".equals(request.path())) {
+            request.response().setStatusCode(404).end();
+            return;
+        }
+        if (System.currentTimeMillis() < refuseUntil) {
+            refused.increment();
+            request.response().setStatusCode(503).end();
+            return;
+        }
+        Set<String> streams = new LinkedHashSet<>();
+        String query = request.query();
+        if (query != null && query.startsWith("streams=")) {
+            for (String stream : query.substring("streams=".length()).split("/")) {
+                if (!stream.isEmpty()) {
+                    streams.add(stream);
+                }
+            }
+        }
+        if (streams.size() > options.getMaxStreams()) {
+            request.response().setStatusCode(400).end();
+            return;
+        }
+        request.toWebSocket().onSuccess(ws -> accept(ws, streams));
+    }
+
+    private void accept(ServerWebSocket ws, Set<String> streams) {
+        totalConnections.incrementAndGet();
+        Connection connection = new Connection(ws, streams);
+        connections.add(connection);
+        connection.start();
+    }
+
+    /**
+     * REST补齐接口, symbol、fromId、limit
+     */
+    private void rest(HttpServerRequest request) {
+        String path = request.path();
+        if (!"/api/v3/aggTrades".equals(path) && !"/fapi/v1/aggTrades".equals(path)) {
+            request.response().setStatusCode(404).end();
+            return;
+        }
+        restRequests.increment();
+        String symbol = request.getParam("symbol");
+        long fromId = Long.parseLong(request.getParam("fromId", "0"));
+        int limit = Math.min(1000, Integer.parseInt(request.getParam("limit", "500")));
+        long now = System.currentTimeMillis();
+        long to = Math.min(fromId + limit, currentId(now));
+        JSONArray array = new JSONArray();
+        for (long id = Math.max(0, fromId); id < to; id++) {
+            JSONObject trade = new JSONObject();
+            trade.put("a", id);
+            trade.put("p", price(symbol.toLowerCase(Locale.ROOT), id));
+            trade.put("q", qty(id));
+            trade.put("f", id * 2);
+            trade.put("l", id * 2 + 1);
+            trade.put("T", time(id));
+            trade.put("m", (id & 1) == 1);
+            trade.put("M", true);
+            array.add(trade);
+        }
+        request.response().putHeader("content-type", "application/json").end(array.toJSONString());
+    }
+
+    private long time(long id) {
+        return startMillis + (long) (id * 1000 / options.getRatePerStream());
+    }
+
+    /**
+     * 币对决定基准价, id决定波动
+     */
+    private static String price(String symbol, long id) {
+        long base = 100 + Math.floorMod(symbol.hashCode(), 60_000);
+        return base + "." + Math.floorMod(id * 7919, 100);
+    }
+
+    private String qty(long id) {
+        if (options.getLargeEvery() > 0 && id % options.getLargeEvery() == 0) {
+            return "5000.00";
+        }
+        return "0." + (1 + Math.floorMod(id * 31, 999));
+    }
+
+    private class Connection {
+
+        private final ServerWebSocket ws;
+
+        /**
+         * 流 -> 下一笔要发送的成交id, 只在连接的context上访问
+         */
+        private final Map<String, Long> cursors = new LinkedHashMap<>();
+
+        private final StringBuilder frame = new StringBuilder(256);
+
+        private long timer = -1;
+
+        private long pingTimer = -1;
+
+        private long lastPong = System.currentTimeMillis();
+
+        private long windowStart = System.currentTimeMillis();
+
+        private int windowMessages;
+
+        private Connection(ServerWebSocket ws, Set<String> streams) {
+            this.ws = ws;
+            long now = currentId(System.currentTimeMillis());
+            for (String stream : streams) {
+                cursors.put(stream, now);
+            }
+        }
+
+        private void start() {
+            ws.textMessageHandler(this::onRequest);
+            ws.pongHandler(b -> {
+                lastPong = System.currentTimeMillis();
+                pongs.increment();
+            });
+            ws.closeHandler(v -> {
+                vertx.cancelTimer(timer);
+                if (pingTimer >= 0) {
+                    vertx.cancelTimer(pingTimer);
+                }
+                connections.remove(this);
+            });
+            timer = vertx.setPeriodic(1, t -> generate());
+            if (options.getPingMillis() > 0) {
+                pingTimer = vertx.setPeriodic(options.getPingMillis(), t -> {
+                    if (System.currentTimeMillis() - lastPong > options.getPongTimeoutMillis()) {
+                        pingTimeouts.increment();
+                        ws.close((short) 1008, "pong timeout");
+                        return;
+                    }
+                    ws.writePing(Buffer.buffer("sim"));
+                });
+            }
+        }
+
+        /**
+         * 每毫秒补发到当前时间的成交, 发送队列满时停止, 下次继续
+         */
+        private void generate() {
+            if (ws.isClosed() || cursors.isEmpty()) {
+                return;
+            }
+            long now = System.currentTimeMillis();
+            long target = currentId(now);
+            int budget = options.getMaxBurst();
+            for (Map.Entry<String, Long> entry : cursors.entrySet()) {
+                long id = entry.getValue();
+                while (id < target && budget > 0) {
+                    if (ws.writeQueueFull()) {
+                        backpressure.increment();
+                        entry.setValue(id);
+                        return;
+                    }
+                    ws.writeTextMessage(frame(entry.getKey(), id, now));
+                    framesSent.increment();
+                    id++;
+                    budget--;
+                }
+                entry.setValue(id);
+            }
+        }
+
+        private String frame(String stream, long id, long now) {
+            String symbol = stream.substring(0, stream.length() - STREAM_SUFFIX.length());
+            StringBuilder sb = frame;
+            sb.setLength(0);
+            sb.append("{\"stream\":\"").append(stream)
+                    .append("\",\"data\":{\"e\":\"aggTrade\",\"E\":").append(now)
+                    .append(",\"s\":\"").append(symbol.toUpperCase(Locale.ROOT))
+                    .append("\",\"a\":").append(id)
+                    .append(",\"p\":\"").append(price(symbol, id))
+                    .append("\",\"q\":\"").append(qty(id))
+                    .append("\",\"f\":").append(id * 2)
+                    .append(",\"l\":").append(id * 2 + 1)
+                    .append(",\"T\":").append(time(id))
+                    .append(",\"m\":").append((id & 1) == 1)
+                    .append(",\"M\":true}}");
+            return sb.toString();
+        }
+
+        private void onRequest(String text) {
+            requests.increment();
+            long now = System.currentTimeMillis();
+            if (now - windowStart >= 1000) {
+                windowStart = now;
+                windowMessages = 0;
+            }
+            if (++windowMessages > options.getMaxMessagesPerSecond()) {
+                rateLimitCloses.increment();
+                ws.close((short) 1008, "too many requests");
+                return;
+            }
+            JSONObject request;
+            try {
+                request = JSONObject.parseObject(text);
+            } catch (Exception e) {
+                ws.writeTextMessage(error(null, "Invalid JSON"));
+                return;
+            }
+            Object id = request.get("id");
+            String method = request.getString("method");
+            JSONArray params = request.getJSONArray("params");
+            if ("LIST_SUBSCRIPTIONS".equals(method)) {
+                JSONObject response = new JSONObject();
+                response.put("result", new ArrayList<>(cursors.keySet()));
+                response.put("id", id);
+                ws.writeTextMessage(response.toJSONString());
+                return;
+            }
+            if (params == null || (!"SUBSCRIBE".equals(method) && !"UNSUBSCRIBE".equals(method))) {
+                ws.writeTextMessage(error(id, "Invalid request"));
+                return;
+            }
+            if ("SUBSCRIBE".equals(method)) {
+                Set<String> added = new LinkedHashSet<>();
+                for (int i = 0; i < params.size(); i++) {
+                    String stream = params.getString(i);
+                    if (!cursors.containsKey(stream)) {
+                        added.add(stream);
+                    }
+                }
+                if (cursors.size() + added.size() > options.getMaxStreams()) {
+                    ws.writeTextMessage(error(id, "Too many streams"));
+                    return;
+                }
+                long start = currentId(now);
+                for (String stream : added) {
+                    cursors.put(stream, start);
+                }
+            } else {
+                for (int i = 0; i < params.size(); i++) {
+                    cursors.remove(params.getString(i));
+                }
+            }
+            JSONObject response = new JSONObject();
+            response.put("result", null);
+            response.put("id", id);
+            ws.writeTextMessage(response.toJSONString(JSONWriter.Feature.WriteNulls));
+        }
+
+        private String error(Object id, String msg) {
+            JSONObject error = new JSONObject();
+            error.put("code", 2);
+            error.put("msg", msg);
+            JSONObject response = new JSONObject();
+            response.put("error", error);
+            response.put("id", id);
+            return response.toJSONString();
+        }
+    }
+
+    @Getter
+    @ToString
+    @AllArgsConstructor
+    public static class Stats {
+        /**
+         * 当前连接数
+         */
+        private final int connections;
+        /**
+         * 累计连接数
+         */
+        private final int totalConnections;
+        /**
+         * 发送的成交消息数
+         */
+        private final long framesSent;
+        /**
+         * 收到的订阅请求数
+         */
+        private final long requests;
+        /**
+         * 请求超限断开的次数
+         */
+        private final long rateLimitCloses;
+        /**
+         * pong超时断开的次数
+         */
+        private final long pingTimeouts;
+        /**
+         * 收到的pong数
+         */
+        private final long pongs;
+        /**
+         * 拒绝的连接数
+         */
+        private final long refused;
+        /**
+         * 发送队列满的次数
+         */
+        private final long backpressure;
+        /**
+         * REST请求数
+         */
+        private final long restRequests;
+    }
+}